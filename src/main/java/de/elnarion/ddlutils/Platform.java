@@ -24,6 +24,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
@@ -33,7 +34,10 @@ import de.elnarion.ddlutils.alteration.ModelChange;
 import de.elnarion.ddlutils.model.Database;
 import de.elnarion.ddlutils.model.Table;
 import de.elnarion.ddlutils.platform.CreationParameters;
+import de.elnarion.ddlutils.platform.BulkLoader;
 import de.elnarion.ddlutils.platform.JdbcModelReader;
+import de.elnarion.ddlutils.platform.PreparedStatementCache;
+import de.elnarion.ddlutils.platform.RowHandler;
 import de.elnarion.ddlutils.platform.SqlBuilder;
 
 /**
@@ -71,6 +75,14 @@ public interface Platform
      * @return The model reader
      */
     public JdbcModelReader getModelReader();
+
+    /**
+     * Returns the bulk loader which loads large amounts of rows into a table using the
+     * fastest mechanism that the database offers.
+     * 
+     * @return The bulk loader
+     */
+    public BulkLoader getBulkLoader();
     
     /**
      * Returns the data source that this platform uses to access the database.
@@ -237,6 +249,120 @@ public interface Platform
      */
     public void setDefaultOnDeleteActionUsedIfUnsupported(boolean useDefault);
 
+    /**
+     * Returns the maximum number of rows that the batch <code>insert</code>, <code>update</code>
+     * and <code>delete</code> methods put into one JDBC batch before executing it. A value of
+     * zero or less means that all subsequent rows for the same table are processed in one batch.
+     *
+     * @return The maximum batch size (1024 per default)
+     */
+    public int getMaxBatchSize();
+
+    /**
+     * Specifies the maximum number of rows that the batch <code>insert</code>, <code>update</code>
+     * and <code>delete</code> methods put into one JDBC batch before executing it. Larger
+     * collections of rows for the same table are split into several batches that use the
+     * same prepared statement.
+     *
+     * @param maxBatchSize The maximum batch size; use zero or a negative value for no limit
+     */
+    public void setMaxBatchSize(int maxBatchSize);
+
+    /**
+     * Determines whether the batch <code>insert</code>, <code>update</code> and <code>delete</code>
+     * methods commit the transaction after each executed batch. This is only relevant if the
+     * connection is not in auto-commit mode.
+     *
+     * @return <code>true</code> if each executed batch is committed (<code>false</code> per default)
+     */
+    public boolean isCommitAfterBatchOn();
+
+    /**
+     * Specifies whether the batch <code>insert</code>, <code>update</code> and <code>delete</code>
+     * methods shall commit the transaction after each executed batch. This is only relevant if
+     * the connection is not in auto-commit mode.
+     *
+     * @param commitAfterBatchOn <code>true</code> if each executed batch shall be committed
+     */
+    public void setCommitAfterBatchOn(boolean commitAfterBatchOn);
+
+    /**
+     * Determines whether the batch <code>insert</code> methods use INSERT statements that
+     * contain several rows in their VALUES clause. This setting is only relevant if the
+     * database supports it ({@link PlatformInfo#isMultiRowInsertSupported()}).
+     *
+     * @return <code>true</code> if multi-row inserts are used (<code>false</code> per default)
+     */
+    public boolean isMultiRowInsertModeOn();
+
+    /**
+     * Specifies whether the batch <code>insert</code> methods shall use INSERT statements that
+     * contain several rows in their VALUES clause. This setting is only relevant if the
+     * database supports it ({@link PlatformInfo#isMultiRowInsertSupported()}). The number of
+     * rows per statement is limited by the maximum batch size and by the maximum number of
+     * parameters per statement ({@link PlatformInfo#getMaxParametersPerStatement()}).
+     *
+     * @param multiRowInsertModeOn <code>true</code> if multi-row inserts shall be used
+     */
+    public void setMultiRowInsertModeOn(boolean multiRowInsertModeOn);
+
+    /**
+     * Returns the maximum number of prepared statements that are cached per connection for
+     * the single-row <code>insert</code>, <code>update</code>, <code>delete</code> and
+     * <code>exists</code> methods. A value of zero or less means that no statements are
+     * cached.
+     *
+     * @return The maximum number of cached statements per connection (0 per default)
+     */
+    public int getStatementCacheSize();
+
+    /**
+     * Specifies the maximum number of prepared statements that are cached per connection for
+     * the single-row <code>insert</code>, <code>update</code>, <code>delete</code> and
+     * <code>exists</code> methods. Statements are cached for connections borrowed via
+     * {@link #borrowConnection()} until they are returned via {@link #returnConnection(Connection)},
+     * and for other connections only while a cache opened via {@link #openStatementCache(Connection)}
+     * is open.
+     *
+     * @param statementCacheSize The maximum number of cached statements per connection; use
+     *                           zero or a negative value to disable caching
+     */
+    public void setStatementCacheSize(int statementCacheSize);
+
+    /**
+     * Opens the statement cache for the given connection, which was not borrowed from this
+     * platform. The operations on the connection use the cache until it is closed, so it
+     * is best used in a try-with-resources block:
+     * <pre>
+     * try (PreparedStatementCache cache = platform.openStatementCache(connection))
+     * {
+     *     platform.insert(connection, model, bean);
+     *     ...
+     * }
+     * </pre>
+     * If the connection already has an open cache, then that one is returned.
+     *
+     * @param connection The connection
+     * @return The statement cache, or <code>null</code> if statement caching is disabled
+     */
+    public PreparedStatementCache openStatementCache(Connection connection);
+
+    /**
+     * Returns the open statement cache of the given connection, e.g. to query its hit and miss
+     * counts.
+     *
+     * @param connection The connection
+     * @return The statement cache, or <code>null</code> if no cache is open for the connection
+     */
+    public PreparedStatementCache getStatementCache(Connection connection);
+
+    /**
+     * Closes the cached statements of the given connection and discards its cache.
+     *
+     * @param connection The connection
+     */
+    public void releaseStatementCache(Connection connection);
+
     // functionality
     
     /**
@@ -250,6 +376,7 @@ public interface Platform
 
     /**
      * Closes the given JDBC connection (returns it back to the pool if the datasource is poolable).
+     * This also closes the statements cached for this connection.
      * 
      * @param connection The connection
      */
@@ -1151,6 +1278,40 @@ public interface Platform
 	 */
     public void dropModel(Connection connection, Database model, boolean continueOnError) throws DatabaseOperationException; 
 
+    /**
+	 * Disables the checking of the foreign keys of the tables in the given model, so
+	 * that rows can be inserted regardless of the order of their dependencies. This
+	 * is only possible if
+	 * {@link PlatformInfo#isReferentialIntegrityDisablingSupported()} returns
+	 * <code>true</code>. Depending on the platform, this affects only the given
+	 * connection or all connections, and may require special privileges.
+	 *
+	 * @param connection
+	 *            The connection to the database
+	 * @param model
+	 *            The database model
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+    public void disableReferentialIntegrity(Connection connection, Database model) throws DatabaseOperationException;
+
+    /**
+	 * Enables the checking of the foreign keys of the tables in the given model again.
+	 * If requested, the rows inserted while the checking was disabled are validated
+	 * afterwards via queries that look for rows that reference missing rows.
+	 *
+	 * @param connection
+	 *            The connection to the database
+	 * @param model
+	 *            The database model
+	 * @param validate
+	 *            Whether to check that the foreign keys are satisfied by all rows
+	 * @throws DatabaseOperationException
+	 *             If the checking could not be enabled, or if rows violate a
+	 *             foreign key
+	 */
+    public void enableReferentialIntegrity(Connection connection, Database model, boolean validate) throws DatabaseOperationException;
+
     /**
 	 * Performs the given SQL query returning an iterator over the results.
 	 *
@@ -1213,6 +1374,130 @@ public interface Platform
 	 */
 	public Iterator<DynaBean> query(Database model, String sql, Collection<Object> parameters, Table[] queryHints) throws DatabaseOperationException;
 
+    /**
+	 * Performs the given SQL query returning an iterator over the results, where the
+	 * rows are streamed from the database instead of being read into memory at once
+	 * by the JDBC driver. For this, the query uses a forward-only, read-only result
+	 * set with the fetch size given by {@link PlatformInfo#getStreamingFetchSize()}, and
+	 * switches off the auto-commit mode of the connection for the duration of the
+	 * query if {@link PlatformInfo#isAutoCommitDisabledForStreaming()} says so. The
+	 * iterator should be read to the end so that the connection is released.
+	 *
+	 * @param model
+	 *            The database model to use
+	 * @param sql
+	 *            The sql query to perform
+	 * @param queryHints
+	 *            The tables that are queried (optional)
+	 * @return An iterator for the dyna beans resulting from the query
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+	public Iterator<DynaBean> queryStreaming(Database model, String sql, Table[] queryHints) throws DatabaseOperationException;
+
+    /**
+	 * Performs the given parameterized SQL query returning an iterator over the
+	 * results, where the rows are streamed from the database. See
+	 * {@link #queryStreaming(Database, String, Table[])} for details.
+	 *
+	 * @param model
+	 *            The database model to use
+	 * @param sql
+	 *            The sql query to perform
+	 * @param parameters
+	 *            The query parameter values (optional)
+	 * @param queryHints
+	 *            The tables that are queried (optional)
+	 * @return An iterator for the dyna beans resulting from the query
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+	public Iterator<DynaBean> queryStreaming(Database model, String sql, Collection<Object> parameters, Table[] queryHints) throws DatabaseOperationException;
+
+    /**
+	 * Performs the given parameterized SQL query returning a stream of the results.
+	 * The rows are streamed from the database in the same way as for
+	 * {@link #queryStreaming(Database, String, Table[])}. The stream reads the rows
+	 * in fixed-size chunks when split, so that a parallel stream processes the beans
+	 * on multiple threads while only one thread at a time reads from the result set.<br>
+	 * The stream should be closed, preferably via a try-with-resources statement;
+	 * closing it releases the statement and connection even if not all rows were
+	 * consumed. This also happens automatically once all rows were read.
+	 *
+	 * @param model
+	 *            The database model to use
+	 * @param sql
+	 *            The sql query to perform
+	 * @param parameters
+	 *            The query parameter values (optional)
+	 * @return The stream of the dyna beans resulting from the query
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+	public Stream<DynaBean> stream(Database model, String sql, Collection<Object> parameters) throws DatabaseOperationException;
+
+    /**
+	 * Performs the given parameterized SQL query returning a stream of the results.
+	 * See {@link #stream(Database, String, Collection)} for details.
+	 *
+	 * @param model
+	 *            The database model to use
+	 * @param sql
+	 *            The sql query to perform
+	 * @param parameters
+	 *            The query parameter values (optional)
+	 * @param queryHints
+	 *            The tables that are queried (optional)
+	 * @return The stream of the dyna beans resulting from the query
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+	public Stream<DynaBean> stream(Database model, String sql, Collection<Object> parameters, Table[] queryHints) throws DatabaseOperationException;
+
+    /**
+	 * Performs the given parameterized SQL query and passes the rows to the given
+	 * handler, one at a time. Other than the other query methods, this does not
+	 * create beans for the rows; instead the handler reads the values from a cursor
+	 * that is reused for all rows. The rows are streamed from the database in the
+	 * same way as for {@link #queryStreaming(Database, String, Table[])}, and the
+	 * statement and connection are released before this method returns.
+	 *
+	 * @param model
+	 *            The database model to use
+	 * @param sql
+	 *            The sql query to perform
+	 * @param parameters
+	 *            The query parameter values (optional)
+	 * @param handler
+	 *            The handler for the rows
+	 * @return The number of rows passed to the handler
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+	public long forEachRow(Database model, String sql, Collection<Object> parameters, RowHandler handler) throws DatabaseOperationException;
+
+    /**
+	 * Performs the given parameterized SQL query and passes the rows to the given
+	 * handler, one at a time. See
+	 * {@link #forEachRow(Database, String, Collection, RowHandler)} for details.
+	 *
+	 * @param model
+	 *            The database model to use
+	 * @param sql
+	 *            The sql query to perform
+	 * @param parameters
+	 *            The query parameter values (optional)
+	 * @param queryHints
+	 *            The tables that are queried (optional); used to determine the
+	 *            types of the columns if the JDBC driver does not report the tables
+	 * @param handler
+	 *            The handler for the rows
+	 * @return The number of rows passed to the handler
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+	public long forEachRow(Database model, String sql, Collection<Object> parameters, Table[] queryHints, RowHandler handler) throws DatabaseOperationException;
+
     /**
 	 * Queries for a list of dyna beans representing rows of the given query. In
 	 * contrast to the {@link #query(Database, String)} method all beans will be
@@ -1289,7 +1574,9 @@ public interface Platform
 	 * materialized and the connection will be closed before returning the beans.
 	 * Also, the two int parameters specify which rows of the result set to use. If
 	 * there are more rows than desired, they will be ignored (and not read from the
-	 * database).
+	 * database). Where possible, the query is rewritten via
+	 * {@link de.elnarion.ddlutils.platform.SqlBuilder#getPaginatedQuery(String, int, int)}
+	 * so that the database does not return the leading rows either.
 	 *
 	 * @param model
 	 *            The database model to use
@@ -1428,6 +1715,45 @@ public interface Platform
 	 */
     public void store(Connection connection, Database model, DynaBean dynaBean) throws DatabaseOperationException;
 
+    /**
+	 * Stores the given beans in the database, inserting the beans whose rows do not
+	 * exist yet and updating the others. If the database has a native upsert
+	 * statement ({@link SqlBuilder#getUpsertSql(Table, Map, boolean)}), then it is
+	 * used in a batch for subsequent beans of the same type, which is executed every
+	 * {@link #getMaxBatchSize()} beans. Otherwise, or if not all primary key values
+	 * of a bean are given, the beans are stored one by one as with
+	 * {@link #store(Database, DynaBean)}.
+	 *
+	 * @param model
+	 *            The database model to use
+	 * @param dynaBeans
+	 *            The beans to store
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+    public void store(Database model, Collection<DynaBean> dynaBeans) throws DatabaseOperationException;
+
+    /**
+	 * Stores the given beans in the database, inserting the beans whose rows do not
+	 * exist yet and updating the others. If the database has a native upsert
+	 * statement ({@link SqlBuilder#getUpsertSql(Table, Map, boolean)}), then it is
+	 * used in a batch for subsequent beans of the same type, which is executed every
+	 * {@link #getMaxBatchSize()} beans. Otherwise, or if not all primary key values
+	 * of a bean are given, the beans are stored one by one as with
+	 * {@link #store(Connection, Database, DynaBean)}. This method does not close the
+	 * connection.
+	 *
+	 * @param connection
+	 *            The connection
+	 * @param model
+	 *            The database model to use
+	 * @param dynaBeans
+	 *            The beans to store
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+    public void store(Connection connection, Database model, Collection<DynaBean> dynaBeans) throws DatabaseOperationException;
+
     /**
      * Returns the sql for inserting the given bean.
      * 
@@ -1469,8 +1795,11 @@ public interface Platform
     /**
 	 * Inserts the given beans in the database, assuming the primary key values are
 	 * specified. Note that a batch insert is used for subsequent beans of the same
-	 * type. Also the properties for the primary keys are not updated in the beans.
-	 * Hence you should not use this method when the primary key values are defined
+	 * type, which is executed every {@link #getMaxBatchSize()} beans. Also the
+	 * properties for the primary keys are only updated in the beans if the platform
+	 * and the JDBC driver can return the generated keys of a batch
+	 * ({@link PlatformInfo#isGeneratedKeysReadableInBatchMode()}).
+	 * Otherwise you should not use this method when the primary key values are defined
 	 * by the database (via a sequence or identity constraint).
 	 *
 	 * @param model
@@ -1484,10 +1813,13 @@ public interface Platform
 
     /**
 	 * Inserts the given beans. Note that a batch insert is used for subsequent
-	 * beans of the same type. Also the properties for the primary keys are not
-	 * updated in the beans. Hence you should not use this method when the primary
-	 * key values are defined by the database (via a sequence or identity
-	 * constraint). This method does not close the connection.
+	 * beans of the same type, which is executed every {@link #getMaxBatchSize()}
+	 * beans. Also the properties for the primary keys are only
+	 * updated in the beans if the platform and the JDBC driver can return the
+	 * generated keys of a batch ({@link PlatformInfo#isGeneratedKeysReadableInBatchMode()}).
+	 * Otherwise you should not use this method when the primary key values are
+	 * defined by the database (via a sequence or identity constraint). This method
+	 * does not close the connection.
 	 *
 	 * @param connection
 	 *            The database connection
@@ -1586,6 +1918,38 @@ public interface Platform
 	 */
     public void update(Connection connection, Database model, DynaBean oldDynaBean, DynaBean newDynaBean) throws DatabaseOperationException;
 
+    /**
+	 * Updates the given beans in the database, assuming the primary key values are
+	 * specified. Note that a batch update is used for subsequent beans of the same
+	 * type, which is executed every {@link #getMaxBatchSize()} beans. The primary
+	 * key columns are not updated.
+	 *
+	 * @param model
+	 *            The database model to use
+	 * @param dynaBeans
+	 *            The beans
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+    public void update(Database model, Collection<DynaBean> dynaBeans) throws DatabaseOperationException;
+
+    /**
+	 * Updates the rows which map to the given beans. Note that a batch update is used
+	 * for subsequent beans of the same type, which is executed every
+	 * {@link #getMaxBatchSize()} beans. The primary key columns are not updated. This
+	 * method does not close the connection.
+	 *
+	 * @param connection
+	 *            The database connection
+	 * @param model
+	 *            The database model to use
+	 * @param dynaBeans
+	 *            The beans
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+    public void update(Connection connection, Database model, Collection<DynaBean> dynaBeans) throws DatabaseOperationException;
+
     /**
      * Returns the sql for deleting the given bean from the database.
      * 
@@ -1622,6 +1986,37 @@ public interface Platform
 	 */
     public void delete(Connection connection, Database model, DynaBean dynaBean) throws DatabaseOperationException;
 
+    /**
+	 * Deletes the given beans from the database, assuming the primary key values are
+	 * specified. Note that a batch delete is used for subsequent beans of the same
+	 * type, which is executed every {@link #getMaxBatchSize()} beans.
+	 *
+	 * @param model
+	 *            The database model to use
+	 * @param dynaBeans
+	 *            The beans to delete
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+    public void delete(Database model, Collection<DynaBean> dynaBeans) throws DatabaseOperationException;
+
+    /**
+	 * Deletes the rows which map to the given beans from the database. Note that a
+	 * batch delete is used for subsequent beans of the same type, which is executed
+	 * every {@link #getMaxBatchSize()} beans. This method does not close the
+	 * connection.
+	 *
+	 * @param connection
+	 *            The database connection
+	 * @param model
+	 *            The database model to use
+	 * @param dynaBeans
+	 *            The beans
+	 * @throws DatabaseOperationException
+	 *             the database operation exception
+	 */
+    public void delete(Connection connection, Database model, Collection<DynaBean> dynaBeans) throws DatabaseOperationException;
+
     /**
      * Reads the database model from the live database as specified by the data source set for
      * this platform.
@@ -125,6 +125,29 @@ public class PlatformInfo
         shall be used. */ 
     private boolean _autoCommitModeForLastIdentityValueReading = true;
 
+    /** Whether the values of identity columns can be read via the JDBC generated keys after the insertion
+        of a single row. */ 
+    private boolean _generatedKeysReadable = false;
+
+    /** Whether the values of identity columns can be read via the JDBC generated keys after executing a
+        batch of inserts. */ 
+    private boolean _generatedKeysReadableInBatchMode = false;
+
+    /** Whether INSERT statements can specify multiple rows in the VALUES clause. */ 
+    private boolean _multiRowInsertSupported = false;
+
+    /** Whether the checking of foreign keys can be disabled temporarily. */ 
+    private boolean _referentialIntegrityDisablingSupported = false;
+
+    /** Specifies the maximum number of bind parameters that a prepared statement can have (-1 if there is no limit). */
+    private int _maxParametersPerStatement = -1;
+
+    /** The fetch size to use for streaming queries (0 for the default of the JDBC driver). */
+    private int _streamingFetchSize = 1000;
+
+    /** Whether the JDBC driver only streams the rows of a query if the connection is not in auto-commit mode. */
+    private boolean _autoCommitDisabledForStreaming = false;
+
     /** Specifies the maximum length that a table name can have for this database (-1 if there is no limit). */
     private int _maxTableNameLength = -1;
 
@@ -747,6 +770,167 @@ public class PlatformInfo
         _autoCommitModeForLastIdentityValueReading = autoCommitModeForLastIdentityValueReading;
     }
 
+    /**
+     * Determines whether the values of identity columns can be read via
+     * {@link java.sql.Statement#getGeneratedKeys()} after the insertion of a single row. If so,
+     * they are read this way instead of via a separate query, provided that the JDBC driver
+     * supports it.
+     * 
+     * @return <code>true</code> if the generated keys can be read
+     */
+    public boolean isGeneratedKeysReadable()
+    {
+        return _generatedKeysReadable;
+    }
+
+    /**
+     * Specifies whether the values of identity columns can be read via
+     * {@link java.sql.Statement#getGeneratedKeys()} after the insertion of a single row.
+     * 
+     * @param generatedKeysReadable <code>true</code> if the generated keys can be read
+     */
+    public void setGeneratedKeysReadable(boolean generatedKeysReadable)
+    {
+        _generatedKeysReadable = generatedKeysReadable;
+    }
+
+    /**
+     * Determines whether the values of identity columns can be read via
+     * {@link java.sql.Statement#getGeneratedKeys()} after executing a batch of inserts, in
+     * which case the driver returns one row of keys per inserted row.
+     * 
+     * @return <code>true</code> if the generated keys can be read in batch mode
+     */
+    public boolean isGeneratedKeysReadableInBatchMode()
+    {
+        return _generatedKeysReadableInBatchMode;
+    }
+
+    /**
+     * Specifies whether the values of identity columns can be read via
+     * {@link java.sql.Statement#getGeneratedKeys()} after executing a batch of inserts.
+     * 
+     * @param generatedKeysReadableInBatchMode <code>true</code> if the generated keys can be
+     *                                         read in batch mode
+     */
+    public void setGeneratedKeysReadableInBatchMode(boolean generatedKeysReadableInBatchMode)
+    {
+        _generatedKeysReadableInBatchMode = generatedKeysReadableInBatchMode;
+    }
+
+    /**
+     * Determines whether the platform supports INSERT statements that specify multiple rows
+     * in the VALUES clause, e.g. <code>INSERT INTO t (a, b) VALUES (?, ?), (?, ?)</code>.
+     * 
+     * @return <code>true</code> if multi-row inserts are supported
+     */
+    public boolean isMultiRowInsertSupported()
+    {
+        return _multiRowInsertSupported;
+    }
+
+    /**
+     * Specifies whether the platform supports INSERT statements that specify multiple rows
+     * in the VALUES clause.
+     * 
+     * @param multiRowInsertSupported <code>true</code> if multi-row inserts are supported
+     */
+    public void setMultiRowInsertSupported(boolean multiRowInsertSupported)
+    {
+        _multiRowInsertSupported = multiRowInsertSupported;
+    }
+
+    /**
+     * Determines whether the checking of the foreign keys can be disabled temporarily, e.g. for
+     * importing data regardless of the order of the rows, via the statements generated by
+     * {@link de.elnarion.ddlutils.platform.SqlBuilder#disableReferentialIntegrity(de.elnarion.ddlutils.model.Database)}
+     * and {@link de.elnarion.ddlutils.platform.SqlBuilder#enableReferentialIntegrity(de.elnarion.ddlutils.model.Database)}.
+     * 
+     * @return <code>true</code> if the referential integrity can be disabled
+     */
+    public boolean isReferentialIntegrityDisablingSupported()
+    {
+        return _referentialIntegrityDisablingSupported;
+    }
+
+    /**
+     * Specifies whether the checking of the foreign keys can be disabled temporarily.
+     * 
+     * @param referentialIntegrityDisablingSupported <code>true</code> if the referential integrity
+     *                                               can be disabled
+     */
+    public void setReferentialIntegrityDisablingSupported(boolean referentialIntegrityDisablingSupported)
+    {
+        _referentialIntegrityDisablingSupported = referentialIntegrityDisablingSupported;
+    }
+
+    /**
+     * Returns the maximum number of bind parameters that a single prepared statement can have.
+     * 
+     * @return The number of parameters, or -1 if not limited
+     */
+    public int getMaxParametersPerStatement()
+    {
+        return _maxParametersPerStatement;
+    }
+
+    /**
+     * Sets the maximum number of bind parameters that a single prepared statement can have.
+     * 
+     * @param maxParametersPerStatement The number of parameters, -1 if unlimited
+     */
+    public void setMaxParametersPerStatement(int maxParametersPerStatement)
+    {
+        _maxParametersPerStatement = maxParametersPerStatement;
+    }
+
+    /**
+     * Returns the fetch size that is set on the statements of streaming queries, see
+     * {@link de.elnarion.ddlutils.Platform#queryStreaming(de.elnarion.ddlutils.model.Database, String, java.util.Collection, de.elnarion.ddlutils.model.Table[])}.
+     * Note that some JDBC drivers use special values here, e.g. the MySql driver only
+     * streams the rows for a fetch size of {@link Integer#MIN_VALUE}.
+     * 
+     * @return The fetch size, or 0 if the default of the JDBC driver shall be used
+     */
+    public int getStreamingFetchSize()
+    {
+        return _streamingFetchSize;
+    }
+
+    /**
+     * Sets the fetch size that is set on the statements of streaming queries.
+     * 
+     * @param streamingFetchSize The fetch size, 0 for the default of the JDBC driver
+     */
+    public void setStreamingFetchSize(int streamingFetchSize)
+    {
+        _streamingFetchSize = streamingFetchSize;
+    }
+
+    /**
+     * Determines whether the auto-commit mode of the connection has to be switched off for
+     * streaming queries. This is the case e.g. for PostgreSql whose JDBC driver otherwise
+     * reads the complete result into memory regardless of the fetch size.
+     * 
+     * @return <code>true</code> if auto-commit is switched off during streaming queries
+     */
+    public boolean isAutoCommitDisabledForStreaming()
+    {
+        return _autoCommitDisabledForStreaming;
+    }
+
+    /**
+     * Specifies whether the auto-commit mode of the connection has to be switched off for
+     * streaming queries.
+     * 
+     * @param autoCommitDisabledForStreaming <code>true</code> if auto-commit shall be switched
+     *                                       off during streaming queries
+     */
+    public void setAutoCommitDisabledForStreaming(boolean autoCommitDisabledForStreaming)
+    {
+        _autoCommitDisabledForStreaming = autoCommitDisabledForStreaming;
+    }
+
     /**
      * Returns the maximum number of characters that a table name can have.
      * 
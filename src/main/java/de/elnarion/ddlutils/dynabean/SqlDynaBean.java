@@ -19,20 +19,42 @@ package de.elnarion.ddlutils.dynabean;
  * under the License.
  */
 
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.commons.beanutils.BasicDynaBean;
+import org.apache.commons.beanutils.ConversionException;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.DynaBeanPropertyMapDecorator;
 import org.apache.commons.beanutils.DynaClass;
 import org.apache.commons.beanutils.DynaProperty;
 
 /**
  * SqlDynaBean is a DynaBean which can be persisted as a single row in 
- * a Database Table.
+ * a Database Table.<br>
+ * Other than {@link BasicDynaBean}, the values are not held in a map but in an
+ * array with one slot per property, in the order of the properties of the dyna class.
+ * This keeps the beans small when reading large amounts of rows, and allows to access
+ * the values directly via {@link #get(int)} and {@link #set(int, Object)} using the
+ * index of the property as determined by {@link SqlDynaClass#getPropertyIndex(String)}.
+ * The bean implements {@link DynaBean} directly instead of extending {@link BasicDynaBean},
+ * so that no map is allocated per bean.
  *
  * @version $Revision$
  */
-public class SqlDynaBean extends BasicDynaBean
+public class SqlDynaBean implements DynaBean, Serializable
 {
     /** Unique ID for serializaion purposes. */
-    private static final long serialVersionUID = -6946514447446174227L;
+    private static final long serialVersionUID = 3189441523620975302L;
+
+    /** The dyna class of this bean. */
+    private final DynaClass _dynaClass;
+    /** The values of the properties. */
+    private final Object[] _values;
+    /** The map view of this bean, created when first requested. */
+    private transient Map<String, Object> _map;
 
     /**
      * Creates a new dyna bean of the given class.
@@ -41,7 +63,312 @@ public class SqlDynaBean extends BasicDynaBean
      */
     public SqlDynaBean(DynaClass dynaClass)
     {
-        super(dynaClass);
+        _dynaClass = dynaClass;
+        _values    = new Object[dynaClass.getDynaProperties().length];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public DynaClass getDynaClass()
+    {
+        return _dynaClass;
+    }
+
+    /**
+     * Returns a map view of the properties of this bean.
+     * 
+     * @return The map, backed by this bean
+     */
+    public Map<String, Object> getMap()
+    {
+        if (_map == null)
+        {
+            _map = new DynaBeanPropertyMapDecorator(this);
+        }
+        return _map;
+    }
+
+    /**
+     * Returns the value of the property at the given index.
+     * 
+     * @param propertyIndex The index of the property in the properties of the dyna class
+     * @return The value
+     */
+    public Object get(int propertyIndex)
+    {
+        Object value = _values[propertyIndex];
+
+        if (value == null)
+        {
+            DynaProperty property = getDynaClass().getDynaProperties()[propertyIndex];
+
+            if (property.getType().isPrimitive())
+            {
+                return getPrimitiveDefault(property.getType());
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Sets the value of the property at the given index.
+     * 
+     * @param propertyIndex The index of the property in the properties of the dyna class
+     * @param value         The new value
+     */
+    public void set(int propertyIndex, Object value)
+    {
+        DynaProperty property = getDynaClass().getDynaProperties()[propertyIndex];
+
+        if (value == null)
+        {
+            if (property.getType().isPrimitive())
+            {
+                throw new NullPointerException("Primitive value for '" + property.getName() + "'");
+            }
+        }
+        else if (!isAssignable(property.getType(), value.getClass()))
+        {
+            throw new ConversionException("Cannot assign value of type '" + value.getClass().getName() +
+                                          "' to property '" + property.getName() + "' of type '" +
+                                          property.getType().getName() + "'");
+        }
+        _values[propertyIndex] = value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object get(String name)
+    {
+        return get(getPropertyIndex(name));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void set(String name, Object value)
+    {
+        set(getPropertyIndex(name), value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object get(String name, int index)
+    {
+        Object value = _values[getPropertyIndex(name)];
+
+        if (value == null)
+        {
+            throw new NullPointerException("No indexed value for '" + name + "[" + index + "]'");
+        }
+        else if (value.getClass().isArray())
+        {
+            return Array.get(value, index);
+        }
+        else if (value instanceof List)
+        {
+            return ((List<?>)value).get(index);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Non-indexed property for '" + name + "[" + index + "]'");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public void set(String name, int index, Object value)
+    {
+        Object prop = _values[getPropertyIndex(name)];
+
+        if (prop == null)
+        {
+            throw new NullPointerException("No indexed value for '" + name + "[" + index + "]'");
+        }
+        else if (prop.getClass().isArray())
+        {
+            Array.set(prop, index, value);
+        }
+        else if (prop instanceof List)
+        {
+            try
+            {
+                ((List<Object>)prop).set(index, value);
+            }
+            catch (ClassCastException ex)
+            {
+                throw new ConversionException(ex.getMessage());
+            }
+        }
+        else
+        {
+            throw new IllegalArgumentException("Non-indexed property for '" + name + "[" + index + "]'");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object get(String name, String key)
+    {
+        return getMappedValue(name, key).get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("unchecked")
+    public void set(String name, String key, Object value)
+    {
+        ((Map<String, Object>)getMappedValue(name, key)).put(key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(String name, String key)
+    {
+        return getMappedValue(name, key).containsKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void remove(String name, String key)
+    {
+        getMappedValue(name, key).remove(key);
+    }
+
+    /**
+     * Returns the default value of the given primitive type.
+     * 
+     * @param type The primitive type
+     * @return The default value
+     */
+    private static Object getPrimitiveDefault(Class<?> type)
+    {
+        if (type == Boolean.TYPE)
+        {
+            return Boolean.FALSE;
+        }
+        else if (type == Byte.TYPE)
+        {
+            return Byte.valueOf((byte)0);
+        }
+        else if (type == Character.TYPE)
+        {
+            return Character.valueOf((char)0);
+        }
+        else if (type == Double.TYPE)
+        {
+            return Double.valueOf(0.0);
+        }
+        else if (type == Float.TYPE)
+        {
+            return Float.valueOf((float)0.0);
+        }
+        else if (type == Integer.TYPE)
+        {
+            return Integer.valueOf(0);
+        }
+        else if (type == Long.TYPE)
+        {
+            return Long.valueOf(0);
+        }
+        else if (type == Short.TYPE)
+        {
+            return Short.valueOf((short)0);
+        }
+        else
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Determines whether a value of the source type can be assigned to a property of the
+     * destination type, taking the wrapper types of primitive types into account.
+     * 
+     * @param dest   The type of the property
+     * @param source The type of the value
+     * @return <code>true</code> if the value can be assigned
+     */
+    protected boolean isAssignable(Class<?> dest, Class<?> source)
+    {
+        return dest.isAssignableFrom(source) ||
+               ((dest == Boolean.TYPE) && (source == Boolean.class)) ||
+               ((dest == Byte.TYPE) && (source == Byte.class)) ||
+               ((dest == Character.TYPE) && (source == Character.class)) ||
+               ((dest == Double.TYPE) && (source == Double.class)) ||
+               ((dest == Float.TYPE) && (source == Float.class)) ||
+               ((dest == Integer.TYPE) && (source == Integer.class)) ||
+               ((dest == Long.TYPE) && (source == Long.class)) ||
+               ((dest == Short.TYPE) && (source == Short.class));
+    }
+
+    /**
+     * Returns the index of the indicated property.
+     * 
+     * @param name The name of the property
+     * @return The index of the property
+     * @throws IllegalArgumentException If there is no such property
+     */
+    private int getPropertyIndex(String name) throws IllegalArgumentException
+    {
+        DynaClass dynaClass = getDynaClass();
+        int       index     = -1;
+
+        if (dynaClass instanceof SqlDynaClass)
+        {
+            index = ((SqlDynaClass)dynaClass).getPropertyIndex(name);
+        }
+        else
+        {
+            DynaProperty[] props = dynaClass.getDynaProperties();
+
+            for (int idx = 0; (index < 0) && (idx < props.length); idx++)
+            {
+                if (props[idx].getName().equals(name))
+                {
+                    index = idx;
+                }
+            }
+        }
+        if (index < 0)
+        {
+            throw new IllegalArgumentException("Invalid property name '" + name + "'");
+        }
+        return index;
+    }
+
+    /**
+     * Returns the value of the indicated mapped property.
+     * 
+     * @param name The name of the property
+     * @param key  The key that is accessed, for the error messages
+     * @return The map
+     */
+    private Map<?, ?> getMappedValue(String name, String key)
+    {
+        Object value = _values[getPropertyIndex(name)];
+
+        if (value == null)
+        {
+            throw new NullPointerException("No mapped value for '" + name + "(" + key + ")'");
+        }
+        else if (value instanceof Map)
+        {
+            return (Map<?, ?>)value;
+        }
+        else
+        {
+            throw new IllegalArgumentException("Non-mapped property for '" + name + "(" + key + ")'");
+        }
     }
 
     /**
@@ -63,7 +390,7 @@ public class SqlDynaBean extends BasicDynaBean
             }
             result.append(props[idx].getName());
             result.append(" = ");
-            result.append(get(props[idx].getName()));
+            result.append(get(idx));
         }
         return result.toString();
     }
@@ -92,8 +419,8 @@ public class SqlDynaBean extends BasicDynaBean
 
                 for (int idx = 0; idx < props.length; idx++)
                 {
-                    Object value      = get(props[idx].getName());
-                    Object otherValue = other.get(props[idx].getName());
+                    Object value      = get(idx);
+                    Object otherValue = other.get(idx);
 
                     if (value == null)
                     {
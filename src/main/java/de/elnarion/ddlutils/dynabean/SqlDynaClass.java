@@ -20,9 +20,12 @@ package de.elnarion.ddlutils.dynabean;
  */
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.beanutils.BasicDynaClass;
+import org.apache.commons.beanutils.DynaBean;
 import org.apache.commons.beanutils.DynaProperty;
 
 import de.elnarion.ddlutils.model.Table;
@@ -44,6 +47,8 @@ public class SqlDynaClass extends BasicDynaClass
     private SqlDynaProperty[] _primaryKeyProperties;
     /** The non-primary key dyna properties. */
     private SqlDynaProperty[] _nonPrimaryKeyProperties;
+    /** The positions of the properties in the property array, per property name. */
+    private Map<String, Integer> _propertyIndices;
     
     /**
      * Factory method for creating and initializing a new dyna class instance
@@ -77,6 +82,23 @@ public class SqlDynaClass extends BasicDynaClass
     {
         super(table.getName(), SqlDynaBean.class, properties);
         _table = table;
+        initPropertyIndices();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public DynaBean newInstance() throws IllegalAccessException, InstantiationException
+    {
+        // avoid the reflective instantiation for the common case
+        if (getDynaBeanClass() == SqlDynaBean.class)
+        {
+            return new SqlDynaBean(this);
+        }
+        else
+        {
+            return super.newInstance();
+        }
     }
 
     /**
@@ -116,6 +138,21 @@ public class SqlDynaClass extends BasicDynaClass
         return result;
     }
     
+    /**
+     * Returns the position of the indicated property in the array returned by
+     * {@link #getDynaProperties()}. This is the index under which {@link SqlDynaBean}
+     * instances of this class store the value of the property.
+     * 
+     * @param name The name of the property
+     * @return The index of the property or <code>-1</code> if there is no such property
+     */
+    public int getPropertyIndex(String name)
+    {
+        Integer index = (name == null ? null : _propertyIndices.get(name));
+
+        return index == null ? -1 : index.intValue();
+    }
+
     /**
      * Returns the properties for the primary keys of the corresponding table.
      * 
@@ -155,6 +192,21 @@ public class SqlDynaClass extends BasicDynaClass
     // Implementation methods    
     //-------------------------------------------------------------------------                
 
+    /**
+     * Initializes the property name to property index map.
+     */
+    protected void initPropertyIndices()
+    {
+        DynaProperty[]       properties = getDynaProperties();
+        Map<String, Integer> indices    = new HashMap<>();
+
+        for (int idx = 0; idx < properties.length; idx++)
+        {
+            indices.put(properties[idx].getName(), Integer.valueOf(idx));
+        }
+        _propertyIndices = indices;
+    }
+
     /**
      * Initializes the primary key and non primary key property arrays.
      */
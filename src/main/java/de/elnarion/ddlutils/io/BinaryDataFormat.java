@@ -0,0 +1,93 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Defines the layout of the binary data format written by the {@link BinaryDataWriter}
+ * and read by the {@link BinaryDataReader}. All numbers are stored in big-endian order.
+ * <p>
+ * A file starts with the {@link #MAGIC} number and the {@link #VERSION}, followed by
+ * records that each start with a record tag:
+ * <ul>
+ *   <li>{@link #RECORD_TABLE}: the table name and the column count, followed by the name
+ *       and JDBC type code of each column; the following blocks contain rows of this table</li>
+ *   <li>{@link #RECORD_BLOCK}: the row count and the length of the payload, the payload
+ *       itself and the CRC32 checksum of the payload</li>
+ *   <li>{@link #RECORD_END}: marks the end of the data</li>
+ * </ul>
+ * Each row in the payload of a block consists of one value per column of the preceding
+ * table header, each value starting with a value tag that defines how it is encoded.
+ * Strings and binary values are prefixed with their length.
+ * 
+ * @version $Revision: $
+ */
+final class BinaryDataFormat
+{
+    /** The magic number at the start of the file ("DDLB"). */
+    public static final int MAGIC = 0x44444C42;
+    /** The version of the format. */
+    public static final short VERSION = 1;
+
+    /** The tag of a table header record. */
+    public static final byte RECORD_TABLE = 'T';
+    /** The tag of a block of rows. */
+    public static final byte RECORD_BLOCK = 'B';
+    /** The tag of the end record. */
+    public static final byte RECORD_END   = 'E';
+
+    /** The tag of a <code>null</code> value. */
+    public static final byte VALUE_NULL        = 0;
+    /** The tag of a string value, stored as the length-prefixed UTF-8 bytes. */
+    public static final byte VALUE_STRING      = 1;
+    /** The tag of an integer value. */
+    public static final byte VALUE_INTEGER     = 2;
+    /** The tag of a long value. */
+    public static final byte VALUE_LONG        = 3;
+    /** The tag of a short value. */
+    public static final byte VALUE_SHORT       = 4;
+    /** The tag of a byte value. */
+    public static final byte VALUE_BYTE        = 5;
+    /** The tag of a double value. */
+    public static final byte VALUE_DOUBLE      = 6;
+    /** The tag of a float value. */
+    public static final byte VALUE_FLOAT       = 7;
+    /** The tag of a big decimal value, stored as the scale and the length-prefixed unscaled value. */
+    public static final byte VALUE_BIG_DECIMAL = 8;
+    /** The tag of a boolean value. */
+    public static final byte VALUE_BOOLEAN     = 9;
+    /** The tag of a date value, stored as milliseconds. */
+    public static final byte VALUE_DATE        = 10;
+    /** The tag of a time value, stored as milliseconds. */
+    public static final byte VALUE_TIME        = 11;
+    /** The tag of a timestamp value, stored as milliseconds and nanoseconds. */
+    public static final byte VALUE_TIMESTAMP   = 12;
+    /** The tag of a binary value, stored as the length-prefixed bytes. */
+    public static final byte VALUE_BYTES       = 13;
+    /** The tag of a big integer value, stored as the length-prefixed bytes. */
+    public static final byte VALUE_BIG_INTEGER = 14;
+    /** The tag of a value of any other type, stored as the text created by the converter of the column. */
+    public static final byte VALUE_CONVERTED   = 15;
+
+    /**
+     * Not to be instantiated.
+     */
+    private BinaryDataFormat()
+    {}
+}
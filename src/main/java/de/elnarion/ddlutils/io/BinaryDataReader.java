@@ -0,0 +1,557 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.zip.CRC32;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.elnarion.ddlutils.DdlUtilsException;
+import de.elnarion.ddlutils.io.converters.SqlTypeConverter;
+import de.elnarion.ddlutils.model.Column;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Table;
+
+/**
+ * Reads data written by the {@link BinaryDataWriter} into dyna beans matching a specified
+ * database model, and hands them to a {@link DataSink}. The input files are mapped into
+ * memory in windows instead of being read through streams. The checksum of each block
+ * is verified before its rows are handed to the sink, and the blocks of tables that are
+ * not part of the model are skipped without being decoded.<br/>
+ * Note that the sink won't be started or ended by the reader.
+ * 
+ * @version $Revision: $
+ */
+public class BinaryDataReader
+{
+    /** The size of the windows in which the input files are mapped into memory. */
+    private static final int MAPPING_SIZE = 64 * 1024 * 1024;
+
+    /** Our log. */
+    private final Log _log = LogFactory.getLog(BinaryDataReader.class);
+
+    /** The database model. */
+    private Database _model;
+    /** The object to receive the read beans. */
+    private DataSink _sink;
+    /** The converters for the values that were written as text. */
+    private ConverterConfiguration _converterConf = new ConverterConfiguration();
+    /** Whether to be case sensitive or not. */
+    private boolean _caseSensitive = false;
+
+    /**
+     * Returns the converter configuration of this data reader.
+     * 
+     * @return The converter configuration
+     */
+    public ConverterConfiguration getConverterConfiguration()
+    {
+        return _converterConf;
+    }
+
+    /**
+     * Returns the database model.
+     *
+     * @return The model
+     */
+    public Database getModel()
+    {
+        return _model;
+    }
+
+    /**
+     * Sets the database model.
+     *
+     * @param model The model
+     */
+    public void setModel(Database model)
+    {
+        _model = model;
+    }
+
+    /**
+     * Returns the data sink.
+     *
+     * @return The sink
+     */
+    public DataSink getSink()
+    {
+        return _sink;
+    }
+
+    /**
+     * Sets the data sink.
+     *
+     * @param sink The sink
+     */
+    public void setSink(DataSink sink)
+    {
+        _sink = sink;
+    }
+
+    /**
+     * Determines whether this reader is case sensitive when matching the table and
+     * column names to the model.
+     * 
+     * @return <code>true</code> if the reader is case sensitive
+     */
+    public boolean isCaseSensitive()
+    {
+        return _caseSensitive;
+    }
+
+    /**
+     * Specifies whether this reader should be case sensitive when matching the table
+     * and column names to the model.
+     * 
+     * @param beCaseSensitive <code>true</code> if the reader shall be case sensitive
+     */
+    public void setCaseSensitive(boolean beCaseSensitive)
+    {
+        _caseSensitive = beCaseSensitive;
+    }
+
+    /**
+     * Reads the data contained in the specified file.
+     * 
+     * @param filename The data file name
+     * @throws DdlUtilsException If the file could not be read or is corrupt
+     */
+    public void read(String filename) throws DdlUtilsException
+    {
+        read(new File(filename));
+    }
+
+    /**
+     * Reads the data contained in the specified file.
+     * 
+     * @param file The data file
+     * @throws DdlUtilsException If the file could not be read or is corrupt
+     */
+    public void read(File file) throws DdlUtilsException
+    {
+        FileChannel channel = null;
+
+        try
+        {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            read(new MappedInput(channel, file));
+        }
+        catch (IOException ex)
+        {
+            throw new DdlUtilsException("Could not read the binary data file " + file, ex);
+        }
+        catch (BufferUnderflowException ex)
+        {
+            throw new DdlUtilsException("The binary data file " + file + " is corrupt", ex);
+        }
+        finally
+        {
+            if (channel != null)
+            {
+                try
+                {
+                    channel.close();
+                }
+                catch (IOException ex)
+                {
+                    _log.warn("Could not close the binary data file " + file, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the records of the given input.
+     * 
+     * @param input The input
+     */
+    private void read(MappedInput input) throws IOException
+    {
+        ByteBuffer buffer = input.ensureAvailable(6);
+
+        if ((buffer.getInt() != BinaryDataFormat.MAGIC) || (buffer.getShort() != BinaryDataFormat.VERSION))
+        {
+            throw new DdlUtilsException("The file " + input.getFile() + " does not contain binary data of a supported version");
+        }
+
+        TableHeader header = null;
+
+        while (true)
+        {
+            long position = input.getPosition();
+            byte tag      = input.ensureAvailable(1).get();
+
+            if (tag == BinaryDataFormat.RECORD_TABLE)
+            {
+                header = readTableHeader(input);
+            }
+            else if (tag == BinaryDataFormat.RECORD_BLOCK)
+            {
+                if (header == null)
+                {
+                    throw new DdlUtilsException("The block at offset " + position + " of the file " + input.getFile() + " is not preceded by a table header");
+                }
+                readBlock(input, header, position);
+            }
+            else if (tag == BinaryDataFormat.RECORD_END)
+            {
+                return;
+            }
+            else
+            {
+                throw new DdlUtilsException("Unknown record at offset " + position + " of the file " + input.getFile());
+            }
+        }
+    }
+
+    /**
+     * Reads a table header and matches it to the model.
+     * 
+     * @param input The input
+     * @return The header
+     */
+    private TableHeader readTableHeader(MappedInput input) throws IOException
+    {
+        String      tableName = readString(input);
+        int         count     = input.ensureAvailable(4).getInt();
+
+        // the header is not checksummed, so we check the count before allocating for it;
+        // each column takes at least the length of its name and its type code
+        if ((count < 0) || (count * 8L > input.getRemaining()))
+        {
+            throw new DdlUtilsException("Invalid column count " + count + " in the header of table " + tableName + " in the file " + input.getFile());
+        }
+
+        Table       table     = _model.findTable(tableName, isCaseSensitive());
+        TableHeader header    = new TableHeader(table, count);
+
+        if (table == null)
+        {
+            _log.warn("The data contains rows of table " + tableName + " but there is no table defined with this name. These rows will be ignored.");
+        }
+        for (int idx = 0; idx < count; idx++)
+        {
+            String columnName = readString(input);
+
+            // the type code of the column at the time of writing is not needed for reading
+            input.ensureAvailable(4).getInt();
+            if (table != null)
+            {
+                header.columns[idx] = table.findColumn(columnName, isCaseSensitive());
+                if (header.columns[idx] == null)
+                {
+                    _log.warn("The data contains values of column " + columnName + " of table " + tableName + " but there is no column defined with this name. These values will be ignored.");
+                }
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Reads a block of rows and hands the rows to the sink.
+     * 
+     * @param input    The input
+     * @param header   The header of the table to which the rows belong
+     * @param position The offset of the block in the file
+     */
+    private void readBlock(MappedInput input, TableHeader header, long position) throws IOException
+    {
+        ByteBuffer buffer   = input.ensureAvailable(8);
+        int        rowCount = buffer.getInt();
+        int        length   = buffer.getInt();
+
+        if ((rowCount < 0) || (length < 0))
+        {
+            throw new DdlUtilsException("The block at offset " + position + " of the file " + input.getFile() + " is corrupt");
+        }
+        buffer = input.ensureAvailable(length + 8L);
+
+        ByteBuffer payload = buffer.slice();
+
+        payload.limit(length);
+        buffer.position(buffer.position() + length);
+
+        long checksum = buffer.getLong();
+
+        if (header.table == null)
+        {
+            return;
+        }
+
+        CRC32 crc = new CRC32();
+
+        crc.update(payload.duplicate());
+        if (crc.getValue() != checksum)
+        {
+            throw new DdlUtilsException("The checksum of the block at offset " + position + " of the file " + input.getFile() + " does not match");
+        }
+        for (int rowIdx = 0; rowIdx < rowCount; rowIdx++)
+        {
+            DynaBean bean = _model.createDynaBeanFor(header.table);
+
+            for (int idx = 0; idx < header.columns.length; idx++)
+            {
+                Column column = header.columns[idx];
+                Object value  = readValue(payload, header.table, column);
+
+                if ((column != null) && (value != null))
+                {
+                    bean.set(column.getName(), value);
+                }
+            }
+            _sink.addBean(bean);
+        }
+    }
+
+    /**
+     * Reads a value from the payload of a block.
+     * 
+     * @param payload The payload
+     * @param table   The table
+     * @param column  The column, or <code>null</code> if the value is skipped
+     * @return The value
+     */
+    private Object readValue(ByteBuffer payload, Table table, Column column)
+    {
+        byte tag = payload.get();
+
+        switch (tag)
+        {
+            case BinaryDataFormat.VALUE_NULL:
+                return null;
+            case BinaryDataFormat.VALUE_STRING:
+                return new String(readBytes(payload), StandardCharsets.UTF_8);
+            case BinaryDataFormat.VALUE_INTEGER:
+                return Integer.valueOf(payload.getInt());
+            case BinaryDataFormat.VALUE_LONG:
+                return Long.valueOf(payload.getLong());
+            case BinaryDataFormat.VALUE_SHORT:
+                return Short.valueOf(payload.getShort());
+            case BinaryDataFormat.VALUE_BYTE:
+                return Byte.valueOf(payload.get());
+            case BinaryDataFormat.VALUE_DOUBLE:
+                return Double.valueOf(payload.getDouble());
+            case BinaryDataFormat.VALUE_FLOAT:
+                return Float.valueOf(payload.getFloat());
+            case BinaryDataFormat.VALUE_BIG_DECIMAL:
+                int scale = payload.getInt();
+
+                return new BigDecimal(new BigInteger(readBytes(payload)), scale);
+            case BinaryDataFormat.VALUE_BIG_INTEGER:
+                return new BigInteger(readBytes(payload));
+            case BinaryDataFormat.VALUE_BOOLEAN:
+                return Boolean.valueOf(payload.get() != 0);
+            case BinaryDataFormat.VALUE_DATE:
+                return new java.sql.Date(payload.getLong());
+            case BinaryDataFormat.VALUE_TIME:
+                return new Time(payload.getLong());
+            case BinaryDataFormat.VALUE_TIMESTAMP:
+                Timestamp timestamp = new Timestamp(payload.getLong());
+
+                timestamp.setNanos(payload.getInt());
+                return timestamp;
+            case BinaryDataFormat.VALUE_BYTES:
+                return readBytes(payload);
+            case BinaryDataFormat.VALUE_CONVERTED:
+                String text = new String(readBytes(payload), StandardCharsets.UTF_8);
+
+                if (column == null)
+                {
+                    return null;
+                }
+
+                SqlTypeConverter converter = _converterConf.getRegisteredConverter(table, column);
+
+                return converter == null ? text : converter.convertFromString(text, column.getTypeCode());
+            default:
+                throw new DdlUtilsException("Unknown value type " + tag + " in the data of table " + table.getName());
+        }
+    }
+
+    /**
+     * Reads length-prefixed bytes from the given buffer.
+     * 
+     * @param buffer The buffer
+     * @return The bytes
+     */
+    private static byte[] readBytes(ByteBuffer buffer)
+    {
+        int length = buffer.getInt();
+
+        if ((length < 0) || (length > buffer.remaining()))
+        {
+            throw new DdlUtilsException("Invalid value length " + length + " in a block");
+        }
+
+        byte[] result = new byte[length];
+
+        buffer.get(result);
+        return result;
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string from the given input.
+     * 
+     * @param input The input
+     * @return The string
+     */
+    private static String readString(MappedInput input) throws IOException
+    {
+        int length = input.ensureAvailable(4).getInt();
+
+        if ((length < 0) || (length > input.getRemaining()))
+        {
+            throw new DdlUtilsException("Invalid string length " + length + " at offset " + (input.getPosition() - 4) + " of the file " + input.getFile());
+        }
+
+        byte[] bytes = new byte[length];
+
+        input.ensureAvailable(length).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The table header of the blocks that follow it, matched to the model.
+     */
+    private static class TableHeader
+    {
+        /** The table of the model, or <code>null</code> if the table is not part of the model. */
+        public final Table table;
+        /** The columns of the model in the order of the written values, <code>null</code> for unknown columns. */
+        public final Column[] columns;
+
+        /**
+         * Creates a new header.
+         * 
+         * @param table       The table
+         * @param columnCount The number of written columns
+         */
+        public TableHeader(Table table, int columnCount)
+        {
+            this.table   = table;
+            this.columns = new Column[columnCount];
+        }
+    }
+
+    /**
+     * Provides access to a file that is mapped into memory in windows.
+     */
+    private static class MappedInput
+    {
+        /** The channel of the file. */
+        private final FileChannel _channel;
+        /** The file. */
+        private final File _file;
+        /** The size of the file. */
+        private final long _size;
+        /** The currently mapped window. */
+        private ByteBuffer _window = ByteBuffer.allocate(0);
+        /** The offset of the window in the file. */
+        private long _windowOffset;
+
+        /**
+         * Creates a new input.
+         * 
+         * @param channel The channel of the file
+         * @param file    The file
+         */
+        public MappedInput(FileChannel channel, File file) throws IOException
+        {
+            _channel = channel;
+            _file    = file;
+            _size    = channel.size();
+        }
+
+        /**
+         * Returns the file.
+         * 
+         * @return The file
+         */
+        public File getFile()
+        {
+            return _file;
+        }
+
+        /**
+         * Returns the current offset in the file.
+         * 
+         * @return The offset
+         */
+        public long getPosition()
+        {
+            return _windowOffset + _window.position();
+        }
+
+        /**
+         * Returns the number of bytes between the current offset and the end of the file.
+         * 
+         * @return The number of remaining bytes
+         */
+        public long getRemaining()
+        {
+            return _size - getPosition();
+        }
+
+        /**
+         * Makes sure that the given number of bytes can be read from the returned buffer,
+         * and maps the next window of the file if necessary.
+         * 
+         * @param count The number of bytes
+         * @return The buffer positioned at the current offset
+         */
+        public ByteBuffer ensureAvailable(long count) throws IOException
+        {
+            if (count < 0)
+            {
+                throw new DdlUtilsException("Invalid record length " + count + " at offset " + getPosition() + " of the file " + _file);
+            }
+            if (_window.remaining() < count)
+            {
+                long position = getPosition();
+
+                if (position + count > _size)
+                {
+                    throw new DdlUtilsException("Unexpected end of the file " + _file);
+                }
+                if (count > Integer.MAX_VALUE)
+                {
+                    throw new DdlUtilsException("The record at offset " + position + " of the file " + _file + " is too large");
+                }
+                _window       = _channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Math.max(count, MAPPING_SIZE), _size - position));
+                _windowOffset = position;
+            }
+            return _window;
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.zip.CRC32;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.elnarion.ddlutils.dynabean.SqlDynaBean;
+import de.elnarion.ddlutils.dynabean.SqlDynaClass;
+import de.elnarion.ddlutils.io.converters.SqlTypeConverter;
+import de.elnarion.ddlutils.model.Column;
+import de.elnarion.ddlutils.model.Table;
+import de.elnarion.ddlutils.platform.RowCursor;
+
+/**
+ * Writes dyna beans matching a specified database model in the compact binary format
+ * described in {@link BinaryDataFormat}, as an alternative to the XML written by the
+ * {@link DataWriter}. The values are stored typed instead of as text, and the rows are
+ * grouped into blocks that carry a checksum. The written data can be read with the
+ * {@link BinaryDataReader}.<br/>
+ * The writer is also a {@link DataSink}, so that it can be used to convert the data read
+ * by a {@link DataReader} into the binary format.
+ * 
+ * @version $Revision: $
+ */
+public class BinaryDataWriter implements DataSink
+{
+    /** The default size in bytes after which a block of rows is written. */
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    /** Our log. */
+    private final Log _log = LogFactory.getLog(BinaryDataWriter.class);
+
+    /** The output. */
+    private final DataOutputStream _output;
+    /** The buffer for the rows of the current block. */
+    private final BlockBuffer _block = new BlockBuffer();
+    /** The output for the rows of the current block. */
+    private final DataOutputStream _blockOutput = new DataOutputStream(_block);
+    /** Used for calculating the checksums of the blocks. */
+    private final CRC32 _checksum = new CRC32();
+    /** The converters for values that have no binary representation. */
+    private ConverterConfiguration _converterConf = new ConverterConfiguration();
+    /** The size in bytes after which a block is written. */
+    private int _blockSize = DEFAULT_BLOCK_SIZE;
+    /** The number of rows in the current block. */
+    private int _blockRowCount;
+    /** The table whose rows are currently written. */
+    private Table _currentTable;
+    /** The cursor whose rows are currently written. */
+    private RowCursor _currentCursor;
+    /** The cursor ordinals of the columns of the current table, or -1 if not part of the result. */
+    private int[] _cursorIndices;
+
+    /**
+     * Creates a binary data writer instance.
+     * 
+     * @param output The target to write the data to; it won't be closed by the writer
+     */
+    public BinaryDataWriter(OutputStream output)
+    {
+        _output = new DataOutputStream(new BufferedOutputStream(output));
+    }
+
+    /**
+     * Returns the converter configuration of this data writer. The converters are only used
+     * for values that have no binary representation of their own.
+     * 
+     * @return The converter configuration
+     */
+    public ConverterConfiguration getConverterConfiguration()
+    {
+        return _converterConf;
+    }
+
+    /**
+     * Returns the size after which a block of rows is written.
+     * 
+     * @return The size in bytes
+     */
+    public int getBlockSize()
+    {
+        return _blockSize;
+    }
+
+    /**
+     * Specifies the size after which a block of rows is written. Larger blocks need
+     * more memory when writing and reading, but have less overhead.
+     * 
+     * @param blockSize The size in bytes
+     */
+    public void setBlockSize(int blockSize)
+    {
+        if (blockSize < 1)
+        {
+            throw new IllegalArgumentException("The block size must be positive");
+        }
+        _blockSize = blockSize;
+    }
+
+    /**
+     * Writes the start of the data, i.e. the file header.
+     * 
+     * @throws DataWriterException If an error occurred while writing
+     */
+    public void writeDocumentStart() throws DataWriterException
+    {
+        try
+        {
+            _output.writeInt(BinaryDataFormat.MAGIC);
+            _output.writeShort(BinaryDataFormat.VERSION);
+        }
+        catch (IOException ex)
+        {
+            throw new DataWriterException(ex);
+        }
+    }
+
+    /**
+     * Writes the end of the data including the pending rows, and flushes the output.
+     * 
+     * @throws DataWriterException If an error occurred while writing
+     */
+    public void writeDocumentEnd() throws DataWriterException
+    {
+        try
+        {
+            writeBlock();
+            _output.writeByte(BinaryDataFormat.RECORD_END);
+            _output.flush();
+            _currentTable  = null;
+            _currentCursor = null;
+        }
+        catch (IOException ex)
+        {
+            throw new DataWriterException(ex);
+        }
+    }
+
+    /**
+     * Writes the given bean.
+     * 
+     * @param bean The bean to write
+     * @throws DataWriterException If an error occurred while writing
+     */
+    public void write(SqlDynaBean bean) throws DataWriterException
+    {
+        Table table = ((SqlDynaClass)bean.getDynaClass()).getTable();
+
+        try
+        {
+            switchToTable(table);
+            for (int idx = 0; idx < table.getColumnCount(); idx++)
+            {
+                Column column = table.getColumn(idx);
+
+                writeValue(table, column, bean.get(column.getName()));
+            }
+            finishRow();
+        }
+        catch (IOException ex)
+        {
+            throw new DataWriterException(ex);
+        }
+    }
+
+    /**
+     * Writes the row at which the given cursor is positioned as a row of the given table.
+     * Columns of the table that are not part of the result are written as <code>null</code>.
+     * 
+     * @param table The table
+     * @param row   The cursor positioned on the row
+     * @throws DataWriterException If an error occurred while writing
+     */
+    public void write(Table table, RowCursor row) throws DataWriterException
+    {
+        try
+        {
+            switchToTable(table);
+            if (row != _currentCursor)
+            {
+                _currentCursor = row;
+                _cursorIndices = new int[table.getColumnCount()];
+                for (int idx = 0; idx < table.getColumnCount(); idx++)
+                {
+                    _cursorIndices[idx] = row.findColumnIndex(table.getColumn(idx).getName());
+                }
+            }
+            for (int idx = 0; idx < table.getColumnCount(); idx++)
+            {
+                int cursorIdx = _cursorIndices[idx];
+
+                writeValue(table, table.getColumn(idx), cursorIdx < 0 ? null : row.getObject(cursorIdx));
+            }
+            finishRow();
+        }
+        catch (IOException ex)
+        {
+            throw new DataWriterException(ex);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void start() throws DataSinkException
+    {
+        writeDocumentStart();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void addBean(DynaBean bean) throws DataSinkException
+    {
+        if (bean instanceof SqlDynaBean)
+        {
+            write((SqlDynaBean)bean);
+        }
+        else
+        {
+            _log.warn("Cannot write normal dyna beans (type: "+bean.getDynaClass().getName()+")");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void end() throws DataSinkException
+    {
+        writeDocumentEnd();
+    }
+
+    /**
+     * Writes the header of the given table if it is not the table of the previous row.
+     * 
+     * @param table The table
+     */
+    private void switchToTable(Table table) throws IOException
+    {
+        if (table != _currentTable)
+        {
+            writeBlock();
+            _output.writeByte(BinaryDataFormat.RECORD_TABLE);
+            writeString(_output, table.getName());
+            _output.writeInt(table.getColumnCount());
+            for (int idx = 0; idx < table.getColumnCount(); idx++)
+            {
+                Column column = table.getColumn(idx);
+
+                writeString(_output, column.getName());
+                _output.writeInt(column.getTypeCode());
+            }
+            _currentTable  = table;
+            _currentCursor = null;
+        }
+    }
+
+    /**
+     * Finishes the current row, and writes the block if it has reached the block size.
+     */
+    private void finishRow() throws IOException
+    {
+        _blockRowCount++;
+        if (_block.size() >= _blockSize)
+        {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes the pending rows as a block.
+     */
+    private void writeBlock() throws IOException
+    {
+        if (_blockRowCount > 0)
+        {
+            _checksum.reset();
+            _checksum.update(_block.getBuffer(), 0, _block.size());
+            _output.writeByte(BinaryDataFormat.RECORD_BLOCK);
+            _output.writeInt(_blockRowCount);
+            _output.writeInt(_block.size());
+            _output.write(_block.getBuffer(), 0, _block.size());
+            _output.writeLong(_checksum.getValue());
+            _block.reset();
+            _blockRowCount = 0;
+        }
+    }
+
+    /**
+     * Writes the given value of a column to the current block.
+     * 
+     * @param table  The table
+     * @param column The column
+     * @param value  The value
+     */
+    private void writeValue(Table table, Column column, Object value) throws IOException
+    {
+        DataOutputStream output = _blockOutput;
+
+        if (value == null)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_NULL);
+        }
+        else if (value instanceof String)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_STRING);
+            writeString(output, (String)value);
+        }
+        else if (value instanceof Integer)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_INTEGER);
+            output.writeInt(((Integer)value).intValue());
+        }
+        else if (value instanceof Long)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_LONG);
+            output.writeLong(((Long)value).longValue());
+        }
+        else if (value instanceof Short)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_SHORT);
+            output.writeShort(((Short)value).shortValue());
+        }
+        else if (value instanceof Byte)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_BYTE);
+            output.writeByte(((Byte)value).byteValue());
+        }
+        else if (value instanceof Double)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_DOUBLE);
+            output.writeDouble(((Double)value).doubleValue());
+        }
+        else if (value instanceof Float)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_FLOAT);
+            output.writeFloat(((Float)value).floatValue());
+        }
+        else if (value instanceof BigDecimal)
+        {
+            BigDecimal decimal = (BigDecimal)value;
+
+            output.writeByte(BinaryDataFormat.VALUE_BIG_DECIMAL);
+            output.writeInt(decimal.scale());
+            writeBytes(output, decimal.unscaledValue().toByteArray());
+        }
+        else if (value instanceof BigInteger)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_BIG_INTEGER);
+            writeBytes(output, ((BigInteger)value).toByteArray());
+        }
+        else if (value instanceof Boolean)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_BOOLEAN);
+            output.writeBoolean(((Boolean)value).booleanValue());
+        }
+        // Timestamp, Time and Date are all subclasses of java.util.Date
+        else if (value instanceof Timestamp)
+        {
+            Timestamp timestamp = (Timestamp)value;
+
+            output.writeByte(BinaryDataFormat.VALUE_TIMESTAMP);
+            output.writeLong(timestamp.getTime());
+            output.writeInt(timestamp.getNanos());
+        }
+        else if (value instanceof Time)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_TIME);
+            output.writeLong(((Time)value).getTime());
+        }
+        else if (value instanceof java.sql.Date)
+        {
+            output.writeByte(BinaryDataFormat.VALUE_DATE);
+            output.writeLong(((java.sql.Date)value).getTime());
+        }
+        else if (value instanceof byte[])
+        {
+            output.writeByte(BinaryDataFormat.VALUE_BYTES);
+            writeBytes(output, (byte[])value);
+        }
+        else
+        {
+            SqlTypeConverter converter = _converterConf.getRegisteredConverter(table, column);
+            String           text      = (converter == null ? value.toString() : converter.convertToString(value, column.getTypeCode()));
+
+            if (text == null)
+            {
+                output.writeByte(BinaryDataFormat.VALUE_NULL);
+            }
+            else
+            {
+                output.writeByte(BinaryDataFormat.VALUE_CONVERTED);
+                writeString(output, text);
+            }
+        }
+    }
+
+    /**
+     * Writes the given string as length-prefixed UTF-8 bytes.
+     * 
+     * @param output The output
+     * @param text   The string
+     */
+    private static void writeString(DataOutputStream output, String text) throws IOException
+    {
+        writeBytes(output, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the given bytes prefixed with their length.
+     * 
+     * @param output The output
+     * @param bytes  The bytes
+     */
+    private static void writeBytes(DataOutputStream output, byte[] bytes) throws IOException
+    {
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * A byte array output stream that gives access to its buffer so that the block does not
+     * need to be copied when it is written.
+     */
+    private static class BlockBuffer extends ByteArrayOutputStream
+    {
+        /**
+         * Creates a new buffer.
+         */
+        public BlockBuffer()
+        {
+            super(DEFAULT_BLOCK_SIZE + 1024);
+        }
+
+        /**
+         * Returns the buffer; only the first {@link #size()} bytes are valid.
+         * 
+         * @return The buffer
+         */
+        public byte[] getBuffer()
+        {
+            return buf;
+        }
+    }
+}
@@ -29,6 +29,13 @@ import java.io.Reader;
 import java.lang.reflect.InvocationTargetException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.Location;
@@ -57,6 +64,11 @@ import de.elnarion.ddlutils.model.Table;
  */
 public class DataReader
 {
+    /** Marks the end of the rows in the queues of the pipeline. */
+    private static final Object END_OF_ROWS = new Object();
+    /** The number of seconds to wait for the stages of a stopped pipeline to finish. */
+    private static final long PIPELINE_STOP_TIMEOUT = 60;
+
     /** Our log. */
     private final Log _log = LogFactory.getLog(DataReader.class);
 
@@ -68,6 +80,12 @@ public class DataReader
     private ConverterConfiguration _converterConf = new ConverterConfiguration();
     /** Whether to be case sensitive or not. */
     private boolean _caseSensitive = false;
+    /** Whether to parse, convert and deliver the beans on separate threads. */
+    private boolean _pipelined = false;
+    /** The maximum number of rows that are buffered between the pipeline stages. */
+    private int _pipelineQueueSize = 1024;
+    /** The pipeline of the current read operation, if pipelined. */
+    private Pipeline _pipeline;
 
     /**
      * Returns the converter configuration of this data reader.
@@ -140,6 +158,57 @@ public class DataReader
         _caseSensitive = beCaseSensitive;
     }
 
+    /**
+     * Determines whether the reading is pipelined.
+     *
+     * @return <code>true</code> if parsing, value conversion and delivery to the sink run
+     *         on separate threads
+     */
+    public boolean isPipelined()
+    {
+        return _pipelined;
+    }
+
+    /**
+     * Specifies whether the reading shall be pipelined. If so, the XML is parsed on the calling
+     * thread, whereas the conversion of the values into beans and the delivery of the beans to
+     * the sink run on two additional threads, so that e.g. parsing continues while the sink
+     * waits for the database. The stages are connected by bounded queues, and the beans are
+     * delivered to the sink in the order in which they appear in the XML. An error in any stage
+     * stops the pipeline and is thrown by the <code>read</code> method.
+     *
+     * @param pipelined <code>true</code> if the reading shall be pipelined
+     */
+    public void setPipelined(boolean pipelined)
+    {
+        _pipelined = pipelined;
+    }
+
+    /**
+     * Returns the maximum number of rows that are buffered between two pipeline stages.
+     *
+     * @return The queue size
+     */
+    public int getPipelineQueueSize()
+    {
+        return _pipelineQueueSize;
+    }
+
+    /**
+     * Specifies the maximum number of rows that are buffered between two pipeline stages.
+     * If a queue is full, the stage feeding it waits for the next stage.
+     *
+     * @param pipelineQueueSize The queue size
+     */
+    public void setPipelineQueueSize(int pipelineQueueSize)
+    {
+        if (pipelineQueueSize < 1)
+        {
+            throw new IllegalArgumentException("The pipeline queue size must be positive");
+        }
+        _pipelineQueueSize = pipelineQueueSize;
+    }
+
     /**
      * Creates a new, initialized XML input factory object.
      * 
@@ -274,21 +343,40 @@ public class DataReader
      */
     private void read(XMLStreamReader xmlReader) throws DdlUtilsXMLException
     {
+        if (_pipelined)
+        {
+            _pipeline = new Pipeline(_pipelineQueueSize);
+        }
         try
         {
             while (xmlReader.getEventType() != XMLStreamReader.START_ELEMENT)
             {
                 if (xmlReader.next() == XMLStreamReader.END_DOCUMENT)
                 {
-                    return;
+                    break;
                 }
             }
-            readDocument(xmlReader);
+            if (xmlReader.getEventType() == XMLStreamReader.START_ELEMENT)
+            {
+                readDocument(xmlReader);
+            }
+            if (_pipeline != null)
+            {
+                _pipeline.finish();
+            }
         }
         catch (XMLStreamException ex)
         {
             throw new DdlUtilsXMLException(ex);
         }
+        finally
+        {
+            if (_pipeline != null)
+            {
+                _pipeline.stop();
+                _pipeline = null;
+            }
+        }
     }
 
     // TODO: add debug level logging (or trace ?)
@@ -352,23 +440,42 @@ public class DataReader
         }
         else
         {
-            DynaBean bean = _model.createDynaBeanFor(table);
-
-            for (int idx = 0; idx < table.getColumnCount(); idx++)
+            if (_pipeline != null)
             {
-                Column column = table.getColumn(idx);
-                String value  = (String)attributes.get(isCaseSensitive() ? column.getName() : column.getName().toLowerCase());
-
-                if (value != null)
-                {
-                    setColumnValue(bean, table, column, value);
-                }
+                _pipeline.addRow(table, attributes);
+            }
+            else
+            {
+                getSink().addBean(createBean(table, attributes));
             }
-            getSink().addBean(bean);
             consumeRestOfElement(xmlReader);
         }
     }
 
+    /**
+     * Creates the bean for a row of the given table.
+     * 
+     * @param table      The table
+     * @param attributes The column values as read from the XML
+     * @return The bean
+     */
+    private DynaBean createBean(Table table, Map<String, String> attributes) throws DdlUtilsXMLException
+    {
+        DynaBean bean = _model.createDynaBeanFor(table);
+
+        for (int idx = 0; idx < table.getColumnCount(); idx++)
+        {
+            Column column = table.getColumn(idx);
+            String value  = (String)attributes.get(isCaseSensitive() ? column.getName() : column.getName().toLowerCase());
+
+            if (value != null)
+            {
+                setColumnValue(bean, table, column, value);
+            }
+        }
+        return bean;
+    }
+
     /**
      * Reads all relevant sub elements that match the columns specified by the given table object from the xml reader into the given bean.
      *  
@@ -564,4 +671,263 @@ public class DataReader
             eventType = reader.next();
         }
     }
+
+    /**
+     * A row read from the XML whose values have not been converted yet.
+     */
+    private static class ParsedRow
+    {
+        /** The table. */
+        private final Table _table;
+        /** The column values as read from the XML. */
+        private final Map<String, String> _attributes;
+
+        /**
+         * Creates a new row.
+         * 
+         * @param table      The table
+         * @param attributes The column values as read from the XML
+         */
+        public ParsedRow(Table table, Map<String, String> attributes)
+        {
+            _table      = table;
+            _attributes = attributes;
+        }
+    }
+
+    /**
+     * Converts the parsed rows into beans and delivers these to the sink, each on its own
+     * thread. The threads are connected to the parsing thread and to each other via bounded
+     * queues that are closed by an end marker.
+     */
+    private class Pipeline
+    {
+        /** The rows waiting for conversion. */
+        private final BlockingQueue<Object> _parsedRows;
+        /** The beans waiting for delivery to the sink. */
+        private final BlockingQueue<Object> _beans;
+        /** Runs the conversion and delivery stages. */
+        private final ExecutorService _executor = Executors.newFixedThreadPool(2);
+        /** The delivery stage, which finishes last. */
+        private final Future<Object> _delivery;
+        /** The first error that occurred in one of the stages. */
+        private volatile Throwable _error;
+
+        /**
+         * Creates and starts a new pipeline.
+         * 
+         * @param queueSize The capacity of the queues
+         */
+        public Pipeline(int queueSize)
+        {
+            _parsedRows = new ArrayBlockingQueue<>(queueSize);
+            _beans      = new ArrayBlockingQueue<>(queueSize);
+            _executor.submit(new Runnable()
+            {
+                public void run()
+                {
+                    convertRows();
+                }
+            }, null);
+            _delivery = _executor.submit(new Runnable()
+            {
+                public void run()
+                {
+                    deliverBeans();
+                }
+            }, null);
+        }
+
+        /**
+         * Hands a parsed row to the conversion stage, waiting if the queue is full.
+         * 
+         * @param table      The table
+         * @param attributes The column values as read from the XML
+         */
+        public void addRow(Table table, Map<String, String> attributes) throws DdlUtilsXMLException
+        {
+            put(new ParsedRow(table, attributes));
+        }
+
+        /**
+         * Waits until all rows are delivered to the sink.
+         */
+        public void finish() throws DdlUtilsXMLException
+        {
+            put(END_OF_ROWS);
+            try
+            {
+                _delivery.get();
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                throw new DdlUtilsXMLException(ex);
+            }
+            catch (ExecutionException ex)
+            {
+                fail(ex.getCause());
+            }
+            checkError();
+        }
+
+        /**
+         * Stops the stages if they are still running, e.g. after an error, and waits for them
+         * to finish so that the sink is no longer used when the read operation returns.
+         */
+        public void stop()
+        {
+            _executor.shutdownNow();
+            try
+            {
+                if (!_executor.awaitTermination(PIPELINE_STOP_TIMEOUT, TimeUnit.SECONDS))
+                {
+                    _log.warn("The pipeline stages did not finish within " + PIPELINE_STOP_TIMEOUT + " seconds after being stopped");
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Puts the given object into the conversion queue, and throws the error of a
+         * failed stage instead of waiting forever.
+         * 
+         * @param obj The object
+         */
+        private void put(Object obj) throws DdlUtilsXMLException
+        {
+            try
+            {
+                checkError();
+                while (!_parsedRows.offer(obj, 100, TimeUnit.MILLISECONDS))
+                {
+                    checkError();
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                throw new DdlUtilsXMLException(ex);
+            }
+        }
+
+        /**
+         * Runs the conversion stage.
+         */
+        private void convertRows()
+        {
+            try
+            {
+                Object obj;
+
+                do
+                {
+                    obj = take(_parsedRows);
+                    if (obj instanceof ParsedRow)
+                    {
+                        ParsedRow row = (ParsedRow)obj;
+
+                        _beans.put(createBean(row._table, row._attributes));
+                    }
+                    else
+                    {
+                        _beans.put(obj);
+                    }
+                }
+                while (obj != END_OF_ROWS);
+            }
+            catch (InterruptedException ex)
+            {
+                // the pipeline was stopped
+            }
+            catch (Throwable ex)
+            {
+                fail(ex);
+            }
+        }
+
+        /**
+         * Runs the delivery stage.
+         */
+        private void deliverBeans()
+        {
+            try
+            {
+                for (Object obj = take(_beans); obj != END_OF_ROWS; obj = take(_beans))
+                {
+                    getSink().addBean((DynaBean)obj);
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                // the pipeline was stopped
+            }
+            catch (Throwable ex)
+            {
+                fail(ex);
+            }
+        }
+
+        /**
+         * Takes the next object from the given queue. Other than {@link BlockingQueue#take()},
+         * this also notices that the pipeline was stopped if the interrupt was swallowed, e.g.
+         * by the sink.
+         * 
+         * @param queue The queue
+         * @return The object
+         * @throws InterruptedException If the pipeline was stopped
+         */
+        private Object take(BlockingQueue<Object> queue) throws InterruptedException
+        {
+            Object obj = queue.poll(100, TimeUnit.MILLISECONDS);
+
+            while (obj == null)
+            {
+                if (_executor.isShutdown())
+                {
+                    throw new InterruptedException();
+                }
+                obj = queue.poll(100, TimeUnit.MILLISECONDS);
+            }
+            return obj;
+        }
+
+        /**
+         * Records the given error and stops the stages.
+         * 
+         * @param error The error
+         */
+        private synchronized void fail(Throwable error)
+        {
+            if (_error == null)
+            {
+                _error = error;
+            }
+            _executor.shutdownNow();
+        }
+
+        /**
+         * Throws the error that occurred in one of the stages, if any.
+         */
+        private void checkError() throws DdlUtilsXMLException
+        {
+            Throwable error = _error;
+
+            if (error instanceof RuntimeException)
+            {
+                throw (RuntimeException)error;
+            }
+            else if (error instanceof Error)
+            {
+                throw (Error)error;
+            }
+            else if (error != null)
+            {
+                throw new DdlUtilsXMLException(error);
+            }
+        }
+    }
 }
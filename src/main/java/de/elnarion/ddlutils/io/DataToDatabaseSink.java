@@ -19,18 +19,37 @@ package de.elnarion.ddlutils.io;
  * under the License.
  */
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.DynaProperty;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import de.elnarion.ddlutils.DatabaseOperationException;
+import de.elnarion.ddlutils.DdlUtilsException;
 import de.elnarion.ddlutils.Platform;
 import de.elnarion.ddlutils.dynabean.SqlDynaClass;
 import de.elnarion.ddlutils.model.Column;
@@ -61,22 +80,74 @@ public class DataToDatabaseSink implements DataSink
     private boolean _haltOnErrors = true;
     /** Whether to delay the insertion of beans so that the beans referenced by it via foreignkeys, are already inserted into the database. */
     private boolean _ensureFkOrder = true;
+    /** Whether to disable the referential integrity checks of the database instead of ensuring the foreign key order. */
+    private boolean _disableReferentialIntegrity = false;
+    /** Whether to validate the foreign keys when enabling the referential integrity checks again. */
+    private boolean _validateReferentialIntegrity = true;
+    /** Whether the referential integrity checks are currently disabled. */
+    private boolean _referentialIntegrityDisabled;
+    /** Whether the current load delays the insertion of beans so that the beans referenced by it are inserted first. */
+    private boolean _fkOrderUsed;
+    /** Whether to drop the non-unique indexes of the tables before the load and to recreate them afterwards. */
+    private boolean _rebuildIndexes = false;
+    /** The journal file for the dropped indexes, or <code>null</code> for the default one. */
+    private File _indexJournalFile;
+    /** The number of connections to use for recreating the indexes. */
+    private int _indexRebuildConnectionCount = 1;
+    /** Drops and recreates the indexes; only set while the sink rebuilds the indexes. */
+    private IndexRebuilder _indexRebuilder;
     /** Whether to use batch mode inserts. */
     private boolean _useBatchMode = false;
     /** The queued objects for batch insertion. */
     private ArrayList<DynaBean> _batchQueue = new ArrayList<>();
     /** The number of beans to insert in one batch. */
     private int _batchSize = 1024;
+    /** Whether to use the bulk loader of the platform for the tables that support it. */
+    private boolean _useBulkLoad = false;
+    /** The number of rows inserted one by one after which the transaction is committed. */
+    private int _commitInterval = 1;
+    /** The approximate number of bytes inserted one by one after which the transaction is committed, or <code>0</code>. */
+    private long _commitIntervalBytes = 0;
+    /** The number of rows inserted since the last commit. */
+    private int _uncommittedRows;
+    /** The approximate number of bytes inserted since the last commit. */
+    private long _uncommittedBytes;
+    /** Whether the connection supports savepoints, or <code>null</code> if not determined yet. */
+    private Boolean _savepointsSupported;
+    /** Receives the rows that could not be inserted, if any. */
+    private RejectedRowHandler _rejectedRowHandler;
+    /** The number of rows that could not be inserted. */
+    private int _rejectedRowCount;
     /** Stores the tables that are target of a foreign key. */
     private HashSet<Table> _fkTables = new HashSet<>();
     /** Contains the tables that have a self-referencing foreign key to a (partially) identity primary key. */
     private HashSet<Table> _tablesWithSelfIdentityReference = new HashSet<>();
     /** Contains the tables that have a self-referencing foreign key that is required. */
     private HashSet<Table> _tablesWithRequiredSelfReference = new HashSet<>();
+    /** The directory for spilling the identity map to disk, or <code>null</code> to hold it in the heap. */
+    private File _identitySpillDirectory;
     /** Maps original to processed identities. */
-    private HashMap<Identity, Identity> _identityMap = new HashMap<>();
+    private IdentityMap _identityMap = new IdentityMap();
     /** Stores the objects that are waiting for other objects to be inserted. */
-    private ArrayList<WaitingObject> _waitingObjects = new ArrayList<>();
+    private LinkedHashSet<WaitingObject> _waitingObjects = new LinkedHashSet<>();
+    /** The waiting objects indexed by the identities of the objects that they are waiting for. */
+    private HashMap<Identity, List<WaitingObject>> _waitingObjectsByIdentity = new HashMap<>();
+    /** Stores the queued objects whose identity is generated by the database, and thus only known after the batch is executed. */
+    private ArrayList<WaitingObject> _queuedIdentityObjects = new ArrayList<>();
+    /** The number of connections to use for inserting the beans in parallel. */
+    private int _parallelConnectionCount = 1;
+    /** The foreign key level of each table, which determines the order of the parallel inserts. */
+    private HashMap<Table, Integer> _fkLevels = new HashMap<>();
+    /** Contains the tables that reference tables on the same or a higher level, which are inserted while no other parallel insert runs. */
+    private HashSet<Table> _tablesInsertedSerially = new HashSet<>();
+    /** The queued objects per table for parallel insertion. */
+    private HashMap<Table, ArrayList<DynaBean>> _parallelQueues = new HashMap<>();
+    /** The parallel inserts that have been started, in the order in which they were started. */
+    private ArrayList<ParallelInsert> _runningInserts = new ArrayList<>();
+    /** The connections that are currently not used by a parallel insert. */
+    private BlockingQueue<Connection> _parallelConnections;
+    /** Runs the parallel inserts; only set while the sink inserts in parallel. */
+    private ExecutorService _executor;
 
     /**
      * Creates a new sink instance.
@@ -130,7 +201,14 @@ public class DataToDatabaseSink implements DataSink
 
     /**
      * Specifies whether this sink halts when an error happens during the insertion of a bean
-     * into the database.
+     * into the database. If not, and the connection is not in auto-commit mode, then each row
+     * that is inserted on its own is guarded by a savepoint if the database supports them, so
+     * that a failed row is rolled back without affecting the uncommitted rows before it.
+     * If a batch fails, it is split in halves which are inserted separately, recursively,
+     * until the failing rows are isolated. The rows that could not be inserted are handed
+     * to the {@link #setRejectedRowHandler(RejectedRowHandler) rejected row handler}. Note
+     * that in auto-commit mode, the driver may already have inserted some rows of a failed
+     * batch, which are then rejected when inserted again.
      *
      * @param haltOnErrors <code>true</code> if the sink shall stop when an error occurred
      */
@@ -139,6 +217,91 @@ public class DataToDatabaseSink implements DataSink
         _haltOnErrors = haltOnErrors;
     }
 
+    /**
+     * Returns the handler that receives the rows that could not be inserted.
+     *
+     * @return The handler, or <code>null</code> if the rows are only logged
+     */
+    public RejectedRowHandler getRejectedRowHandler()
+    {
+        return _rejectedRowHandler;
+    }
+
+    /**
+     * Specifies the handler that receives the rows that could not be inserted if the sink
+     * does not {@link #setHaltOnErrors(boolean) halt on errors}, e.g. a {@link RejectedRowWriter}
+     * that writes them to a file. If no handler is set, the rows are only logged.
+     *
+     * @param rejectedRowHandler The handler
+     */
+    public void setRejectedRowHandler(RejectedRowHandler rejectedRowHandler)
+    {
+        _rejectedRowHandler = rejectedRowHandler;
+    }
+
+    /**
+     * Returns the number of rows that could not be inserted since the sink was started.
+     *
+     * @return The number of rejected rows
+     */
+    public int getRejectedRowCount()
+    {
+        return _rejectedRowCount;
+    }
+
+    /**
+     * Returns the number of rows inserted one by one after which the sink commits the
+     * transaction, if the connection is not in auto-commit mode.
+     *
+     * @return The number of rows (<code>1</code> per default)
+     */
+    public int getCommitInterval()
+    {
+        return _commitInterval;
+    }
+
+    /**
+     * Specifies the number of rows inserted one by one after which the sink commits the
+     * transaction, if the connection is not in auto-commit mode. Per default, every row is
+     * committed on its own, which is slow as the database has to sync its log for every
+     * row. Use <code>0</code> to only commit according to {@link #setCommitIntervalBytes(long)},
+     * and at the end of the insertion process. Batches are committed after each batch
+     * regardless of this setting.
+     *
+     * @param commitInterval The number of rows
+     */
+    public void setCommitInterval(int commitInterval)
+    {
+        _commitInterval = commitInterval;
+    }
+
+    /**
+     * Returns the approximate number of bytes inserted one by one after which the sink
+     * commits the transaction.
+     *
+     * @return The number of bytes, or <code>0</code> if the transaction is not committed
+     *         based on the size of the rows (the default)
+     */
+    public long getCommitIntervalBytes()
+    {
+        return _commitIntervalBytes;
+    }
+
+    /**
+     * Specifies the approximate number of bytes inserted one by one after which the sink
+     * commits the transaction, if the connection is not in auto-commit mode. The size of a
+     * row is estimated from its values, i.e. the length of strings and binary values and
+     * eight bytes for any other value. The transaction is committed when either this or the
+     * {@link #setCommitInterval(int) commit interval} is reached.
+     *
+     * @param commitIntervalBytes The number of bytes, or <code>0</code> to not commit based on
+     *                            the size of the rows
+     */
+    public void setCommitIntervalBytes(long commitIntervalBytes)
+    {
+        _commitIntervalBytes = commitIntervalBytes;
+    }
+
     /**
      * Determines whether the sink delays the insertion of beans so that the beans referenced by it
      * via foreignkeys are already inserted into the database.
@@ -164,6 +327,126 @@ public class DataToDatabaseSink implements DataSink
         _ensureFkOrder = ensureFkOrder;
     }
 
+    /**
+     * Determines whether the sink disables the referential integrity checks of the database
+     * during the load instead of ensuring the foreign key order itself.
+     *
+     * @return <code>true</code> if the checks are disabled (<code>false</code> per default)
+     */
+    public boolean isDisableReferentialIntegrity()
+    {
+        return _disableReferentialIntegrity;
+    }
+
+    /**
+     * Specifies whether the sink shall disable the referential integrity checks of the database
+     * during the load instead of ensuring the foreign key order itself. The beans are then inserted
+     * in the order in which they are added, and the checks are enabled again at the end of the
+     * insertion process. This saves the memory for the identities of the inserted rows and for the
+     * rows waiting for them, but requires that the primary key values are not defined by the
+     * database as the foreign keys referencing them would not be updated. If the platform does not
+     * support this (see {@link de.elnarion.ddlutils.PlatformInfo#isReferentialIntegrityDisablingSupported()}),
+     * or if the beans are inserted in parallel, the sink falls back to ensuring the foreign key order
+     * if so configured.
+     *
+     * @param disableReferentialIntegrity <code>true</code> if the checks shall be disabled
+     */
+    public void setDisableReferentialIntegrity(boolean disableReferentialIntegrity)
+    {
+        _disableReferentialIntegrity = disableReferentialIntegrity;
+    }
+
+    /**
+     * Determines whether the sink validates the foreign keys when it enables the referential
+     * integrity checks again.
+     *
+     * @return <code>true</code> if the foreign keys are validated (the default)
+     */
+    public boolean isValidateReferentialIntegrity()
+    {
+        return _validateReferentialIntegrity;
+    }
+
+    /**
+     * Specifies whether the sink shall validate the foreign keys when it enables the referential
+     * integrity checks again. If the inserted rows violate a foreign key, {@link #end()} then
+     * throws an exception. Note that the rows have already been committed at that point.
+     *
+     * @param validateReferentialIntegrity <code>true</code> if the foreign keys shall be validated
+     */
+    public void setValidateReferentialIntegrity(boolean validateReferentialIntegrity)
+    {
+        _validateReferentialIntegrity = validateReferentialIntegrity;
+    }
+
+    /**
+     * Determines whether the sink drops the non-unique indexes of the tables before the load
+     * and recreates them afterwards.
+     *
+     * @return <code>true</code> if the indexes are rebuilt (<code>false</code> per default)
+     */
+    public boolean isRebuildIndexes()
+    {
+        return _rebuildIndexes;
+    }
+
+    /**
+     * Specifies whether the sink shall drop the non-unique indexes of the tables in the model
+     * in {@link #start()}, and recreate them in {@link #end()}. The definitions of the dropped
+     * indexes are kept in a journal file (see {@link IndexRebuilder}), so if a load is aborted,
+     * the next load with the same journal file first recreates the indexes that are still missing.
+     *
+     * @param rebuildIndexes <code>true</code> if the indexes shall be rebuilt
+     */
+    public void setRebuildIndexes(boolean rebuildIndexes)
+    {
+        _rebuildIndexes = rebuildIndexes;
+    }
+
+    /**
+     * Returns the journal file for the definitions of the dropped indexes.
+     *
+     * @return The journal file, or <code>null</code> if the default file is used
+     */
+    public File getIndexJournalFile()
+    {
+        return _indexJournalFile;
+    }
+
+    /**
+     * Specifies the journal file for the definitions of the dropped indexes. Per default, a file
+     * in the directory <code>.ddlutils</code> in the home directory of the user whose name is
+     * derived from the identity of the database is used,
+     * see {@link IndexRebuilder#getDefaultJournalFile(String)}.
+     *
+     * @param indexJournalFile The journal file, or <code>null</code> for the default file
+     */
+    public void setIndexJournalFile(File indexJournalFile)
+    {
+        _indexJournalFile = indexJournalFile;
+    }
+
+    /**
+     * Returns the number of connections that are used for recreating the dropped indexes.
+     *
+     * @return The number of connections (<code>1</code> per default)
+     */
+    public int getIndexRebuildConnectionCount()
+    {
+        return _indexRebuildConnectionCount;
+    }
+
+    /**
+     * Specifies the number of connections that are used for recreating the dropped indexes
+     * concurrently.
+     *
+     * @param indexRebuildConnectionCount The number of connections
+     */
+    public void setIndexRebuildConnectionCount(int indexRebuildConnectionCount)
+    {
+        _indexRebuildConnectionCount = indexRebuildConnectionCount;
+    }
+
     /**
      * Determines whether batch mode is used for inserting the beans.
      *
@@ -176,7 +459,9 @@ public class DataToDatabaseSink implements DataSink
 
     /**
      * Specifies whether batch mode is used for inserting the beans. Note that this requires
-     * that the primary key values are not defined by the database.
+     * that the primary key values are not defined by the database, unless the platform can
+     * read back the generated keys of a batch
+     * ({@link de.elnarion.ddlutils.PlatformInfo#isGeneratedKeysReadableInBatchMode()}).
      *
      * @param useBatchMode <code>true</code> if batch mode shall be used
      */
@@ -205,21 +490,155 @@ public class DataToDatabaseSink implements DataSink
         _batchSize = batchSize;
     }
 
+    /**
+     * Determines whether the bulk loader of the platform is used for inserting the beans.
+     *
+     * @return <code>true</code> if the bulk loader is used (<code>false</code> per default)
+     */
+    public boolean isUseBulkLoad()
+    {
+        return _useBulkLoad;
+    }
+
+    /**
+     * Specifies whether the bulk loader of the platform ({@link Platform#getBulkLoader()}) is
+     * used for inserting the beans. The beans are then queued like in batch mode, and each batch
+     * is handed to the bulk loader. Only tables whose rows no other rows have to wait for are
+     * bulk loaded, i.e. tables that are not referenced via a foreign key by rows whose insertion
+     * depends on database-generated identity values, and tables without a self-reference; the
+     * beans of other tables are inserted as usual.
+     *
+     * @param useBulkLoad <code>true</code> if the bulk loader shall be used
+     */
+    public void setUseBulkLoad(boolean useBulkLoad)
+    {
+        _useBulkLoad = useBulkLoad;
+    }
+
+    /**
+     * Returns the number of connections that are used for inserting the beans in parallel.
+     *
+     * @return The number of connections (<code>1</code> per default)
+     */
+    public int getParallelConnectionCount()
+    {
+        return _parallelConnectionCount;
+    }
+
+    /**
+     * Specifies the number of connections that are used for inserting the beans in parallel.
+     * If more than one, the beans are queued per table, and each batch of {@link #getBatchSize()}
+     * beans is inserted by a separate thread on one of the connections, which are borrowed from
+     * the platform. Batches of tables on the same foreign key level are inserted concurrently,
+     * whereas a batch is only started once the queued beans of all tables on lower levels are in
+     * the database. Only the tables that could also be bulk loaded are inserted in parallel (see
+     * {@link #setUseBulkLoad(boolean)}); the beans of the other tables, e.g. of tables whose
+     * primary key values are generated by the database and referenced by other rows, are inserted
+     * on the connection of the sink once the queued beans are in the database.<br/>
+     * Note that the connections for the parallel inserts are borrowed in addition to the
+     * connection of the sink, so <code>parallelConnectionCount + 1</code> connections are used.
+     *
+     * @param parallelConnectionCount The number of connections
+     */
+    public void setParallelConnectionCount(int parallelConnectionCount)
+    {
+        _parallelConnectionCount = parallelConnectionCount;
+    }
+
+    /**
+     * Returns the directory in which the identities of the inserted rows are stored
+     * when ensuring the foreign key order.
+     *
+     * @return The directory, or <code>null</code> if the identities are held in the heap
+     */
+    public File getIdentitySpillDirectory()
+    {
+        return _identitySpillDirectory;
+    }
+
+    /**
+     * Specifies the directory in which the identities of the inserted rows are stored
+     * when ensuring the foreign key order. The sink needs to remember the identity of every
+     * row of a table that is referenced by a foreign key, which for very large loads may
+     * exhaust the heap. If a directory is given, the identities consisting of a single
+     * integral value are stored in memory-mapped temporary files in it instead, which are
+     * deleted at the end of the load.
+     *
+     * @param identitySpillDirectory The directory, or <code>null</code> to hold the identities
+     *                               in the heap (the default)
+     */
+    public void setIdentitySpillDirectory(File identitySpillDirectory)
+    {
+        _identitySpillDirectory = identitySpillDirectory;
+    }
+
     /**
      * {@inheritDoc}
      */
     public void end() throws DataSinkException
     {
-        purgeBatchQueue();
-        if (_connection != null)
+        try
+        {
+            if (_executor != null)
+            {
+                finishParallelInserts();
+            }
+            // purging can release waiting beans into the queue again
+            while (!_batchQueue.isEmpty())
+            {
+                purgeBatchQueue();
+            }
+            if (_connection != null)
+            {
+                _platform.releaseStatementCache(_connection);
+                try
+                {
+                    if (_uncommittedRows > 0)
+                    {
+                        commitPendingRows();
+                    }
+                    restoreReferentialIntegrity();
+                }
+                catch (SQLException ex)
+                {
+                    throw new DataSinkException(ex);
+                }
+                catch (DatabaseOperationException ex)
+                {
+                    throw new DataSinkException(ex);
+                }
+                finally
+                {
+                    restoreReferentialIntegrityAfterError();
+                    try
+                    {
+                        _connection.close();
+                    }
+                    catch (SQLException ex)
+                    {
+                        _log.warn("Could not close the connection", ex);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            restoreReferentialIntegrityAfterError();
+        }
+        _identityMap.clear();
+        if (_indexRebuilder != null)
         {
             try
             {
-                _connection.close();
+                _indexRebuilder.recreateIndexes();
             }
-            catch (SQLException ex)
+            catch (DdlUtilsException ex)
             {
-                throw new DataSinkException(ex);
+                throw new DataSinkException("Could not recreate the indexes, the remaining ones are listed in " + _indexRebuilder.getJournalFile(), ex);
+            }
+            finally
+            {
+                _indexRebuilder = null;
             }
         }
         if (!_waitingObjects.isEmpty())
@@ -259,8 +678,46 @@ public class DataToDatabaseSink implements DataSink
     public void start() throws DataSinkException
     {
         _fkTables.clear();
+        _identityMap.clear();
+        _identityMap = new IdentityMap(_identitySpillDirectory);
         _waitingObjects.clear();
-        if (_ensureFkOrder)
+        _waitingObjectsByIdentity.clear();
+        _queuedIdentityObjects.clear();
+        _uncommittedRows     = 0;
+        _uncommittedBytes    = 0;
+        _savepointsSupported = null;
+        _rejectedRowCount    = 0;
+        _fkOrderUsed         = _ensureFkOrder;
+        if (_rebuildIndexes)
+        {
+            startIndexRebuild();
+        }
+        try
+        {
+            _connection = _platform.borrowConnection();
+            if (_disableReferentialIntegrity)
+            {
+                if (!_platform.getPlatformInfo().isReferentialIntegrityDisablingSupported())
+                {
+                    _log.warn("The platform " + _platform.getName() + " does not support disabling the referential integrity checks");
+                }
+                else if (_parallelConnectionCount > 1)
+                {
+                    _log.warn("The referential integrity checks are not disabled because the beans are inserted in parallel");
+                }
+                else
+                {
+                    _platform.disableReferentialIntegrity(_connection, _model);
+                    _referentialIntegrityDisabled = true;
+                    _fkOrderUsed                  = false;
+                }
+            }
+        }
+        catch (DatabaseOperationException ex)
+        {
+            throw new DataSinkException(ex);
+        }
+        if (_fkOrderUsed)
         {
             for (int tableIdx = 0; tableIdx < _model.getTableCount(); tableIdx++)
             {
@@ -274,188 +731,804 @@ public class DataToDatabaseSink implements DataSink
                 }
             }
         }
+        if (_parallelConnectionCount > 1)
+        {
+            startParallelInserts();
+        }
+    }
+
+    /**
+     * Drops the non-unique indexes of the tables, after recreating the indexes that an aborted
+     * load left behind in the journal.
+     */
+    private void startIndexRebuild() throws DataSinkException
+    {
         try
         {
-            _connection = _platform.borrowConnection();
+            if (_indexJournalFile == null)
+            {
+                _indexRebuilder = new IndexRebuilder(_platform);
+            }
+            else
+            {
+                _indexRebuilder = new IndexRebuilder(_platform, _indexJournalFile);
+            }
+            _indexRebuilder.setConnectionCount(_indexRebuildConnectionCount);
+            if (_indexRebuilder.isRebuildPending())
+            {
+                _log.info("Recreating the indexes dropped by an aborted load that are listed in " + _indexRebuilder.getJournalFile());
+                _indexRebuilder.completePendingRebuild();
+            }
+            _indexRebuilder.dropIndexes(_model);
         }
-        catch (DatabaseOperationException ex)
+        catch (DdlUtilsException ex)
         {
+            _indexRebuilder = null;
             throw new DataSinkException(ex);
         }
     }
 
     /**
-     * {@inheritDoc}
+     * {@inheritDoc}
+     */
+    public void addBean(DynaBean bean) throws DataSinkException
+    {
+        Table    table        = _model.getDynaClassFor(bean).getTable();
+        Identity origIdentity = buildIdentityFromPKs(table, bean);
+
+        if (_fkOrderUsed && (table.getForeignKeyCount() > 0))
+        {
+            WaitingObject waitingObj = new WaitingObject(bean, origIdentity);
+
+            for (int idx = 0; idx < table.getForeignKeyCount(); idx++)
+            {
+                ForeignKey fk         = table.getForeignKey(idx);
+                Identity   fkIdentity = buildIdentityFromFK(table, fk, bean);
+
+                if ((fkIdentity != null) && !fkIdentity.equals(origIdentity))
+                {
+                    Identity processedIdentity = _identityMap.get(fkIdentity);
+
+                    if (processedIdentity != null)
+                    {
+                        updateFKColumns(bean, fkIdentity.getForeignKeyName(), processedIdentity);
+                    }
+                    else
+                    {
+                        waitingObj.addPendingFK(fkIdentity);
+                    }
+                }
+            }
+            if (waitingObj.hasPendingFKs())
+            {
+                if (_log.isDebugEnabled())
+                {
+                    StringBuffer msg = new StringBuffer();
+
+                    msg.append("Defering insertion of row ");
+                    msg.append(buildIdentityFromPKs(table, bean).toString());
+                    msg.append(" because it is waiting for:");
+                    for (Iterator<Identity> it = waitingObj.getPendingFKs(); it.hasNext();)
+                    {
+                        msg.append("\n  ");
+                        msg.append(it.next().toString());
+                    }
+                    _log.debug(msg.toString());
+                }
+                addWaitingObject(waitingObj);
+                return;
+            }
+        }
+
+        boolean queued = insertBeanIntoDatabase(table, bean);
+
+        if (_log.isDebugEnabled())
+        {
+            _log.debug("Inserted bean " + origIdentity);
+        }
+
+        if (_fkOrderUsed && _fkTables.contains(table))
+        {
+            if (queued && hasIdentityDefinedByDatabase(table))
+            {
+                // we know the identity only after the batch has been executed
+                _queuedIdentityObjects.add(new WaitingObject(bean, origIdentity));
+            }
+            else
+            {
+                registerInsertedBean(table, origIdentity, bean);
+            }
+        }
+    }
+
+    /**
+     * Adds the given object to the waiting objects, and indexes it by the identities of the
+     * objects that it waits for.
+     * 
+     * @param waitingObj The waiting object
+     */
+    private void addWaitingObject(WaitingObject waitingObj)
+    {
+        _waitingObjects.add(waitingObj);
+        for (Iterator<Identity> it = waitingObj.getPendingFKs(); it.hasNext();)
+        {
+            Identity            fkIdentity = it.next();
+            List<WaitingObject> dependants = _waitingObjectsByIdentity.get(fkIdentity);
+
+            if (dependants == null)
+            {
+                dependants = new ArrayList<>(1);
+                _waitingObjectsByIdentity.put(fkIdentity, dependants);
+            }
+            dependants.add(waitingObj);
+        }
+    }
+
+    /**
+     * Registers the new identity of the given inserted bean, and inserts the beans that
+     * were waiting for it.
+     * 
+     * @param table        The table of the bean
+     * @param origIdentity The original identity of the bean
+     * @param bean         The bean
+     */
+    private void registerInsertedBean(Table table, Identity origIdentity, DynaBean bean) throws DataSinkException
+    {
+        Identity  newIdentity  = buildIdentityFromPKs(table, bean);
+        ArrayList<DynaBean> finishedObjs = new ArrayList<>();
+
+        _identityMap.put(origIdentity, newIdentity);
+
+        // we're doing multiple passes so that we can insert as much objects in
+        // one go as possible
+        LinkedList<Identity> identitiesToCheck = new LinkedList<>();
+
+        identitiesToCheck.add(origIdentity);
+        while (!identitiesToCheck.isEmpty() && !_waitingObjects.isEmpty())
+        {
+            Identity            curIdentity    = identitiesToCheck.removeFirst();
+            Identity            curNewIdentity = _identityMap.get(curIdentity);
+            List<WaitingObject> dependants     = _waitingObjectsByIdentity.remove(curIdentity);
+
+            if (dependants == null)
+            {
+                continue;
+            }
+            finishedObjs.clear();
+            for (Iterator<WaitingObject> waitingObjIt = dependants.iterator(); waitingObjIt.hasNext();)
+            {
+                WaitingObject waitingObj = (WaitingObject)waitingObjIt.next();
+                Identity      fkIdentity = waitingObj.removePendingFK(curIdentity);
+
+                if (fkIdentity != null)
+                {
+                    updateFKColumns(waitingObj.getObject(), fkIdentity.getForeignKeyName(), curNewIdentity);
+                }
+                if (!waitingObj.hasPendingFKs())
+                {
+                    _waitingObjects.remove(waitingObj);
+                    // we defer handling of the finished objects as inserting them can change the waiting objects
+                    finishedObjs.add(waitingObj.getObject());
+                }
+            }
+            for (Iterator<DynaBean> finishedObjIt = finishedObjs.iterator(); finishedObjIt.hasNext();)
+            {
+                DynaBean finishedObj = (DynaBean)finishedObjIt.next();
+                Table    tableForObj = _model.getDynaClassFor(finishedObj).getTable();
+                Identity objIdentity = buildIdentityFromPKs(tableForObj, finishedObj);
+
+                boolean  queued      = insertBeanIntoDatabase(tableForObj, finishedObj);
+
+                if (queued && hasIdentityDefinedByDatabase(tableForObj))
+                {
+                    _queuedIdentityObjects.add(new WaitingObject(finishedObj, objIdentity));
+                }
+                else
+                {
+                    Identity newObjIdentity = buildIdentityFromPKs(tableForObj, finishedObj);
+
+                    _identityMap.put(objIdentity, newObjIdentity);
+                    identitiesToCheck.add(objIdentity);
+                }
+                if (_log.isDebugEnabled())
+                {
+                    _log.debug("Inserted deferred row " + objIdentity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Determines whether the database defines (part of) the primary key values of the rows
+     * of the given table, i.e. whether the identity of a row is only known after its insertion.
+     * 
+     * @param table The table
+     * @return <code>true</code> if the table has an auto-increment primary key column
+     */
+    private boolean hasIdentityDefinedByDatabase(Table table)
+    {
+        Column[] pkColumns = table.getPrimaryKeyColumns();
+
+        for (int idx = 0; idx < pkColumns.length; idx++)
+        {
+            if (pkColumns[idx].isAutoIncrement())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inserts the bean into the database or batch queue.
+     * 
+     * @param table The table
+     * @param bean  The bean
+     * @return <code>true</code> if the bean was added to the batch queue, in which case
+     *         its generated identity values are only known once the queue was purged
+     */
+    private boolean insertBeanIntoDatabase(Table table, DynaBean bean) throws DataSinkException
+    {
+        if (_executor != null)
+        {
+            if (canInsertUnordered(table))
+            {
+                queueForParallelInsert(table, bean);
+                return false;
+            }
+            // the bean may reference rows that are queued or being inserted in parallel
+            flushParallelInserts();
+        }
+        if (_useBatchMode || (_useBulkLoad && canInsertUnordered(table)))
+        {
+            _batchQueue.add(bean);
+            if (_batchQueue.size() >= _batchSize)
+            {
+                purgeBatchQueue();
+                return false;
+            }
+            return true;
+        }
+        else
+        {
+            // the queued beans may be referenced by this bean, so we have to insert them first
+            purgeBatchQueue();
+            insertSingleBeanIntoDatabase(table, bean);
+            return false;
+        }
+    }
+
+    /**
+     * Determines whether the beans of the given table can be inserted in a way that neither
+     * reads back identity values nor inserts the rows in order, i.e. via the bulk loader of
+     * the platform or in parallel.
+     * 
+     * @param table The table
+     * @return <code>true</code> if the table can be bulk loaded or inserted in parallel
+     */
+    private boolean canInsertUnordered(Table table)
+    {
+        if (table.getSelfReferencingForeignKey() != null)
+        {
+            return false;
+        }
+        if (_fkOrderUsed && _fkTables.contains(table) && !_platform.isIdentityOverrideOn())
+        {
+            // other rows might wait for the identity values generated for the rows of this table
+            return table.getAutoIncrementColumns().length == 0;
+        }
+        return true;
+    }
+
+    /**
+     * Purges the batch queue by inserting the objects into the database.
+     */
+    private void purgeBatchQueue() throws DataSinkException
+    {
+        if (!_batchQueue.isEmpty())
+        {
+            try
+            {
+                if (!_haltOnErrors && (_uncommittedRows > 0))
+                {
+                    // so that we can roll back a failed batch without losing other rows
+                    commitPendingRows();
+                }
+                if (_useBulkLoad)
+                {
+                    bulkLoadBatchQueue();
+                }
+                else
+                {
+                    _platform.insert(_connection, _model, _batchQueue);
+                }
+                commitPendingRows();
+                if (_log.isDebugEnabled())
+                {
+                    _log.debug("Inserted " + _batchQueue.size() + " rows in batch mode ");
+                }
+            }
+            catch (Exception ex)
+            {
+                if (_haltOnErrors)
+                {
+                    returnConnectionAfterError();
+                    throw new DataSinkException(ex);
+                }
+                else
+                {
+                    _log.warn("Exception while inserting " + _batchQueue.size() + " rows via batch mode into the database, now trying to isolate the failing rows", ex);
+                    rollbackFailedBatch();
+
+                    Set<DynaBean> rejectedBeans = Collections.newSetFromMap(new IdentityHashMap<DynaBean, Boolean>());
+
+                    insertBisected(new ArrayList<>(_batchQueue), ex, rejectedBeans);
+                    for (Iterator<WaitingObject> it = _queuedIdentityObjects.iterator(); it.hasNext();)
+                    {
+                        if (rejectedBeans.contains(it.next().getObject()))
+                        {
+                            it.remove();
+                        }
+                    }
+                }
+            }
+            _batchQueue.clear();
+            registerQueuedIdentities();
+        }
+    }
+
+    /**
+     * Inserts the given rows of a failed batch by splitting them in halves and inserting
+     * each half as a batch, recursively, until the failing rows are isolated.
+     * 
+     * @param beans         The rows
+     * @param failure       The exception that occurred when inserting the rows
+     * @param rejectedBeans Receives the rows that could not be inserted
+     */
+    private void insertBisected(List<DynaBean> beans, Exception failure, Set<DynaBean> rejectedBeans) throws DataSinkException
+    {
+        if (beans.size() == 1)
+        {
+            rejectedBeans.add(beans.get(0));
+            rejectRow(beans.get(0), failure);
+            return;
+        }
+
+        int middle = beans.size() / 2;
+
+        for (int part = 0; part < 2; part++)
+        {
+            List<DynaBean> half = new ArrayList<>(part == 0 ? beans.subList(0, middle) : beans.subList(middle, beans.size()));
+
+            try
+            {
+                _platform.insert(_connection, _model, half);
+                commitPendingRows();
+            }
+            catch (Exception ex)
+            {
+                rollbackFailedBatch();
+                insertBisected(half, ex, rejectedBeans);
+            }
+        }
+    }
+
+    /**
+     * Rolls back the rows of a failed batch, unless the connection is in auto-commit mode.
+     */
+    private void rollbackFailedBatch()
+    {
+        try
+        {
+            if (!_connection.getAutoCommit())
+            {
+                _connection.rollback();
+            }
+        }
+        catch (SQLException ex)
+        {
+            _log.warn("Could not roll back the failed batch", ex);
+        }
+    }
+
+    /**
+     * Hands the given row that could not be inserted to the rejected row handler, or logs
+     * it if there is none.
+     * 
+     * @param bean   The row
+     * @param reason The exception that caused the insertion to fail
+     */
+    private void rejectRow(DynaBean bean, Exception reason) throws DataSinkException
+    {
+        Identity identity = buildIdentityFromPKs(_model.getDynaClassFor(bean).getTable(), bean);
+
+        _rejectedRowCount++;
+        if (_rejectedRowHandler != null)
+        {
+            _rejectedRowHandler.rowRejected(identity, bean, reason);
+        }
+        else
+        {
+            _log.warn("Exception while inserting row " + identity + " into the database", reason);
+        }
+    }
+
+    /**
+     * Registers the identities of the beans inserted with the last batch, whose identity
+     * values were generated by the database, and inserts the beans waiting for them.
+     */
+    private void registerQueuedIdentities() throws DataSinkException
+    {
+        if (!_queuedIdentityObjects.isEmpty())
+        {
+            ArrayList<WaitingObject> insertedObjs = new ArrayList<>(_queuedIdentityObjects);
+
+            _queuedIdentityObjects.clear();
+            for (Iterator<WaitingObject> it = insertedObjs.iterator(); it.hasNext();)
+            {
+                WaitingObject insertedObj = it.next();
+                Table         table       = _model.getDynaClassFor(insertedObj.getObject()).getTable();
+
+                registerInsertedBean(table, insertedObj.getObjectIdentity(), insertedObj.getObject());
+            }
+        }
+    }
+    
+    /**
+     * Inserts the queued objects into the database, using the bulk loader for the tables
+     * that support it. The queue is processed in runs of beans of the same table so that
+     * the insertion order between the tables is retained.
+     */
+    private void bulkLoadBatchQueue() throws DatabaseOperationException
+    {
+        int start = 0;
+
+        while (start < _batchQueue.size())
+        {
+            Table table = _model.getDynaClassFor(_batchQueue.get(start)).getTable();
+            int   end   = start + 1;
+
+            while ((end < _batchQueue.size()) && (_model.getDynaClassFor(_batchQueue.get(end)).getTable() == table))
+            {
+                end++;
+            }
+
+            List<DynaBean> run = _batchQueue.subList(start, end);
+
+            if (canInsertUnordered(table))
+            {
+                _platform.getBulkLoader().load(_connection, _model, table, run.iterator());
+            }
+            else
+            {
+                _platform.insert(_connection, _model, run);
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Determines the foreign key levels of the tables, borrows the connections and starts
+     * the threads for the parallel inserts.
+     */
+    private void startParallelInserts() throws DataSinkException
+    {
+        List<List<Table>> levels = DatabaseDataIO.getForeignKeyLevels(_model.getTables());
+
+        _fkLevels.clear();
+        _tablesInsertedSerially.clear();
+        _parallelQueues.clear();
+        _runningInserts.clear();
+        for (int levelIdx = 0; levelIdx < levels.size(); levelIdx++)
+        {
+            for (Iterator<Table> it = levels.get(levelIdx).iterator(); it.hasNext();)
+            {
+                Table table = it.next();
+
+                _fkLevels.put(table, Integer.valueOf(levelIdx));
+                // we fill the dyna class cache now because it is not thread-safe
+                _model.getDynaClassFor(table.getName());
+            }
+        }
+        for (int tableIdx = 0; tableIdx < _model.getTableCount(); tableIdx++)
+        {
+            Table table = _model.getTable(tableIdx);
+
+            for (int fkIdx = 0; fkIdx < table.getForeignKeyCount(); fkIdx++)
+            {
+                // self references and circular dependencies
+                if (getFkLevel(table.getForeignKey(fkIdx).getForeignTable()) >= getFkLevel(table))
+                {
+                    _tablesInsertedSerially.add(table);
+                }
+            }
+        }
+
+        _parallelConnections = new ArrayBlockingQueue<>(_parallelConnectionCount);
+        try
+        {
+            for (int idx = 0; idx < _parallelConnectionCount; idx++)
+            {
+                _parallelConnections.add(_platform.borrowConnection());
+            }
+        }
+        catch (DatabaseOperationException ex)
+        {
+            returnParallelConnections();
+            throw new DataSinkException(ex);
+        }
+        _executor = Executors.newFixedThreadPool(_parallelConnectionCount);
+    }
+
+    /**
+     * Returns the foreign key level of the given table.
+     * 
+     * @param table The table
+     * @return The level
+     */
+    private int getFkLevel(Table table)
+    {
+        Integer level = _fkLevels.get(table);
+
+        return level == null ? 0 : level.intValue();
+    }
+
+    /**
+     * Queues the bean for parallel insertion, and starts the insertion of the queued beans
+     * of its table if the batch is full.
+     * 
+     * @param table The table
+     * @param bean  The bean
+     */
+    private void queueForParallelInsert(Table table, DynaBean bean) throws DataSinkException
+    {
+        ArrayList<DynaBean> queue = _parallelQueues.get(table);
+
+        if (queue == null)
+        {
+            queue = new ArrayList<>();
+            _parallelQueues.put(table, queue);
+        }
+        queue.add(bean);
+        if (queue.size() >= _batchSize)
+        {
+            startParallelInsert(table);
+        }
+    }
+
+    /**
+     * Starts the parallel insertion of the queued beans of the given table. Before that,
+     * the beans of the tables on lower foreign key levels (or of all tables if the table
+     * is inserted serially) are inserted, and the sink waits for these inserts to finish.
+     * 
+     * @param table The table
+     */
+    private void startParallelInsert(Table table) throws DataSinkException
+    {
+        ArrayList<DynaBean> beans = _parallelQueues.remove(table);
+
+        if ((beans == null) || beans.isEmpty())
+        {
+            return;
+        }
+
+        int     level  = getFkLevel(table);
+        boolean serial = _tablesInsertedSerially.contains(table);
+
+        // the rows referenced by the beans have to be in the database first
+        for (Iterator<Table> it = getQueuedTablesByLevel().iterator(); it.hasNext();)
+        {
+            Table queuedTable = it.next();
+
+            if (serial || (getFkLevel(queuedTable) < level))
+            {
+                startParallelInsert(queuedTable);
+            }
+        }
+        waitForParallelInserts(serial ? Integer.MAX_VALUE : level - 1);
+        // the beans may also reference rows inserted via the connection of the sink,
+        // which have to be visible to the other connections
+        while (!_batchQueue.isEmpty())
+        {
+            purgeBatchQueue();
+        }
+        if (_uncommittedRows > 0)
+        {
+            try
+            {
+                commitPendingRows();
+            }
+            catch (SQLException ex)
+            {
+                stopParallelInserts();
+                returnConnectionAfterError();
+                throw new DataSinkException(ex);
+            }
+        }
+
+        ParallelInsert insert = new ParallelInsert(table, beans);
+
+        insert.setFuture(_executor.submit(insert));
+        _runningInserts.add(insert);
+        if (serial)
+        {
+            waitForParallelInserts(Integer.MAX_VALUE);
+        }
+        // we don't want to read the data much faster than we can insert it
+        while (_runningInserts.size() > 2 * _parallelConnectionCount)
+        {
+            finishParallelInsert(_runningInserts.remove(0));
+        }
+    }
+
+    /**
+     * Inserts all beans queued for parallel insertion and waits for the inserts to finish,
+     * so that the rows are visible to the connection of the sink.
+     */
+    private void flushParallelInserts() throws DataSinkException
+    {
+        if (!_parallelQueues.isEmpty() || !_runningInserts.isEmpty())
+        {
+            for (Iterator<Table> it = getQueuedTablesByLevel().iterator(); it.hasNext();)
+            {
+                startParallelInsert(it.next());
+            }
+            waitForParallelInserts(Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Returns the tables for which beans are queued for parallel insertion, sorted by
+     * their foreign key level.
+     * 
+     * @return The tables
+     */
+    private List<Table> getQueuedTablesByLevel()
+    {
+        ArrayList<Table> result = new ArrayList<>(_parallelQueues.keySet());
+
+        Collections.sort(result, new Comparator<Table>()
+        {
+            public int compare(Table table1, Table table2)
+            {
+                return getFkLevel(table1) - getFkLevel(table2);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Waits for the parallel inserts into tables up to the given foreign key level. Other
+     * inserts that are already finished, are processed as well.
+     * 
+     * @param maxLevel The maximum level
      */
-    public void addBean(DynaBean bean) throws DataSinkException
+    private void waitForParallelInserts(int maxLevel) throws DataSinkException
     {
-        Table    table        = _model.getDynaClassFor(bean).getTable();
-        Identity origIdentity = buildIdentityFromPKs(table, bean);
-
-        if (_ensureFkOrder && (table.getForeignKeyCount() > 0))
+        for (Iterator<ParallelInsert> it = _runningInserts.iterator(); it.hasNext();)
         {
-            WaitingObject waitingObj = new WaitingObject(bean, origIdentity);
+            ParallelInsert insert = it.next();
 
-            for (int idx = 0; idx < table.getForeignKeyCount(); idx++)
+            if ((getFkLevel(insert.getTable()) <= maxLevel) || insert.getFuture().isDone())
             {
-                ForeignKey fk         = table.getForeignKey(idx);
-                Identity   fkIdentity = buildIdentityFromFK(table, fk, bean);
-
-                if ((fkIdentity != null) && !fkIdentity.equals(origIdentity))
-                {
-                    Identity processedIdentity = (Identity)_identityMap.get(fkIdentity);
-
-                    if (processedIdentity != null)
-                    {
-                        updateFKColumns(bean, fkIdentity.getForeignKeyName(), processedIdentity);
-                    }
-                    else
-                    {
-                        waitingObj.addPendingFK(fkIdentity);
-                    }
-                }
+                it.remove();
+                finishParallelInsert(insert);
             }
-            if (waitingObj.hasPendingFKs())
-            {
-                if (_log.isDebugEnabled())
-                {
-                    StringBuffer msg = new StringBuffer();
+        }
+    }
 
-                    msg.append("Defering insertion of row ");
-                    msg.append(buildIdentityFromPKs(table, bean).toString());
-                    msg.append(" because it is waiting for:");
-                    for (Iterator<Identity> it = waitingObj.getPendingFKs(); it.hasNext();)
-                    {
-                        msg.append("\n  ");
-                        msg.append(it.next().toString());
-                    }
-                    _log.debug(msg.toString());
-                }
-                _waitingObjects.add(waitingObj);
-                return;
+    /**
+     * Waits for the given parallel insert to finish and handles its errors.
+     * 
+     * @param insert The insert
+     */
+    private void finishParallelInsert(ParallelInsert insert) throws DataSinkException
+    {
+        try
+        {
+            insert.getFuture().get();
+            if (_log.isDebugEnabled())
+            {
+                _log.debug("Inserted " + insert.getRowCount() + " rows into table " + insert.getTable().getName() + " in parallel mode");
             }
         }
-
-        insertBeanIntoDatabase(table, bean);
-
-        if (_log.isDebugEnabled())
+        catch (InterruptedException ex)
         {
-            _log.debug("Inserted bean " + origIdentity);
+            Thread.currentThread().interrupt();
+            stopParallelInserts();
+            returnConnectionAfterError();
+            throw new DataSinkException(ex);
         }
-
-        if (_ensureFkOrder && _fkTables.contains(table))
+        catch (ExecutionException ex)
         {
-            Identity  newIdentity  = buildIdentityFromPKs(table, bean);
-            ArrayList<DynaBean> finishedObjs = new ArrayList<>();
-
-            _identityMap.put(origIdentity, newIdentity);
-
-            // we're doing multiple passes so that we can insert as much objects in
-            // one go as possible
-            ArrayList<Identity> identitiesToCheck = new ArrayList<>();
-
-            identitiesToCheck.add(origIdentity);
-            while (!identitiesToCheck.isEmpty() && !_waitingObjects.isEmpty())
+            if (_haltOnErrors)
             {
-                Identity curIdentity    = (Identity)identitiesToCheck.get(0);
-                Identity curNewIdentity = (Identity)_identityMap.get(curIdentity);
-
-                identitiesToCheck.remove(0);
-                finishedObjs.clear();
-                for (Iterator<WaitingObject> waitingObjIt = _waitingObjects.iterator(); waitingObjIt.hasNext();)
+                stopParallelInserts();
+                returnConnectionAfterError();
+                throw new DataSinkException(ex.getCause());
+            }
+            else
+            {
+                _log.warn("Exception while inserting " + insert.getRowCount() + " rows via parallel mode into the database, now trying to isolate the failing rows", ex.getCause());
+                try
                 {
-                    WaitingObject waitingObj = (WaitingObject)waitingObjIt.next();
-                    Identity      fkIdentity = waitingObj.removePendingFK(curIdentity);
-
-                    if (fkIdentity != null)
-                    {
-                        updateFKColumns(waitingObj.getObject(), fkIdentity.getForeignKeyName(), curNewIdentity);
-                    }
-                    if (!waitingObj.hasPendingFKs())
+                    // so that we can roll back a failed part without losing other rows
+                    if (_uncommittedRows > 0)
                     {
-                        waitingObjIt.remove();
-                        // we defer handling of the finished objects to avoid concurrent modification exceptions
-                        finishedObjs.add(waitingObj.getObject());
+                        commitPendingRows();
                     }
                 }
-                for (Iterator<DynaBean> finishedObjIt = finishedObjs.iterator(); finishedObjIt.hasNext();)
+                catch (SQLException commitEx)
                 {
-                    DynaBean finishedObj = (DynaBean)finishedObjIt.next();
-                    Table    tableForObj = _model.getDynaClassFor(finishedObj).getTable();
-                    Identity objIdentity = buildIdentityFromPKs(tableForObj, finishedObj);
+                    stopParallelInserts();
+                    returnConnectionAfterError();
+                    throw new DataSinkException(commitEx);
+                }
 
-                    insertBeanIntoDatabase(tableForObj, finishedObj);
-                    
-                    Identity newObjIdentity = buildIdentityFromPKs(tableForObj, finishedObj);
+                Exception failure = (ex.getCause() instanceof Exception ? (Exception)ex.getCause() : ex);
 
-                    _identityMap.put(objIdentity, newObjIdentity);
-                    identitiesToCheck.add(objIdentity);
-                    if (_log.isDebugEnabled())
-                    {
-                        _log.debug("Inserted deferred row " + objIdentity);
-                    }
-                }
+                insertBisected(new ArrayList<>(insert.getBeans()), failure, Collections.newSetFromMap(new IdentityHashMap<DynaBean, Boolean>()));
             }
         }
     }
 
     /**
-     * Inserts the bean into the database or batch queue.
-     * 
-     * @param table The table
-     * @param bean  The bean
+     * Inserts the remaining queued beans, waits for all parallel inserts to finish and
+     * returns the connections.
      */
-    private void insertBeanIntoDatabase(Table table, DynaBean bean) throws DataSinkException
+    private void finishParallelInserts() throws DataSinkException
     {
-        if (_useBatchMode)
-        {
-            _batchQueue.add(bean);
-            if (_batchQueue.size() >= _batchSize)
-            {
-                purgeBatchQueue();
-            }
-        }
-        else
+        for (Iterator<Table> it = getQueuedTablesByLevel().iterator(); it.hasNext();)
         {
-            insertSingleBeanIntoDatabase(table, bean);
+            startParallelInsert(it.next());
         }
+        waitForParallelInserts(Integer.MAX_VALUE);
+        stopParallelInserts();
     }
 
     /**
-     * Purges the batch queue by inserting the objects into the database.
+     * Stops the threads for the parallel inserts after the currently running inserts are
+     * finished, and returns the connections. Inserts that are still waiting to be run, are
+     * cancelled.
      */
-    private void purgeBatchQueue() throws DataSinkException
+    private void stopParallelInserts()
     {
-        if (!_batchQueue.isEmpty())
+        if (_executor != null)
         {
+            // inserts that have not started yet are not needed anymore if we stop early
+            for (Iterator<ParallelInsert> it = _runningInserts.iterator(); it.hasNext();)
+            {
+                it.next().getFuture().cancel(false);
+            }
+            _executor.shutdown();
             try
             {
-                _platform.insert(_connection, _model, _batchQueue);
-                if (!_connection.getAutoCommit())
-                {
-                    _connection.commit();
-                }
-                if (_log.isDebugEnabled())
-                {
-                    _log.debug("Inserted " + _batchQueue.size() + " rows in batch mode ");
-                }
+                _executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
             }
-            catch (Exception ex)
+            catch (InterruptedException ex)
             {
-                if (_haltOnErrors)
-                {
-                    _platform.returnConnection(_connection);
-                    throw new DataSinkException(ex);
-                }
-                else
-                {
-                    _log.warn("Exception while inserting " + _batchQueue.size() + " rows via batch mode into the database", ex);
-                }
+                Thread.currentThread().interrupt();
             }
-            _batchQueue.clear();
+            _executor = null;
         }
+        returnParallelConnections();
     }
-    
+
+    /**
+     * Returns the connections used for the parallel inserts to the platform.
+     */
+    private void returnParallelConnections()
+    {
+        if (_parallelConnections != null)
+        {
+            for (Iterator<Connection> it = _parallelConnections.iterator(); it.hasNext();)
+            {
+                _platform.returnConnection(it.next());
+            }
+            _parallelConnections = null;
+        }
+    }
+
     /**
      * Directly inserts the given bean into the database.
      * 
@@ -464,11 +1537,16 @@ public class DataToDatabaseSink implements DataSink
      */
     private void insertSingleBeanIntoDatabase(Table table, DynaBean bean) throws DataSinkException
     {
+        Savepoint savepoint = null;
+
         try
         {
+            boolean    autoCommit        = _connection.getAutoCommit();
             boolean    needTwoStepInsert = false;
             ForeignKey selfRefFk         = null;
 
+            savepoint = setSavepointIfNecessary(autoCommit);
+
             if (!_platform.isIdentityOverrideOn() &&
                 _tablesWithSelfIdentityReference.contains(table))
             {
@@ -520,23 +1598,180 @@ public class DataToDatabaseSink implements DataSink
             {
                 _platform.insert(_connection, _model, bean);
             }
-            if (!_connection.getAutoCommit())
+            if (!autoCommit)
             {
-                _connection.commit();
+                if (savepoint != null)
+                {
+                    releaseSavepoint(savepoint);
+                }
+                _uncommittedRows++;
+                if (_commitIntervalBytes > 0)
+                {
+                    _uncommittedBytes += estimateSize(bean);
+                }
+                if (((_commitInterval > 0) && (_uncommittedRows >= _commitInterval)) ||
+                    ((_commitIntervalBytes > 0) && (_uncommittedBytes >= _commitIntervalBytes)))
+                {
+                    commitPendingRows();
+                }
             }
         }
         catch (Exception ex)
         {
             if (_haltOnErrors)
             {
-                _platform.returnConnection(_connection);
+                returnConnectionAfterError();
                 throw new DataSinkException(ex);
             }
             else
             {
-                _log.warn("Exception while inserting a row into the database", ex);
+                if (savepoint != null)
+                {
+                    rollbackToSavepoint(savepoint);
+                }
+                rejectRow(bean, ex);
+            }
+        }
+    }
+
+    /**
+     * Enables the referential integrity checks again if they were disabled by this sink.
+     */
+    private void restoreReferentialIntegrity() throws DatabaseOperationException
+    {
+        if (_referentialIntegrityDisabled)
+        {
+            _referentialIntegrityDisabled = false;
+            _platform.enableReferentialIntegrity(_connection, _model, _validateReferentialIntegrity);
+        }
+    }
+
+    /**
+     * Enables the referential integrity checks again if they were disabled by this sink, when
+     * the insertion is aborted. A failure is only logged so that it does not hide the original
+     * error.
+     */
+    private void restoreReferentialIntegrityAfterError()
+    {
+        try
+        {
+            restoreReferentialIntegrity();
+        }
+        catch (DatabaseOperationException ex)
+        {
+            _log.error("Could not enable the referential integrity checks again", ex);
+        }
+    }
+
+    /**
+     * Returns the connection to the platform after an error that aborts the insertion, after
+     * enabling the referential integrity checks again.
+     */
+    private void returnConnectionAfterError()
+    {
+        restoreReferentialIntegrityAfterError();
+        _platform.returnConnection(_connection);
+    }
+
+    /**
+     * Commits the rows inserted since the last commit, unless the connection is in
+     * auto-commit mode.
+     */
+    private void commitPendingRows() throws SQLException
+    {
+        if (!_connection.getAutoCommit())
+        {
+            _connection.commit();
+        }
+        _uncommittedRows  = 0;
+        _uncommittedBytes = 0;
+    }
+
+    /**
+     * Sets a savepoint that guards the insertion of a single row so that a failure does not
+     * affect the other uncommitted rows. This is only done if errors do not halt the sink,
+     * and if the connection is not in auto-commit mode and supports savepoints.
+     * 
+     * @param autoCommit Whether the connection is in auto-commit mode
+     * @return The savepoint or <code>null</code> if none was set
+     */
+    private Savepoint setSavepointIfNecessary(boolean autoCommit) throws SQLException
+    {
+        if (_haltOnErrors || autoCommit)
+        {
+            return null;
+        }
+        if (_savepointsSupported == null)
+        {
+            _savepointsSupported = Boolean.valueOf(_connection.getMetaData().supportsSavepoints());
+        }
+        return _savepointsSupported.booleanValue() ? _connection.setSavepoint() : null;
+    }
+
+    /**
+     * Releases the given savepoint after the row was inserted successfully. Some databases
+     * do not support releasing savepoints, in which case they are released by the commit.
+     * 
+     * @param savepoint The savepoint
+     */
+    private void releaseSavepoint(Savepoint savepoint)
+    {
+        try
+        {
+            _connection.releaseSavepoint(savepoint);
+        }
+        catch (SQLException ex)
+        {
+            _log.debug("Could not release savepoint", ex);
+        }
+    }
+
+    /**
+     * Rolls back the insertion of a failed row.
+     * 
+     * @param savepoint The savepoint set before the insertion
+     */
+    private void rollbackToSavepoint(Savepoint savepoint)
+    {
+        try
+        {
+            _connection.rollback(savepoint);
+        }
+        catch (SQLException ex)
+        {
+            _log.warn("Could not roll back to the savepoint of the failed row", ex);
+        }
+    }
+
+    /**
+     * Estimates the number of bytes that the given bean takes up in the database.
+     * 
+     * @param bean The bean
+     * @return The approximate size in bytes
+     */
+    private long estimateSize(DynaBean bean)
+    {
+        DynaProperty[] properties = bean.getDynaClass().getDynaProperties();
+        long           size       = 0;
+
+        for (int idx = 0; idx < properties.length; idx++)
+        {
+            Object value = bean.get(properties[idx].getName());
+
+            if (value instanceof String)
+            {
+                size += ((String)value).length();
+            }
+            else if (value instanceof byte[])
+            {
+                size += ((byte[])value).length;
+            }
+            else if (value != null)
+            {
+                size += 8;
             }
         }
+        return size;
     }
     
     /**
@@ -669,4 +1904,126 @@ public class DataToDatabaseSink implements DataSink
             }
         }
     }
+
+    /**
+     * Inserts a batch of beans of one table on one of the parallel connections.
+     */
+    private class ParallelInsert implements Callable<Object>
+    {
+        /** The table. */
+        private final Table _table;
+        /** The beans to insert. */
+        private final List<DynaBean> _beans;
+        /** The future for the result of the insert. */
+        private Future<Object> _future;
+
+        /**
+         * Creates a new insert.
+         * 
+         * @param table The table
+         * @param beans The beans to insert
+         */
+        public ParallelInsert(Table table, List<DynaBean> beans)
+        {
+            _table = table;
+            _beans = beans;
+        }
+
+        /**
+         * Returns the table.
+         * 
+         * @return The table
+         */
+        public Table getTable()
+        {
+            return _table;
+        }
+
+        /**
+         * Returns the beans to insert.
+         * 
+         * @return The beans
+         */
+        public List<DynaBean> getBeans()
+        {
+            return _beans;
+        }
+
+        /**
+         * Returns the number of beans to insert.
+         * 
+         * @return The number of beans
+         */
+        public int getRowCount()
+        {
+            return _beans.size();
+        }
+
+        /**
+         * Returns the future for the result of the insert.
+         * 
+         * @return The future
+         */
+        public Future<Object> getFuture()
+        {
+            return _future;
+        }
+
+        /**
+         * Sets the future for the result of the insert.
+         * 
+         * @param future The future
+         */
+        public void setFuture(Future<Object> future)
+        {
+            _future = future;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Object call() throws Exception
+        {
+            Connection connection = _parallelConnections.take();
+
+            try
+            {
+                if (_useBulkLoad && canInsertUnordered(_table))
+                {
+                    _platform.getBulkLoader().load(connection, _model, _table, _beans.iterator());
+                }
+                else
+                {
+                    _platform.insert(connection, _model, _beans);
+                }
+                // the inserted rows have to be visible to the other connections
+                if (!connection.getAutoCommit())
+                {
+                    connection.commit();
+                }
+            }
+            catch (Exception ex)
+            {
+                // the rows of the failed batch must not be committed with the next batch
+                // on this connection
+                try
+                {
+                    if (!connection.getAutoCommit())
+                    {
+                        connection.rollback();
+                    }
+                }
+                catch (SQLException rollbackEx)
+                {
+                    _log.warn("Could not roll back the failed parallel batch", rollbackEx);
+                }
+                throw ex;
+            }
+            finally
+            {
+                _parallelConnections.put(connection);
+            }
+            return null;
+        }
+    }
 }
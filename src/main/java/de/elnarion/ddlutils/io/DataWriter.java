@@ -34,6 +34,7 @@ import de.elnarion.ddlutils.dynabean.SqlDynaClass;
 import de.elnarion.ddlutils.io.converters.SqlTypeConverter;
 import de.elnarion.ddlutils.model.Column;
 import de.elnarion.ddlutils.model.Table;
+import de.elnarion.ddlutils.platform.RowCursor;
 
 /**
  * Writes dyna beans matching a specified database model into an XML file.
@@ -137,22 +138,9 @@ public class DataWriter extends PrettyPrintingXmlWriter
 
         for (int idx = 0; idx < table.getColumnCount(); idx++)
         {
-            Column           column      = table.getColumn(idx);
-            Object           value       = bean.get(column.getName());
-            SqlTypeConverter converter   = _converterConf.getRegisteredConverter(table, column);
-            String           valueAsText = null;
+            Column column      = table.getColumn(idx);
+            String valueAsText = getValueAsText(table, column, bean.get(column.getName()));
 
-            if (converter == null)
-            {
-                if (value != null)
-                {
-                    valueAsText = value.toString();
-                }
-            }
-            else
-            {
-                valueAsText = converter.convertToString(value, column.getTypeCode());
-            }
             if (valueAsText != null)
             {
                 columnWriters.add(new ColumnXmlWriter(column, valueAsText));
@@ -162,6 +150,59 @@ public class DataWriter extends PrettyPrintingXmlWriter
         tableWriter.write(columnWriters, this);
     }
 
+    /**
+     * Writes the row at which the given cursor is positioned as a row of the given table.
+     * Columns of the result that do not correspond to columns of the model are ignored.
+     * 
+     * @param table The table
+     * @param row   The cursor positioned on the row
+     * @throws DataWriterException 
+     */
+    public void write(Table table, RowCursor row) throws DataWriterException
+    {
+        TableXmlWriter        tableWriter   = new TableXmlWriter(table);
+        List<ColumnXmlWriter> columnWriters = new ArrayList<>();
+
+        for (int idx = 0; idx < row.getColumnCount(); idx++)
+        {
+            Column column = row.getColumn(idx);
+
+            if (column != null)
+            {
+                String valueAsText = getValueAsText(table, column, row.getObject(idx));
+
+                if (valueAsText != null)
+                {
+                    columnWriters.add(new ColumnXmlWriter(column, valueAsText));
+                }
+            }
+        }
+
+        tableWriter.write(columnWriters, this);
+    }
+
+    /**
+     * Converts the value of the given column to the text written to the XML.
+     * 
+     * @param table  The table
+     * @param column The column
+     * @param value  The value
+     * @return The text, or <code>null</code> if the value shall not be written
+     */
+    private String getValueAsText(Table table, Column column, Object value)
+    {
+        SqlTypeConverter converter = _converterConf.getRegisteredConverter(table, column);
+
+        if (converter == null)
+        {
+            return value == null ? null : value.toString();
+        }
+        else
+        {
+            return converter.convertToString(value, column.getTypeCode());
+        }
+    }
+
     /**
      * Writes the beans contained in the given iterator.
      * 
@@ -19,12 +19,16 @@ package de.elnarion.ddlutils.io;
  * under the License.
  */
 
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -32,14 +36,25 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.beanutils.DynaBean;
 
 import org.apache.commons.collections.map.ListOrderedMap;
 
 import de.elnarion.ddlutils.DdlUtilsException;
 import de.elnarion.ddlutils.Platform;
+import de.elnarion.ddlutils.dynabean.SqlDynaBean;
 import de.elnarion.ddlutils.model.Column;
 import de.elnarion.ddlutils.model.Database;
 import de.elnarion.ddlutils.model.Table;
+import de.elnarion.ddlutils.platform.RowCursor;
+import de.elnarion.ddlutils.platform.RowHandler;
 
 /**
  * Provides basic live database data <-> XML functionality.
@@ -58,6 +73,28 @@ public class DatabaseDataIO
     private boolean _useBatchMode;
     /** The maximum number of objects to insert in one batch. */
     private Integer _batchSize;
+    /** Whether we should use the bulk loader of the platform. */
+    private boolean _useBulkLoad;
+    /** The number of connections to use for inserting data in parallel. */
+    private int _parallelConnectionCount = 1;
+    /** The directory for spilling the identities of the inserted rows to disk. */
+    private File _identitySpillDirectory;
+    /** Whether to parse, convert and insert the data on separate threads. */
+    private boolean _usePipelinedReading;
+    /** The number of rows inserted one by one after which the transaction is committed. */
+    private int _commitInterval = 1;
+    /** Whether to disable the referential integrity checks of the database while inserting data. */
+    private boolean _disableReferentialIntegrity;
+    /** Whether to drop the non-unique indexes before inserting data and to recreate them afterwards. */
+    private boolean _rebuildIndexes;
+    /** The journal file for the dropped indexes. */
+    private File _indexJournalFile;
+    /** The number of connections to use for recreating the indexes. */
+    private int _indexRebuildConnectionCount = 1;
+    /** The number of connections to use for reading the tables concurrently when writing data to XML. */
+    private int _exportConnectionCount = 1;
+    /** The directory for the temporary segments of the tables read concurrently. */
+    private File _exportSegmentDirectory;
 
     /** Whether DdlUtils should search for the schema of the tables. @deprecated */
     private boolean _determineSchema;
@@ -135,6 +172,250 @@ public class DatabaseDataIO
         _batchSize = batchSize;
     }
 
+    /**
+     * Determines whether the bulk loader of the platform is used for inserting data into the
+     * database.
+     * 
+     * @return <code>true</code> if the bulk loader is used
+     */
+    public boolean getUseBulkLoad()
+    {
+        return _useBulkLoad;
+    }
+
+    /**
+     * Specifies whether the bulk loader of the platform should be used for inserting data into
+     * the database, for the tables that allow it.
+     * 
+     * @param useBulkLoad <code>true</code> if the bulk loader shall be used
+     */
+    public void setUseBulkLoad(boolean useBulkLoad)
+    {
+        _useBulkLoad = useBulkLoad;
+    }
+
+    /**
+     * Returns the number of connections used for inserting data into the database in parallel.
+     * 
+     * @return The number of connections (<code>1</code> per default)
+     */
+    public int getParallelConnectionCount()
+    {
+        return _parallelConnectionCount;
+    }
+
+    /**
+     * Specifies the number of connections that should be used for inserting data into the
+     * database in parallel. The rows of tables on the same foreign key level are then inserted
+     * concurrently. These connections are used in addition to the connection that inserts the
+     * rows of the tables that cannot be inserted in parallel.
+     * 
+     * @param parallelConnectionCount The number of connections
+     */
+    public void setParallelConnectionCount(int parallelConnectionCount)
+    {
+        _parallelConnectionCount = parallelConnectionCount;
+    }
+
+    /**
+     * Returns the directory in which the identities of the inserted rows are stored when
+     * following the foreign key order.
+     * 
+     * @return The directory, or <code>null</code> if the identities are held in memory
+     */
+    public File getIdentitySpillDirectory()
+    {
+        return _identitySpillDirectory;
+    }
+
+    /**
+     * Specifies the directory in which the identities of the inserted rows are stored when
+     * following the foreign key order, instead of holding them in memory. This is useful for
+     * very large data files.
+     * 
+     * @param identitySpillDirectory The directory, or <code>null</code> to hold the identities
+     *                               in memory
+     */
+    public void setIdentitySpillDirectory(File identitySpillDirectory)
+    {
+        _identitySpillDirectory = identitySpillDirectory;
+    }
+
+    /**
+     * Determines whether the data XML is parsed, converted and inserted on separate threads.
+     * 
+     * @return <code>true</code> if the data reader is pipelined
+     */
+    public boolean getUsePipelinedReading()
+    {
+        return _usePipelinedReading;
+    }
+
+    /**
+     * Specifies whether the data XML shall be parsed, converted and inserted on separate
+     * threads, so that parsing continues while the database processes the inserted rows.
+     * 
+     * @param usePipelinedReading <code>true</code> if the data reader shall be pipelined
+     */
+    public void setUsePipelinedReading(boolean usePipelinedReading)
+    {
+        _usePipelinedReading = usePipelinedReading;
+    }
+
+    /**
+     * Returns the number of rows inserted one by one after which the transaction is committed.
+     * 
+     * @return The number of rows (<code>1</code> per default)
+     */
+    public int getCommitInterval()
+    {
+        return _commitInterval;
+    }
+
+    /**
+     * Specifies the number of rows inserted one by one after which the transaction is committed,
+     * if the connections are not in auto-commit mode. Batches are always committed as a whole.
+     * 
+     * @param commitInterval The number of rows
+     */
+    public void setCommitInterval(int commitInterval)
+    {
+        _commitInterval = commitInterval;
+    }
+
+    /**
+     * Determines whether the referential integrity checks of the database are disabled while
+     * inserting data, instead of ensuring the foreign key order.
+     * 
+     * @return <code>true</code> if the checks are disabled (<code>false</code> per default)
+     */
+    public boolean isDisableReferentialIntegrity()
+    {
+        return _disableReferentialIntegrity;
+    }
+
+    /**
+     * Specifies whether the referential integrity checks of the database shall be disabled while
+     * inserting data, instead of ensuring the foreign key order. The checks are enabled again and
+     * the foreign keys validated once all data is inserted. This is only possible if the platform
+     * supports it, and if the primary key values are not defined by the database.
+     * 
+     * @param disableReferentialIntegrity <code>true</code> if the checks shall be disabled
+     */
+    public void setDisableReferentialIntegrity(boolean disableReferentialIntegrity)
+    {
+        _disableReferentialIntegrity = disableReferentialIntegrity;
+    }
+
+    /**
+     * Determines whether the non-unique indexes of the tables are dropped before inserting data
+     * and recreated afterwards.
+     * 
+     * @return <code>true</code> if the indexes are rebuilt (<code>false</code> per default)
+     */
+    public boolean isRebuildIndexes()
+    {
+        return _rebuildIndexes;
+    }
+
+    /**
+     * Specifies whether the non-unique indexes of the tables shall be dropped before inserting data
+     * and recreated afterwards. The dropped indexes are recorded in a journal file so that the
+     * next run can recreate them if this one is aborted.
+     * 
+     * @param rebuildIndexes <code>true</code> if the indexes shall be rebuilt
+     */
+    public void setRebuildIndexes(boolean rebuildIndexes)
+    {
+        _rebuildIndexes = rebuildIndexes;
+    }
+
+    /**
+     * Returns the journal file for the dropped indexes.
+     * 
+     * @return The journal file, or <code>null</code> if the default file is used
+     */
+    public File getIndexJournalFile()
+    {
+        return _indexJournalFile;
+    }
+
+    /**
+     * Specifies the journal file for the dropped indexes.
+     * 
+     * @param indexJournalFile The journal file, or <code>null</code> to use a file in the
+     *                         temporary directory
+     */
+    public void setIndexJournalFile(File indexJournalFile)
+    {
+        _indexJournalFile = indexJournalFile;
+    }
+
+    /**
+     * Returns the number of connections used for recreating the indexes.
+     * 
+     * @return The number of connections (<code>1</code> per default)
+     */
+    public int getIndexRebuildConnectionCount()
+    {
+        return _indexRebuildConnectionCount;
+    }
+
+    /**
+     * Specifies the number of connections used for recreating the indexes concurrently.
+     * 
+     * @param indexRebuildConnectionCount The number of connections
+     */
+    public void setIndexRebuildConnectionCount(int indexRebuildConnectionCount)
+    {
+        _indexRebuildConnectionCount = indexRebuildConnectionCount;
+    }
+
+    /**
+     * Returns the number of connections used for reading the tables concurrently when writing
+     * data to XML.
+     * 
+     * @return The number of connections (<code>1</code> per default)
+     */
+    public int getExportConnectionCount()
+    {
+        return _exportConnectionCount;
+    }
+
+    /**
+     * Specifies the number of connections that should be used for reading the tables concurrently
+     * when writing data to XML. Each table is then read into a temporary segment in the binary
+     * format, and the segments are written to the XML in foreign key order, so that the result
+     * is the same as when reading the tables one after another.
+     * 
+     * @param exportConnectionCount The number of connections
+     */
+    public void setExportConnectionCount(int exportConnectionCount)
+    {
+        _exportConnectionCount = exportConnectionCount;
+    }
+
+    /**
+     * Returns the directory for the temporary segments of the tables that are read concurrently.
+     * 
+     * @return The directory, or <code>null</code> if the temporary directory is used
+     */
+    public File getExportSegmentDirectory()
+    {
+        return _exportSegmentDirectory;
+    }
+
+    /**
+     * Specifies the directory for the temporary segments of the tables that are read concurrently
+     * when writing data to XML. The segments are deleted once they have been written to the XML.
+     * 
+     * @param exportSegmentDirectory The directory, or <code>null</code> to use the temporary directory
+     */
+    public void setExportSegmentDirectory(File exportSegmentDirectory)
+    {
+        _exportSegmentDirectory = exportSegmentDirectory;
+    }
+
     /**
      * Determines whether the sink delays the insertion of beans so that the beans referenced by it
      * via foreignkeys are already inserted into the database.
@@ -380,14 +661,295 @@ public class DatabaseDataIO
         //       objects related by foreign keys, in the correct order
         List<Table> tables = sortTables(model.getTables());
 
+        writer.writeDocumentStart();
+        if ((_exportConnectionCount > 1) && (tables.size() > 1))
+        {
+            writeDataToXMLInParallel(platform, model, tables, writer);
+        }
+        else
+        {
+            for (Iterator<Table> it = tables.iterator(); it.hasNext();)
+            {
+                writeDataForTableToXML(platform, model, (Table)it.next(), writer);
+            }
+        }
+        writer.writeDocumentEnd();
+    }
+
+    /**
+     * Reads the given tables concurrently into temporary segments, and writes the segments
+     * to XML in the order of the tables as soon as they are complete.
+     * 
+     * @param platform The platform; needs to be connected to a live database
+     * @param model    The model
+     * @param tables   The tables in the order in which they shall be written
+     * @param writer   The data writer
+     */
+    private void writeDataToXMLInParallel(Platform platform, Database model, List<Table> tables, final DataWriter writer)
+    {
+        ExecutorService      executor = Executors.newFixedThreadPool(Math.min(_exportConnectionCount, tables.size()));
+        AtomicBoolean        aborted  = new AtomicBoolean(false);
+        List<Future<File>>   segments = new ArrayList<>();
+        BinaryDataReader     reader   = new BinaryDataReader();
+        DdlUtilsException    error    = null;
+        int                  idx      = 0;
+
+        reader.setModel(model);
+        reader.setSink(new DataSink()
+        {
+            public void start()
+            {}
+
+            public void addBean(DynaBean bean)
+            {
+                writer.write((SqlDynaBean)bean);
+            }
+
+            public void end()
+            {}
+        });
+        registerConverters(reader.getConverterConfiguration());
+        try
+        {
+            for (Iterator<Table> it = tables.iterator(); it.hasNext();)
+            {
+                segments.add(executor.submit(new SegmentExport(platform, model, it.next(), aborted)));
+            }
+            for (; idx < segments.size(); idx++)
+            {
+                File segment = segments.get(idx).get();
+
+                try
+                {
+                    reader.read(segment);
+                }
+                finally
+                {
+                    deleteSegment(segment);
+                }
+            }
+        }
+        catch (ExecutionException ex)
+        {
+            error = (ex.getCause() instanceof DdlUtilsException ? (DdlUtilsException)ex.getCause() : new DdlUtilsException(ex.getCause()));
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            error = new DdlUtilsException(ex);
+        }
+        finally
+        {
+            // the segments that have not been written anymore are deleted by the exports
+            // that are still running, or here if they are already complete
+            aborted.set(true);
+            executor.shutdownNow();
+            for (idx++; idx < segments.size(); idx++)
+            {
+                Future<File> future = segments.get(idx);
+
+                if (future.isDone() && !future.isCancelled())
+                {
+                    try
+                    {
+                        deleteSegment(future.get());
+                    }
+                    catch (Exception ex)
+                    {
+                        // ignored, the export deleted its segment itself
+                    }
+                }
+            }
+        }
+        if (error != null)
+        {
+            throw error;
+        }
+    }
+
+    /**
+     * Returns a binary data writer instance configured to write to the given output stream.
+     * 
+     * @param output The output stream
+     * @return The writer
+     * @throws DdlUtilsException 
+     */
+    public BinaryDataWriter getConfiguredBinaryDataWriter(OutputStream output) throws DdlUtilsException
+    {
+        BinaryDataWriter writer = new BinaryDataWriter(output);
+
+        registerConverters(writer.getConverterConfiguration());
+        return writer;
+    }
+
+    /**
+     * Writes the data contained in the database to which the given platform is connected, in the
+     * binary format to the indicated file.
+     *  
+     * @param platform The platform; needs to be connected to a live database
+     * @param model    The model for which to retrieve and write the data
+     * @param path     The path of the output file
+     * @throws DdlUtilsException 
+     */
+    public void writeDataToBinary(Platform platform, Database model, String path) throws DdlUtilsException
+    {
+        OutputStream output = null;
+
+        try
+        {
+            output = new FileOutputStream(path);
+            writeDataToBinary(platform, model, output);
+        }
+        catch (IOException ex)
+        {
+            throw new DdlUtilsException(ex);
+        }
+        finally
+        {
+            if (output != null)
+            {
+                try
+                {
+                    output.close();
+                }
+                catch (IOException ex)
+                {
+                    // ignored
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the data contained in the database to which the given platform is connected, in the
+     * binary format to the given output stream (which won't be closed by this method).
+     *  
+     * @param platform The platform; needs to be connected to a live database
+     * @param model    The model for which to retrieve and write the data
+     * @param output   The output stream
+     * @throws DdlUtilsException 
+     */
+    public void writeDataToBinary(Platform platform, Database model, OutputStream output) throws DdlUtilsException
+    {
+        writeDataToBinary(platform, model, getConfiguredBinaryDataWriter(output));
+    }
+
+    /**
+     * Writes the data contained in the database to which the given platform is connected, in the
+     * binary format to the given binary data writer. The binary format is more compact and faster
+     * to read than XML; it can be read with {@link #writeBinaryDataToDatabase(Platform, Database, String[])}.
+     *  
+     * @param platform The platform; needs to be connected to a live database
+     * @param model    The model for which to retrieve and write the data
+     * @param writer   The binary data writer
+     * @throws DdlUtilsException 
+     */
+    public void writeDataToBinary(Platform platform, Database model, BinaryDataWriter writer) throws DdlUtilsException
+    {
+        List<Table> tables = sortTables(model.getTables());
+
         writer.writeDocumentStart();
         for (Iterator<Table> it = tables.iterator(); it.hasNext();)
         {
-            writeDataForTableToXML(platform, model, (Table)it.next(), writer);
+            writeDataForTableToBinary(platform, model, it.next(), writer);
         }
         writer.writeDocumentEnd();
     }
 
+    /**
+     * Returns a delimited data writer instance configured to write the rows of the given table
+     * to the given output writer.
+     * 
+     * @param output    The output writer
+     * @param table     The table
+     * @param delimiter The field delimiter, e.g. {@link DelimitedDataWriter#CSV_DELIMITER}
+     * @return The writer
+     * @throws DdlUtilsException 
+     */
+    public DelimitedDataWriter getConfiguredDelimitedDataWriter(Writer output, Table table, char delimiter) throws DdlUtilsException
+    {
+        DelimitedDataWriter writer = new DelimitedDataWriter(output, table, delimiter);
+
+        registerConverters(writer.getConverterConfiguration());
+        return writer;
+    }
+
+    /**
+     * Writes the data contained in the given table of the database to which the given platform
+     * is connected, as delimited text (e.g. CSV) to the given output writer (which won't be
+     * closed by this method).
+     *  
+     * @param platform  The platform; needs to be connected to a live database
+     * @param model     The model for which to retrieve and write the data
+     * @param table     The table
+     * @param output    The output writer
+     * @param delimiter The field delimiter, e.g. {@link DelimitedDataWriter#CSV_DELIMITER}
+     * @throws DdlUtilsException 
+     */
+    public void writeDataToDelimited(Platform platform, Database model, Table table, Writer output, char delimiter) throws DdlUtilsException
+    {
+        DelimitedDataWriter writer = getConfiguredDelimitedDataWriter(output, table, delimiter);
+
+        writer.writeHeader();
+        platform.forEachRow(model, getSelectForTable(platform, table), null, new Table[] { table }, new RowHandler()
+        {
+            public boolean handleRow(RowCursor row)
+            {
+                writer.write(row);
+                return true;
+            }
+        });
+        writer.flush();
+    }
+
+    /**
+     * Writes the data contained in the database to which the given platform is connected, as
+     * delimited text into one UTF-8 encoded file per table in the given directory. The files are
+     * named after the tables, with the extension <code>.tsv</code> if the delimiter is a tab and
+     * <code>.csv</code> otherwise.
+     *  
+     * @param platform  The platform; needs to be connected to a live database
+     * @param model     The model for which to retrieve and write the data
+     * @param directory The output directory
+     * @param delimiter The field delimiter, e.g. {@link DelimitedDataWriter#CSV_DELIMITER}
+     * @throws DdlUtilsException 
+     */
+    public void writeDataToDelimitedFiles(Platform platform, Database model, String directory, char delimiter) throws DdlUtilsException
+    {
+        String extension = (delimiter == DelimitedDataWriter.TSV_DELIMITER ? ".tsv" : ".csv");
+
+        for (int idx = 0; idx < model.getTableCount(); idx++)
+        {
+            Table  table  = model.getTable(idx);
+            File   file   = new File(directory, table.getName() + extension);
+            Writer output = null;
+
+            try
+            {
+                output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+                writeDataToDelimited(platform, model, table, output, delimiter);
+            }
+            catch (IOException ex)
+            {
+                throw new DdlUtilsException(ex);
+            }
+            finally
+            {
+                if (output != null)
+                {
+                    try
+                    {
+                        output.close();
+                    }
+                    catch (IOException ex)
+                    {
+                        // ignored
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Sorts the given table according to their foreign key order.
      * 
@@ -396,40 +958,66 @@ public class DatabaseDataIO
      */
     private List<Table> sortTables(Table[] tables)
     {
-        ArrayList<Table>      result    = new ArrayList<>();
-        HashSet<Table>        processed = new HashSet<Table>();
+        ArrayList<Table> result = new ArrayList<>();
+
+        for (Iterator<List<Table>> it = getForeignKeyLevels(tables).iterator(); it.hasNext();)
+        {
+            result.addAll(it.next());
+        }
+        return result;
+    }
+
+    /**
+     * Groups the given tables into levels according to their foreign keys. The first
+     * level contains the tables without foreign keys to other tables, and each following
+     * level contains the tables whose foreign keys only point to tables of the previous
+     * levels. The tables within circular dependencies form the last level.
+     * 
+     * @param tables The tables
+     * @return The levels
+     */
+    static List<List<Table>> getForeignKeyLevels(Table[] tables)
+    {
+        ArrayList<List<Table>> result     = new ArrayList<>();
+        ArrayList<Table>       firstLevel = new ArrayList<>();
+        HashSet<Table>         processed  = new HashSet<Table>();
         ListOrderedMap pending   = new ListOrderedMap();
 
         for (int idx = 0; idx < tables.length; idx++)
         {
             Table table = tables[idx];
+            HashSet<Table> waitedFor = new HashSet<>();
 
-            if (table.getForeignKeyCount() == 0)
+            for (int fkIdx = 0; fkIdx < table.getForeignKeyCount(); fkIdx++)
+            {
+                Table waitedForTable = table.getForeignKey(fkIdx).getForeignTable();
+
+                if (!table.equals(waitedForTable))
+                {
+                    waitedFor.add(waitedForTable);
+                }
+            }
+            if (waitedFor.isEmpty())
             {
-                result.add(table);
+                firstLevel.add(table);
                 processed.add(table);
             }
             else
             {
-                HashSet<Table> waitedFor = new HashSet<>();
-
-                for (int fkIdx = 0; fkIdx < table.getForeignKeyCount(); fkIdx++)
-                {
-                    Table waitedForTable = table.getForeignKey(fkIdx).getForeignTable();
-
-                    if (!table.equals(waitedForTable))
-                    {
-                        waitedFor.add(waitedForTable);
-                    }
-                }
                 pending.put(table, waitedFor);
             }
         }
+        if (!firstLevel.isEmpty())
+        {
+            result.add(firstLevel);
+        }
 
         HashSet<Table> newProcessed = new HashSet<>();
 
         while (!processed.isEmpty() && !pending.isEmpty())
         {
+            ArrayList<Table> level = new ArrayList<>();
+
             newProcessed.clear();
             for (@SuppressWarnings("rawtypes")
 			Iterator it = pending.entrySet().iterator(); it.hasNext();)
@@ -444,10 +1032,14 @@ public class DatabaseDataIO
                 if (waitedFor.isEmpty())
                 {
                     it.remove();
-                    result.add(table);
+                    level.add(table);
                     newProcessed.add(table);
                 }
             }
+            if (!level.isEmpty())
+            {
+                result.add(level);
+            }
             processed.clear();
 
             HashSet<Table> tmp = processed;
@@ -456,10 +1048,16 @@ public class DatabaseDataIO
             newProcessed = tmp;
         }
         // the remaining are within circular dependencies
-        for (@SuppressWarnings("unchecked")
-		Iterator<Table> it = pending.keySet().iterator(); it.hasNext();)
+        if (!pending.isEmpty())
         {
-            result.add(it.next());
+            ArrayList<Table> level = new ArrayList<>();
+
+            for (@SuppressWarnings("unchecked")
+			Iterator<Table> it = pending.keySet().iterator(); it.hasNext();)
+            {
+                level.add(it.next());
+            }
+            result.add(level);
         }
         return result;
     }
@@ -473,6 +1071,60 @@ public class DatabaseDataIO
      * @param writer   The data writer
      */
     private void writeDataForTableToXML(Platform platform, Database model, Table table, DataWriter writer)
+    {
+        platform.forEachRow(model, getSelectForTable(platform, table), null, new Table[] { table }, new RowHandler()
+        {
+            public boolean handleRow(RowCursor row)
+            {
+                writer.write(table, row);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Writes the data contained in a single table in the binary format.
+     * 
+     * @param platform The platform
+     * @param model    The database model
+     * @param table    The table 
+     * @param writer   The binary data writer
+     */
+    private void writeDataForTableToBinary(Platform platform, Database model, Table table, BinaryDataWriter writer)
+    {
+        platform.forEachRow(model, getSelectForTable(platform, table), null, new Table[] { table }, new RowHandler()
+        {
+            public boolean handleRow(RowCursor row)
+            {
+                writer.write(table, row);
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Deletes the given export segment. The reader maps the segment into memory, and
+     * some systems (e.g. Windows) refuse to delete a file until its mapping has been
+     * garbage collected, in which case the segment is deleted when the JVM exits.
+     * 
+     * @param segment The segment file
+     */
+    private static void deleteSegment(File segment)
+    {
+        if (segment.exists() && !segment.delete())
+        {
+            segment.deleteOnExit();
+        }
+    }
+
+    /**
+     * Creates the query that selects all rows of the given table.
+     * 
+     * @param platform The platform
+     * @param table    The table 
+     * @return The query
+     */
+    private String getSelectForTable(Platform platform, Table table)
     {
         Table[]      tables = { table };
         StringBuffer query  = new StringBuffer();
@@ -543,8 +1195,7 @@ public class DatabaseDataIO
         {
             query.append(platform.getPlatformInfo().getDelimiterToken());
         }
-
-        writer.write(platform.query(model, query.toString(), tables));
+        return query.toString();
     }
 
     /**
@@ -558,21 +1209,83 @@ public class DatabaseDataIO
      */
     public DataReader getConfiguredDataReader(Platform platform, Database model) throws DdlUtilsException
     {
-        DataToDatabaseSink sink     = new DataToDatabaseSink(platform, model);
-        DataReader         reader   = new DataReader();
+        DataReader reader = new DataReader();
+
+        reader.setModel(model);
+        reader.setSink(getConfiguredSink(platform, model));
+        reader.setPipelined(_usePipelinedReading);
+        registerConverters(reader.getConverterConfiguration());
+        return reader;
+    }
+
+    /**
+     * Returns a binary data reader instance configured for the given platform (which needs to
+     * be connected to a live database) and model.
+     * 
+     * @param platform The database
+     * @param model    The model
+     * @return The binary data reader
+     * @throws DdlUtilsException 
+     */
+    public BinaryDataReader getConfiguredBinaryDataReader(Platform platform, Database model) throws DdlUtilsException
+    {
+        BinaryDataReader reader = new BinaryDataReader();
+
+        reader.setModel(model);
+        reader.setSink(getConfiguredSink(platform, model));
+        registerConverters(reader.getConverterConfiguration());
+        return reader;
+    }
+
+    /**
+     * Returns a delimited data reader instance configured for the given platform (which needs to
+     * be connected to a live database) and model.
+     * 
+     * @param platform  The database
+     * @param model     The model
+     * @param delimiter The field delimiter, e.g. {@link DelimitedDataWriter#CSV_DELIMITER}
+     * @return The delimited data reader
+     * @throws DdlUtilsException 
+     */
+    public DelimitedDataReader getConfiguredDelimitedDataReader(Platform platform, Database model, char delimiter) throws DdlUtilsException
+    {
+        DelimitedDataReader reader = new DelimitedDataReader();
+
+        reader.setModel(model);
+        reader.setSink(getConfiguredSink(platform, model));
+        reader.setDelimiter(delimiter);
+        registerConverters(reader.getConverterConfiguration());
+        return reader;
+    }
+
+    /**
+     * Creates the sink that writes the read data to the database, configured with the
+     * settings of this object.
+     * 
+     * @param platform The database
+     * @param model    The model
+     * @return The sink
+     */
+    private DataToDatabaseSink getConfiguredSink(Platform platform, Database model)
+    {
+        DataToDatabaseSink sink = new DataToDatabaseSink(platform, model);
 
         sink.setHaltOnErrors(_failOnError);
         sink.setEnsureForeignKeyOrder(_ensureFKOrder);
         sink.setUseBatchMode(_useBatchMode);
+        sink.setUseBulkLoad(_useBulkLoad);
+        sink.setParallelConnectionCount(_parallelConnectionCount);
+        sink.setIdentitySpillDirectory(_identitySpillDirectory);
+        sink.setCommitInterval(_commitInterval);
+        sink.setDisableReferentialIntegrity(_disableReferentialIntegrity);
+        sink.setRebuildIndexes(_rebuildIndexes);
+        sink.setIndexJournalFile(_indexJournalFile);
+        sink.setIndexRebuildConnectionCount(_indexRebuildConnectionCount);
         if (_batchSize != null)
         {
             sink.setBatchSize(_batchSize.intValue());
         }
-        
-        reader.setModel(model);
-        reader.setSink(sink);
-        registerConverters(reader.getConverterConfiguration());
-        return reader;
+        return sink;
     }
 
     /**
@@ -677,6 +1390,67 @@ public class DatabaseDataIO
         dataReader.getSink().end();
     }
 
+    /**
+     * Reads the data from the indicated files in the binary format written by
+     * {@link #writeDataToBinary(Platform, Database, String)}, and writes it to the database to
+     * which the given platform is connected. Only data that matches the given model will be written.
+     * 
+     * @param platform The platform, must be connected to a live database
+     * @param model    The model to which to constrain the written data
+     * @param files    The binary data files
+     * @throws DdlUtilsException 
+     */
+    public void writeBinaryDataToDatabase(Platform platform, Database model, String[] files) throws DdlUtilsException
+    {
+        BinaryDataReader dataReader = getConfiguredBinaryDataReader(platform, model); 
+
+        dataReader.getSink().start();
+        for (int idx = 0; (files != null) && (idx < files.length); idx++)
+        {
+            dataReader.read(files[idx]);
+        }
+        dataReader.getSink().end();
+    }
+
+    /**
+     * Reads the data from the indicated UTF-8 encoded delimited text files (e.g. CSV) and writes
+     * it to the database to which the given platform is connected. Each file contains the rows of
+     * the table that it is named after (ignoring the extension), and starts with a record
+     * containing the column names.
+     * 
+     * @param platform  The platform, must be connected to a live database
+     * @param model     The model to which to constrain the written data
+     * @param files     The delimited data files
+     * @param delimiter The field delimiter, e.g. {@link DelimitedDataWriter#CSV_DELIMITER}
+     * @throws DdlUtilsException 
+     */
+    public void writeDelimitedDataToDatabase(Platform platform, Database model, String[] files, char delimiter) throws DdlUtilsException
+    {
+        DelimitedDataReader dataReader = getConfiguredDelimitedDataReader(platform, model, delimiter); 
+
+        dataReader.getSink().start();
+        for (int idx = 0; (files != null) && (idx < files.length); idx++)
+        {
+            File   file      = new File(files[idx]);
+            String tableName = file.getName();
+            int    dotPos    = tableName.lastIndexOf('.');
+
+            if (dotPos > 0)
+            {
+                tableName = tableName.substring(0, dotPos);
+            }
+
+            Table table = model.findTable(tableName, dataReader.isCaseSensitive());
+
+            if (table == null)
+            {
+                throw new DdlUtilsException("There is no table " + tableName + " for the data file " + file);
+            }
+            dataReader.read(table, file);
+        }
+        dataReader.getSink().end();
+    }
+
     /**
      * Reads the data from the specified files and writes it to the database via the given data reader.
      * Note that the sink that the data reader is configured with, won't be started or ended by
@@ -794,4 +1568,69 @@ public class DatabaseDataIO
             throw new DdlUtilsException(ex);
         }
     }
+
+    /**
+     * Reads the data of a table into a temporary segment in the binary format.
+     */
+    private class SegmentExport implements Callable<File>
+    {
+        /** The platform. */
+        private final Platform _platform;
+        /** The model. */
+        private final Database _model;
+        /** The table. */
+        private final Table _table;
+        /** Set once the segment is no longer needed. */
+        private final AtomicBoolean _aborted;
+
+        /**
+         * Creates a new export.
+         * 
+         * @param platform The platform
+         * @param model    The model
+         * @param table    The table
+         * @param aborted  Set once the segment is no longer needed
+         */
+        public SegmentExport(Platform platform, Database model, Table table, AtomicBoolean aborted)
+        {
+            _platform = platform;
+            _model    = model;
+            _table    = table;
+            _aborted  = aborted;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public File call() throws IOException
+        {
+            File         segment = File.createTempFile("ddlutils-export", ".bin", _exportSegmentDirectory);
+            OutputStream output  = null;
+            boolean      success = false;
+
+            try
+            {
+                output = new FileOutputStream(segment);
+
+                BinaryDataWriter writer = getConfiguredBinaryDataWriter(output);
+
+                writer.writeDocumentStart();
+                writeDataForTableToBinary(_platform, _model, _table, writer);
+                writer.writeDocumentEnd();
+                success = true;
+            }
+            finally
+            {
+                if (output != null)
+                {
+                    output.close();
+                }
+                if (!success || _aborted.get())
+                {
+                    deleteSegment(segment);
+                }
+            }
+            return segment;
+        }
+    }
 }
@@ -0,0 +1,524 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.elnarion.ddlutils.DdlUtilsException;
+import de.elnarion.ddlutils.io.converters.SqlTypeConverter;
+import de.elnarion.ddlutils.model.Column;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Table;
+
+/**
+ * Reads the rows of a single table from delimited text according to RFC 4180, e.g. from
+ * CSV or TSV, into dyna beans and hands them to a {@link DataSink}. The first record has
+ * to contain the column names, which are matched to the columns of the table. The values
+ * are converted with the registered {@link SqlTypeConverter}s, like in the {@link DataReader}.
+ * Empty fields are read as <code>null</code>, and quoted empty fields as empty strings.<br/>
+ * The input is tokenized directly in a char buffer. Unquoted fields are turned into strings
+ * without intermediate copies, and no strings are created for the fields of columns that
+ * are not part of the table.<br/>
+ * Note that the sink won't be started or ended by the reader.
+ * 
+ * @version $Revision: $
+ */
+public class DelimitedDataReader
+{
+    /** The size of the char buffer. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Returned by the tokenizer if the field was followed by a delimiter. */
+    private static final int END_OF_FIELD  = 0;
+    /** Returned by the tokenizer if the field was followed by a line break. */
+    private static final int END_OF_RECORD = 1;
+    /** Returned by the tokenizer if the field was followed by the end of the input. */
+    private static final int END_OF_INPUT  = 2;
+
+    /** Our log. */
+    private final Log _log = LogFactory.getLog(DelimitedDataReader.class);
+
+    /** The database model. */
+    private Database _model;
+    /** The object to receive the read beans. */
+    private DataSink _sink;
+    /** The converters. */
+    private ConverterConfiguration _converterConf = new ConverterConfiguration();
+    /** Whether to be case sensitive or not. */
+    private boolean _caseSensitive = false;
+    /** The field delimiter. */
+    private char _delimiter = DelimitedDataWriter.CSV_DELIMITER;
+
+    /** The buffer of the tokenizer. */
+    private final char[] _buffer = new char[BUFFER_SIZE];
+    /** The position of the next char in the buffer. */
+    private int _position;
+    /** The number of valid chars in the buffer. */
+    private int _limit;
+    /** The current input. */
+    private Reader _input;
+    /** Collects the fields that span buffer boundaries or contain quotes. */
+    private final StringBuilder _fieldBuilder = new StringBuilder();
+    /** The value of the last read field. */
+    private String _fieldValue;
+    /** The number of the current record, starting at 1 for the header. */
+    private long _recordNumber;
+
+    /**
+     * Returns the converter configuration of this data reader.
+     * 
+     * @return The converter configuration
+     */
+    public ConverterConfiguration getConverterConfiguration()
+    {
+        return _converterConf;
+    }
+
+    /**
+     * Returns the database model.
+     *
+     * @return The model
+     */
+    public Database getModel()
+    {
+        return _model;
+    }
+
+    /**
+     * Sets the database model.
+     *
+     * @param model The model
+     */
+    public void setModel(Database model)
+    {
+        _model = model;
+    }
+
+    /**
+     * Returns the data sink.
+     *
+     * @return The sink
+     */
+    public DataSink getSink()
+    {
+        return _sink;
+    }
+
+    /**
+     * Sets the data sink.
+     *
+     * @param sink The sink
+     */
+    public void setSink(DataSink sink)
+    {
+        _sink = sink;
+    }
+
+    /**
+     * Determines whether this reader is case sensitive when matching the column names.
+     * 
+     * @return <code>true</code> if the reader is case sensitive
+     */
+    public boolean isCaseSensitive()
+    {
+        return _caseSensitive;
+    }
+
+    /**
+     * Specifies whether this reader should be case sensitive when matching the column names.
+     * 
+     * @param beCaseSensitive <code>true</code> if the reader shall be case sensitive
+     */
+    public void setCaseSensitive(boolean beCaseSensitive)
+    {
+        _caseSensitive = beCaseSensitive;
+    }
+
+    /**
+     * Returns the field delimiter.
+     * 
+     * @return The delimiter (a comma per default)
+     */
+    public char getDelimiter()
+    {
+        return _delimiter;
+    }
+
+    /**
+     * Specifies the field delimiter.
+     * 
+     * @param delimiter The delimiter, e.g. {@link DelimitedDataWriter#TSV_DELIMITER}
+     */
+    public void setDelimiter(char delimiter)
+    {
+        if ((delimiter == '"') || (delimiter == '\r') || (delimiter == '\n'))
+        {
+            throw new IllegalArgumentException("The delimiter cannot be a quote or line break");
+        }
+        _delimiter = delimiter;
+    }
+
+    /**
+     * Reads the rows of the given table from the specified UTF-8 encoded file.
+     * 
+     * @param table The table
+     * @param file  The data file
+     * @throws DdlUtilsException If the file could not be read or is malformed
+     */
+    public void read(Table table, File file) throws DdlUtilsException
+    {
+        Reader input = null;
+
+        try
+        {
+            input = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+            read(table, input);
+        }
+        catch (IOException ex)
+        {
+            throw new DdlUtilsException("Could not read the data file " + file, ex);
+        }
+        finally
+        {
+            if (input != null)
+            {
+                try
+                {
+                    input.close();
+                }
+                catch (IOException ex)
+                {
+                    _log.warn("Could not close the data file " + file, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the rows of the given table from the given reader, which won't be closed
+     * by this method.
+     * 
+     * @param table The table
+     * @param input The input
+     * @throws DdlUtilsException If the input could not be read or is malformed
+     */
+    public void read(Table table, Reader input) throws DdlUtilsException
+    {
+        _input        = input;
+        _position     = 0;
+        _limit        = 0;
+        _recordNumber = 1;
+        try
+        {
+            // skip the byte order mark that some tools write at the start of UTF-8 files
+            if (hasMoreInput() && (_buffer[_position] == '\uFEFF'))
+            {
+                _position++;
+            }
+
+            Column[] columns = readHeader(table);
+
+            if (columns != null)
+            {
+                while (readRow(table, columns))
+                {
+                    _recordNumber++;
+                }
+            }
+        }
+        catch (IOException ex)
+        {
+            throw new DdlUtilsException(ex);
+        }
+        finally
+        {
+            _input      = null;
+            _fieldValue = null;
+        }
+    }
+
+    /**
+     * Reads the header record and matches the column names to the table.
+     * 
+     * @param table The table
+     * @return The columns in the order of the fields, <code>null</code> for unknown columns,
+     *         or <code>null</code> if the input is empty
+     */
+    private Column[] readHeader(Table table) throws IOException
+    {
+        if (!hasMoreInput())
+        {
+            return null;
+        }
+
+        List<Column> columns = new ArrayList<>();
+        int          status;
+
+        do
+        {
+            status = readField(true);
+
+            String name   = (_fieldValue == null ? "" : _fieldValue);
+            Column column = table.findColumn(name, isCaseSensitive());
+
+            if (column == null)
+            {
+                _log.warn("The data contains values of column " + name + " but there is no column defined with this name in table " +
+                          table.getName() + ". These values will be ignored.");
+            }
+            columns.add(column);
+        }
+        while (status == END_OF_FIELD);
+        _recordNumber++;
+        return columns.toArray(new Column[columns.size()]);
+    }
+
+    /**
+     * Reads the next record and hands it to the sink. Blank records, e.g. a trailing empty
+     * line, are skipped.
+     * 
+     * @param table   The table
+     * @param columns The columns in the order of the fields
+     * @return <code>false</code> if the end of the input has been reached
+     */
+    private boolean readRow(Table table, Column[] columns) throws IOException
+    {
+        while (hasMoreInput() && ((_buffer[_position] == '\r') || (_buffer[_position] == '\n')))
+        {
+            consumeTerminator();
+            _recordNumber++;
+        }
+        if (!hasMoreInput())
+        {
+            return false;
+        }
+
+        DynaBean bean     = _model.createDynaBeanFor(table);
+        int      fieldIdx = 0;
+        int      status;
+
+        do
+        {
+            Column column = (fieldIdx < columns.length ? columns[fieldIdx] : null);
+
+            status = readField(column != null);
+            if ((column != null) && (_fieldValue != null))
+            {
+                SqlTypeConverter converter = _converterConf.getRegisteredConverter(table, column);
+
+                bean.set(column.getName(), converter != null ? converter.convertFromString(_fieldValue, column.getTypeCode()) : _fieldValue);
+            }
+            fieldIdx++;
+        }
+        while (status == END_OF_FIELD);
+        _sink.addBean(bean);
+        return true;
+    }
+
+    /**
+     * Reads the next field. Its value is available in {@link #_fieldValue} afterwards if
+     * it was requested.
+     * 
+     * @param keep Whether the value of the field is needed
+     * @return What followed the field, one of {@link #END_OF_FIELD}, {@link #END_OF_RECORD}
+     *         and {@link #END_OF_INPUT}
+     */
+    private int readField(boolean keep) throws IOException
+    {
+        _fieldValue = null;
+        if (!hasMoreInput())
+        {
+            return END_OF_INPUT;
+        }
+        if (_buffer[_position] == '"')
+        {
+            _position++;
+            return readQuotedField(keep);
+        }
+
+        int     start = _position;
+        boolean split = false;
+
+        _fieldBuilder.setLength(0);
+        while (true)
+        {
+            if (_position >= _limit)
+            {
+                // the field continues in the next buffer
+                if (keep)
+                {
+                    _fieldBuilder.append(_buffer, start, _position - start);
+                }
+                split = true;
+                start = 0;
+                if (!fill())
+                {
+                    if (keep && (_fieldBuilder.length() > 0))
+                    {
+                        _fieldValue = _fieldBuilder.toString();
+                    }
+                    return END_OF_INPUT;
+                }
+            }
+
+            char c = _buffer[_position];
+
+            if ((c == _delimiter) || (c == '\r') || (c == '\n'))
+            {
+                if (keep)
+                {
+                    if (split)
+                    {
+                        _fieldBuilder.append(_buffer, start, _position - start);
+                        _fieldValue = (_fieldBuilder.length() > 0 ? _fieldBuilder.toString() : null);
+                    }
+                    else if (_position > start)
+                    {
+                        _fieldValue = new String(_buffer, start, _position - start);
+                    }
+                }
+                return consumeTerminator();
+            }
+            _position++;
+        }
+    }
+
+    /**
+     * Reads the rest of a quoted field whose opening quote has already been consumed.
+     * 
+     * @param keep Whether the value of the field is needed
+     * @return What followed the field
+     */
+    private int readQuotedField(boolean keep) throws IOException
+    {
+        _fieldBuilder.setLength(0);
+        while (true)
+        {
+            if (!hasMoreInput())
+            {
+                throw new DdlUtilsException("Unterminated quoted field in record " + _recordNumber);
+            }
+
+            int start = _position;
+
+            while ((_position < _limit) && (_buffer[_position] != '"'))
+            {
+                _position++;
+            }
+            if (keep)
+            {
+                _fieldBuilder.append(_buffer, start, _position - start);
+            }
+            if (_position < _limit)
+            {
+                _position++;
+                // a doubled quote stands for a quote, otherwise it is the closing quote
+                if (hasMoreInput() && (_buffer[_position] == '"'))
+                {
+                    if (keep)
+                    {
+                        _fieldBuilder.append('"');
+                    }
+                    _position++;
+                }
+                else
+                {
+                    break;
+                }
+            }
+        }
+        if (keep)
+        {
+            _fieldValue = _fieldBuilder.toString();
+        }
+        if (!hasMoreInput())
+        {
+            return END_OF_INPUT;
+        }
+
+        char c = _buffer[_position];
+
+        if ((c != _delimiter) && (c != '\r') && (c != '\n'))
+        {
+            throw new DdlUtilsException("Unexpected character after the closing quote in record " + _recordNumber);
+        }
+        return consumeTerminator();
+    }
+
+    /**
+     * Consumes the delimiter or line break at the current position.
+     * 
+     * @return {@link #END_OF_FIELD} for a delimiter, {@link #END_OF_RECORD} for a line break
+     */
+    private int consumeTerminator() throws IOException
+    {
+        char c = _buffer[_position++];
+
+        if (c == _delimiter)
+        {
+            return END_OF_FIELD;
+        }
+        if ((c == '\r') && hasMoreInput() && (_buffer[_position] == '\n'))
+        {
+            _position++;
+        }
+        return END_OF_RECORD;
+    }
+
+    /**
+     * Determines whether there are more chars to read, and fills the buffer if necessary.
+     * 
+     * @return <code>true</code> if there are more chars
+     */
+    private boolean hasMoreInput() throws IOException
+    {
+        return (_position < _limit) || fill();
+    }
+
+    /**
+     * Fills the buffer with the next chars of the input. This must only be called when all
+     * chars in the buffer have been consumed.
+     * 
+     * @return <code>false</code> if the end of the input has been reached
+     */
+    private boolean fill() throws IOException
+    {
+        int count;
+
+        do
+        {
+            count = _input.read(_buffer, 0, _buffer.length);
+        }
+        while (count == 0);
+        _position = 0;
+        _limit    = Math.max(count, 0);
+        return count > 0;
+    }
+}
@@ -0,0 +1,266 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.commons.beanutils.DynaBean;
+
+import de.elnarion.ddlutils.io.converters.SqlTypeConverter;
+import de.elnarion.ddlutils.model.Column;
+import de.elnarion.ddlutils.model.Table;
+import de.elnarion.ddlutils.platform.RowCursor;
+
+/**
+ * Writes the rows of a single table as delimited text according to RFC 4180, e.g. as
+ * CSV or TSV. The first record contains the column names of the table. Fields that contain
+ * the delimiter, quotes or line breaks are quoted, and records are separated by CRLF.
+ * <code>null</code> values are written as empty fields, and empty strings as quoted empty
+ * fields so that the {@link DelimitedDataReader} can tell them apart. The values are
+ * converted to text with the registered {@link SqlTypeConverter}s, like in the {@link DataWriter}.
+ * 
+ * @version $Revision: $
+ */
+public class DelimitedDataWriter
+{
+    /** The delimiter of CSV files. */
+    public static final char CSV_DELIMITER = ',';
+    /** The delimiter of TSV files. */
+    public static final char TSV_DELIMITER = '\t';
+
+    /** The output. */
+    private final Writer _output;
+    /** The table whose rows are written. */
+    private final Table _table;
+    /** The field delimiter. */
+    private final char _delimiter;
+    /** The converters. */
+    private ConverterConfiguration _converterConf = new ConverterConfiguration();
+    /** The cursor whose rows are currently written. */
+    private RowCursor _currentCursor;
+    /** The cursor ordinals of the columns of the table, or -1 if not part of the result. */
+    private int[] _cursorIndices;
+
+    /**
+     * Creates a delimited data writer instance.
+     * 
+     * @param output    The output; it won't be closed by the writer
+     * @param table     The table whose rows are written
+     * @param delimiter The field delimiter, e.g. {@link #CSV_DELIMITER}
+     */
+    public DelimitedDataWriter(Writer output, Table table, char delimiter)
+    {
+        if ((delimiter == '"') || (delimiter == '\r') || (delimiter == '\n'))
+        {
+            throw new IllegalArgumentException("The delimiter cannot be a quote or line break");
+        }
+        _output    = output;
+        _table     = table;
+        _delimiter = delimiter;
+    }
+
+    /**
+     * Returns the converter configuration of this data writer.
+     * 
+     * @return The converter configuration
+     */
+    public ConverterConfiguration getConverterConfiguration()
+    {
+        return _converterConf;
+    }
+
+    /**
+     * Writes the header record containing the column names of the table.
+     * 
+     * @throws DataWriterException If an error occurred while writing
+     */
+    public void writeHeader() throws DataWriterException
+    {
+        try
+        {
+            for (int idx = 0; idx < _table.getColumnCount(); idx++)
+            {
+                writeField(idx, _table.getColumn(idx).getName());
+            }
+            _output.write("\r\n");
+        }
+        catch (IOException ex)
+        {
+            throw new DataWriterException(ex);
+        }
+    }
+
+    /**
+     * Writes the given bean, which has to be a bean of the table of this writer.
+     * 
+     * @param bean The bean to write
+     * @throws DataWriterException If an error occurred while writing
+     */
+    public void write(DynaBean bean) throws DataWriterException
+    {
+        try
+        {
+            for (int idx = 0; idx < _table.getColumnCount(); idx++)
+            {
+                Column column = _table.getColumn(idx);
+
+                writeField(idx, getValueAsText(column, bean.get(column.getName())));
+            }
+            _output.write("\r\n");
+        }
+        catch (IOException ex)
+        {
+            throw new DataWriterException(ex);
+        }
+    }
+
+    /**
+     * Writes the row at which the given cursor is positioned. Columns of the table that
+     * are not part of the result are written as empty fields.
+     * 
+     * @param row The cursor positioned on the row
+     * @throws DataWriterException If an error occurred while writing
+     */
+    public void write(RowCursor row) throws DataWriterException
+    {
+        if (row != _currentCursor)
+        {
+            _currentCursor = row;
+            _cursorIndices = new int[_table.getColumnCount()];
+            for (int idx = 0; idx < _table.getColumnCount(); idx++)
+            {
+                _cursorIndices[idx] = row.findColumnIndex(_table.getColumn(idx).getName());
+            }
+        }
+        try
+        {
+            for (int idx = 0; idx < _table.getColumnCount(); idx++)
+            {
+                int cursorIdx = _cursorIndices[idx];
+
+                writeField(idx, cursorIdx < 0 ? null : getValueAsText(_table.getColumn(idx), row.getObject(cursorIdx)));
+            }
+            _output.write("\r\n");
+        }
+        catch (IOException ex)
+        {
+            throw new DataWriterException(ex);
+        }
+    }
+
+    /**
+     * Flushes the output.
+     * 
+     * @throws DataWriterException If an error occurred while writing
+     */
+    public void flush() throws DataWriterException
+    {
+        try
+        {
+            _output.flush();
+        }
+        catch (IOException ex)
+        {
+            throw new DataWriterException(ex);
+        }
+    }
+
+    /**
+     * Converts the value of the given column to the text of the field.
+     * 
+     * @param column The column
+     * @param value  The value
+     * @return The text, or <code>null</code> if the value is <code>null</code>
+     */
+    private String getValueAsText(Column column, Object value)
+    {
+        SqlTypeConverter converter = _converterConf.getRegisteredConverter(_table, column);
+
+        if (converter == null)
+        {
+            return value == null ? null : value.toString();
+        }
+        else
+        {
+            return converter.convertToString(value, column.getTypeCode());
+        }
+    }
+
+    /**
+     * Writes a field, preceded by the delimiter if it is not the first field of the record.
+     * 
+     * @param idx  The index of the field in the record
+     * @param text The text of the field, or <code>null</code> for an empty field
+     */
+    private void writeField(int idx, String text) throws IOException
+    {
+        if (idx > 0)
+        {
+            _output.write(_delimiter);
+        }
+        if (text != null)
+        {
+            if (needsQuotes(text))
+            {
+                _output.write('"');
+
+                int start = 0;
+
+                for (int pos = text.indexOf('"'); pos >= 0; pos = text.indexOf('"', start))
+                {
+                    _output.write(text, start, pos + 1 - start);
+                    _output.write('"');
+                    start = pos + 1;
+                }
+                _output.write(text, start, text.length() - start);
+                _output.write('"');
+            }
+            else
+            {
+                _output.write(text);
+            }
+        }
+    }
+
+    /**
+     * Determines whether the given text has to be quoted.
+     * 
+     * @param text The text
+     * @return <code>true</code> if the text has to be quoted
+     */
+    private boolean needsQuotes(String text)
+    {
+        if (text.length() == 0)
+        {
+            return true;
+        }
+        for (int idx = 0; idx < text.length(); idx++)
+        {
+            char c = text.charAt(idx);
+
+            if ((c == _delimiter) || (c == '"') || (c == '\r') || (c == '\n'))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
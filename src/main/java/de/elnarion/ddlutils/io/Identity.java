@@ -19,17 +19,16 @@ package de.elnarion.ddlutils.io;
  * under the License.
  */
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
-
 import de.elnarion.ddlutils.model.Table;
 
 /**
  * Stores the identity of an database object as defined by its primary keys. Is used
  * by {@link de.elnarion.ddlutils.io.DataToDatabaseSink} class for inserting objects
- * in the correct order. 
+ * in the correct order.<br/>
+ * As the sink may hold a lot of identities, they are stored compactly in two arrays,
+ * and the hash code is only computed once. Integral numbers are compared by their
+ * value so that e.g. an <code>INTEGER</code> foreign key column matches a
+ * <code>BIGINT</code> primary key column.
  * 
  * @version $Revision: 289996 $
  */
@@ -39,8 +38,14 @@ public class Identity
     private Table _table;
     /** The optional foreign key name whose referenced object this identity represents. */
     private String _fkName;
-    /** The identity columns and their values. */
-    private HashMap<String, Object> _columnValues = new HashMap<>();
+    /** The names of the identity columns. */
+    private String[] _columnNames;
+    /** The values of the identity columns, in the same order as their names. */
+    private Object[] _columnValues;
+    /** The number of identity columns. */
+    private int _columnCount;
+    /** The hash code, or <code>0</code> if it has not been computed yet. */
+    private int _hashCode;
 
     /**
      * Creates a new identity object for the given table.
@@ -49,7 +54,7 @@ public class Identity
      */
     public Identity(Table table)
     {
-        _table = table;
+        this(table, null);
     }
 
     /**
@@ -60,8 +65,10 @@ public class Identity
      */
     public Identity(Table table, String fkName)
     {
-        _table  = table;
-        _fkName = fkName;
+        _table        = table;
+        _fkName       = fkName;
+        _columnNames  = new String[1];
+        _columnValues = new Object[1];
     }
 
     /**
@@ -94,7 +101,25 @@ public class Identity
      */
     public void setColumnValue(String name, Object value)
     {
-        _columnValues.put(name, value);
+        int idx = indexOf(name);
+
+        if (idx < 0)
+        {
+            if (_columnCount == _columnNames.length)
+            {
+                String[] names  = new String[_columnCount + 1];
+                Object[] values = new Object[_columnCount + 1];
+
+                System.arraycopy(_columnNames, 0, names, 0, _columnCount);
+                System.arraycopy(_columnValues, 0, values, 0, _columnCount);
+                _columnNames  = names;
+                _columnValues = values;
+            }
+            idx = _columnCount++;
+            _columnNames[idx] = name;
+        }
+        _columnValues[idx] = value;
+        _hashCode          = 0;
     }
 
     /**
@@ -105,7 +130,119 @@ public class Identity
      */
     public Object getColumnValue(String name)
     {
-        return _columnValues.get(name);
+        int idx = indexOf(name);
+
+        return idx < 0 ? null : _columnValues[idx];
+    }
+
+    /**
+     * Returns the number of identity columns.
+     * 
+     * @return The number of columns
+     */
+    public int getColumnCount()
+    {
+        return _columnCount;
+    }
+
+    /**
+     * Returns the name of the indicated identity column.
+     * 
+     * @param idx The index of the column
+     * @return The column name
+     */
+    public String getColumnName(int idx)
+    {
+        return _columnNames[idx];
+    }
+
+    /**
+     * Returns the value of the indicated identity column.
+     * 
+     * @param idx The index of the column
+     * @return The column's value
+     */
+    public Object getColumnValue(int idx)
+    {
+        return _columnValues[idx];
+    }
+
+    /**
+     * Determines whether the given value is an integral number that can be represented
+     * as a <code>long</code> without loss.
+     * 
+     * @param value The value
+     * @return <code>true</code> if the value is a <code>Long</code>, <code>Integer</code>,
+     *         <code>Short</code> or <code>Byte</code>
+     */
+    public static boolean isIntegral(Object value)
+    {
+        return (value instanceof Long) || (value instanceof Integer) || (value instanceof Short) || (value instanceof Byte);
+    }
+
+    /**
+     * Returns the index of the indicated identity column.
+     * 
+     * @param name The column name
+     * @return The index or <code>-1</code> if there is no such column
+     */
+    private int indexOf(String name)
+    {
+        for (int idx = 0; idx < _columnCount; idx++)
+        {
+            if (_columnNames[idx].equals(name))
+            {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Determines whether the two column values are equal.
+     * 
+     * @param value      The one value
+     * @param otherValue The other value
+     * @return <code>true</code> if the values are equal
+     */
+    private static boolean valuesEqual(Object value, Object otherValue)
+    {
+        if (value == null)
+        {
+            return otherValue == null;
+        }
+        else if (isIntegral(value) && isIntegral(otherValue))
+        {
+            return ((Number)value).longValue() == ((Number)otherValue).longValue();
+        }
+        else
+        {
+            return value.equals(otherValue);
+        }
+    }
+
+    /**
+     * Determines the hash code of the given column value.
+     * 
+     * @param value The value
+     * @return The hash code
+     */
+    private static int valueHashCode(Object value)
+    {
+        if (value == null)
+        {
+            return 0;
+        }
+        else if (isIntegral(value))
+        {
+            long longValue = ((Number)value).longValue();
+
+            return (int)(longValue ^ (longValue >>> 32));
+        }
+        else
+        {
+            return value.hashCode();
+        }
     }
 
     /**
@@ -113,6 +250,10 @@ public class Identity
      */
     public boolean equals(Object obj)
     {
+        if (obj == this)
+        {
+            return true;
+        }
         if (!(obj instanceof Identity))
         {
             return false;
@@ -120,35 +261,24 @@ public class Identity
 
         Identity otherIdentity = (Identity)obj;
 
-        if (!_table.equals(otherIdentity._table))
+        // comparing the tables themselves is expensive, and they usually are the same instance
+        if ((_table != otherIdentity._table) && !_table.equals(otherIdentity._table))
         {
             return false;
         }
-        if (_columnValues.keySet().size() != otherIdentity._columnValues.keySet().size())
+        if ((_columnCount != otherIdentity._columnCount) || (hashCode() != otherIdentity.hashCode()))
         {
             return false;
         }
-        for (Iterator<Entry<String, Object>> it = _columnValues.entrySet().iterator(); it.hasNext();)
+        for (int idx = 0; idx < _columnCount; idx++)
         {
-            Map.Entry<String, Object> entry      = it.next();
-            Object    otherValue = otherIdentity._columnValues.get(entry.getKey());
+            int otherIdx = otherIdentity._columnNames[idx].equals(_columnNames[idx]) ? idx : otherIdentity.indexOf(_columnNames[idx]);
 
-            if (entry.getValue() == null)
+            if ((otherIdx < 0) || !valuesEqual(_columnValues[idx], otherIdentity._columnValues[otherIdx]))
             {
-                if (otherValue != null)
-                {
-                    return false;
-                }
-            }
-            else
-            {
-                if (!entry.getValue().equals(otherValue))
-                {
-                    return false;
-                }
+                return false;
             }
         }
-        
         return true;
     }
 
@@ -157,7 +287,19 @@ public class Identity
      */
     public int hashCode()
     {
-        return toString().hashCode();
+        if (_hashCode == 0)
+        {
+            // independent of the order of the columns as the primary key and foreign key
+            // columns may be in a different order
+            int hashCode = _table.getName().hashCode();
+
+            for (int idx = 0; idx < _columnCount; idx++)
+            {
+                hashCode += _columnNames[idx].hashCode() ^ valueHashCode(_columnValues[idx]);
+            }
+            _hashCode = (hashCode == 0 ? 1 : hashCode);
+        }
+        return _hashCode;
     }
 
     /**
@@ -169,17 +311,15 @@ public class Identity
 
         buffer.append(_table.getName());
         buffer.append(":");
-        for (Iterator<Entry<String, Object>> it = _columnValues.entrySet().iterator(); it.hasNext();)
+        for (int idx = 0; idx < _columnCount; idx++)
         {
-            Map.Entry<String, Object> entry = it.next();
-
-            buffer.append(entry.getKey());
-            buffer.append("=");
-            buffer.append(entry.getValue());
-            if (it.hasNext())
+            if (idx > 0)
             {
                 buffer.append(";");
             }
+            buffer.append(_columnNames[idx]);
+            buffer.append("=");
+            buffer.append(_columnValues[idx]);
         }
         return buffer.toString();
     }
@@ -0,0 +1,522 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.elnarion.ddlutils.model.Table;
+
+/**
+ * Maps the original identities of the rows inserted by the {@link DataToDatabaseSink}
+ * to their identities in the database, which differ if the database generated (part of)
+ * the primary key values. A row is known to be inserted if the map contains its original
+ * identity.<br/>
+ * Identities that consist of a single integral value are stored as pairs of
+ * <code>long</code> values in open-addressing hash tables, one per table. These can be
+ * spilled to memory-mapped temporary files so that very large loads do not exhaust the
+ * heap. All other identities are held in a hash map, where the processed identity is only
+ * stored if it differs from the original one.
+ *
+ * @version $Revision: $
+ */
+public class IdentityMap
+{
+    /** The number of segments of each hash table, which grow independently. */
+    private static final int SEGMENT_COUNT = 16;
+    /** The initial number of slots of a segment. */
+    private static final int INITIAL_SEGMENT_CAPACITY = 1 << 10;
+    /** The maximum number of slots of a segment, so that a segment fits into one mapped buffer. */
+    private static final int MAX_SEGMENT_CAPACITY = 1 << 26;
+    /** The value that marks empty slots; the key <code>0</code> is stored separately. */
+    private static final long EMPTY_KEY = 0;
+
+    /** Our log. */
+    private final Log _log = LogFactory.getLog(IdentityMap.class);
+
+    /** The directory for the spill files, or <code>null</code> if the tables are held in the heap. */
+    private final File _spillDirectory;
+    /** The hash tables for the single-valued integral identities per table. */
+    private IdentityHashMap<Table, LongHashTable> _integralIdentities = new IdentityHashMap<>();
+    /** The other identities; the value is the key itself if the identity did not change. */
+    private HashMap<Identity, Identity> _identities = new HashMap<>();
+    /** The number of mapped identities. */
+    private int _size;
+
+    /**
+     * Creates a new identity map that is held completely in the heap.
+     */
+    public IdentityMap()
+    {
+        this(null);
+    }
+
+    /**
+     * Creates a new identity map.
+     *
+     * @param spillDirectory The directory in which the integral identities are stored in
+     *                       memory-mapped temporary files; use <code>null</code> to hold
+     *                       them in the heap
+     */
+    public IdentityMap(File spillDirectory)
+    {
+        _spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Returns the directory in which the integral identities are stored.
+     *
+     * @return The directory or <code>null</code> if the identities are held in the heap
+     */
+    public File getSpillDirectory()
+    {
+        return _spillDirectory;
+    }
+
+    /**
+     * Returns the number of mapped identities.
+     *
+     * @return The number of identities
+     */
+    public int size()
+    {
+        return _size;
+    }
+
+    /**
+     * Registers the processed identity of the row with the given original identity.
+     *
+     * @param origIdentity The original identity of the row
+     * @param newIdentity  The identity of the row in the database
+     */
+    public void put(Identity origIdentity, Identity newIdentity)
+    {
+        if (isSingleIntegral(origIdentity) && isSingleIntegral(newIdentity) &&
+            origIdentity.getColumnName(0).equals(newIdentity.getColumnName(0)))
+        {
+            LongHashTable table = _integralIdentities.get(origIdentity.getTable());
+
+            if (table == null)
+            {
+                table = new LongHashTable(origIdentity.getTable().getName());
+                _integralIdentities.put(origIdentity.getTable(), table);
+            }
+            if (table.put(((Number)origIdentity.getColumnValue(0)).longValue(),
+                          ((Number)newIdentity.getColumnValue(0)).longValue()))
+            {
+                _size++;
+            }
+        }
+        else if (_identities.put(origIdentity, origIdentity.equals(newIdentity) ? origIdentity : newIdentity) == null)
+        {
+            _size++;
+        }
+    }
+
+    /**
+     * Returns the processed identity of the row with the given original identity.
+     *
+     * @param origIdentity The original identity of the row, which may also be the identity
+     *                     of a row referenced by a foreign key
+     * @return The identity of the row in the database, or <code>null</code> if the row has
+     *         not been inserted yet
+     */
+    public Identity get(Identity origIdentity)
+    {
+        if (isSingleIntegral(origIdentity))
+        {
+            LongHashTable table = _integralIdentities.get(origIdentity.getTable());
+
+            if (table != null)
+            {
+                Object origValue = origIdentity.getColumnValue(0);
+                long   key       = ((Number)origValue).longValue();
+
+                if (table.containsKey(key))
+                {
+                    long newValue = table.get(key);
+
+                    if (newValue == key)
+                    {
+                        return origIdentity;
+                    }
+
+                    Identity newIdentity = new Identity(origIdentity.getTable(), origIdentity.getForeignKeyName());
+
+                    // we use the type of the given value as it is used to update the foreign key columns
+                    newIdentity.setColumnValue(origIdentity.getColumnName(0), toValue(newValue, origValue));
+                    return newIdentity;
+                }
+            }
+        }
+        return _identities.get(origIdentity);
+    }
+
+    /**
+     * Removes all identities and deletes the spill files.
+     */
+    public void clear()
+    {
+        for (Iterator<LongHashTable> it = _integralIdentities.values().iterator(); it.hasNext();)
+        {
+            it.next().release();
+        }
+        _integralIdentities.clear();
+        _identities.clear();
+        _size = 0;
+    }
+
+    /**
+     * Determines whether the given identity consists of a single integral value.
+     *
+     * @param identity The identity
+     * @return <code>true</code> if the identity can be stored as a <code>long</code>
+     */
+    private boolean isSingleIntegral(Identity identity)
+    {
+        return (identity.getColumnCount() == 1) && Identity.isIntegral(identity.getColumnValue(0));
+    }
+
+    /**
+     * Converts the given <code>long</code> value into a value of the same type as the
+     * given template value.
+     *
+     * @param value    The value
+     * @param template The template value
+     * @return The converted value
+     */
+    private Object toValue(long value, Object template)
+    {
+        if (template instanceof Integer)
+        {
+            return Integer.valueOf((int)value);
+        }
+        else if (template instanceof Short)
+        {
+            return Short.valueOf((short)value);
+        }
+        else if (template instanceof Byte)
+        {
+            return Byte.valueOf((byte)value);
+        }
+        else
+        {
+            return Long.valueOf(value);
+        }
+    }
+
+    /**
+     * An open-addressing hash table that maps <code>long</code> keys to <code>long</code>
+     * values. The slots are split into segments, each of which is a {@link LongBuffer} that
+     * is either allocated in the heap or mapped to a temporary file.
+     */
+    private class LongHashTable
+    {
+        /** The name of the table whose identities are stored, used for the spill files. */
+        private final String _tableName;
+        /** The segments. */
+        private final Segment[] _segments = new Segment[SEGMENT_COUNT];
+        /** Whether the key <code>0</code> is contained. */
+        private boolean _containsEmptyKey;
+        /** The value for the key <code>0</code>. */
+        private long _emptyKeyValue;
+
+        /**
+         * Creates a new hash table.
+         *
+         * @param tableName The name of the table whose identities are stored
+         */
+        public LongHashTable(String tableName)
+        {
+            _tableName = tableName;
+        }
+
+        /**
+         * Stores the value for the given key.
+         *
+         * @param key   The key
+         * @param value The value
+         * @return <code>true</code> if the key was not contained before
+         */
+        public boolean put(long key, long value)
+        {
+            if (key == EMPTY_KEY)
+            {
+                boolean added = !_containsEmptyKey;
+
+                _containsEmptyKey = true;
+                _emptyKeyValue    = value;
+                return added;
+            }
+
+            int     hash    = hash(key);
+            Segment segment = _segments[hash >>> 28];
+
+            if (segment == null)
+            {
+                segment = new Segment(INITIAL_SEGMENT_CAPACITY);
+                _segments[hash >>> 28] = segment;
+            }
+            else if ((segment._size + 1) * 4L > segment._capacity * 3L)
+            {
+                segment = grow(hash >>> 28);
+            }
+            return segment.put(hash, key, value);
+        }
+
+        /**
+         * Determines whether the given key is contained.
+         *
+         * @param key The key
+         * @return <code>true</code> if the key is contained
+         */
+        public boolean containsKey(long key)
+        {
+            if (key == EMPTY_KEY)
+            {
+                return _containsEmptyKey;
+            }
+
+            int     hash    = hash(key);
+            Segment segment = _segments[hash >>> 28];
+
+            return (segment != null) && (segment.indexOf(hash, key) >= 0);
+        }
+
+        /**
+         * Returns the value for the given contained key.
+         *
+         * @param key The key
+         * @return The value
+         */
+        public long get(long key)
+        {
+            if (key == EMPTY_KEY)
+            {
+                return _emptyKeyValue;
+            }
+
+            int     hash    = hash(key);
+            Segment segment = _segments[hash >>> 28];
+
+            return segment._slots.get(2 * segment.indexOf(hash, key) + 1);
+        }
+
+        /**
+         * Releases the segments and deletes their spill files.
+         */
+        public void release()
+        {
+            for (int idx = 0; idx < _segments.length; idx++)
+            {
+                if (_segments[idx] != null)
+                {
+                    _segments[idx].release();
+                    _segments[idx] = null;
+                }
+            }
+        }
+
+        /**
+         * Doubles the capacity of the indicated segment.
+         *
+         * @param segmentIdx The index of the segment
+         * @return The new segment
+         */
+        private Segment grow(int segmentIdx)
+        {
+            Segment oldSegment = _segments[segmentIdx];
+
+            if (oldSegment._capacity >= MAX_SEGMENT_CAPACITY)
+            {
+                // we let the segment fill up further, and fail only when it is full
+                if (oldSegment._size + 1 >= oldSegment._capacity)
+                {
+                    throw new DataSinkException("Too many identities for table " + _tableName);
+                }
+                return oldSegment;
+            }
+
+            Segment newSegment = new Segment(oldSegment._capacity * 2);
+
+            for (int idx = 0; idx < oldSegment._capacity; idx++)
+            {
+                long key = oldSegment._slots.get(2 * idx);
+
+                if (key != EMPTY_KEY)
+                {
+                    newSegment.put(hash(key), key, oldSegment._slots.get(2 * idx + 1));
+                }
+            }
+            oldSegment.release();
+            _segments[segmentIdx] = newSegment;
+            return newSegment;
+        }
+
+        /**
+         * Determines the hash of the given key.
+         *
+         * @param key The key
+         * @return The hash
+         */
+        private int hash(long key)
+        {
+            long hash = key * 0x9E3779B97F4A7C15L;
+
+            return (int)(hash ^ (hash >>> 32));
+        }
+
+        /**
+         * A segment of the hash table, which stores the key and the value of each slot
+         * in two consecutive <code>long</code> values.
+         */
+        private class Segment
+        {
+            /** The slots. */
+            private LongBuffer _slots;
+            /** The number of slots, a power of two. */
+            private final int _capacity;
+            /** The number of used slots. */
+            private int _size;
+            /** The spill file, if any. */
+            private File _file;
+
+            /**
+             * Creates a new empty segment.
+             *
+             * @param capacity The number of slots
+             */
+            public Segment(int capacity)
+            {
+                _capacity = capacity;
+                if (_spillDirectory == null)
+                {
+                    _slots = LongBuffer.allocate(2 * capacity);
+                }
+                else
+                {
+                    try
+                    {
+                        _file = File.createTempFile("ddlutils-identities-", ".tmp", _spillDirectory);
+
+                        RandomAccessFile file = new RandomAccessFile(_file, "rw");
+
+                        try
+                        {
+                            // the mapped file is initially filled with zeros, i.e. empty keys
+                            _slots = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 16L * capacity).asLongBuffer();
+                        }
+                        finally
+                        {
+                            file.close();
+                        }
+                    }
+                    catch (IOException ex)
+                    {
+                        if ((_file != null) && !_file.delete())
+                        {
+                            _file.deleteOnExit();
+                        }
+                        throw new DataSinkException("Could not create the spill file for the identities of table " + _tableName, ex);
+                    }
+                }
+            }
+
+            /**
+             * Determines the slot of the given key.
+             *
+             * @param hash The hash of the key
+             * @param key  The key
+             * @return The index of the slot or <code>-1</code> if the key is not contained
+             */
+            public int indexOf(int hash, long key)
+            {
+                int mask = _capacity - 1;
+
+                for (int idx = hash & mask; ; idx = (idx + 1) & mask)
+                {
+                    long curKey = _slots.get(2 * idx);
+
+                    if (curKey == key)
+                    {
+                        return idx;
+                    }
+                    else if (curKey == EMPTY_KEY)
+                    {
+                        return -1;
+                    }
+                }
+            }
+
+            /**
+             * Stores the value for the given key.
+             *
+             * @param hash  The hash of the key
+             * @param key   The key
+             * @param value The value
+             * @return <code>true</code> if the key was not contained before
+             */
+            public boolean put(int hash, long key, long value)
+            {
+                int mask = _capacity - 1;
+                int idx  = hash & mask;
+
+                while ((_slots.get(2 * idx) != EMPTY_KEY) && (_slots.get(2 * idx) != key))
+                {
+                    idx = (idx + 1) & mask;
+                }
+
+                boolean added = (_slots.get(2 * idx) == EMPTY_KEY);
+
+                _slots.put(2 * idx, key);
+                _slots.put(2 * idx + 1, value);
+                if (added)
+                {
+                    _size++;
+                }
+                return added;
+            }
+
+            /**
+             * Releases the slots and deletes the spill file.
+             */
+            public void release()
+            {
+                _slots = null;
+                if ((_file != null) && !_file.delete())
+                {
+                    // the file may still be mapped until the buffer is garbage collected, so we
+                    // only register the files that we could not delete for deletion on exit
+                    _log.debug("Could not delete the identity spill file " + _file.getAbsolutePath());
+                    _file.deleteOnExit();
+                }
+            }
+        }
+    }
+}
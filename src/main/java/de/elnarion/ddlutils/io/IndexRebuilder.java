@@ -0,0 +1,619 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.elnarion.ddlutils.DatabaseOperationException;
+import de.elnarion.ddlutils.DdlUtilsException;
+import de.elnarion.ddlutils.Platform;
+import de.elnarion.ddlutils.model.CloneHelper;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Index;
+import de.elnarion.ddlutils.model.Table;
+import de.elnarion.ddlutils.platform.SqlBuilder;
+
+/**
+ * Drops the non-unique indexes of tables before a bulk load and recreates them afterwards,
+ * which is usually much faster than maintaining the indexes while inserting the rows.<br/>
+ * The definitions of the dropped indexes are stored in a journal file, which is an XML
+ * model file containing the tables with the dropped indexes only. An index is removed from
+ * the journal once it has been recreated, and the journal is deleted when all indexes are
+ * back. If the load or the recreation is aborted, {@link #completePendingRebuild()} recreates
+ * the indexes listed in the journal that do not exist in the database.<br/>
+ * The journal records a hash of the identity of the database (the connection url, the user,
+ * the catalog and the schema) that the indexes were dropped in, and a journal written for a
+ * different database is rejected instead of being replayed. Every write of the journal is
+ * forced to the disk before it replaces the previous version.
+ * 
+ * @version $Revision: $
+ */
+public class IndexRebuilder
+{
+    /** The directory of the default journal files, relative to the home directory of the user. */
+    private static final String DEFAULT_JOURNAL_DIRECTORY = ".ddlutils";
+
+    /** Our log. */
+    private final Log _log = LogFactory.getLog(IndexRebuilder.class);
+
+    /** The platform. */
+    private Platform _platform;
+    /** The journal file. */
+    private File _journalFile;
+    /** The identity of the database, determined when first needed. */
+    private String _databaseIdentity;
+    /** The number of connections to use for recreating the indexes. */
+    private int _connectionCount = 1;
+
+    /**
+     * Creates a new index rebuilder.
+     * 
+     * @param platform    The platform, must be connected to a live database
+     * @param journalFile The journal file for the definitions of the dropped indexes
+     */
+    public IndexRebuilder(Platform platform, File journalFile)
+    {
+        _platform    = platform;
+        _journalFile = journalFile;
+    }
+
+    /**
+     * Creates a new index rebuilder that uses the default journal file of the database that
+     * the platform is connected to, see {@link #getDefaultJournalFile(String)}.
+     * 
+     * @param platform The platform, must be connected to a live database
+     * @throws DdlUtilsException If the identity of the database could not be determined
+     */
+    public IndexRebuilder(Platform platform) throws DdlUtilsException
+    {
+        _platform    = platform;
+        _journalFile = getDefaultJournalFile(getDatabaseIdentity());
+    }
+
+    /**
+     * Returns the default journal file for the given database, which is a file in the directory
+     * <code>.ddlutils</code> in the home directory of the user whose name is derived from the
+     * database identity. Unlike the temporary directory, this directory is not cleared when the
+     * system restarts, which is when the journal is needed most. Loads into different databases
+     * never share a journal.
+     * 
+     * @param databaseIdentity The identity of the database, see {@link #getDatabaseIdentity()}
+     * @return The journal file
+     */
+    public static File getDefaultJournalFile(String databaseIdentity)
+    {
+        File directory = new File(System.getProperty("user.home"), DEFAULT_JOURNAL_DIRECTORY);
+
+        return new File(directory, "ddlutils-indexes-" + databaseIdentity + ".xml");
+    }
+
+    /**
+     * Returns the identity of the database that the platform is connected to, which is a hash
+     * of the connection url, the user, the catalog and the schema. Only the hash is written to
+     * the journal, as the url may contain credentials.
+     * 
+     * @return The database identity
+     * @throws DdlUtilsException If the identity could not be determined
+     */
+    public synchronized String getDatabaseIdentity() throws DdlUtilsException
+    {
+        if (_databaseIdentity == null)
+        {
+            Connection connection = _platform.borrowConnection();
+
+            try
+            {
+                DatabaseMetaData metaData = connection.getMetaData();
+                StringBuilder    result   = new StringBuilder();
+
+                result.append(metaData.getURL());
+                result.append('|');
+                result.append(metaData.getUserName());
+                result.append('|');
+                result.append(connection.getCatalog());
+                result.append('|');
+                result.append(getSchema(connection));
+                _databaseIdentity = UUID.nameUUIDFromBytes(result.toString().getBytes(StandardCharsets.UTF_8)).toString();
+            }
+            catch (SQLException ex)
+            {
+                throw new DdlUtilsException("Could not determine the identity of the database", ex);
+            }
+            finally
+            {
+                _platform.returnConnection(connection);
+            }
+        }
+        return _databaseIdentity;
+    }
+
+    /**
+     * Returns the current schema of the given connection.
+     * 
+     * @param connection The connection
+     * @return The schema, or <code>null</code> if the driver does not support querying it
+     */
+    private String getSchema(Connection connection)
+    {
+        try
+        {
+            return connection.getSchema();
+        }
+        catch (SQLException ex)
+        {
+            return null;
+        }
+        catch (AbstractMethodError err)
+        {
+            // pre-JDBC 4.1 driver
+            return null;
+        }
+    }
+
+    /**
+     * Returns the journal file for the definitions of the dropped indexes.
+     * 
+     * @return The journal file
+     */
+    public File getJournalFile()
+    {
+        return _journalFile;
+    }
+
+    /**
+     * Returns the number of connections used for recreating the indexes.
+     * 
+     * @return The number of connections (<code>1</code> per default)
+     */
+    public int getConnectionCount()
+    {
+        return _connectionCount;
+    }
+
+    /**
+     * Specifies the number of connections used for recreating the indexes. If more than one,
+     * the indexes are created concurrently, each on a connection borrowed from the platform.
+     * 
+     * @param connectionCount The number of connections
+     */
+    public void setConnectionCount(int connectionCount)
+    {
+        _connectionCount = connectionCount;
+    }
+
+    /**
+     * Determines whether there are dropped indexes that have not been recreated yet,
+     * i.e. whether the journal file exists.
+     * 
+     * @return <code>true</code> if indexes need to be recreated
+     */
+    public boolean isRebuildPending()
+    {
+        return _journalFile.exists();
+    }
+
+    /**
+     * Drops the named non-unique indexes of the tables in the given model. The journal is
+     * written before the first index is dropped. Indexes that cannot be dropped, e.g. because
+     * the database uses them for a foreign key, are kept and removed from the journal again.
+     * 
+     * @param model The model of the target tables
+     * @return The number of dropped indexes
+     * @throws DdlUtilsException If the journal could not be written, if there already are
+     *                           dropped indexes that have not been recreated, or if the
+     *                           identity of the database could not be determined
+     */
+    public int dropIndexes(Database model) throws DdlUtilsException
+    {
+        if (isRebuildPending())
+        {
+            throw new DdlUtilsException("There are dropped indexes in the journal " + _journalFile + " that have not been recreated yet");
+        }
+        if (!_platform.getPlatformInfo().isIndicesSupported())
+        {
+            return 0;
+        }
+
+        boolean     caseSensitive = _platform.isDelimitedIdentifierModeOn();
+        CloneHelper cloneHelper   = new CloneHelper();
+        Database    journal       = new Database(getDatabaseIdentity());
+
+        for (int tableIdx = 0; tableIdx < model.getTableCount(); tableIdx++)
+        {
+            Table table        = model.getTable(tableIdx);
+            Table journalTable = null;
+
+            for (int indexIdx = 0; indexIdx < table.getIndexCount(); indexIdx++)
+            {
+                Index index = table.getIndex(indexIdx);
+
+                if (!index.isUnique() && (index.getName() != null))
+                {
+                    if (journalTable == null)
+                    {
+                        journalTable = cloneHelper.clone(table, false, false, journal, caseSensitive);
+                        journal.addTable(journalTable);
+                    }
+                    journalTable.addIndex(cloneHelper.clone(index, journalTable, caseSensitive));
+                }
+            }
+        }
+        if (journal.getTableCount() == 0)
+        {
+            return 0;
+        }
+        writeJournal(journal);
+
+        int droppedCount = 0;
+
+        for (int tableIdx = 0; tableIdx < journal.getTableCount(); tableIdx++)
+        {
+            Table journalTable = journal.getTable(tableIdx);
+
+            for (int indexIdx = 0; indexIdx < journalTable.getIndexCount();)
+            {
+                Index index = journalTable.getIndex(indexIdx);
+
+                try
+                {
+                    _platform.evaluateBatch(getIndexSql(journalTable, index, false), false);
+                    droppedCount++;
+                    indexIdx++;
+                }
+                catch (DatabaseOperationException ex)
+                {
+                    _log.warn("Could not drop index " + index.getName() + " of table " + journalTable.getName() + ", it will be kept", ex);
+                    journalTable.removeIndex(indexIdx);
+                    writeJournal(journal);
+                }
+            }
+        }
+        if (droppedCount == 0)
+        {
+            deleteJournal();
+        }
+        return droppedCount;
+    }
+
+    /**
+     * Recreates the indexes listed in the journal, and deletes the journal afterwards.
+     * 
+     * @throws DdlUtilsException If an index could not be recreated, in which case the journal
+     *                           still contains it and the other indexes that have not been
+     *                           recreated, or if the journal was written for a different database
+     */
+    public void recreateIndexes() throws DdlUtilsException
+    {
+        if (isRebuildPending())
+        {
+            recreateIndexes(readJournal());
+        }
+    }
+
+    /**
+     * Completes the recreation of the indexes of an aborted run, i.e. recreates the indexes
+     * listed in the journal that do not exist in the database, and deletes the journal afterwards.
+     * 
+     * @throws DdlUtilsException If an index could not be recreated, or if the journal was
+     *                           written for a different database
+     */
+    public void completePendingRebuild() throws DdlUtilsException
+    {
+        if (!isRebuildPending())
+        {
+            return;
+        }
+
+        Database journal       = readJournal();
+        Database liveModel     = _platform.readModelFromDatabase("live");
+        boolean  caseSensitive = _platform.isDelimitedIdentifierModeOn();
+
+        for (int tableIdx = 0; tableIdx < journal.getTableCount(); tableIdx++)
+        {
+            Table journalTable = journal.getTable(tableIdx);
+            Table liveTable    = liveModel.findTable(journalTable.getName(), caseSensitive);
+
+            for (int indexIdx = journalTable.getIndexCount() - 1; indexIdx >= 0; indexIdx--)
+            {
+                if ((liveTable == null) || (liveTable.findIndex(journalTable.getIndex(indexIdx).getName(), caseSensitive) != null))
+                {
+                    journalTable.removeIndex(indexIdx);
+                }
+            }
+        }
+        writeJournal(journal);
+        recreateIndexes(journal);
+    }
+
+    /**
+     * Recreates the indexes in the given journal model.
+     * 
+     * @param journal The journal model
+     */
+    private void recreateIndexes(Database journal) throws DdlUtilsException
+    {
+        List<IndexCreation> creations = new ArrayList<>();
+
+        for (int tableIdx = 0; tableIdx < journal.getTableCount(); tableIdx++)
+        {
+            Table journalTable = journal.getTable(tableIdx);
+
+            for (int indexIdx = 0; indexIdx < journalTable.getIndexCount(); indexIdx++)
+            {
+                Index index = journalTable.getIndex(indexIdx);
+
+                creations.add(new IndexCreation(journal, journalTable, index, getIndexSql(journalTable, index, true)));
+            }
+        }
+
+        ExecutorService     executor  = Executors.newFixedThreadPool(Math.max(1, Math.min(_connectionCount, creations.size())));
+        DdlUtilsException   error     = null;
+        List<Future<Index>> results   = new ArrayList<>();
+
+        try
+        {
+            for (Iterator<IndexCreation> it = creations.iterator(); it.hasNext();)
+            {
+                results.add(executor.submit(it.next()));
+            }
+            for (Iterator<Future<Index>> it = results.iterator(); it.hasNext();)
+            {
+                try
+                {
+                    it.next().get();
+                }
+                catch (ExecutionException ex)
+                {
+                    if (error == null)
+                    {
+                        error = new DdlUtilsException(ex.getCause());
+                    }
+                }
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            error = new DdlUtilsException(ex);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        if (error != null)
+        {
+            throw error;
+        }
+        deleteJournal();
+    }
+
+    /**
+     * Returns the SQL that creates or drops the given index.
+     * 
+     * @param table  The table of the index
+     * @param index  The index
+     * @param create Whether to create or drop the index
+     * @return The SQL
+     */
+    private String getIndexSql(Table table, Index index, boolean create)
+    {
+        SqlBuilder builder = _platform.getSqlBuilder();
+
+        synchronized (builder)
+        {
+            StringWriter buffer = new StringWriter();
+
+            builder.setWriter(buffer);
+            try
+            {
+                if (create)
+                {
+                    builder.createIndex(table, index);
+                }
+                else
+                {
+                    builder.dropIndex(table, index);
+                }
+            }
+            catch (IOException ex)
+            {
+                // won't happen because we're using a string writer
+            }
+            return buffer.toString();
+        }
+    }
+
+    /**
+     * Reads the journal and checks that it was written for the database that the platform
+     * is connected to.
+     * 
+     * @return The journal model
+     */
+    private Database readJournal() throws DdlUtilsException
+    {
+        Database journal  = new DatabaseIO().read(_journalFile);
+        String   identity = getDatabaseIdentity();
+
+        if (!identity.equals(journal.getName()))
+        {
+            throw new DdlUtilsException("The index journal " + _journalFile + " was written for a different database");
+        }
+        return journal;
+    }
+
+    /**
+     * Writes the journal. The journal is first written to a temporary file and forced to the
+     * disk, which then replaces the journal, so that neither an aborted write nor a crash of
+     * the system leaves a corrupt or outdated journal behind.
+     * 
+     * @param journal The journal model
+     */
+    private synchronized void writeJournal(Database journal) throws DdlUtilsException
+    {
+        File tmpFile   = new File(_journalFile.getPath() + ".tmp");
+        File directory = _journalFile.getAbsoluteFile().getParentFile();
+
+        try
+        {
+            if (!directory.isDirectory() && !directory.mkdirs())
+            {
+                throw new IOException("Could not create the directory " + directory);
+            }
+
+            FileOutputStream   output = new FileOutputStream(tmpFile);
+            OutputStreamWriter writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+
+            try
+            {
+                new DatabaseIO().write(journal, writer);
+                writer.flush();
+                output.getFD().sync();
+            }
+            finally
+            {
+                writer.close();
+            }
+            Files.move(tmpFile.toPath(), _journalFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(directory);
+        }
+        catch (IOException ex)
+        {
+            throw new DdlUtilsException("Could not write the index journal " + _journalFile, ex);
+        }
+    }
+
+    /**
+     * Forces the given directory to the disk, so that the rename of the journal survives
+     * a crash of the system.
+     * 
+     * @param directory The directory
+     */
+    private void syncDirectory(File directory)
+    {
+        try
+        {
+            FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+
+            try
+            {
+                channel.force(true);
+            }
+            finally
+            {
+                channel.close();
+            }
+        }
+        catch (IOException ex)
+        {
+            // some systems (e.g. Windows) do not allow to open directories
+            _log.debug("Could not force the directory " + directory + " to the disk", ex);
+        }
+    }
+
+    /**
+     * Deletes the journal.
+     */
+    private void deleteJournal() throws DdlUtilsException
+    {
+        if (_journalFile.exists() && !_journalFile.delete())
+        {
+            throw new DdlUtilsException("Could not delete the index journal " + _journalFile);
+        }
+    }
+
+    /**
+     * Creates one index and removes it from the journal afterwards.
+     */
+    private class IndexCreation implements Callable<Index>
+    {
+        /** The journal model. */
+        private final Database _journal;
+        /** The table of the index in the journal model. */
+        private final Table _table;
+        /** The index. */
+        private final Index _index;
+        /** The SQL that creates the index. */
+        private final String _sql;
+
+        /**
+         * Creates a new index creation.
+         * 
+         * @param journal The journal model
+         * @param table   The table of the index in the journal model
+         * @param index   The index
+         * @param sql     The SQL that creates the index
+         */
+        public IndexCreation(Database journal, Table table, Index index, String sql)
+        {
+            _journal = journal;
+            _table   = table;
+            _index   = index;
+            _sql     = sql;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Index call() throws DdlUtilsException
+        {
+            Connection connection = _platform.borrowConnection();
+
+            try
+            {
+                _platform.evaluateBatch(connection, _sql, false);
+            }
+            finally
+            {
+                _platform.returnConnection(connection);
+            }
+            synchronized (IndexRebuilder.this)
+            {
+                _table.removeIndex(_index);
+                writeJournal(_journal);
+            }
+            _log.info("Recreated index " + _index.getName() + " of table " + _table.getName());
+            return _index;
+        }
+    }
+}
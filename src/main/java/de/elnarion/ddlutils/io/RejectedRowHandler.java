@@ -0,0 +1,41 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.beanutils.DynaBean;
+
+/**
+ * Receives the rows that the {@link de.elnarion.ddlutils.io.DataToDatabaseSink} could
+ * not insert into the database when it does not halt on errors.
+ * 
+ * @version $Revision: $
+ */
+public interface RejectedRowHandler
+{
+    /**
+     * Notifies the handler that the given row could not be inserted.
+     * 
+     * @param identity The identity of the row as defined by its primary key values
+     * @param bean     The row
+     * @param reason   The exception that caused the insertion to fail
+     * @throws DataSinkException If the handler cannot process the row, which stops the sink
+     */
+    public void rowRejected(Identity identity, DynaBean bean, Exception reason) throws DataSinkException;
+}
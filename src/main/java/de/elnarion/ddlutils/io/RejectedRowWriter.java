@@ -0,0 +1,97 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.OutputStream;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.elnarion.ddlutils.dynabean.SqlDynaBean;
+
+/**
+ * Writes the rejected rows as data XML, e.g. into a file from which they can be
+ * imported again once the cause of the failure has been fixed. The reasons are
+ * logged along with the identities of the rows.
+ * 
+ * @version $Revision: $
+ */
+public class RejectedRowWriter implements RejectedRowHandler
+{
+    /** Our log. */
+    private final Log _log = LogFactory.getLog(RejectedRowWriter.class);
+
+    /** The writer for the rows. */
+    private final DataWriter _writer;
+    /** The number of written rows. */
+    private int _rowCount;
+
+    /**
+     * Creates a new writer that writes the data XML to the given stream. The document
+     * is started immediately, and ended by {@link #close()}.
+     * 
+     * @param output   The output stream
+     * @param encoding The encoding of the XML
+     * @throws DdlUtilsXMLException If the document could not be started
+     */
+    public RejectedRowWriter(OutputStream output, String encoding) throws DdlUtilsXMLException
+    {
+        _writer = new DataWriter(output, encoding);
+        _writer.writeDocumentStart();
+    }
+
+    /**
+     * Returns the number of rows written so far.
+     * 
+     * @return The number of rows
+     */
+    public int getRowCount()
+    {
+        return _rowCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void rowRejected(Identity identity, DynaBean bean, Exception reason) throws DataSinkException
+    {
+        _log.warn("Could not insert row " + identity, reason);
+        try
+        {
+            _writer.write((SqlDynaBean)bean);
+            _rowCount++;
+        }
+        catch (DdlUtilsXMLException ex)
+        {
+            throw new DataSinkException("Could not write the rejected row " + identity, ex);
+        }
+    }
+
+    /**
+     * Ends the document and closes the output stream.
+     * 
+     * @throws DdlUtilsXMLException If the document could not be ended
+     */
+    public void close() throws DdlUtilsXMLException
+    {
+        _writer.writeDocumentEnd();
+    }
+}
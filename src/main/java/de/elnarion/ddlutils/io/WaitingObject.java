@@ -20,9 +20,9 @@ package de.elnarion.ddlutils.io;
  */
 
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 
 import org.apache.commons.beanutils.DynaBean;
-import org.apache.commons.collections.set.ListOrderedSet;
 
 /**
  * Represents an object waiting for insertion into the database. Is used by the
@@ -37,8 +37,8 @@ public class WaitingObject
     private DynaBean _obj;
     /** The original identity of the waiting object. */
     private Identity _objIdentity;
-    /** The identities of the waited-for objects. */
-    private ListOrderedSet _waitedForIdentites = new ListOrderedSet();
+    /** The identities of the waited-for objects, indexed by themselves so that they can be removed quickly. */
+    private LinkedHashMap<Identity, Identity> _waitedForIdentites = new LinkedHashMap<>();
 
     /**
      * Creates a new <code>WaitingObject</code> instance for the given object.
@@ -52,6 +52,16 @@ public class WaitingObject
         _objIdentity = objIdentity;
     }
 
+    /**
+     * Returns the original identity of the waiting object.
+     * 
+     * @return The identity
+     */
+    public Identity getObjectIdentity()
+    {
+        return _objIdentity;
+    }
+
     /**
      * Returns the waiting object.
      * 
@@ -69,7 +79,10 @@ public class WaitingObject
      */
     public void addPendingFK(Identity fkIdentity)
     {
-        _waitedForIdentites.add(fkIdentity);
+        if (!_waitedForIdentites.containsKey(fkIdentity))
+        {
+            _waitedForIdentites.put(fkIdentity, fkIdentity);
+        }
     }
 
     /**
@@ -77,10 +90,9 @@ public class WaitingObject
      * 
      * @return The identities
      */
-    @SuppressWarnings("unchecked")
-	public Iterator<Identity> getPendingFKs()
+    public Iterator<Identity> getPendingFKs()
     {
-        return _waitedForIdentites.iterator();
+        return _waitedForIdentites.values().iterator();
     }
 
     /**
@@ -91,15 +103,7 @@ public class WaitingObject
      */
     public Identity removePendingFK(Identity fkIdentity)
     {
-        Identity result = null;
-        int      idx    = _waitedForIdentites.indexOf(fkIdentity);
-
-        if (idx >= 0)
-        {
-            result = (Identity)_waitedForIdentites.get(idx);
-            _waitedForIdentites.remove(idx);
-        }
-        return result;
+        return _waitedForIdentites.remove(fkIdentity);
     }
 
     /**
@@ -122,7 +126,7 @@ public class WaitingObject
 
         result.append(_objIdentity);
         result.append(" waiting for ");
-        result.append(_waitedForIdentites.toString());
+        result.append(_waitedForIdentites.values().toString());
         return result.toString();
     }
 }
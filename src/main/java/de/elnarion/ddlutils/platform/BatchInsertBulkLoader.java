@@ -0,0 +1,105 @@
+package de.elnarion.ddlutils.platform;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.beanutils.DynaBean;
+
+import de.elnarion.ddlutils.DatabaseOperationException;
+import de.elnarion.ddlutils.Platform;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Table;
+
+/**
+ * The default bulk loader which simply inserts the rows using the batch insert
+ * of the platform ({@link Platform#insert(Connection, Database, java.util.Collection)}).
+ * It also serves as the fallback for the native bulk loaders.
+ * 
+ * @version $Revision: $
+ */
+public class BatchInsertBulkLoader implements BulkLoader
+{
+    /** The number of rows handed to the platform at once if the batch size is not limited. */
+    private static final int DEFAULT_ROWS_PER_INSERT = 1024;
+
+    /** The platform. */
+    private final Platform _platform;
+
+    /**
+     * Creates a new bulk loader for the given platform.
+     * 
+     * @param platform The platform
+     */
+    public BatchInsertBulkLoader(Platform platform)
+    {
+        _platform = platform;
+    }
+
+    /**
+     * Returns the platform that this bulk loader belongs to.
+     * 
+     * @return The platform
+     */
+    protected Platform getPlatform()
+    {
+        return _platform;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void load(Connection connection, Database model, Table table, Iterator<DynaBean> rows) throws DatabaseOperationException
+    {
+        int                 rowsPerInsert = _platform.getMaxBatchSize() > 0 ? _platform.getMaxBatchSize() : DEFAULT_ROWS_PER_INSERT;
+        ArrayList<DynaBean> beans         = new ArrayList<>();
+
+        while (rows.hasNext())
+        {
+            beans.add(rows.next());
+            if (beans.size() >= rowsPerInsert)
+            {
+                insert(connection, model, beans);
+                beans.clear();
+            }
+        }
+        insert(connection, model, beans);
+    }
+
+    /**
+     * Inserts the given rows using the batch insert of the platform.
+     * 
+     * @param connection The connection to the database
+     * @param model      The database model
+     * @param beans      The rows to insert
+     * @throws DatabaseOperationException If an error occurred while inserting the rows
+     */
+    protected void insert(Connection connection, Database model, List<DynaBean> beans) throws DatabaseOperationException
+    {
+        if (!beans.isEmpty())
+        {
+            _platform.insert(connection, model, beans);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package de.elnarion.ddlutils.platform;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.sql.Connection;
+import java.util.Iterator;
+
+import org.apache.commons.beanutils.DynaBean;
+
+import de.elnarion.ddlutils.DatabaseOperationException;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Table;
+
+/**
+ * Loads large amounts of rows into a table, using the fastest way that the database
+ * offers for it. Implementations are expected to fall back to batched inserts for
+ * rows or tables that the native bulk load mechanism cannot handle.<br/>
+ * Note that the values of auto-increment columns that the database generated for
+ * the loaded rows are not read back into the beans, and that the rows are not
+ * necessarily inserted in the order given.
+ * 
+ * @version $Revision: $
+ */
+public interface BulkLoader
+{
+    /**
+     * Loads the given rows into the specified table. The rows are read from the
+     * iterator while loading, so it does not need to be backed by a collection
+     * holding all of them.
+     * 
+     * @param connection The connection to the database
+     * @param model      The database model
+     * @param table      The table to load the rows into
+     * @param rows       The rows, which have to be dyna beans for the table
+     * @throws DatabaseOperationException If an error occurred while loading the rows
+     */
+    public void load(Connection connection, Database model, Table table, Iterator<DynaBean> rows) throws DatabaseOperationException;
+}
@@ -26,8 +26,8 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 
 import org.apache.commons.beanutils.BasicDynaBean;
@@ -35,7 +35,6 @@ import org.apache.commons.beanutils.BasicDynaClass;
 import org.apache.commons.beanutils.DynaBean;
 import org.apache.commons.beanutils.DynaClass;
 import org.apache.commons.beanutils.DynaProperty;
-import org.apache.commons.collections.map.ListOrderedMap;
 
 import de.elnarion.ddlutils.DatabaseOperationException;
 import de.elnarion.ddlutils.dynabean.SqlDynaBean;
@@ -64,15 +63,16 @@ public class ModelBasedResultSetIterator implements Iterator<DynaBean>
     private boolean _caseSensitive;
     /** Maps column names to table objects as given by the query hints. */
     private Map<String, Table> _preparedQueryHints;
-    /** Maps column names to properties. */
-    @SuppressWarnings("unchecked")
-	private Map<String, String> _columnsToProperties = new ListOrderedMap();
+    /** Reads the values of the columns of the result set into the properties of the beans. */
+    private ColumnExtractor[] _extractors;
     /** Whether the next call to hasNext or next needs advancement. */
     private boolean _needsAdvancing = true;
     /** Whether we're already at the end of the result set. */
     private boolean _isAtEnd = false;
     /** Whether to close the statement and connection after finishing. */
     private boolean _cleanUpAfterFinish;
+    /** Whether to end the transaction and switch the connection back to auto-commit mode when cleaning up. */
+    private boolean _autoCommitRestored;
 
     /**
      * Creates a new iterator.
@@ -113,15 +113,17 @@ public class ModelBasedResultSetIterator implements Iterator<DynaBean>
     }
 
     /**
-     * Initializes this iterator from the resultset metadata.
+     * Initializes this iterator from the resultset metadata. This determines for every
+     * column of the result set once how its value is read and which property receives it.
      * 
      * @param model The database model
      */
     private void initFromMetaData(Database model) throws SQLException
     {
-        ResultSetMetaData metaData         = _resultSet.getMetaData();
-        String            tableName        = null;
-        boolean           singleKnownTable = true;
+        ResultSetMetaData            metaData         = _resultSet.getMetaData();
+        String                       tableName        = null;
+        boolean                      singleKnownTable = true;
+        Map<String, ColumnExtractor> extractors       = new LinkedHashMap<>();
 
         for (int idx = 1; idx <= metaData.getColumnCount(); idx++)
         {
@@ -129,6 +131,11 @@ public class ModelBasedResultSetIterator implements Iterator<DynaBean>
             String tableOfColumn = metaData.getTableName(idx);
             Table  table         = null;
 
+            // the row numbers added by paginated queries are not part of the result
+            if (SqlBuilder.PAGINATION_ROW_NUMBER_COLUMN.equalsIgnoreCase(columnName))
+            {
+                continue;
+            }
             if ((tableOfColumn != null) && (tableOfColumn.length() > 0))
             {
                 // jConnect might return a table name enclosed in quotes
@@ -155,34 +162,55 @@ public class ModelBasedResultSetIterator implements Iterator<DynaBean>
                 singleKnownTable = false;
             }
 
-            String propName = columnName;
+            Column column = (table == null ? null : table.findColumn(columnName, _caseSensitive));
 
-            if (table != null)
+            // the first column of a given name wins, as when reading the values by name
+            if (!extractors.containsKey(columnName))
             {
-                Column column = table.findColumn(columnName, _caseSensitive);
-
-                if (column != null)
-                {
-                    propName = column.getName();
-                }
+                extractors.put(columnName, new ColumnExtractor(idx, column == null ? columnName : column.getName()));
             }
-            _columnsToProperties.put(columnName, propName);
         }
+        _extractors = extractors.values().toArray(new ColumnExtractor[extractors.size()]);
         if (singleKnownTable && (tableName != null))
         {
             _dynaClass = model.getDynaClassFor(tableName);
         }
         else
         {
-            DynaProperty[] props = new DynaProperty[_columnsToProperties.size()];
-            int            idx   = 0;
+            DynaProperty[] props = new DynaProperty[_extractors.length];
 
-            for (Iterator<String> it = _columnsToProperties.values().iterator(); it.hasNext(); idx++)
+            for (int idx = 0; idx < _extractors.length; idx++)
             {
-                props[idx] = new DynaProperty(it.next());
+                props[idx] = new DynaProperty(_extractors[idx].getPropertyName());
             }
             _dynaClass = new BasicDynaClass("result", BasicDynaBean.class, props);
         }
+
+        Table table = (_dynaClass instanceof SqlDynaClass ? ((SqlDynaClass)_dynaClass).getTable() : null);
+
+        for (Iterator<Map.Entry<String, ColumnExtractor>> it = extractors.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry<String, ColumnExtractor> entry    = it.next();
+            String                             colName  = entry.getKey();
+            Table                              curTable = table;
+
+            // if the beans are not of a table, we only know the types of the columns given in the query hints
+            if (curTable == null)
+            {
+                curTable = (Table)_preparedQueryHints.get(_caseSensitive ? colName : colName.toLowerCase());
+            }
+
+            Column column = (curTable == null ? null : curTable.findColumn(colName, _caseSensitive));
+
+            if (column != null)
+            {
+                entry.getValue().setJdbcType(_platform.getJdbcTypeForExtraction(column));
+            }
+            if (table != null)
+            {
+                entry.getValue().setPropertyIndex(((SqlDynaClass)_dynaClass).getPropertyIndex(entry.getValue().getPropertyName()));
+            }
+        }
     }
 
     /**
@@ -238,31 +266,21 @@ public class ModelBasedResultSetIterator implements Iterator<DynaBean>
         {
             try
             {
-                DynaBean bean  = _dynaClass.newInstance();
-                Table    table = null;
+                DynaBean bean = _dynaClass.newInstance();
 
-                if (bean instanceof SqlDynaBean)
+                for (int idx = 0; idx < _extractors.length; idx++)
                 {
-                    SqlDynaClass dynaClass = (SqlDynaClass)((SqlDynaBean)bean).getDynaClass();
-
-                    table = dynaClass.getTable();
-                }
+                    ColumnExtractor extractor = _extractors[idx];
+                    Object          value     = extractor.extract(_resultSet);
 
-                for (Iterator<Entry<String, String>> it = _columnsToProperties.entrySet().iterator(); it.hasNext();)
-                {
-                    Map.Entry<String, String> entry      = it.next();
-                    String    columnName = entry.getKey();
-                    String    propName   = entry.getValue();
-                    Table     curTable   = table;
-
-                    if (curTable == null)
+                    if ((extractor.getPropertyIndex() >= 0) && (bean instanceof SqlDynaBean))
                     {
-                        curTable = (Table)_preparedQueryHints.get(_caseSensitive ? columnName : columnName.toLowerCase());
+                        ((SqlDynaBean)bean).set(extractor.getPropertyIndex(), value);
+                    }
+                    else
+                    {
+                        bean.set(extractor.getPropertyName(), value);
                     }
-
-                    Object value = _platform.getObjectFromResultSet(_resultSet, columnName, curTable);
-
-                    bean.set(propName, value);
                 }
                 _needsAdvancing = true;
                 return bean;
@@ -332,6 +350,17 @@ public class ModelBasedResultSetIterator implements Iterator<DynaBean>
         }
     }
 
+    /**
+     * Specifies whether the connection shall be switched back to auto-commit mode when
+     * the resources are closed, e.g. because it was switched off for a streaming query.
+     * 
+     * @param autoCommitRestored <code>true</code> if auto-commit mode shall be restored
+     */
+    public void setAutoCommitRestored(boolean autoCommitRestored)
+    {
+        _autoCommitRestored = autoCommitRestored;
+    }
+
     /**
      * Closes the resources (connection, statement, resultset).
      */
@@ -348,6 +377,12 @@ public class ModelBasedResultSetIterator implements Iterator<DynaBean>
 
                 // also closes the resultset
                 _platform.closeStatement(stmt);
+                if (_autoCommitRestored)
+                {
+                    // the query only read data, so there is nothing to commit
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                }
             }
             catch (SQLException ex)
             {
@@ -389,4 +424,88 @@ public class ModelBasedResultSetIterator implements Iterator<DynaBean>
             return false;
         }
     }
+
+    /**
+     * Reads the value of one column of the result set by its index.
+     */
+    private class ColumnExtractor
+    {
+        /** The index of the column in the result set. */
+        private final int _columnIdx;
+        /** The name of the property that receives the value. */
+        private final String _propertyName;
+        /** Whether the type of the column is known. */
+        private boolean _typeKnown;
+        /** The jdbc type used for reading the value, if known. */
+        private int _jdbcType;
+        /** The index of the property in the dyna class, or -1 if the bean is accessed by name. */
+        private int _propertyIndex = -1;
+
+        /**
+         * Creates a new extractor for a column of unknown type.
+         * 
+         * @param columnIdx    The index of the column in the result set
+         * @param propertyName The name of the property that receives the value
+         */
+        public ColumnExtractor(int columnIdx, String propertyName)
+        {
+            _columnIdx    = columnIdx;
+            _propertyName = propertyName;
+        }
+
+        /**
+         * Returns the name of the property that receives the value.
+         * 
+         * @return The property name
+         */
+        public String getPropertyName()
+        {
+            return _propertyName;
+        }
+
+        /**
+         * Returns the index of the property that receives the value.
+         * 
+         * @return The property index, or -1 if the property is to be set by name
+         */
+        public int getPropertyIndex()
+        {
+            return _propertyIndex;
+        }
+
+        /**
+         * Specifies the index of the property that receives the value.
+         * 
+         * @param propertyIndex The property index
+         */
+        public void setPropertyIndex(int propertyIndex)
+        {
+            _propertyIndex = propertyIndex;
+        }
+
+        /**
+         * Specifies the jdbc type used for reading the value.
+         * 
+         * @param jdbcType The jdbc type
+         */
+        public void setJdbcType(int jdbcType)
+        {
+            _typeKnown = true;
+            _jdbcType  = jdbcType;
+        }
+
+        /**
+         * Reads the value of the column in the current row.
+         * 
+         * @param resultSet The result set
+         * @return The value
+         */
+        public Object extract(ResultSet resultSet) throws SQLException
+        {
+            Object value = _typeKnown ? _platform.extractColumnValue(resultSet, null, _columnIdx, _jdbcType)
+                                      : resultSet.getObject(_columnIdx);
+
+            return resultSet.wasNull() ? null : value;
+        }
+    }
 }
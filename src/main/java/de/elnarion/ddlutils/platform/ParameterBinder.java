@@ -0,0 +1,44 @@
+package de.elnarion.ddlutils.platform;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Sets the value of a parameter of a prepared statement. The platforms create one binder
+ * per column when they first write rows of a table, chosen based on the type of the
+ * column, so that binding a row does not need to inspect each value.
+ * 
+ * @version $Revision: $
+ * @see PlatformImplBase#createParameterBinder(de.elnarion.ddlutils.model.Column)
+ */
+public interface ParameterBinder
+{
+    /**
+     * Sets the given value as the indicated parameter of the statement.
+     * 
+     * @param statement The statement
+     * @param sqlIndex  The index of the parameter
+     * @param value     The value, can be <code>null</code>
+     * @throws SQLException If an error occurred while setting the parameter
+     */
+    public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException;
+}
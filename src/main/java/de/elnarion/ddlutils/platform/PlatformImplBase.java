@@ -21,6 +21,7 @@ package de.elnarion.ddlutils.platform;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
@@ -30,6 +31,7 @@ import java.sql.Clob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
@@ -40,9 +42,14 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.commons.beanutils.DynaBean;
 import org.apache.commons.beanutils.PropertyUtils;
@@ -75,6 +82,7 @@ import de.elnarion.ddlutils.alteration.RemovePrimaryKeyChange;
 import de.elnarion.ddlutils.alteration.RemoveTableChange;
 import de.elnarion.ddlutils.alteration.TableChange;
 import de.elnarion.ddlutils.alteration.TableDefinitionChangesPredicate;
+import de.elnarion.ddlutils.dynabean.SqlDynaBean;
 import de.elnarion.ddlutils.dynabean.SqlDynaClass;
 import de.elnarion.ddlutils.dynabean.SqlDynaProperty;
 import de.elnarion.ddlutils.model.CloneHelper;
@@ -96,6 +104,21 @@ import de.elnarion.ddlutils.util.SqlTokenizer;
 public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 	/** The default name for models read from the database, if no name as given. */
 	protected static final String MODEL_DEFAULT_NAME = "default";
+	/**
+	 * The number of rows per multi-row insert statement if the batch size is not
+	 * limited.
+	 */
+	private static final int DEFAULT_ROWS_PER_INSERT_STATEMENT = 1024;
+	/** Identifies batches of INSERT statements. */
+	private static final String BATCH_INSERT = "insert";
+	/** Identifies batches of UPDATE statements. */
+	private static final String BATCH_UPDATE = "update";
+	/** Identifies batches of DELETE statements. */
+	private static final String BATCH_DELETE = "delete";
+	/** Identifies batches of upsert statements. */
+	private static final String BATCH_STORE = "store";
+	/** The operation key for binding the primary key values of a row. */
+	private static final String BIND_PRIMARY_KEYS = "pk";
 
 	/** The log for this platform. */
 	private final Log _log = LogFactory.getLog(getClass());
@@ -106,6 +129,8 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 	private SqlBuilder _builder;
 	/** The model reader for this platform. */
 	private JdbcModelReader _modelReader;
+	/** The bulk loader for this platform. */
+	private BulkLoader _bulkLoader;
 	/** Whether script mode is on. */
 	private boolean _scriptModeOn;
 	/** Whether SQL comments are generated or not. */
@@ -126,6 +151,28 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 	 * unsupported.
 	 */
 	private boolean _useDefaultOnDeleteActionIfUnsupported = true;
+	/** The maximum number of rows inserted in one batch. */
+	private int _maxBatchSize = 1024;
+	/** Whether to commit after each executed batch. */
+	private boolean _commitAfterBatchOn;
+	/** Whether to insert several rows with one statement. */
+	private boolean _multiRowInsertModeOn;
+	/** The maximum number of cached statements per connection. */
+	private int _statementCacheSize;
+	/** The open statement caches per connection. A cache is only registered between
+	    {@link #openStatementCache(Connection)} and its closing, or between borrowing and
+	    returning the connection, so that the caches do not keep connections alive. */
+	private final Map<Connection, PreparedStatementCache> _statementCaches = new IdentityHashMap<>();
+	/** The parameter binders per dyna class and operation or property. The dyna classes are weakly referenced so that
+	    the binders of models that are no longer used can be garbage collected. */
+	private final Map<SqlDynaClass, Map<Object, ParameterBindings>> _parameterBindings = Collections
+			.synchronizedMap(new WeakHashMap<SqlDynaClass, Map<Object, ParameterBindings>>());
+	/** Whether a subclass overrides {@link #setObject(PreparedStatement, int, DynaBean, SqlDynaProperty)}. */
+	private final boolean _setObjectOverridden = isOverridden("setObject", PreparedStatement.class, int.class,
+			DynaBean.class, SqlDynaProperty.class);
+	/** Whether a subclass overrides {@link #setStatementParameterValue(PreparedStatement, int, int, Object)}. */
+	private final boolean _setStatementParameterValueOverridden = isOverridden("setStatementParameterValue",
+			PreparedStatement.class, int.class, int.class, Object.class);
 
 	/**
 	 * {@inheritDoc}
@@ -164,6 +211,26 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 		_modelReader = modelReader;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public BulkLoader getBulkLoader() {
+		if (_bulkLoader == null) {
+			_bulkLoader = new BatchInsertBulkLoader(this);
+		}
+		return _bulkLoader;
+	}
+
+	/**
+	 * Sets the bulk loader for this platform.
+	 * 
+	 * @param bulkLoader
+	 *            The bulk loader
+	 */
+	protected void setBulkLoader(BulkLoader bulkLoader) {
+		_bulkLoader = bulkLoader;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -275,6 +342,190 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 		_useDefaultOnDeleteActionIfUnsupported = useDefault;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getMaxBatchSize() {
+		return _maxBatchSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		_maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isCommitAfterBatchOn() {
+		return _commitAfterBatchOn;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setCommitAfterBatchOn(boolean commitAfterBatchOn) {
+		_commitAfterBatchOn = commitAfterBatchOn;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isMultiRowInsertModeOn() {
+		return _multiRowInsertModeOn;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setMultiRowInsertModeOn(boolean multiRowInsertModeOn) {
+		_multiRowInsertModeOn = multiRowInsertModeOn;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getStatementCacheSize() {
+		return _statementCacheSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		_statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public PreparedStatementCache openStatementCache(final Connection connection) {
+		if ((_statementCacheSize <= 0) || (connection == null)) {
+			return null;
+		}
+		synchronized (_statementCaches) {
+			PreparedStatementCache cache = _statementCaches.get(connection);
+
+			if (cache == null) {
+				cache = new PreparedStatementCache(connection, _statementCacheSize) {
+					public void close() {
+						super.close();
+						synchronized (_statementCaches) {
+							if (_statementCaches.get(connection) == this) {
+								_statementCaches.remove(connection);
+							}
+						}
+					}
+				};
+				_statementCaches.put(connection, cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public PreparedStatementCache getStatementCache(Connection connection) {
+		synchronized (_statementCaches) {
+			return _statementCaches.get(connection);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void releaseStatementCache(Connection connection) {
+		PreparedStatementCache cache;
+
+		synchronized (_statementCaches) {
+			cache = _statementCaches.remove(connection);
+		}
+		if (cache != null) {
+			if (_log.isDebugEnabled()) {
+				_log.debug("Releasing statement cache of connection " + connection + " with " + cache.getHitCount()
+						+ " hits and " + cache.getMissCount() + " misses");
+			}
+			cache.close();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Connection borrowConnection() throws DatabaseOperationException {
+		Connection connection = super.borrowConnection();
+
+		openStatementCache(connection);
+		return connection;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void returnConnection(Connection connection) {
+		releaseStatementCache(connection);
+		super.returnConnection(connection);
+	}
+
+	/**
+	 * Returns a prepared statement for the given SQL. If statement caching is
+	 * enabled, then the statement is taken from the cache of the connection.
+	 * 
+	 * @param connection
+	 *            The connection
+	 * @param sql
+	 *            The SQL
+	 * @param returnGeneratedKeys
+	 *            Whether the statement shall return the generated keys
+	 * @return The statement
+	 */
+	private PreparedStatement prepareCachedStatement(Connection connection, String sql, boolean returnGeneratedKeys)
+			throws SQLException {
+		PreparedStatementCache cache = getStatementCache(connection);
+
+		if (cache != null) {
+			return cache.prepareStatement(sql, returnGeneratedKeys);
+		} else {
+			return returnGeneratedKeys ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+					: connection.prepareStatement(sql);
+		}
+	}
+
+	/**
+	 * Releases a statement created by
+	 * {@link #prepareCachedStatement(Connection, String, boolean)}. Cached
+	 * statements stay open unless the operation failed, in which case they are
+	 * removed from the cache.
+	 * 
+	 * @param connection
+	 *            The connection
+	 * @param statement
+	 *            The statement, can be <code>null</code>
+	 * @param sql
+	 *            The SQL of the statement
+	 * @param returnGeneratedKeys
+	 *            Whether the statement returns the generated keys
+	 * @param succeeded
+	 *            Whether the operation using the statement succeeded
+	 */
+	private void releaseCachedStatement(Connection connection, PreparedStatement statement, String sql,
+			boolean returnGeneratedKeys, boolean succeeded) {
+		if (statement == null) {
+			return;
+		}
+
+		PreparedStatementCache cache = getStatementCache(connection);
+
+		if (cache == null) {
+			closeStatement(statement);
+		} else if (!succeeded) {
+			cache.invalidate(sql, returnGeneratedKeys);
+		}
+	}
+
 	/**
 	 * Returns the log for this platform.
 	 * 
@@ -1001,6 +1252,106 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 		evaluateBatch(connection, sql, continueOnError);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void disableReferentialIntegrity(Connection connection, Database model) throws DatabaseOperationException {
+		if (!getPlatformInfo().isReferentialIntegrityDisablingSupported()) {
+			throw new DatabaseOperationException("The platform " + getName() + " does not support disabling the referential integrity");
+		}
+		evaluateBatch(connection, getReferentialIntegritySql(model, false), false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void enableReferentialIntegrity(Connection connection, Database model, boolean validate)
+			throws DatabaseOperationException {
+		evaluateBatch(connection, getReferentialIntegritySql(model, true), false);
+		if (validate) {
+			validateForeignKeys(connection, model);
+		}
+	}
+
+	/**
+	 * Returns the SQL for disabling or enabling the checking of the foreign keys of the
+	 * tables in the given model.
+	 * 
+	 * @param model  The database model
+	 * @param enable Whether to enable the checking
+	 * @return The SQL
+	 */
+	protected String getReferentialIntegritySql(Database model, boolean enable) {
+		String sql = null;
+
+		try {
+			StringWriter buffer = new StringWriter();
+
+			getSqlBuilder().setWriter(buffer);
+			if (enable) {
+				getSqlBuilder().enableReferentialIntegrity(model);
+			} else {
+				getSqlBuilder().disableReferentialIntegrity(model);
+			}
+			sql = buffer.toString();
+		} catch (IOException e) {
+			// won't happen because we're using a string writer
+		}
+		return sql;
+	}
+
+	/**
+	 * Checks that the rows of the tables in the given model satisfy their foreign keys.
+	 * 
+	 * @param connection The connection
+	 * @param model      The database model
+	 * @throws DatabaseOperationException If rows reference missing rows
+	 */
+	protected void validateForeignKeys(Connection connection, Database model) throws DatabaseOperationException {
+		StringBuffer violations = new StringBuffer();
+
+		for (int tableIdx = 0; tableIdx < model.getTableCount(); tableIdx++) {
+			Table table = model.getTable(tableIdx);
+
+			for (int fkIdx = 0; fkIdx < table.getForeignKeyCount(); fkIdx++) {
+				ForeignKey fk = table.getForeignKey(fkIdx);
+				String sql = getSqlBuilder().getOrphanedRowCountSql(table, fk);
+				Statement stmt = null;
+				ResultSet resultSet = null;
+
+				try {
+					stmt = connection.createStatement();
+					resultSet = stmt.executeQuery(sql);
+
+					long count = resultSet.next() ? resultSet.getLong(1) : 0;
+
+					if (count > 0) {
+						violations.append(violations.length() > 0 ? ", " : "");
+						violations.append(count);
+						violations.append(" rows of table ");
+						violations.append(table.getName());
+						violations.append(" for foreign key ");
+						violations.append(getSqlBuilder().getForeignKeyName(table, fk));
+					}
+				} catch (SQLException ex) {
+					throw new DatabaseOperationException("Error while validating the foreign keys: " + sql, ex);
+				} finally {
+					if (resultSet != null) {
+						try {
+							resultSet.close();
+						} catch (SQLException ex) {
+							_log.debug("Error while closing the result set", ex);
+						}
+					}
+					closeStatement(stmt);
+				}
+			}
+		}
+		if (violations.length() > 0) {
+			throw new DatabaseOperationException("Foreign keys are violated by " + violations);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1464,18 +1815,7 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 		try {
 			statement = connection.prepareStatement(sql);
 
-			int paramIdx = 1;
-
-			for (Iterator<Object> iter = parameters.iterator(); iter.hasNext(); paramIdx++) {
-				Object arg = iter.next();
-
-				if (arg instanceof BigDecimal) {
-					// to avoid scale problems because setObject assumes a scale of 0
-					statement.setBigDecimal(paramIdx, (BigDecimal) arg);
-				} else {
-					statement.setObject(paramIdx, arg);
-				}
-			}
+			setQueryParameters(statement, parameters);
 			resultSet = statement.executeQuery();
 			answer = createResultSetIterator(model, resultSet, queryHints);
 			return answer;
@@ -1494,121 +1834,347 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 	/**
 	 * {@inheritDoc}
 	 */
-	public List<DynaBean> fetch(Database model, String sql) throws DatabaseOperationException {
-		return fetch(model, sql, (Table[]) null, 0, -1);
+	public Iterator<DynaBean> queryStreaming(Database model, String sql, Table[] queryHints)
+			throws DatabaseOperationException {
+		return queryStreaming(model, sql, null, queryHints);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public List<DynaBean> fetch(Database model, String sql, Table[] queryHints) throws DatabaseOperationException {
-		return fetch(model, sql, queryHints, 0, -1);
+	public Iterator<DynaBean> queryStreaming(Database model, String sql, Collection<Object> parameters,
+			Table[] queryHints) throws DatabaseOperationException {
+		return openStreamingIterator(model, sql, parameters, queryHints);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public List<DynaBean> fetch(Database model, String sql, int start, int end) throws DatabaseOperationException {
-		return fetch(model, sql, (Table[]) null, start, end);
+	public Stream<DynaBean> stream(Database model, String sql, Collection<Object> parameters)
+			throws DatabaseOperationException {
+		return stream(model, sql, parameters, null);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public List<DynaBean> fetch(Database model, String sql, Table[] queryHints, int start, int end)
+	public Stream<DynaBean> stream(Database model, String sql, Collection<Object> parameters, Table[] queryHints)
 			throws DatabaseOperationException {
+		final ModelBasedResultSetIterator it = openStreamingIterator(model, sql, parameters, queryHints);
+
+		return StreamSupport.stream(new ResultSetSpliterator(it, ResultSetSpliterator.DEFAULT_BATCH_SIZE), false)
+				.onClose(new Runnable() {
+					public void run() {
+						it.cleanUp();
+					}
+				});
+	}
+
+	/**
+	 * Performs the given query with the settings for streaming the rows from the
+	 * database, see {@link #queryStreaming(Database, String, Collection, Table[])}.
+	 * 
+	 * @param model
+	 *            The database model to use
+	 * @param sql
+	 *            The sql query to perform
+	 * @param parameters
+	 *            The query parameter values (optional)
+	 * @param queryHints
+	 *            The tables that are queried (optional)
+	 * @return The iterator over the rows, which releases the statement and
+	 *         connection when it is cleaned up
+	 */
+	private ModelBasedResultSetIterator openStreamingIterator(Database model, String sql,
+			Collection<Object> parameters, Table[] queryHints) throws DatabaseOperationException {
 		Connection connection = borrowConnection();
-		Statement statement = null;
+		PreparedStatement statement = null;
 		ResultSet resultSet = null;
-		List<DynaBean> result = new ArrayList<>();
+		ModelBasedResultSetIterator answer = null;
+		boolean autoCommitSwitchedOff = false;
 
 		try {
-			statement = connection.createStatement();
-			resultSet = statement.executeQuery(sql);
-
-			int rowIdx = 0;
-
-			for (ModelBasedResultSetIterator it = createResultSetIterator(model, resultSet, queryHints); ((end < 0)
-					|| (rowIdx <= end)) && it.hasNext(); rowIdx++) {
-				if (rowIdx >= start) {
-					result.add(it.next());
-				} else {
-					it.advance();
-				}
+			if (getPlatformInfo().isAutoCommitDisabledForStreaming() && connection.getAutoCommit()) {
+				connection.setAutoCommit(false);
+				autoCommitSwitchedOff = true;
 			}
+			statement = prepareStreamingStatement(connection, sql, parameters);
+			resultSet = statement.executeQuery();
+			answer = createResultSetIterator(model, resultSet, queryHints);
+			answer.setAutoCommitRestored(autoCommitSwitchedOff);
+			return answer;
 		} catch (SQLException ex) {
-			throw new DatabaseOperationException("Error while fetching data from the database", ex);
+			throw new DatabaseOperationException("Error while performing a query", ex);
 		} finally {
-			// the iterator should return the connection automatically
-			// so this is usually not necessary (but just in case)
-			closeStatement(statement);
-			returnConnection(connection);
+			// if any exceptions are thrown, close things down
+			// otherwise we're leaving it open for the iterator
+			if (answer == null) {
+				closeStatement(statement);
+				if (autoCommitSwitchedOff) {
+					restoreAutoCommit(connection);
+				}
+				returnConnection(connection);
+			}
 		}
-		return result;
-	}
-
-	/**
-	 * {@inheritDoc}
-	 */
-	public List<DynaBean> fetch(Database model, String sql, Collection<Object> parameters) throws DatabaseOperationException {
-		return fetch(model, sql, parameters, null, 0, -1);
-	}
-
-	/**
-	 * {@inheritDoc}
-	 */
-	public List<DynaBean> fetch(Database model, String sql, Collection<Object> parameters, int start, int end)
-			throws DatabaseOperationException {
-		return fetch(model, sql, parameters, null, start, end);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public List<DynaBean> fetch(Database model, String sql, Collection<Object> parameters, Table[] queryHints)
+	public long forEachRow(Database model, String sql, Collection<Object> parameters, RowHandler handler)
 			throws DatabaseOperationException {
-		return fetch(model, sql, parameters, queryHints, 0, -1);
+		return forEachRow(model, sql, parameters, null, handler);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	public List<DynaBean> fetch(Database model, String sql, Collection<Object> parameters, Table[] queryHints, int start, int end)
-			throws DatabaseOperationException {
+	public long forEachRow(Database model, String sql, Collection<Object> parameters, Table[] queryHints,
+			RowHandler handler) throws DatabaseOperationException {
 		Connection connection = borrowConnection();
 		PreparedStatement statement = null;
-		ResultSet resultSet = null;
-		List<DynaBean> result = new ArrayList<>();
+		boolean autoCommitSwitchedOff = false;
+		long rowCount = 0;
 
 		try {
-			statement = connection.prepareStatement(sql);
-
-			int paramIdx = 1;
-
-			for (Iterator<Object> iter = parameters.iterator(); iter.hasNext(); paramIdx++) {
-				Object arg = iter.next();
-
-				if (arg instanceof BigDecimal) {
-					// to avoid scale problems because setObject assumes a scale of 0
-					statement.setBigDecimal(paramIdx, (BigDecimal) arg);
-				} else {
-					statement.setObject(paramIdx, arg);
-				}
+			if (getPlatformInfo().isAutoCommitDisabledForStreaming() && connection.getAutoCommit()) {
+				connection.setAutoCommit(false);
+				autoCommitSwitchedOff = true;
 			}
-			resultSet = statement.executeQuery();
+			statement = prepareStreamingStatement(connection, sql, parameters);
 
-			int rowIdx = 0;
+			ResultSet resultSet = statement.executeQuery();
+			RowCursor cursor = new RowCursor(this, model, resultSet, queryHints);
+			boolean proceed = true;
 
-			for (ModelBasedResultSetIterator it = createResultSetIterator(model, resultSet, queryHints); ((end < 0)
-					|| (rowIdx <= end)) && it.hasNext(); rowIdx++) {
-				if (rowIdx >= start) {
-					result.add(it.next());
-				} else {
-					it.advance();
-				}
+			while (proceed && resultSet.next()) {
+				rowCount++;
+				proceed = handler.handleRow(cursor);
 			}
+			return rowCount;
 		} catch (SQLException ex) {
-			// any other exception comes from the iterator which closes the resources
+			throw new DatabaseOperationException("Error while performing a query", ex);
+		} finally {
+			closeStatement(statement);
+			if (autoCommitSwitchedOff) {
+				restoreAutoCommit(connection);
+			}
+			returnConnection(connection);
+		}
+	}
+
+	/**
+	 * Creates the statement for a query whose rows are streamed from the database,
+	 * using a forward-only, read-only result set and the streaming fetch size of the
+	 * platform.
+	 * 
+	 * @param connection
+	 *            The connection
+	 * @param sql
+	 *            The query
+	 * @param parameters
+	 *            The query parameter values (optional)
+	 * @return The statement
+	 */
+	private PreparedStatement prepareStreamingStatement(Connection connection, String sql,
+			Collection<Object> parameters) throws SQLException {
+		PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY);
+
+		try {
+			if (getPlatformInfo().getStreamingFetchSize() != 0) {
+				statement.setFetchSize(getPlatformInfo().getStreamingFetchSize());
+			}
+			if (parameters != null) {
+				setQueryParameters(statement, parameters);
+			}
+			return statement;
+		} catch (SQLException ex) {
+			closeStatement(statement);
+			throw ex;
+		}
+	}
+
+	/**
+	 * Ends the read-only transaction of a streaming query and switches the connection
+	 * back to auto-commit mode.
+	 * 
+	 * @param connection
+	 *            The connection
+	 */
+	private void restoreAutoCommit(Connection connection) {
+		try {
+			connection.rollback();
+			connection.setAutoCommit(true);
+		} catch (SQLException ex) {
+			_log.warn("Could not restore the auto-commit mode of the connection", ex);
+		}
+	}
+
+	/**
+	 * Returns the query that only returns the rows from <code>start</code> to
+	 * <code>end</code>, if the range actually restricts the rows and the sql
+	 * builder can rewrite the query accordingly.
+	 * 
+	 * @param sql
+	 *            The query
+	 * @param start
+	 *            The index of the first row to return
+	 * @param end
+	 *            The index of the last row to return, or <code>-1</code> for all
+	 *            following rows
+	 * @return The paginated query, or <code>null</code> if the rows have to be
+	 *         skipped while reading the result
+	 */
+	private String getPaginatedQuery(String sql, int start, int end) {
+		if ((start <= 0) && (end < 0)) {
+			return null;
+		}
+		return getSqlBuilder().getPaginatedQuery(sql, start, end);
+	}
+
+	/**
+	 * Sets the values of the parameters of a query.
+	 * 
+	 * @param statement
+	 *            The statement
+	 * @param parameters
+	 *            The parameter values
+	 */
+	private void setQueryParameters(PreparedStatement statement, Collection<Object> parameters) throws SQLException {
+		int paramIdx = 1;
+
+		for (Iterator<Object> iter = parameters.iterator(); iter.hasNext(); paramIdx++) {
+			Object arg = iter.next();
+
+			if (arg instanceof BigDecimal) {
+				// to avoid scale problems because setObject assumes a scale of 0
+				statement.setBigDecimal(paramIdx, (BigDecimal) arg);
+			} else {
+				statement.setObject(paramIdx, arg);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DynaBean> fetch(Database model, String sql) throws DatabaseOperationException {
+		return fetch(model, sql, (Table[]) null, 0, -1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DynaBean> fetch(Database model, String sql, Table[] queryHints) throws DatabaseOperationException {
+		return fetch(model, sql, queryHints, 0, -1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DynaBean> fetch(Database model, String sql, int start, int end) throws DatabaseOperationException {
+		return fetch(model, sql, (Table[]) null, start, end);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DynaBean> fetch(Database model, String sql, Table[] queryHints, int start, int end)
+			throws DatabaseOperationException {
+		String paginatedSql = getPaginatedQuery(sql, start, end);
+
+		if (paginatedSql != null) {
+			return fetch(model, paginatedSql, queryHints, 0, -1);
+		}
+
+		Connection connection = borrowConnection();
+		Statement statement = null;
+		ResultSet resultSet = null;
+		List<DynaBean> result = new ArrayList<>();
+
+		try {
+			statement = connection.createStatement();
+			resultSet = statement.executeQuery(sql);
+
+			int rowIdx = 0;
+
+			for (ModelBasedResultSetIterator it = createResultSetIterator(model, resultSet, queryHints); ((end < 0)
+					|| (rowIdx <= end)) && it.hasNext(); rowIdx++) {
+				if (rowIdx >= start) {
+					result.add(it.next());
+				} else {
+					it.advance();
+				}
+			}
+		} catch (SQLException ex) {
+			throw new DatabaseOperationException("Error while fetching data from the database", ex);
+		} finally {
+			// the iterator should return the connection automatically
+			// so this is usually not necessary (but just in case)
+			closeStatement(statement);
+			returnConnection(connection);
+		}
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DynaBean> fetch(Database model, String sql, Collection<Object> parameters) throws DatabaseOperationException {
+		return fetch(model, sql, parameters, null, 0, -1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DynaBean> fetch(Database model, String sql, Collection<Object> parameters, int start, int end)
+			throws DatabaseOperationException {
+		return fetch(model, sql, parameters, null, start, end);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DynaBean> fetch(Database model, String sql, Collection<Object> parameters, Table[] queryHints)
+			throws DatabaseOperationException {
+		return fetch(model, sql, parameters, queryHints, 0, -1);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<DynaBean> fetch(Database model, String sql, Collection<Object> parameters, Table[] queryHints, int start, int end)
+			throws DatabaseOperationException {
+		String paginatedSql = getPaginatedQuery(sql, start, end);
+
+		if (paginatedSql != null) {
+			return fetch(model, paginatedSql, parameters, queryHints, 0, -1);
+		}
+
+		Connection connection = borrowConnection();
+		PreparedStatement statement = null;
+		ResultSet resultSet = null;
+		List<DynaBean> result = new ArrayList<>();
+
+		try {
+			statement = connection.prepareStatement(sql);
+
+			setQueryParameters(statement, parameters);
+			resultSet = statement.executeQuery();
+
+			int rowIdx = 0;
+
+			for (ModelBasedResultSetIterator it = createResultSetIterator(model, resultSet, queryHints); ((end < 0)
+					|| (rowIdx <= end)) && it.hasNext(); rowIdx++) {
+				if (rowIdx >= start) {
+					result.add(it.next());
+				} else {
+					it.advance();
+				}
+			}
+		} catch (SQLException ex) {
+			// any other exception comes from the iterator which closes the resources
 			// automatically
 			closeStatement(statement);
 			returnConnection(connection);
@@ -1767,12 +2333,13 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 
 		String insertSql = createInsertSql(model, dynaClass, properties, null);
 		String queryIdentitySql = null;
+		boolean readGeneratedKeys = (autoIncrColumns.length > 0) && isGeneratedKeysReadable(connection, false);
 
 		if (_log.isDebugEnabled()) {
 			_log.debug("About to execute SQL: " + insertSql);
 		}
 
-		if (autoIncrColumns.length > 0) {
+		if ((autoIncrColumns.length > 0) && !readGeneratedKeys) {
 			if (!getPlatformInfo().isLastIdentityValueReadable()) {
 				_log.warn("The database does not support querying for auto-generated column values");
 			} else {
@@ -1781,21 +2348,20 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 		}
 
 		boolean autoCommitMode = false;
+		boolean succeeded = false;
 		PreparedStatement statement = null;
 
 		try {
-			if (!getPlatformInfo().isAutoCommitModeForLastIdentityValueReading()) {
+			if (!readGeneratedKeys && !getPlatformInfo().isAutoCommitModeForLastIdentityValueReading()) {
 				autoCommitMode = connection.getAutoCommit();
 				connection.setAutoCommit(false);
 			}
 
 			beforeInsert(connection, dynaClass.getTable());
 
-			statement = connection.prepareStatement(insertSql);
-
-			for (int idx = 0; idx < properties.length; idx++) {
-				setObject(statement, idx + 1, dynaBean, properties[idx]);
-			}
+			statement = prepareCachedStatement(connection, insertSql, readGeneratedKeys);
+			bindParameters(statement, 1, dynaBean, properties,
+					getParameterBindings(dynaClass, BATCH_INSERT, properties));
 
 			int count = statement.executeUpdate();
 
@@ -1805,10 +2371,14 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 				_log.warn("Attempted to insert a single row " + dynaBean + " in table " + dynaClass.getTableName()
 						+ " but changed " + count + " row(s)");
 			}
+			if (readGeneratedKeys) {
+				readGeneratedKeys(statement, Collections.singletonList(dynaBean), autoIncrColumns);
+			}
+			succeeded = true;
 		} catch (SQLException ex) {
 			throw new DatabaseOperationException("Error while inserting into the database: " + ex.getMessage(), ex);
 		} finally {
-			closeStatement(statement);
+			releaseCachedStatement(connection, statement, insertSql, readGeneratedKeys, succeeded);
 		}
 		if (queryIdentitySql != null) {
 			Statement queryStmt = null;
@@ -1855,10 +2425,10 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 						// we ignore this one
 					}
 				}
-				closeStatement(statement);
+				closeStatement(queryStmt);
 			}
 		}
-		if (!getPlatformInfo().isAutoCommitModeForLastIdentityValueReading()) {
+		if (!readGeneratedKeys && !getPlatformInfo().isAutoCommitModeForLastIdentityValueReading()) {
 			try {
 				// we need to do a manual commit now
 				connection.commit();
@@ -1889,85 +2459,315 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 			throws DatabaseOperationException {
 		SqlDynaClass dynaClass = null;
 		SqlDynaProperty[] properties = null;
+		ParameterBindings binders = null;
 		PreparedStatement statement = null;
-		int addedStmts = 0;
+		ArrayList<DynaBean> batchRows = new ArrayList<>();
+		ArrayList<DynaBean> pendingRows = new ArrayList<>();
+		Column[] identityColumns = null;
+		int rowsPerStatement = 1;
 		boolean identityWarningPrinted = false;
 
-		for (Iterator<DynaBean> it = dynaBeans.iterator(); it.hasNext();) {
-			DynaBean dynaBean = it.next();
-			SqlDynaClass curDynaClass = model.getDynaClassFor(dynaBean);
+		try {
+			for (Iterator<DynaBean> it = dynaBeans.iterator(); it.hasNext();) {
+				DynaBean dynaBean = it.next();
+				SqlDynaClass curDynaClass = model.getDynaClassFor(dynaBean);
+
+				if (curDynaClass != dynaClass) {
+					if (dynaClass != null) {
+						executeBatch(statement, batchRows, dynaClass.getTable(), identityColumns);
+						insertPendingRows(connection, model, dynaClass, properties, binders, pendingRows, identityColumns);
+					}
+					closeStatement(statement);
+					statement = null;
 
-			if (curDynaClass != dynaClass) {
-				if (dynaClass != null) {
-					executeBatch(statement, addedStmts, dynaClass.getTable());
-					addedStmts = 0;
-				}
+					dynaClass = curDynaClass;
+					properties = getPropertiesForInsertion(model, curDynaClass, dynaBean);
+					binders = getParameterBindings(dynaClass, BATCH_INSERT, properties);
 
-				dynaClass = curDynaClass;
-				properties = getPropertiesForInsertion(model, curDynaClass, dynaBean);
+					if (properties.length == 0) {
+						_log.warn("Cannot insert instances of type " + dynaClass + " because it has no usable properties");
+						continue;
+					}
+					identityColumns = getRelevantIdentityColumns(model, curDynaClass, dynaBean);
+					if (identityColumns.length == 0) {
+						identityColumns = null;
+					} else if (!isGeneratedKeysReadable(connection, true)) {
+						identityColumns = null;
+						if (!identityWarningPrinted) {
+							_log.warn(
+									"Updating the bean properties corresponding to auto-increment columns is not supported in batch mode");
+							identityWarningPrinted = true;
+						}
+					}
 
+					rowsPerStatement = getRowsPerInsertStatement(properties.length);
+					if (rowsPerStatement == 1) {
+						statement = prepareInsertStatement(connection, createInsertSql(model, dynaClass, properties, null),
+								identityColumns);
+					}
+				}
 				if (properties.length == 0) {
-					_log.warn("Cannot insert instances of type " + dynaClass + " because it has no usable properties");
 					continue;
 				}
-				if (!identityWarningPrinted && (getRelevantIdentityColumns(model, curDynaClass, dynaBean).length > 0)) {
-					_log.warn(
-							"Updating the bean properties corresponding to auto-increment columns is not supported in batch mode");
-					identityWarningPrinted = true;
-				}
-
-				String insertSql = createInsertSql(model, dynaClass, properties, null);
-
-				if (_log.isDebugEnabled()) {
-					_log.debug("Starting new batch with SQL: " + insertSql);
+				if (rowsPerStatement > 1) {
+					// we collect the rows until we have enough for one multi-row statement; the
+					// statement is only prepared then so that fewer rows only use the statement
+					// for their actual number created by insertPendingRows
+					pendingRows.add(dynaBean);
+					if (pendingRows.size() < rowsPerStatement) {
+						continue;
+					}
+					if (statement == null) {
+						statement = prepareInsertStatement(connection,
+								createMultiRowInsertSql(model, dynaClass, properties, rowsPerStatement), identityColumns);
+					}
 				}
 				try {
-					statement = connection.prepareStatement(insertSql);
+					if (rowsPerStatement > 1) {
+						setObjects(statement, pendingRows, properties, binders);
+						batchRows.addAll(pendingRows);
+						pendingRows.clear();
+					} else {
+						bindParameters(statement, 1, dynaBean, properties, binders);
+						batchRows.add(dynaBean);
+					}
+					statement.addBatch();
 				} catch (SQLException ex) {
-					throw new DatabaseOperationException("Error while preparing insert statement", ex);
+					throw new DatabaseOperationException("Error while adding batch insert", ex);
 				}
-			}
-			try {
-				if (properties != null) {
-					for (int idx = 0; idx < properties.length; idx++) {
-						setObject(statement, idx + 1, dynaBean, properties[idx]);
-					}
-					if (statement != null) {
-						statement.addBatch();
-						addedStmts++;
-					}
+				if ((_maxBatchSize > 0) && (batchRows.size() >= _maxBatchSize)) {
+					// we keep the statement open so that the next chunk can reuse it
+					executeBatch(statement, batchRows, dynaClass.getTable(), identityColumns);
 				}
-			} catch (SQLException ex) {
-				throw new DatabaseOperationException("Error while adding batch insert", ex);
 			}
+			if (dynaClass != null) {
+				executeBatch(statement, batchRows, dynaClass.getTable(), identityColumns);
+				insertPendingRows(connection, model, dynaClass, properties, binders, pendingRows, identityColumns);
+			}
+		} finally {
+			closeStatement(statement);
+		}
+	}
+
+	/**
+	 * Prepares the statement for a batch insert.
+	 * 
+	 * @param connection
+	 *            The connection
+	 * @param insertSql
+	 *            The insert SQL
+	 * @param identityColumns
+	 *            The identity columns whose generated values shall be read back, or
+	 *            <code>null</code>
+	 * @return The statement
+	 */
+	private PreparedStatement prepareInsertStatement(Connection connection, String insertSql, Column[] identityColumns)
+			throws DatabaseOperationException {
+		if (_log.isDebugEnabled()) {
+			_log.debug("Starting new batch with SQL: " + insertSql);
 		}
-		if (dynaClass != null) {
-			executeBatch(statement, addedStmts, dynaClass.getTable());
+		try {
+			return identityColumns != null ? connection.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)
+					: connection.prepareStatement(insertSql);
+		} catch (SQLException ex) {
+			throw new DatabaseOperationException("Error while preparing insert statement", ex);
 		}
 	}
 
 	/**
-	 * Performs the batch for the given statement, and checks that the specified
-	 * amount of rows have been changed.
+	 * Determines how many rows the batch insert shall put into one INSERT statement.
+	 * This is <code>1</code> unless {@link #isMultiRowInsertModeOn() multi-row insert mode}
+	 * is enabled and supported by the platform. The number of rows is then limited by
+	 * the maximum batch size and by the maximum number of parameters per statement.
+	 * 
+	 * @param numColumns
+	 *            The number of columns that are inserted per row
+	 * @return The number of rows per statement
+	 */
+	protected int getRowsPerInsertStatement(int numColumns) {
+		if (!_multiRowInsertModeOn || !getPlatformInfo().isMultiRowInsertSupported() || (numColumns == 0)) {
+			return 1;
+		}
+
+		int maxParams = getPlatformInfo().getMaxParametersPerStatement();
+		int result = _maxBatchSize > 0 ? _maxBatchSize : DEFAULT_ROWS_PER_INSERT_STATEMENT;
+
+		if (maxParams > 0) {
+			result = Math.min(result, maxParams / numColumns);
+		}
+		return Math.max(result, 1);
+	}
+
+	/**
+	 * Creates the SQL for inserting the given number of rows of the given type with
+	 * one prepared statement.
+	 *
+	 * @param model
+	 *            The database model
+	 * @param dynaClass
+	 *            The type
+	 * @param properties
+	 *            The properties to write
+	 * @param numRows
+	 *            The number of rows
+	 * @return The SQL required to insert the rows
+	 */
+	protected String createMultiRowInsertSql(Database model, SqlDynaClass dynaClass, SqlDynaProperty[] properties,
+			int numRows) {
+		Table table = model.findTable(dynaClass.getTableName());
+		HashMap<String, Object> columnValues = toColumnValues(properties, null);
+
+		return _builder.getMultiRowInsertSql(table, Collections.<Map<String, Object>>nCopies(numRows, columnValues),
+				true);
+	}
+
+	/**
+	 * Sets the parameters of a multi-row insert statement to the values of the given
+	 * beans.
+	 * 
+	 * @param statement
+	 *            The statement
+	 * @param dynaBeans
+	 *            The beans, one per row in the statement
+	 * @param properties
+	 *            The properties to write for each bean
+	 * @param binders
+	 *            The binders for the properties
+	 */
+	private void setObjects(PreparedStatement statement, List<DynaBean> dynaBeans, SqlDynaProperty[] properties,
+			ParameterBindings binders) throws SQLException {
+		int sqlIndex = 1;
+
+		for (Iterator<DynaBean> it = dynaBeans.iterator(); it.hasNext();) {
+			sqlIndex = bindParameters(statement, sqlIndex, it.next(), properties, binders);
+		}
+	}
+
+	/**
+	 * Inserts the rows that were collected for a multi-row insert but that did not
+	 * fill a complete statement, using one statement for all of them.
+	 * 
+	 * @param connection
+	 *            The connection
+	 * @param model
+	 *            The database model
+	 * @param dynaClass
+	 *            The type of the rows
+	 * @param properties
+	 *            The properties to write
+	 * @param binders
+	 *            The binders for the properties
+	 * @param pendingRows
+	 *            The rows; will be empty afterwards
+	 * @param identityColumns
+	 *            The identity columns whose generated values shall be read back into
+	 *            the rows, or <code>null</code>
+	 */
+	private void insertPendingRows(Connection connection, Database model, SqlDynaClass dynaClass,
+			SqlDynaProperty[] properties, ParameterBindings binders, List<DynaBean> pendingRows,
+			Column[] identityColumns)
+			throws DatabaseOperationException {
+		if (pendingRows.isEmpty()) {
+			return;
+		}
+
+		String insertSql = createMultiRowInsertSql(model, dynaClass, properties, pendingRows.size());
+		PreparedStatement statement = null;
+
+		if (_log.isDebugEnabled()) {
+			_log.debug("About to execute SQL: " + insertSql);
+		}
+		try {
+			statement = identityColumns != null
+					? connection.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)
+					: connection.prepareStatement(insertSql);
+			setObjects(statement, pendingRows, properties, binders);
+			beforeInsert(connection, dynaClass.getTable());
+
+			int count = statement.executeUpdate();
+
+			afterInsert(connection, dynaClass.getTable());
+			if (count != pendingRows.size()) {
+				_log.warn("Attempted to insert " + pendingRows.size() + " rows into table " + dynaClass.getTableName()
+						+ " but changed " + count + " rows");
+			}
+			if (identityColumns != null) {
+				readGeneratedKeys(statement, pendingRows, identityColumns);
+			}
+			if (_commitAfterBatchOn && !connection.getAutoCommit()) {
+				connection.commit();
+			}
+		} catch (SQLException ex) {
+			throw new DatabaseOperationException("Error while inserting into the database", ex);
+		} finally {
+			closeStatement(statement);
+			pendingRows.clear();
+		}
+	}
+
+	/**
+	 * Performs the batch for the given statement, and checks that the given rows
+	 * have been inserted. The statement is not closed by this method so that it can
+	 * be used for further batches. If
+	 * {@link #isCommitAfterBatchOn() commit after batch} is enabled and the
+	 * connection is not in auto-commit mode, then the transaction is committed
+	 * after the batch has been executed.
 	 * 
 	 * @param statement
 	 *            The prepared statement
-	 * @param numRows
-	 *            The number of rows that should change
+	 * @param rows
+	 *            The rows in the batch; will be empty afterwards
 	 * @param table
 	 *            The changed table
+	 * @param identityColumns
+	 *            The identity columns whose generated values shall be read back into
+	 *            the rows, or <code>null</code>
 	 */
-	private void executeBatch(PreparedStatement statement, int numRows, Table table) throws DatabaseOperationException {
-		if (statement != null) {
+	private void executeBatch(PreparedStatement statement, List<DynaBean> rows, Table table, Column[] identityColumns)
+			throws DatabaseOperationException {
+		executeBatch(statement, rows, table, BATCH_INSERT, identityColumns);
+	}
+
+	/**
+	 * Performs the batch for the given statement, and checks that each of the given
+	 * rows has been changed. The {@link #beforeInsert(Connection, Table) before}
+	 * and {@link #afterInsert(Connection, Table) after} hooks of the operation are
+	 * invoked once for the whole batch.
+	 * 
+	 * @param statement
+	 *            The prepared statement
+	 * @param rows
+	 *            The rows in the batch; will be empty afterwards
+	 * @param table
+	 *            The changed table
+	 * @param operation
+	 *            The operation, one of {@link #BATCH_INSERT}, {@link #BATCH_UPDATE},
+	 *            {@link #BATCH_DELETE} and {@link #BATCH_STORE}
+	 * @param identityColumns
+	 *            The identity columns whose generated values shall be read back into
+	 *            the rows, or <code>null</code>
+	 */
+	private void executeBatch(PreparedStatement statement, List<DynaBean> rows, Table table, String operation,
+			Column[] identityColumns) throws DatabaseOperationException {
+		int numRows = rows.size();
+
+		if ((statement != null) && (numRows > 0)) {
 			try {
 				Connection connection = statement.getConnection();
 
-				beforeInsert(connection, table);
+				if (BATCH_INSERT.equals(operation) || BATCH_STORE.equals(operation)) {
+					beforeInsert(connection, table);
+				} else if (BATCH_UPDATE.equals(operation)) {
+					beforeUpdate(connection, table);
+				}
 
 				int[] results = statement.executeBatch();
 
-				closeStatement(statement);
-				afterInsert(connection, table);
+				if (BATCH_INSERT.equals(operation) || BATCH_STORE.equals(operation)) {
+					afterInsert(connection, table);
+				} else if (BATCH_UPDATE.equals(operation)) {
+					afterUpdate(connection, table);
+				}
 
 				boolean hasSum = true;
 				int sum = 0;
@@ -1976,32 +2776,143 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 					if (results[idx] < 0) {
 						hasSum = false;
 						if (results[idx] == Statement.EXECUTE_FAILED) {
-							_log.warn("The batch insertion of row " + idx + " into table " + table.getName()
+							_log.warn("The batch " + operation + " of row " + idx + " in table " + table.getName()
 									+ " failed but the driver is able to continue processing");
 						} else if (results[idx] != Statement.SUCCESS_NO_INFO) {
-							_log.warn("The batch insertion of row " + idx + " into table " + table.getName()
+							_log.warn("The batch " + operation + " of row " + idx + " in table " + table.getName()
 									+ " returned an undefined status value " + results[idx]);
 						}
 					} else {
 						sum += results[idx];
 					}
 				}
-				if (hasSum && (sum != numRows)) {
-					_log.warn("Attempted to insert " + numRows + " rows into table " + table.getName() + " but changed "
-							+ sum + " rows");
+				// the update counts of upserts differ between the databases, e.g. MySql
+				// reports 2 for an updated row and 0 for an unchanged one
+				if (hasSum && (sum != numRows) && !BATCH_STORE.equals(operation)) {
+					_log.warn("Attempted to " + operation + " " + numRows + " rows in table " + table.getName()
+							+ " but changed " + sum + " rows");
+				}
+				if (identityColumns != null) {
+					readGeneratedKeys(statement, rows, identityColumns);
+				}
+				if (_commitAfterBatchOn && !connection.getAutoCommit()) {
+					connection.commit();
 				}
 			} catch (SQLException ex) {
 				if (ex instanceof BatchUpdateException) {
 					SQLException sqlEx = ((BatchUpdateException) ex).getNextException();
 
-					throw new DatabaseOperationException("Error while inserting into the database", sqlEx);
+					throw new DatabaseOperationException("Error while executing the batch " + operation
+							+ " in the database", sqlEx != null ? sqlEx : ex);
 				} else {
-					throw new DatabaseOperationException("Error while inserting into the database", ex);
+					throw new DatabaseOperationException("Error while executing the batch " + operation
+							+ " in the database", ex);
 				}
 			}
+			rows.clear();
 		}
 	}
 
+	/**
+	 * Determines whether the values of identity columns can be read via
+	 * {@link Statement#getGeneratedKeys()} after inserting rows with the given
+	 * connection. This requires that both the platform and the JDBC driver support
+	 * it.
+	 * 
+	 * @param connection
+	 *            The connection
+	 * @param batchMode
+	 *            Whether the rows are inserted in batch mode
+	 * @return <code>true</code> if the generated keys can be read
+	 */
+	protected boolean isGeneratedKeysReadable(Connection connection, boolean batchMode) {
+		PlatformInfo info = getPlatformInfo();
+
+		if (batchMode ? !info.isGeneratedKeysReadableInBatchMode() : !info.isGeneratedKeysReadable()) {
+			return false;
+		}
+		try {
+			return connection.getMetaData().supportsGetGeneratedKeys();
+		} catch (SQLException ex) {
+			_log.debug("Could not determine whether the JDBC driver supports generated keys", ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Reads the values of the identity columns that the database generated for the
+	 * rows inserted by the given statement, and writes them into the beans. The
+	 * driver is expected to return the keys in the order in which the rows were
+	 * inserted.
+	 * 
+	 * @param statement
+	 *            The statement that inserted the rows
+	 * @param dynaBeans
+	 *            The inserted rows
+	 * @param identityColumns
+	 *            The identity columns
+	 */
+	private void readGeneratedKeys(Statement statement, List<DynaBean> dynaBeans, Column[] identityColumns)
+			throws SQLException {
+		ResultSet generatedKeys = statement.getGeneratedKeys();
+
+		if (generatedKeys == null) {
+			_log.warn("The JDBC driver did not return the generated keys");
+			return;
+		}
+		try {
+			int[] columnIndices = getGeneratedKeyIndices(generatedKeys.getMetaData(), identityColumns);
+			Iterator<DynaBean> beanIt = dynaBeans.iterator();
+
+			while (beanIt.hasNext() && generatedKeys.next()) {
+				DynaBean dynaBean = beanIt.next();
+
+				for (int idx = 0; idx < identityColumns.length; idx++) {
+					Object value = getObjectFromResultSet(generatedKeys, identityColumns[idx], columnIndices[idx]);
+
+					dynaBean.set(identityColumns[idx].getName(), value);
+				}
+			}
+			if (beanIt.hasNext()) {
+				_log.warn("The JDBC driver did not return the generated keys for all inserted rows");
+			}
+		} finally {
+			try {
+				generatedKeys.close();
+			} catch (SQLException ex) {
+				// we ignore this one
+			}
+		}
+	}
+
+	/**
+	 * Determines the indices of the given identity columns in the result set
+	 * returned by {@link Statement#getGeneratedKeys()}. Some drivers return all
+	 * columns of the inserted row, so the columns are looked up by name first. If
+	 * that fails, we assume that the driver returns the values of the identity
+	 * columns in the order of these columns.
+	 * 
+	 * @param metaData
+	 *            The meta data of the generated keys result set
+	 * @param identityColumns
+	 *            The identity columns
+	 * @return The indices
+	 */
+	private int[] getGeneratedKeyIndices(ResultSetMetaData metaData, Column[] identityColumns) throws SQLException {
+		int[] result = new int[identityColumns.length];
+
+		for (int idx = 0; idx < identityColumns.length; idx++) {
+			result[idx] = idx + 1;
+			for (int columnIdx = 1; columnIdx <= metaData.getColumnCount(); columnIdx++) {
+				if (identityColumns[idx].getName().equalsIgnoreCase(metaData.getColumnLabel(columnIdx))) {
+					result[idx] = columnIdx;
+					break;
+				}
+			}
+		}
+		return result;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -2147,6 +3058,7 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 		SqlDynaProperty[] properties = dynaClass.getNonPrimaryKeyProperties();
 		String sql = createUpdateSql(model, dynaClass, primaryKeys, properties, null);
 		PreparedStatement statement = null;
+		boolean succeeded = false;
 
 		if (_log.isDebugEnabled()) {
 			_log.debug("About to execute SQL: " + sql);
@@ -2154,16 +3066,13 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 		try {
 			beforeUpdate(connection, dynaClass.getTable());
 
-			statement = connection.prepareStatement(sql);
+			statement = prepareCachedStatement(connection, sql, false);
 
-			int sqlIndex = 1;
+			int sqlIndex = bindParameters(statement, 1, dynaBean, properties,
+					getParameterBindings(dynaClass, BATCH_UPDATE, properties));
 
-			for (int idx = 0; idx < properties.length; idx++) {
-				setObject(statement, sqlIndex++, dynaBean, properties[idx]);
-			}
-			for (int idx = 0; idx < primaryKeys.length; idx++) {
-				setObject(statement, sqlIndex++, dynaBean, primaryKeys[idx]);
-			}
+			bindParameters(statement, sqlIndex, dynaBean, primaryKeys,
+					getParameterBindings(dynaClass, BIND_PRIMARY_KEYS, primaryKeys));
 
 			int count = statement.executeUpdate();
 
@@ -2173,10 +3082,11 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 				_log.warn("Attempted to insert a single row " + dynaBean + " into table " + dynaClass.getTableName()
 						+ " but changed " + count + " row(s)");
 			}
+			succeeded = true;
 		} catch (SQLException ex) {
 			throw new DatabaseOperationException("Error while updating in the database", ex);
 		} finally {
-			closeStatement(statement);
+			releaseCachedStatement(connection, statement, sql, false, succeeded);
 		}
 	}
 
@@ -2212,6 +3122,7 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 		SqlDynaProperty[] properties = dynaClass.getSqlDynaProperties();
 		String sql = createUpdateSql(model, dynaClass, primaryKeys, properties, null, null);
 		PreparedStatement statement = null;
+		boolean succeeded = false;
 
 		if (_log.isDebugEnabled()) {
 			_log.debug("About to execute SQL: " + sql);
@@ -2219,16 +3130,13 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 		try {
 			beforeUpdate(connection, dynaClass.getTable());
 
-			statement = connection.prepareStatement(sql);
+			statement = prepareCachedStatement(connection, sql, false);
 
-			int sqlIndex = 1;
+			int sqlIndex = bindParameters(statement, 1, newDynaBean, properties,
+					getParameterBindings(dynaClass, BATCH_UPDATE, properties));
 
-			for (int idx = 0; idx < properties.length; idx++) {
-				setObject(statement, sqlIndex++, newDynaBean, properties[idx]);
-			}
-			for (int idx = 0; idx < primaryKeys.length; idx++) {
-				setObject(statement, sqlIndex++, oldDynaBean, primaryKeys[idx]);
-			}
+			bindParameters(statement, sqlIndex, oldDynaBean, primaryKeys,
+					getParameterBindings(dynaClass, BIND_PRIMARY_KEYS, primaryKeys));
 
 			int count = statement.executeUpdate();
 
@@ -2238,10 +3146,11 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 				_log.warn("Attempted to insert a single row " + newDynaBean + " into table " + dynaClass.getTableName()
 						+ " but changed " + count + " row(s)");
 			}
+			succeeded = true;
 		} catch (SQLException ex) {
 			throw new DatabaseOperationException("Error while updating in the database", ex);
 		} finally {
-			closeStatement(statement);
+			releaseCachedStatement(connection, statement, sql, false, succeeded);
 		}
 	}
 
@@ -2258,9 +3167,120 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public void update(Connection connection, Database model, Collection<DynaBean> dynaBeans)
+			throws DatabaseOperationException {
+		executeBatches(connection, model, dynaBeans, BATCH_UPDATE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void update(Database model, Collection<DynaBean> dynaBeans) throws DatabaseOperationException {
+		Connection connection = borrowConnection();
+
+		try {
+			update(connection, model, dynaBeans);
+		} finally {
+			returnConnection(connection);
+		}
+	}
+
+	/**
+	 * Updates or deletes the given beans using JDBC batches. Subsequent beans of the
+	 * same type share one prepared statement, and the batch is executed every
+	 * {@link #getMaxBatchSize()} beans.
+	 * 
+	 * @param connection
+	 *            The connection
+	 * @param model
+	 *            The database model
+	 * @param dynaBeans
+	 *            The beans
+	 * @param operation
+	 *            Either {@link #BATCH_UPDATE} or {@link #BATCH_DELETE}
+	 */
+	private void executeBatches(Connection connection, Database model, Collection<DynaBean> dynaBeans,
+			String operation) throws DatabaseOperationException {
+		SqlDynaClass dynaClass = null;
+		SqlDynaProperty[] primaryKeys = null;
+		SqlDynaProperty[] properties = null;
+		ParameterBindings primaryKeyBinders = null;
+		ParameterBindings binders = null;
+		PreparedStatement statement = null;
+		ArrayList<DynaBean> batchRows = new ArrayList<>();
+
+		try {
+			for (Iterator<DynaBean> it = dynaBeans.iterator(); it.hasNext();) {
+				DynaBean dynaBean = it.next();
+				SqlDynaClass curDynaClass = model.getDynaClassFor(dynaBean);
+
+				if (curDynaClass != dynaClass) {
+					if (dynaClass != null) {
+						executeBatch(statement, batchRows, dynaClass.getTable(), operation, null);
+					}
+					closeStatement(statement);
+					statement = null;
+
+					dynaClass = curDynaClass;
+					primaryKeys = dynaClass.getPrimaryKeyProperties();
+
+					if (primaryKeys.length == 0) {
+						_log.warn("Cannot " + operation + " instances of type " + dynaClass
+								+ " because it has no primary keys");
+						continue;
+					}
+
+					String sql;
+
+					if (BATCH_UPDATE.equals(operation)) {
+						properties = dynaClass.getNonPrimaryKeyProperties();
+						sql = createUpdateSql(model, dynaClass, primaryKeys, properties, null);
+					} else {
+						properties = new SqlDynaProperty[0];
+						sql = createDeleteSql(model, dynaClass, primaryKeys, null);
+					}
+					binders = getParameterBindings(dynaClass, operation, properties);
+					primaryKeyBinders = getParameterBindings(dynaClass, BIND_PRIMARY_KEYS, primaryKeys);
+					if (_log.isDebugEnabled()) {
+						_log.debug("Starting new batch with SQL: " + sql);
+					}
+					try {
+						statement = connection.prepareStatement(sql);
+					} catch (SQLException ex) {
+						throw new DatabaseOperationException("Error while preparing " + operation + " statement", ex);
+					}
+				}
+				if (statement == null) {
+					continue;
+				}
+				try {
+					int sqlIndex = bindParameters(statement, 1, dynaBean, properties, binders);
+
+					bindParameters(statement, sqlIndex, dynaBean, primaryKeys, primaryKeyBinders);
+					statement.addBatch();
+					batchRows.add(dynaBean);
+				} catch (SQLException ex) {
+					throw new DatabaseOperationException("Error while adding batch " + operation, ex);
+				}
+				if ((_maxBatchSize > 0) && (batchRows.size() >= _maxBatchSize)) {
+					// we keep the statement open so that the next chunk can reuse it
+					executeBatch(statement, batchRows, dynaClass.getTable(), operation, null);
+				}
+			}
+			if (dynaClass != null) {
+				executeBatch(statement, batchRows, dynaClass.getTable(), operation, null);
+			}
+		} finally {
+			closeStatement(statement);
+		}
+	}
+
 	/**
 	 * Allows platforms to issue statements directly before rows are updated in the
-	 * specified table.
+	 * specified table. For batch updates, this is called once per batch.
 	 * 
 	 * @param connection
 	 *            The connection used for the update
@@ -2272,7 +3292,7 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 
 	/**
 	 * Allows platforms to issue statements directly after rows have been updated in
-	 * the specified table.
+	 * the specified table. For batch updates, this is called once per batch.
 	 * 
 	 * @param connection
 	 *            The connection used for the update
@@ -2306,63 +3326,196 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 			return false;
 		}
 
-		PreparedStatement stmt = null;
+		PreparedStatement stmt = null;
+		ResultSet resultSet = null;
+		StringBuffer sql = new StringBuffer();
+		boolean succeeded = false;
+
+		try {
+			sql.append("SELECT * FROM ");
+			sql.append(_builder.getDelimitedIdentifier(dynaClass.getTable().getName()));
+			sql.append(" WHERE ");
+
+			for (int idx = 0; idx < primaryKeys.length; idx++) {
+				String key = primaryKeys[idx].getColumn().getName();
+
+				if (idx > 0) {
+					sql.append(" AND ");
+				}
+				sql.append(_builder.getDelimitedIdentifier(key));
+				sql.append("=?");
+			}
+
+			stmt = prepareCachedStatement(connection, sql.toString(), false);
+
+			bindParameters(stmt, 1, dynaBean, primaryKeys,
+					getParameterBindings(dynaClass, BIND_PRIMARY_KEYS, primaryKeys));
+
+			resultSet = stmt.executeQuery();
+
+			boolean result = resultSet.next();
+
+			succeeded = true;
+			return result;
+		} catch (SQLException ex) {
+			throw new DatabaseOperationException("Error while reading from the database", ex);
+		} finally {
+			if (resultSet != null) {
+				try {
+					resultSet.close();
+				} catch (SQLException ex) {
+					// we ignore this one
+				}
+			}
+			releaseCachedStatement(connection, stmt, sql.toString(), false, succeeded);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void store(Database model, DynaBean dynaBean) throws DatabaseOperationException {
+		Connection connection = borrowConnection();
+
+		try {
+			store(connection, model, dynaBean);
+		} finally {
+			returnConnection(connection);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void store(Connection connection, Database model, DynaBean dynaBean) throws DatabaseOperationException {
+		if (exists(connection, model, dynaBean)) {
+			update(connection, model, dynaBean);
+		} else {
+			insert(connection, model, dynaBean);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void store(Database model, Collection<DynaBean> dynaBeans) throws DatabaseOperationException {
+		Connection connection = borrowConnection();
+
+		try {
+			store(connection, model, dynaBeans);
+		} finally {
+			returnConnection(connection);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void store(Connection connection, Database model, Collection<DynaBean> dynaBeans)
+			throws DatabaseOperationException {
+		SqlDynaClass dynaClass = null;
+		SqlDynaProperty[] properties = null;
+		ParameterBindings binders = null;
+		PreparedStatement statement = null;
+		ArrayList<DynaBean> batchRows = new ArrayList<>();
 
 		try {
-			StringBuffer sql = new StringBuffer();
+			for (Iterator<DynaBean> it = dynaBeans.iterator(); it.hasNext();) {
+				DynaBean dynaBean = it.next();
+				SqlDynaClass curDynaClass = model.getDynaClassFor(dynaBean);
 
-			sql.append("SELECT * FROM ");
-			sql.append(_builder.getDelimitedIdentifier(dynaClass.getTable().getName()));
-			sql.append(" WHERE ");
+				if (curDynaClass != dynaClass) {
+					if (dynaClass != null) {
+						executeBatch(statement, batchRows, dynaClass.getTable(), BATCH_STORE, null);
+					}
+					closeStatement(statement);
+					statement = null;
 
-			for (int idx = 0; idx < primaryKeys.length; idx++) {
-				String key = primaryKeys[idx].getColumn().getName();
+					dynaClass = curDynaClass;
+					properties = dynaClass.getSqlDynaProperties();
+					binders = getParameterBindings(dynaClass, BATCH_STORE, properties);
 
-				if (idx > 0) {
-					sql.append(" AND ");
+					String upsertSql = createUpsertSql(model, dynaClass, properties);
+
+					if (upsertSql != null) {
+						if (_log.isDebugEnabled()) {
+							_log.debug("Starting new batch with SQL: " + upsertSql);
+						}
+						try {
+							statement = connection.prepareStatement(upsertSql);
+						} catch (SQLException ex) {
+							throw new DatabaseOperationException("Error while preparing upsert statement", ex);
+						}
+					}
+				}
+				if ((statement == null) || !hasPrimaryKeyValues(dynaClass, dynaBean)) {
+					// we keep the order of the beans
+					executeBatch(statement, batchRows, dynaClass.getTable(), BATCH_STORE, null);
+					store(connection, model, dynaBean);
+					continue;
+				}
+				try {
+					bindParameters(statement, 1, dynaBean, properties, binders);
+					statement.addBatch();
+					batchRows.add(dynaBean);
+				} catch (SQLException ex) {
+					throw new DatabaseOperationException("Error while adding batch upsert", ex);
+				}
+				if ((_maxBatchSize > 0) && (batchRows.size() >= _maxBatchSize)) {
+					executeBatch(statement, batchRows, dynaClass.getTable(), BATCH_STORE, null);
 				}
-				sql.append(_builder.getDelimitedIdentifier(key));
-				sql.append("=?");
 			}
-
-			stmt = connection.prepareStatement(sql.toString());
-
-			for (int idx = 0; idx < primaryKeys.length; idx++) {
-				setObject(stmt, idx + 1, dynaBean, primaryKeys[idx]);
+			if (dynaClass != null) {
+				executeBatch(statement, batchRows, dynaClass.getTable(), BATCH_STORE, null);
 			}
-
-			ResultSet resultSet = stmt.executeQuery();
-
-			return resultSet.next();
-		} catch (SQLException ex) {
-			throw new DatabaseOperationException("Error while reading from the database", ex);
 		} finally {
-			closeStatement(stmt);
+			closeStatement(statement);
 		}
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Creates the SQL for inserting or updating an object of the given type in one
+	 * statement, using the native upsert statement of the database. This is only
+	 * possible if the auto-increment columns of the type (if any) can be written,
+	 * i.e. if identity override is on and supported.
+	 * 
+	 * @param model
+	 *            The database model
+	 * @param dynaClass
+	 *            The type
+	 * @param properties
+	 *            The properties to write
+	 * @return The SQL for a prepared statement, or <code>null</code> if no native
+	 *         upsert is possible
 	 */
-	public void store(Database model, DynaBean dynaBean) throws DatabaseOperationException {
-		Connection connection = borrowConnection();
+	protected String createUpsertSql(Database model, SqlDynaClass dynaClass, SqlDynaProperty[] properties) {
+		Table table = model.findTable(dynaClass.getTableName());
 
-		try {
-			store(connection, model, dynaBean);
-		} finally {
-			returnConnection(connection);
+		if ((table.getAutoIncrementColumns().length > 0)
+				&& (!isIdentityOverrideOn() || !getPlatformInfo().isIdentityOverrideAllowed())) {
+			return null;
 		}
+		return _builder.getUpsertSql(table, toColumnValues(properties, null), true);
 	}
 
 	/**
-	 * {@inheritDoc}
+	 * Determines whether the given bean has values for all primary key columns.
+	 * 
+	 * @param dynaClass
+	 *            The type of the bean
+	 * @param dynaBean
+	 *            The bean
+	 * @return <code>true</code> if all primary key values are given
 	 */
-	public void store(Connection connection, Database model, DynaBean dynaBean) throws DatabaseOperationException {
-		if (exists(connection, model, dynaBean)) {
-			update(connection, model, dynaBean);
-		} else {
-			insert(connection, model, dynaBean);
+	private boolean hasPrimaryKeyValues(SqlDynaClass dynaClass, DynaBean dynaBean) {
+		SqlDynaProperty[] primaryKeys = dynaClass.getPrimaryKeyProperties();
+
+		for (int idx = 0; idx < primaryKeys.length; idx++) {
+			if (dynaBean.get(primaryKeys[idx].getName()) == null) {
+				return false;
+			}
 		}
+		return primaryKeys.length > 0;
 	}
 
 	/**
@@ -2421,6 +3574,8 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 	 */
 	public void delete(Connection connection, Database model, DynaBean dynaBean) throws DatabaseOperationException {
 		PreparedStatement statement = null;
+		String sql = null;
+		boolean succeeded = false;
 
 		try {
 			SqlDynaClass dynaClass = model.getDynaClassFor(dynaBean);
@@ -2431,17 +3586,16 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 				return;
 			}
 
-			String sql = createDeleteSql(model, dynaClass, primaryKeys, null);
+			sql = createDeleteSql(model, dynaClass, primaryKeys, null);
 
 			if (_log.isDebugEnabled()) {
 				_log.debug("About to execute SQL " + sql);
 			}
 
-			statement = connection.prepareStatement(sql);
+			statement = prepareCachedStatement(connection, sql, false);
 
-			for (int idx = 0; idx < primaryKeys.length; idx++) {
-				setObject(statement, idx + 1, dynaBean, primaryKeys[idx]);
-			}
+			bindParameters(statement, 1, dynaBean, primaryKeys,
+					getParameterBindings(dynaClass, BIND_PRIMARY_KEYS, primaryKeys));
 
 			int count = statement.executeUpdate();
 
@@ -2449,10 +3603,32 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 				_log.warn("Attempted to delete a single row " + dynaBean + " in table " + dynaClass.getTableName()
 						+ " but changed " + count + " row(s).");
 			}
+			succeeded = true;
 		} catch (SQLException ex) {
 			throw new DatabaseOperationException("Error while deleting from the database", ex);
 		} finally {
-			closeStatement(statement);
+			releaseCachedStatement(connection, statement, sql, false, succeeded);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void delete(Connection connection, Database model, Collection<DynaBean> dynaBeans)
+			throws DatabaseOperationException {
+		executeBatches(connection, model, dynaBeans, BATCH_DELETE);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void delete(Database model, Collection<DynaBean> dynaBeans) throws DatabaseOperationException {
+		Connection connection = borrowConnection();
+
+		try {
+			delete(connection, model, dynaBeans);
+		} finally {
+			returnConnection(connection);
 		}
 	}
 
@@ -2564,7 +3740,9 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 
 	/**
 	 * Sets a parameter of the prepared statement based on the type of the column of
-	 * the property.
+	 * the property. Note that the methods that write beans to the database use the
+	 * binders created by {@link #createParameterBinder(Column)} instead, unless a
+	 * subclass overrides this method.
 	 * 
 	 * @param statement
 	 *            The statement
@@ -2578,10 +3756,298 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 	 */
 	protected void setObject(PreparedStatement statement, int sqlIndex, DynaBean dynaBean, SqlDynaProperty property)
 			throws SQLException {
-		int typeCode = property.getColumn().getTypeCode();
-		Object value = dynaBean.get(property.getName());
+		ParameterBinder binder;
+
+		if (dynaBean.getDynaClass() instanceof SqlDynaClass) {
+			binder = getParameterBindings((SqlDynaClass) dynaBean.getDynaClass(), property).getBinders()[0];
+		} else {
+			binder = createParameterBinder(property.getColumn());
+		}
+		binder.bind(statement, sqlIndex, dynaBean.get(property.getName()));
+	}
+
+	/**
+	 * Sets the parameters of the prepared statement to the values of the given
+	 * properties of the bean. If a subclass overrides
+	 * {@link #setObject(PreparedStatement, int, DynaBean, SqlDynaProperty)}, the
+	 * parameters are set via that method instead of the binders.
+	 * 
+	 * @param statement
+	 *            The statement
+	 * @param sqlIndex
+	 *            The index of the first parameter to set
+	 * @param dynaBean
+	 *            The bean of which to take the values
+	 * @param properties
+	 *            The properties
+	 * @param bindings
+	 *            The binders for the properties
+	 * @return The index of the parameter after the last set one
+	 */
+	private int bindParameters(PreparedStatement statement, int sqlIndex, DynaBean dynaBean,
+			SqlDynaProperty[] properties, ParameterBindings bindings) throws SQLException {
+		if (_setObjectOverridden) {
+			for (int idx = 0; idx < properties.length; idx++) {
+				setObject(statement, sqlIndex++, dynaBean, properties[idx]);
+			}
+		} else if ((dynaBean instanceof SqlDynaBean) && bindings.isIndexedFor(dynaBean.getDynaClass())) {
+			SqlDynaBean sqlDynaBean = (SqlDynaBean) dynaBean;
+			ParameterBinder[] binders = bindings.getBinders();
+			int[] propertyIndices = bindings.getPropertyIndices();
+
+			for (int idx = 0; idx < properties.length; idx++) {
+				binders[idx].bind(statement, sqlIndex++, sqlDynaBean.get(propertyIndices[idx]));
+			}
+		} else {
+			ParameterBinder[] binders = bindings.getBinders();
+
+			for (int idx = 0; idx < properties.length; idx++) {
+				binders[idx].bind(statement, sqlIndex++, dynaBean.get(properties[idx].getName()));
+			}
+		}
+		return sqlIndex;
+	}
+
+	/**
+	 * Returns the binders for the given properties of the dyna class. The binders are
+	 * created once per dyna class and operation, and created anew only if the
+	 * properties of the operation differ from the last time, e.g. because an insert
+	 * omits different identity columns.
+	 * 
+	 * @param dynaClass
+	 *            The dyna class
+	 * @param operation
+	 *            The operation that binds the properties
+	 * @param properties
+	 *            The properties
+	 * @return The binders
+	 */
+	private ParameterBindings getParameterBindings(SqlDynaClass dynaClass, String operation,
+			SqlDynaProperty[] properties) {
+		Map<Object, ParameterBindings> bindingsPerOperation = getParameterBindings(dynaClass);
+		ParameterBindings bindings = bindingsPerOperation.get(operation);
+
+		if ((bindings == null) || !bindings.isFor(properties)) {
+			bindings = createParameterBindings(dynaClass, properties);
+			bindingsPerOperation.put(operation, bindings);
+		}
+		return bindings;
+	}
 
-		setStatementParameterValue(statement, sqlIndex, typeCode, value);
+	/**
+	 * Returns the binder for the given single property of the dyna class, as used
+	 * by {@link #setObject(PreparedStatement, int, DynaBean, SqlDynaProperty)}. The
+	 * binder is cached alongside those of the operations, keyed by the property.
+	 * 
+	 * @param dynaClass
+	 *            The dyna class
+	 * @param property
+	 *            The property
+	 * @return The bindings containing the binder for the property
+	 */
+	private ParameterBindings getParameterBindings(SqlDynaClass dynaClass, SqlDynaProperty property) {
+		Map<Object, ParameterBindings> bindingsPerOperation = getParameterBindings(dynaClass);
+		ParameterBindings bindings = bindingsPerOperation.get(property);
+
+		if ((bindings == null) || !bindings.isFor(property)) {
+			bindings = createParameterBindings(dynaClass, new SqlDynaProperty[] { property });
+			bindingsPerOperation.put(property, bindings);
+		}
+		return bindings;
+	}
+
+	/**
+	 * Returns the cached bindings of the given dyna class, keyed by the operation
+	 * or, for single properties, by the property.
+	 * 
+	 * @param dynaClass
+	 *            The dyna class
+	 * @return The bindings
+	 */
+	private Map<Object, ParameterBindings> getParameterBindings(SqlDynaClass dynaClass) {
+		synchronized (_parameterBindings) {
+			Map<Object, ParameterBindings> bindingsPerOperation = _parameterBindings.get(dynaClass);
+
+			if (bindingsPerOperation == null) {
+				bindingsPerOperation = new ConcurrentHashMap<>();
+				_parameterBindings.put(dynaClass, bindingsPerOperation);
+			}
+			return bindingsPerOperation;
+		}
+	}
+
+	/**
+	 * Creates the binders for the given properties of the dyna class.
+	 * 
+	 * @param dynaClass
+	 *            The dyna class
+	 * @param properties
+	 *            The properties
+	 * @return The bindings
+	 */
+	private ParameterBindings createParameterBindings(SqlDynaClass dynaClass, SqlDynaProperty[] properties) {
+		ParameterBinder[] binders = new ParameterBinder[properties.length];
+		int[] propertyIndices = new int[properties.length];
+
+		for (int idx = 0; idx < properties.length; idx++) {
+			binders[idx] = createParameterBinder(properties[idx].getColumn());
+			propertyIndices[idx] = dynaClass.getPropertyIndex(properties[idx].getName());
+		}
+		return new ParameterBindings(dynaClass, properties, binders, propertyIndices);
+	}
+
+	/**
+	 * Determines whether the class of this platform overrides the given method.
+	 * 
+	 * @param name
+	 *            The name of the method
+	 * @param parameterTypes
+	 *            The parameter types of the method
+	 * @return <code>true</code> if the method is overridden
+	 */
+	private boolean isOverridden(String name, Class<?>... parameterTypes) {
+		for (Class<?> type = getClass(); type != PlatformImplBase.class; type = type.getSuperclass()) {
+			try {
+				type.getDeclaredMethod(name, parameterTypes);
+				return true;
+			} catch (NoSuchMethodException ex) {
+				// not declared in this class
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates the binder for values of the given column. The default implementation
+	 * uses a binder that calls the setter for the type of value expected for the
+	 * JDBC type of the column directly, and that hands any other value to
+	 * {@link #setStatementParameterValue(PreparedStatement, int, int, Object)}.
+	 * If a subclass overrides the latter, all values are handed to it instead.
+	 * Platforms can override this to bind values of specific columns differently.
+	 * 
+	 * @param column
+	 *            The column
+	 * @return The binder
+	 */
+	protected ParameterBinder createParameterBinder(Column column) {
+		final int typeCode = column.getTypeCode();
+
+		if (_setStatementParameterValueOverridden) {
+			return new ParameterBinder() {
+				public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException {
+					setStatementParameterValue(statement, sqlIndex, typeCode, value);
+				}
+			};
+		}
+		switch (typeCode) {
+		case Types.CHAR:
+		case Types.VARCHAR:
+		case Types.LONGVARCHAR:
+		case Types.CLOB:
+			return new ParameterBinder() {
+				public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException {
+					if (value instanceof String) {
+						statement.setString(sqlIndex, (String) value);
+					} else {
+						setStatementParameterValue(statement, sqlIndex, typeCode, value);
+					}
+				}
+			};
+		case Types.TINYINT:
+		case Types.SMALLINT:
+			return new ParameterBinder() {
+				public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException {
+					if (value instanceof Short) {
+						statement.setShort(sqlIndex, ((Short) value).shortValue());
+					} else {
+						setStatementParameterValue(statement, sqlIndex, typeCode, value);
+					}
+				}
+			};
+		case Types.INTEGER:
+			return new ParameterBinder() {
+				public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException {
+					if (value instanceof Integer) {
+						statement.setInt(sqlIndex, ((Integer) value).intValue());
+					} else {
+						setStatementParameterValue(statement, sqlIndex, typeCode, value);
+					}
+				}
+			};
+		case Types.BIGINT:
+			return new ParameterBinder() {
+				public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException {
+					if (value instanceof Long) {
+						statement.setLong(sqlIndex, ((Long) value).longValue());
+					} else {
+						setStatementParameterValue(statement, sqlIndex, typeCode, value);
+					}
+				}
+			};
+		case Types.DECIMAL:
+		case Types.NUMERIC:
+			return new ParameterBinder() {
+				public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException {
+					if (value instanceof BigDecimal) {
+						// setObject assumes a scale of 0, so we rather use the typed setter
+						statement.setBigDecimal(sqlIndex, (BigDecimal) value);
+					} else {
+						setStatementParameterValue(statement, sqlIndex, typeCode, value);
+					}
+				}
+			};
+		case Types.REAL:
+			return new ParameterBinder() {
+				public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException {
+					if (value instanceof Float) {
+						statement.setFloat(sqlIndex, ((Float) value).floatValue());
+					} else {
+						setStatementParameterValue(statement, sqlIndex, typeCode, value);
+					}
+				}
+			};
+		case Types.FLOAT:
+		case Types.DOUBLE:
+			return new ParameterBinder() {
+				public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException {
+					if (value instanceof Double) {
+						statement.setDouble(sqlIndex, ((Double) value).doubleValue());
+					} else {
+						setStatementParameterValue(statement, sqlIndex, typeCode, value);
+					}
+				}
+			};
+		case Types.BIT:
+		case Types.BOOLEAN:
+			return new ParameterBinder() {
+				public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException {
+					if (value instanceof Boolean) {
+						statement.setBoolean(sqlIndex, ((Boolean) value).booleanValue());
+					} else {
+						setStatementParameterValue(statement, sqlIndex, typeCode, value);
+					}
+				}
+			};
+		case Types.BINARY:
+		case Types.VARBINARY:
+		case Types.LONGVARBINARY:
+		case Types.BLOB:
+			return new ParameterBinder() {
+				public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException {
+					if (value instanceof byte[]) {
+						statement.setBytes(sqlIndex, (byte[]) value);
+					} else {
+						setStatementParameterValue(statement, sqlIndex, typeCode, value);
+					}
+				}
+			};
+		default:
+			return new ParameterBinder() {
+				public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException {
+					setStatementParameterValue(statement, sqlIndex, typeCode, value);
+				}
+			};
+		}
 	}
 
 	/**
@@ -2654,21 +4120,7 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 		Object value = null;
 
 		if (column != null) {
-			int originalJdbcType = column.getTypeCode();
-			int targetJdbcType = getPlatformInfo().getTargetJdbcType(originalJdbcType);
-			int jdbcType = originalJdbcType;
-
-			// in general we're trying to retrieve the value using the original type
-			// but sometimes we also need the target type:
-			if ((originalJdbcType == Types.BLOB) && (targetJdbcType != Types.BLOB)) {
-				// we should not use the Blob interface if the database doesn't map to this type
-				jdbcType = targetJdbcType;
-			}
-			if ((originalJdbcType == Types.CLOB) && (targetJdbcType != Types.CLOB)) {
-				// we should not use the Clob interface if the database doesn't map to this type
-				jdbcType = targetJdbcType;
-			}
-			value = extractColumnValue(resultSet, columnName, 0, jdbcType);
+			value = extractColumnValue(resultSet, columnName, 0, getJdbcTypeForExtraction(column));
 		} else {
 			value = resultSet.getObject(columnName);
 		}
@@ -2688,23 +4140,35 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 	 * @return The value
 	 */
 	protected Object getObjectFromResultSet(ResultSet resultSet, Column column, int idx) throws SQLException {
+		Object value = extractColumnValue(resultSet, null, idx, getJdbcTypeForExtraction(column));
+
+		return resultSet.wasNull() ? null : value;
+	}
+
+	/**
+	 * Determines the jdbc type that is used for retrieving values of the given
+	 * column from a result set.
+	 * 
+	 * @param column
+	 *            The column
+	 * @return The jdbc type to pass to
+	 *         {@link #extractColumnValue(ResultSet, String, int, int)}
+	 */
+	protected int getJdbcTypeForExtraction(Column column) {
 		int originalJdbcType = column.getTypeCode();
 		int targetJdbcType = getPlatformInfo().getTargetJdbcType(originalJdbcType);
-		int jdbcType = originalJdbcType;
-		Object value = null;
 
 		// in general we're trying to retrieve the value using the original type
 		// but sometimes we also need the target type:
 		if ((originalJdbcType == Types.BLOB) && (targetJdbcType != Types.BLOB)) {
 			// we should not use the Blob interface if the database doesn't map to this type
-			jdbcType = targetJdbcType;
+			return targetJdbcType;
 		}
 		if ((originalJdbcType == Types.CLOB) && (targetJdbcType != Types.CLOB)) {
 			// we should not use the Clob interface if the database doesn't map to this type
-			jdbcType = targetJdbcType;
+			return targetJdbcType;
 		}
-		value = extractColumnValue(resultSet, null, idx, jdbcType);
-		return resultSet.wasNull() ? null : value;
+		return originalJdbcType;
 	}
 
 	/**
@@ -2844,4 +4308,98 @@ public abstract class PlatformImplBase extends JdbcSupport implements Platform {
 			Table[] queryHints) {
 		return new ModelBasedResultSetIterator(this, model, resultSet, queryHints, true);
 	}
+
+	/**
+	 * The binders created for the properties bound by an operation.
+	 */
+	private static final class ParameterBindings {
+		/** The dyna class, weakly referenced as it is the key of the cache. */
+		private final WeakReference<SqlDynaClass> _dynaClass;
+		/** The properties. */
+		private final SqlDynaProperty[] _properties;
+		/** The binders for the properties. */
+		private final ParameterBinder[] _binders;
+		/** The indices of the properties in the dyna class. */
+		private final int[] _propertyIndices;
+
+		/**
+		 * Creates a new bindings object.
+		 * 
+		 * @param dynaClass
+		 *            The dyna class
+		 * @param properties
+		 *            The properties
+		 * @param binders
+		 *            The binders for the properties
+		 * @param propertyIndices
+		 *            The indices of the properties in the dyna class
+		 */
+		ParameterBindings(SqlDynaClass dynaClass, SqlDynaProperty[] properties, ParameterBinder[] binders,
+				int[] propertyIndices) {
+			_dynaClass = new WeakReference<>(dynaClass);
+			_properties = properties;
+			_binders = binders;
+			_propertyIndices = propertyIndices;
+		}
+
+		/**
+		 * Determines whether the property indices can be used to read the values of
+		 * beans of the given dyna class.
+		 * 
+		 * @param dynaClass
+		 *            The dyna class of the beans
+		 * @return <code>true</code> if the property indices are those of the dyna class
+		 */
+		boolean isIndexedFor(Object dynaClass) {
+			return _dynaClass.get() == dynaClass;
+		}
+
+		/**
+		 * Returns the indices of the properties in the dyna class.
+		 * 
+		 * @return The indices, in the order of the properties
+		 */
+		int[] getPropertyIndices() {
+			return _propertyIndices;
+		}
+
+		/**
+		 * Determines whether these are the bindings for the given single property.
+		 * 
+		 * @param property
+		 *            The property
+		 * @return <code>true</code> if the property is the only bound one
+		 */
+		boolean isFor(SqlDynaProperty property) {
+			return (_properties.length == 1) && (_properties[0] == property);
+		}
+
+		/**
+		 * Determines whether these are the bindings for the given properties.
+		 * 
+		 * @param properties
+		 *            The properties
+		 * @return <code>true</code> if the properties are the same
+		 */
+		boolean isFor(SqlDynaProperty[] properties) {
+			if (properties.length != _properties.length) {
+				return false;
+			}
+			for (int idx = 0; idx < properties.length; idx++) {
+				if (properties[idx] != _properties[idx]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the binders.
+		 * 
+		 * @return The binders, in the order of the properties
+		 */
+		ParameterBinder[] getBinders() {
+			return _binders;
+		}
+	}
 }
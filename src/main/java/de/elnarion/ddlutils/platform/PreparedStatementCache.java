@@ -0,0 +1,220 @@
+package de.elnarion.ddlutils.platform;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A bounded cache of the prepared statements of one connection. The statements are
+ * identified by their SQL which determines the table, the operation and the columns,
+ * and by whether they return the generated keys. If the cache is full, then the least
+ * recently used statement is closed and removed from it.<br/>
+ * The caches created by {@link de.elnarion.ddlutils.Platform#openStatementCache(Connection)}
+ * are meant to be used in a try-with-resources block, and closing them ends the caching
+ * for the connection.
+ *
+ * @version $Revision: $
+ */
+public class PreparedStatementCache implements AutoCloseable
+{
+    /** The log for this cache. */
+    private final Log _log = LogFactory.getLog(PreparedStatementCache.class);
+
+    /** The connection. */
+    private final Connection _connection;
+    /** The maximum number of cached statements. */
+    private final int _maxSize;
+    /** The cached statements in the order of their last use. */
+    private final LinkedHashMap<String, PreparedStatement> _statements;
+    /** The number of requests that were served from the cache. */
+    private int _hitCount;
+    /** The number of requests that required to prepare a new statement. */
+    private int _missCount;
+
+    /**
+     * Creates a new cache for the given connection.
+     *
+     * @param connection The connection
+     * @param maxSize    The maximum number of cached statements
+     */
+    public PreparedStatementCache(Connection connection, int maxSize)
+    {
+        _connection = connection;
+        _maxSize    = maxSize;
+        _statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest)
+            {
+                if (size() > _maxSize)
+                {
+                    closeStatement(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the connection whose statements are cached.
+     *
+     * @return The connection
+     */
+    public Connection getConnection()
+    {
+        return _connection;
+    }
+
+    /**
+     * Returns the maximum number of cached statements.
+     *
+     * @return The maximum size
+     */
+    public int getMaxSize()
+    {
+        return _maxSize;
+    }
+
+    /**
+     * Returns the number of currently cached statements.
+     *
+     * @return The number of statements
+     */
+    public int getSize()
+    {
+        return _statements.size();
+    }
+
+    /**
+     * Returns the number of requests that were served by a cached statement.
+     *
+     * @return The number of cache hits
+     */
+    public int getHitCount()
+    {
+        return _hitCount;
+    }
+
+    /**
+     * Returns the number of requests for which a new statement had to be prepared.
+     *
+     * @return The number of cache misses
+     */
+    public int getMissCount()
+    {
+        return _missCount;
+    }
+
+    /**
+     * Returns the prepared statement for the given SQL, and prepares it if it is not
+     * cached yet.
+     *
+     * @param sql                 The SQL
+     * @param returnGeneratedKeys Whether the statement shall return the keys generated
+     *                            by the database
+     * @return The prepared statement
+     */
+    public PreparedStatement prepareStatement(String sql, boolean returnGeneratedKeys) throws SQLException
+    {
+        String            key       = getKey(sql, returnGeneratedKeys);
+        PreparedStatement statement = _statements.get(key);
+
+        if (statement != null)
+        {
+            _hitCount++;
+        }
+        else
+        {
+            _missCount++;
+            statement = returnGeneratedKeys ? _connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                                            : _connection.prepareStatement(sql);
+            _statements.put(key, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * Removes the statement for the given SQL from the cache and closes it. This is
+     * used if the statement may be in an unusable state, e.g. after an error.
+     *
+     * @param sql                 The SQL
+     * @param returnGeneratedKeys Whether the statement returns the generated keys
+     */
+    public void invalidate(String sql, boolean returnGeneratedKeys)
+    {
+        closeStatement(_statements.remove(getKey(sql, returnGeneratedKeys)));
+    }
+
+    /**
+     * Closes all cached statements and clears the cache. The cache can be used
+     * afterwards, though it then prepares the statements anew.
+     */
+    public void close()
+    {
+        for (Iterator<PreparedStatement> it = _statements.values().iterator(); it.hasNext();)
+        {
+            closeStatement(it.next());
+        }
+        _statements.clear();
+    }
+
+    /**
+     * Determines the key of the statement for the given SQL.
+     *
+     * @param sql                 The SQL
+     * @param returnGeneratedKeys Whether the statement returns the generated keys
+     * @return The key
+     */
+    private String getKey(String sql, boolean returnGeneratedKeys)
+    {
+        return returnGeneratedKeys ? "+" + sql : sql;
+    }
+
+    /**
+     * Closes the given statement.
+     *
+     * @param statement The statement, can be <code>null</code>
+     */
+    private void closeStatement(Statement statement)
+    {
+        if (statement != null)
+        {
+            try
+            {
+                statement.close();
+            }
+            catch (SQLException ex)
+            {
+                _log.debug("Ignoring exception that occurred while closing statement", ex);
+            }
+        }
+    }
+}
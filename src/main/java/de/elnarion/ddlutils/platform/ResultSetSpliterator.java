@@ -0,0 +1,119 @@
+package de.elnarion.ddlutils.platform;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+import org.apache.commons.beanutils.DynaBean;
+
+/**
+ * A spliterator over the beans of a {@link ModelBasedResultSetIterator}. When split, it
+ * reads the next chunk of rows (of a fixed size) from the result set and hands them out
+ * as a separate spliterator, so that the beans can be processed in parallel while the
+ * result set itself is only read by one thread at a time.
+ * 
+ * @version $Revision: $
+ */
+public class ResultSetSpliterator implements Spliterator<DynaBean>
+{
+    /** The default number of rows per chunk. */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /** The characteristics of this spliterator and of the chunks. */
+    private static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.NONNULL;
+
+    /** The iterator over the rows. */
+    private final ModelBasedResultSetIterator _iterator;
+    /** The number of rows per chunk. */
+    private final int _batchSize;
+
+    /**
+     * Creates a new spliterator.
+     * 
+     * @param iterator  The iterator over the rows
+     * @param batchSize The number of rows per chunk
+     */
+    public ResultSetSpliterator(ModelBasedResultSetIterator iterator, int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+        _iterator  = iterator;
+        _batchSize = batchSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean tryAdvance(Consumer<? super DynaBean> action)
+    {
+        if (!_iterator.hasNext())
+        {
+            return false;
+        }
+        action.accept(_iterator.next());
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void forEachRemaining(Consumer<? super DynaBean> action)
+    {
+        while (_iterator.hasNext())
+        {
+            action.accept(_iterator.next());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Spliterator<DynaBean> trySplit()
+    {
+        Object[] batch = new Object[_batchSize];
+        int      count = 0;
+
+        while ((count < _batchSize) && _iterator.hasNext())
+        {
+            batch[count++] = _iterator.next();
+        }
+        return count == 0 ? null : Spliterators.<DynaBean>spliterator(batch, 0, count, CHARACTERISTICS);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long estimateSize()
+    {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int characteristics()
+    {
+        return CHARACTERISTICS;
+    }
+}
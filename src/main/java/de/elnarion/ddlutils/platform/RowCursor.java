@@ -0,0 +1,351 @@
+package de.elnarion.ddlutils.platform;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import de.elnarion.ddlutils.DatabaseOperationException;
+import de.elnarion.ddlutils.model.Column;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Table;
+
+/**
+ * Gives access to the values of the current row of a result set via the ordinal of the
+ * column in the result (starting at 0). The columns of the result set are resolved once
+ * against the model when the cursor is created, using the table names reported by the
+ * JDBC driver or otherwise the given query hints, so that {@link #getObject(int)} reads
+ * the values in the same way as the beans returned by the other query methods.<br>
+ * The typed accessors directly use the corresponding methods of the result set, and thus
+ * do not create objects for primitive values; use {@link #wasNull()} to check whether the
+ * last read value was <code>NULL</code>.
+ * 
+ * @version $Revision: $
+ */
+public class RowCursor
+{
+    /** The platform. */
+    private final PlatformImplBase _platform;
+    /** The result set. */
+    private final ResultSet _resultSet;
+    /** The names of the columns of the result set. */
+    private final String[] _columnNames;
+    /** The columns of the model corresponding to the columns of the result set, if known. */
+    private final Column[] _columns;
+    /** The jdbc types used for reading the values via {@link #getObject(int)}. */
+    private final int[] _jdbcTypes;
+
+    /**
+     * Creates a new cursor for the given result set.
+     * 
+     * @param platform   The platform
+     * @param model      The database model
+     * @param resultSet  The result set
+     * @param queryHints The tables that were queried in the query that produced the given result set
+     *                   (optional)
+     * @throws SQLException If the metadata of the result set could not be read
+     */
+    public RowCursor(PlatformImplBase platform, Database model, ResultSet resultSet, Table[] queryHints) throws SQLException
+    {
+        ResultSetMetaData metaData      = resultSet.getMetaData();
+        boolean           caseSensitive = platform.isDelimitedIdentifierModeOn();
+        int               columnCount   = metaData.getColumnCount();
+
+        _platform    = platform;
+        _resultSet   = resultSet;
+        _columnNames = new String[columnCount];
+        _columns     = new Column[columnCount];
+        _jdbcTypes   = new int[columnCount];
+
+        for (int idx = 0; idx < columnCount; idx++)
+        {
+            String columnName = metaData.getColumnName(idx + 1);
+            String tableName  = metaData.getTableName(idx + 1);
+            Table  table      = null;
+
+            if ((tableName != null) && (tableName.length() > 0))
+            {
+                table = model.findTable(tableName, caseSensitive);
+            }
+            for (int tableIdx = 0; (table == null) && (queryHints != null) && (tableIdx < queryHints.length); tableIdx++)
+            {
+                if (queryHints[tableIdx].findColumn(columnName, caseSensitive) != null)
+                {
+                    table = queryHints[tableIdx];
+                }
+            }
+            _columnNames[idx] = columnName;
+            _columns[idx]     = (table == null ? null : table.findColumn(columnName, caseSensitive));
+            _jdbcTypes[idx]   = (_columns[idx] == null ? Integer.MIN_VALUE : platform.getJdbcTypeForExtraction(_columns[idx]));
+        }
+    }
+
+    /**
+     * Returns the number of columns of the result.
+     * 
+     * @return The number of columns
+     */
+    public int getColumnCount()
+    {
+        return _columnNames.length;
+    }
+
+    /**
+     * Returns the name of the indicated column as reported by the JDBC driver.
+     * 
+     * @param columnIdx The ordinal of the column, starting at 0
+     * @return The column name
+     */
+    public String getColumnName(int columnIdx)
+    {
+        return _columnNames[columnIdx];
+    }
+
+    /**
+     * Returns the column of the model that corresponds to the indicated column of the result.
+     * 
+     * @param columnIdx The ordinal of the column, starting at 0
+     * @return The column or <code>null</code> if the column of the result could not be resolved
+     */
+    public Column getColumn(int columnIdx)
+    {
+        return _columns[columnIdx];
+    }
+
+    /**
+     * Returns the ordinal of the result column of the given name.
+     * 
+     * @param columnName The name of the column
+     * @return The ordinal of the column, or <code>-1</code> if there is no such column
+     */
+    public int findColumnIndex(String columnName)
+    {
+        boolean caseSensitive = _platform.isDelimitedIdentifierModeOn();
+
+        for (int idx = 0; idx < _columnNames.length; idx++)
+        {
+            String name = (_columns[idx] == null ? _columnNames[idx] : _columns[idx].getName());
+
+            if (caseSensitive ? name.equals(columnName) : name.equalsIgnoreCase(columnName))
+            {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value of the indicated column, read according to the type of the
+     * corresponding column of the model if known.
+     * 
+     * @param columnIdx The ordinal of the column, starting at 0
+     * @return The value, <code>null</code> if the value is <code>NULL</code>
+     */
+    public Object getObject(int columnIdx) throws DatabaseOperationException
+    {
+        try
+        {
+            Object value = (_columns[columnIdx] == null ? _resultSet.getObject(columnIdx + 1)
+                                                        : _platform.extractColumnValue(_resultSet, null, columnIdx + 1, _jdbcTypes[columnIdx]));
+
+            return _resultSet.wasNull() ? null : value;
+        }
+        catch (SQLException ex)
+        {
+            throw createException(columnIdx, ex);
+        }
+    }
+
+    /**
+     * Returns the value of the indicated column as a string.
+     * 
+     * @param columnIdx The ordinal of the column, starting at 0
+     * @return The value, <code>null</code> if the value is <code>NULL</code>
+     */
+    public String getString(int columnIdx) throws DatabaseOperationException
+    {
+        try
+        {
+            return _resultSet.getString(columnIdx + 1);
+        }
+        catch (SQLException ex)
+        {
+            throw createException(columnIdx, ex);
+        }
+    }
+
+    /**
+     * Returns the value of the indicated column as an int.
+     * 
+     * @param columnIdx The ordinal of the column, starting at 0
+     * @return The value, <code>0</code> if the value is <code>NULL</code>
+     */
+    public int getInt(int columnIdx) throws DatabaseOperationException
+    {
+        try
+        {
+            return _resultSet.getInt(columnIdx + 1);
+        }
+        catch (SQLException ex)
+        {
+            throw createException(columnIdx, ex);
+        }
+    }
+
+    /**
+     * Returns the value of the indicated column as a long.
+     * 
+     * @param columnIdx The ordinal of the column, starting at 0
+     * @return The value, <code>0</code> if the value is <code>NULL</code>
+     */
+    public long getLong(int columnIdx) throws DatabaseOperationException
+    {
+        try
+        {
+            return _resultSet.getLong(columnIdx + 1);
+        }
+        catch (SQLException ex)
+        {
+            throw createException(columnIdx, ex);
+        }
+    }
+
+    /**
+     * Returns the value of the indicated column as a double.
+     * 
+     * @param columnIdx The ordinal of the column, starting at 0
+     * @return The value, <code>0</code> if the value is <code>NULL</code>
+     */
+    public double getDouble(int columnIdx) throws DatabaseOperationException
+    {
+        try
+        {
+            return _resultSet.getDouble(columnIdx + 1);
+        }
+        catch (SQLException ex)
+        {
+            throw createException(columnIdx, ex);
+        }
+    }
+
+    /**
+     * Returns the value of the indicated column as a boolean.
+     * 
+     * @param columnIdx The ordinal of the column, starting at 0
+     * @return The value, <code>false</code> if the value is <code>NULL</code>
+     */
+    public boolean getBoolean(int columnIdx) throws DatabaseOperationException
+    {
+        try
+        {
+            return _resultSet.getBoolean(columnIdx + 1);
+        }
+        catch (SQLException ex)
+        {
+            throw createException(columnIdx, ex);
+        }
+    }
+
+    /**
+     * Returns the value of the indicated column as a big decimal.
+     * 
+     * @param columnIdx The ordinal of the column, starting at 0
+     * @return The value, <code>null</code> if the value is <code>NULL</code>
+     */
+    public BigDecimal getBigDecimal(int columnIdx) throws DatabaseOperationException
+    {
+        try
+        {
+            return _resultSet.getBigDecimal(columnIdx + 1);
+        }
+        catch (SQLException ex)
+        {
+            throw createException(columnIdx, ex);
+        }
+    }
+
+    /**
+     * Returns the value of the indicated column as a timestamp.
+     * 
+     * @param columnIdx The ordinal of the column, starting at 0
+     * @return The value, <code>null</code> if the value is <code>NULL</code>
+     */
+    public Timestamp getTimestamp(int columnIdx) throws DatabaseOperationException
+    {
+        try
+        {
+            return _resultSet.getTimestamp(columnIdx + 1);
+        }
+        catch (SQLException ex)
+        {
+            throw createException(columnIdx, ex);
+        }
+    }
+
+    /**
+     * Returns the value of the indicated column as a byte array.
+     * 
+     * @param columnIdx The ordinal of the column, starting at 0
+     * @return The value, <code>null</code> if the value is <code>NULL</code>
+     */
+    public byte[] getBytes(int columnIdx) throws DatabaseOperationException
+    {
+        try
+        {
+            return _resultSet.getBytes(columnIdx + 1);
+        }
+        catch (SQLException ex)
+        {
+            throw createException(columnIdx, ex);
+        }
+    }
+
+    /**
+     * Determines whether the last value read from this cursor was <code>NULL</code>.
+     * 
+     * @return <code>true</code> if the last value was <code>NULL</code>
+     */
+    public boolean wasNull() throws DatabaseOperationException
+    {
+        try
+        {
+            return _resultSet.wasNull();
+        }
+        catch (SQLException ex)
+        {
+            throw new DatabaseOperationException("Could not read the row from the result set", ex);
+        }
+    }
+
+    /**
+     * Creates the exception for a failure to read the value of a column.
+     * 
+     * @param columnIdx The ordinal of the column
+     * @param ex        The cause
+     * @return The exception
+     */
+    private DatabaseOperationException createException(int columnIdx, SQLException ex)
+    {
+        return new DatabaseOperationException("Could not read the value of column " + _columnNames[columnIdx] + " from the result set", ex);
+    }
+}
@@ -0,0 +1,44 @@
+package de.elnarion.ddlutils.platform;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import de.elnarion.ddlutils.DatabaseOperationException;
+
+/**
+ * Receives the rows of a query performed via
+ * {@link de.elnarion.ddlutils.Platform#forEachRow(de.elnarion.ddlutils.model.Database, String, java.util.Collection, de.elnarion.ddlutils.model.Table[], RowHandler)}
+ * one at a time. Other than the bean-based queries, no objects are created per row;
+ * instead the handler reads the values it needs from the given cursor.
+ * 
+ * @version $Revision: $
+ */
+public interface RowHandler
+{
+    /**
+     * Handles the current row. The cursor is positioned on the row only for the duration
+     * of this call, and is reused for the following rows.
+     * 
+     * @param row The cursor positioned on the row
+     * @return <code>true</code> if the query shall continue with the next row, <code>false</code>
+     *         if no further rows shall be read
+     * @throws DatabaseOperationException If the row could not be handled
+     */
+    public boolean handleRow(RowCursor row) throws DatabaseOperationException;
+}
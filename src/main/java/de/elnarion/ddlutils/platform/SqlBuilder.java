@@ -25,10 +25,15 @@ import java.rmi.server.UID;
 import java.sql.Types;
 import java.text.DateFormat;
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import org.apache.commons.collections.map.ListOrderedMap;
 import org.apache.commons.lang.StringUtils;
@@ -68,6 +73,14 @@ public abstract class SqlBuilder
     private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n");
     /** The placeholder for the size value in the native type spec. */
     protected static final String SIZE_PLACEHOLDER = "{0}";
+    /** The name of the column that paginated queries may add to number the rows. The values of this
+        column are not read into the resulting beans. */
+    public static final String PAGINATION_ROW_NUMBER_COLUMN = "DDLUTILS_ROW_NUMBER";
+    /** The keywords that prevent adding a pagination clause when used in the outermost query. Besides
+        the clauses that already restrict the rows, these are the clauses that have to come last, like
+        <code>FOR UPDATE</code>, MySql's <code>LOCK IN SHARE MODE</code> and Sql Server's <code>OPTION (...)</code>. */
+    private static final Set<String> NON_PAGINATABLE_KEYWORDS = new HashSet<String>(Arrays.asList(
+        "LIMIT", "OFFSET", "FETCH", "TOP", "ROWS", "FOR", "INTO", "LOCK", "OPTION"));
 
     /** The Log to which logging calls will be made. */
     protected final Log _log = LogFactory.getLog(SqlBuilder.class);
@@ -862,6 +875,263 @@ public abstract class SqlBuilder
         printEndOfStatement();
     }
 
+    /**
+     * Outputs the statements that disable the checking of the foreign keys of the tables in
+     * the given model, so that rows can be inserted regardless of the order of their
+     * dependencies. Per default, nothing is written as there is no standard way to do this;
+     * platforms that support it override this method together with
+     * {@link #enableReferentialIntegrity(Database)}, and advertise this via
+     * {@link de.elnarion.ddlutils.PlatformInfo#isReferentialIntegrityDisablingSupported()}.
+     * 
+     * @param database The database model
+     * @throws IOException 
+     */
+    public void disableReferentialIntegrity(Database database) throws IOException
+    {}
+
+    /**
+     * Outputs the statements that enable the checking of the foreign keys of the tables in
+     * the given model again after {@link #disableReferentialIntegrity(Database)}. Whether
+     * the database checks the existing rows at this point depends on the platform.
+     * 
+     * @param database The database model
+     * @throws IOException 
+     */
+    public void enableReferentialIntegrity(Database database) throws IOException
+    {}
+
+    /**
+     * Creates the query that counts the rows of the given table whose values for the given
+     * foreign key do not match a row in the referenced table. Rows with a <code>NULL</code>
+     * value in one of the foreign key columns are not counted.
+     * 
+     * @param table      The table owning the foreign key
+     * @param foreignKey The foreign key
+     * @return The SQL query
+     */
+    public String getOrphanedRowCountSql(Table table, ForeignKey foreignKey)
+    {
+        StringBuffer buffer = new StringBuffer();
+
+        buffer.append("SELECT COUNT(*) FROM ");
+        buffer.append(getDelimitedIdentifier(getTableName(table)));
+        buffer.append(" S WHERE ");
+        for (int idx = 0; idx < foreignKey.getReferenceCount(); idx++)
+        {
+            buffer.append("S.");
+            buffer.append(getDelimitedIdentifier(foreignKey.getReference(idx).getLocalColumnName()));
+            buffer.append(" IS NOT NULL AND ");
+        }
+        buffer.append("NOT EXISTS (SELECT 1 FROM ");
+        buffer.append(getDelimitedIdentifier(getTableName(foreignKey.getForeignTable())));
+        buffer.append(" T WHERE ");
+        for (int idx = 0; idx < foreignKey.getReferenceCount(); idx++)
+        {
+            if (idx > 0)
+            {
+                buffer.append(" AND ");
+            }
+            buffer.append("T.");
+            buffer.append(getDelimitedIdentifier(foreignKey.getReference(idx).getForeignColumnName()));
+            buffer.append(" = S.");
+            buffer.append(getDelimitedIdentifier(foreignKey.getReference(idx).getLocalColumnName()));
+        }
+        buffer.append(")");
+        return buffer.toString();
+    }
+
+    /**
+     * Rewrites the given query so that the database itself only returns the rows from
+     * <code>start</code> to <code>end</code> (both inclusive and zero-based), instead of
+     * the caller reading and skipping the leading rows. This is only done for a single
+     * <code>SELECT</code> query that does not already restrict the number of rows, is not
+     * a <code>SELECT ... FOR UPDATE</code> or <code>SELECT ... INTO</code>, and contains no
+     * comments.
+     * 
+     * @param sql   The query
+     * @param start The index of the first row to return
+     * @param end   The index of the last row to return; a negative value means all following rows
+     * @return The rewritten query, or <code>null</code> if the platform does not support
+     *         pagination or if the query cannot be rewritten safely; if all rows are requested,
+     *         the query is returned as is
+     */
+    public String getPaginatedQuery(String sql, int start, int end)
+    {
+        if (end < 0)
+        {
+            end = -1;
+        }
+        if ((start < 0) || ((end >= 0) && (end < start)))
+        {
+            return null;
+        }
+
+        String query = sql.trim();
+
+        if (query.endsWith(";"))
+        {
+            query = query.substring(0, query.length() - 1).trim();
+        }
+        if ((start == 0) && (end < 0))
+        {
+            return query;
+        }
+
+        String outerQuery = getOutermostQuery(query);
+
+        if (outerQuery == null)
+        {
+            return null;
+        }
+
+        String[] words = outerQuery.toUpperCase(Locale.ENGLISH).trim().split("[^A-Z0-9_$#]+");
+
+        if ((words.length == 0) || !("SELECT".equals(words[0]) || "WITH".equals(words[0])))
+        {
+            return null;
+        }
+
+        boolean ordered = false;
+
+        for (int idx = 0; idx < words.length; idx++)
+        {
+            if (NON_PAGINATABLE_KEYWORDS.contains(words[idx]))
+            {
+                return null;
+            }
+            if ("ORDER".equals(words[idx]) && (idx + 1 < words.length) && "BY".equals(words[idx + 1]))
+            {
+                ordered = true;
+            }
+        }
+        return createPaginatedQuery(query, ordered, start, end);
+    }
+
+    /**
+     * Returns the outermost query of the given SQL, i.e. the SQL without the parts in
+     * parentheses, string literals and quoted identifiers.
+     * 
+     * @param sql The SQL
+     * @return The outermost query, or <code>null</code> if the SQL contains comments, multiple
+     *         statements or unbalanced parentheses or quotes
+     */
+    private String getOutermostQuery(String sql)
+    {
+        StringBuffer result = new StringBuffer();
+        int          depth  = 0;
+
+        for (int idx = 0; idx < sql.length(); idx++)
+        {
+            char c    = sql.charAt(idx);
+            char next = (idx + 1 < sql.length() ? sql.charAt(idx + 1) : 0);
+
+            if ((c == '\'') || (c == '"') || (c == '`') || (c == '['))
+            {
+                idx = sql.indexOf(c == '[' ? ']' : c, idx + 1);
+                if (idx < 0)
+                {
+                    return null;
+                }
+                result.append(' ');
+            }
+            else if (((c == '-') && (next == '-')) || ((c == '/') && (next == '*')) || (c == ';'))
+            {
+                return null;
+            }
+            else if (c == '(')
+            {
+                depth++;
+            }
+            else if (c == ')')
+            {
+                depth--;
+                if (depth < 0)
+                {
+                    return null;
+                }
+                result.append(' ');
+            }
+            else if (depth == 0)
+            {
+                result.append(c);
+            }
+        }
+        return depth == 0 ? result.toString() : null;
+    }
+
+    /**
+     * Creates the paginated query for the given query, see {@link #getPaginatedQuery(String, int, int)}.
+     * The default implementation returns <code>null</code> as there is no standard way
+     * supported by all databases.
+     * 
+     * @param sql     The query, which is a single <code>SELECT</code> query that does not
+     *                restrict the number of rows yet
+     * @param ordered Whether the outermost query has an <code>ORDER BY</code> clause
+     * @param start   The index of the first row to return
+     * @param end     The index of the last row to return, or <code>-1</code> for all following rows
+     * @return The paginated query or <code>null</code> if not supported
+     */
+    protected String createPaginatedQuery(String sql, boolean ordered, int start, int end)
+    {
+        return null;
+    }
+
+    /**
+     * Creates a paginated query using the <code>LIMIT</code> and <code>OFFSET</code> clauses.
+     * 
+     * @param sql   The query
+     * @param start The index of the first row to return
+     * @param end   The index of the last row to return, or <code>-1</code> for all following rows
+     * @return The paginated query
+     */
+    protected String createLimitOffsetQuery(String sql, int start, int end)
+    {
+        StringBuffer result = new StringBuffer(sql);
+
+        if (end >= 0)
+        {
+            result.append(" LIMIT ");
+            result.append(end - start + 1);
+            if (start > 0)
+            {
+                result.append(" OFFSET ");
+                result.append(start);
+            }
+        }
+        else
+        {
+            result.append(" OFFSET ");
+            result.append(start);
+            result.append(" ROWS");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Creates a paginated query using the standard SQL <code>OFFSET</code> and
+     * <code>FETCH</code> clauses.
+     * 
+     * @param sql   The query
+     * @param start The index of the first row to return
+     * @param end   The index of the last row to return, or <code>-1</code> for all following rows
+     * @return The paginated query
+     */
+    protected String createOffsetFetchQuery(String sql, int start, int end)
+    {
+        StringBuffer result = new StringBuffer(sql);
+
+        result.append(" OFFSET ");
+        result.append(start);
+        result.append(" ROWS");
+        if (end >= 0)
+        {
+            result.append(" FETCH NEXT ");
+            result.append(end - start + 1);
+            result.append(" ROWS ONLY");
+        }
+        return result.toString();
+    }
+
     /**
      * Creates the SQL for inserting an object into the specified table.
      * If values are given then a concrete insert statement is created, otherwise an
@@ -931,6 +1201,78 @@ public abstract class SqlBuilder
         return buffer.toString();
     }
 
+    /**
+     * Creates the SQL for inserting several objects into the specified table with
+     * a single statement that lists multiple rows in its VALUES clause. The columns
+     * are determined by the first row. If values are given then a concrete insert
+     * statement is created, otherwise an insert statement usable in a prepared
+     * statement is build. Note that this only works for platforms that support
+     * multi-row inserts ({@link PlatformInfo#isMultiRowInsertSupported()}).
+     *
+     * @param table           The table
+     * @param rowValues       The column values of the rows, each indexed by the column names
+     * @param genPlaceholders Whether to generate value placeholders for a
+     *                        prepared statement
+     * @return The insertion sql
+     */
+    public String getMultiRowInsertSql(Table table, List<Map<String, Object>> rowValues, boolean genPlaceholders)
+    {
+        Map<String, Object> columnValues = rowValues.get(0);
+        ArrayList<Column>   columns      = new ArrayList<>();
+        StringBuffer        buffer       = new StringBuffer("INSERT INTO ");
+
+        for (int idx = 0; idx < table.getColumnCount(); idx++)
+        {
+            Column column = table.getColumn(idx);
+
+            if (columnValues.containsKey(column.getName()))
+            {
+                columns.add(column);
+            }
+        }
+
+        buffer.append(getDelimitedIdentifier(getTableName(table)));
+        buffer.append(" (");
+        for (int idx = 0; idx < columns.size(); idx++)
+        {
+            if (idx > 0)
+            {
+                buffer.append(", ");
+            }
+            buffer.append(getDelimitedIdentifier(columns.get(idx).getName()));
+        }
+        buffer.append(") VALUES ");
+        for (int rowIdx = 0; rowIdx < rowValues.size(); rowIdx++)
+        {
+            Map<String, Object> curValues = rowValues.get(rowIdx);
+
+            if (rowIdx > 0)
+            {
+                buffer.append(", ");
+            }
+            buffer.append("(");
+            for (int idx = 0; idx < columns.size(); idx++)
+            {
+                if (idx > 0)
+                {
+                    buffer.append(", ");
+                }
+                if (genPlaceholders)
+                {
+                    buffer.append("?");
+                }
+                else
+                {
+                    Column column = columns.get(idx);
+
+                    buffer.append(getValueAsString(column, curValues.get(column.getName())));
+                }
+            }
+            buffer.append(")");
+        }
+        return buffer.toString();
+    }
+
     /**
      * Creates the SQL for updating an object in the specified table.
      * If values are given then a concrete update statement is created, otherwise an
@@ -1126,6 +1468,208 @@ public abstract class SqlBuilder
         return buffer.toString();
     }
 
+    /**
+     * Creates the SQL for inserting an object into the specified table, or for updating
+     * the row with the same primary key values if there already is one (upsert). The
+     * columns are used in the order of the table, and a prepared statement takes one
+     * parameter per column in this order. If values are given then a concrete statement
+     * is created, otherwise a statement usable in a prepared statement is build.
+     * A database that does not support this, will return <code>null</code>.
+     *
+     * @param table           The table
+     * @param columnValues    The columns values indexed by the column names; these have to
+     *                        include the primary key columns
+     * @param genPlaceholders Whether to generate value placeholders for a
+     *                        prepared statement
+     * @return The upsert sql, or <code>null</code> if the database does not support this
+     */
+    public String getUpsertSql(Table table, Map<String, Object> columnValues, boolean genPlaceholders)
+    {
+        // No default possible as the databases are quite different in this respect
+        return null;
+    }
+
+    /**
+     * Determines whether an upsert statement can be generated for the given table and columns,
+     * which requires that the table has a primary key and that all of its columns are given.
+     *
+     * @param table        The table
+     * @param columnValues The columns values indexed by the column names
+     * @return <code>true</code> if an upsert statement can be generated
+     */
+    protected boolean isUpsertPossible(Table table, Map<String, Object> columnValues)
+    {
+        Column[] pkColumns = table.getPrimaryKeyColumns();
+
+        if (pkColumns.length == 0)
+        {
+            return false;
+        }
+        for (int idx = 0; idx < pkColumns.length; idx++)
+        {
+            if (!columnValues.containsKey(pkColumns[idx].getName()))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the columns of the table for which the given map contains values, in
+     * the order of the table.
+     *
+     * @param table        The table
+     * @param columnValues The columns values indexed by the column names
+     * @return The columns
+     */
+    protected List<Column> getColumnsWithValues(Table table, Map<String, Object> columnValues)
+    {
+        ArrayList<Column> columns = new ArrayList<>();
+
+        for (int idx = 0; idx < table.getColumnCount(); idx++)
+        {
+            Column column = table.getColumn(idx);
+
+            if (columnValues.containsKey(column.getName()))
+            {
+                columns.add(column);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Creates an upsert statement in the form of a standard SQL MERGE statement. Builders
+     * for databases that support this can use it for {@link #getUpsertSql(Table, Map, boolean)}.
+     * The primary key columns and auto-increment columns are not changed for existing rows.
+     *
+     * @param table           The table
+     * @param columnValues    The columns values indexed by the column names
+     * @param genPlaceholders Whether to generate value placeholders for a
+     *                        prepared statement
+     * @return The merge sql, or <code>null</code> if no upsert is possible for the columns
+     */
+    protected String getMergeSql(Table table, Map<String, Object> columnValues, boolean genPlaceholders)
+    {
+        if (!isUpsertPossible(table, columnValues))
+        {
+            return null;
+        }
+
+        List<Column> columns   = getColumnsWithValues(table, columnValues);
+        Column[]     pkColumns = table.getPrimaryKeyColumns();
+        StringBuffer buffer    = new StringBuffer("MERGE INTO ");
+        boolean      addSep    = false;
+
+        buffer.append(getDelimitedIdentifier(getTableName(table)));
+        buffer.append(" T USING ");
+        buffer.append(getMergeSource(columns, columnValues, genPlaceholders));
+        buffer.append(" ON (");
+        for (int idx = 0; idx < pkColumns.length; idx++)
+        {
+            String columnName = getDelimitedIdentifier(pkColumns[idx].getName());
+
+            if (idx > 0)
+            {
+                buffer.append(" AND ");
+            }
+            buffer.append("T.");
+            buffer.append(columnName);
+            buffer.append(" = S.");
+            buffer.append(columnName);
+        }
+        buffer.append(")");
+        for (int idx = 0; idx < columns.size(); idx++)
+        {
+            Column column = columns.get(idx);
+
+            if (!column.isPrimaryKey() && !column.isAutoIncrement())
+            {
+                String columnName = getDelimitedIdentifier(column.getName());
+
+                buffer.append(addSep ? ", " : " WHEN MATCHED THEN UPDATE SET ");
+                buffer.append(columnName);
+                buffer.append(" = S.");
+                buffer.append(columnName);
+                addSep = true;
+            }
+        }
+        buffer.append(" WHEN NOT MATCHED THEN INSERT (");
+        for (int idx = 0; idx < columns.size(); idx++)
+        {
+            if (idx > 0)
+            {
+                buffer.append(", ");
+            }
+            buffer.append(getDelimitedIdentifier(columns.get(idx).getName()));
+        }
+        buffer.append(") VALUES (");
+        for (int idx = 0; idx < columns.size(); idx++)
+        {
+            if (idx > 0)
+            {
+                buffer.append(", ");
+            }
+            buffer.append("S.");
+            buffer.append(getDelimitedIdentifier(columns.get(idx).getName()));
+        }
+        buffer.append(")");
+        return buffer.toString();
+    }
+
+    /**
+     * Creates the source of a MERGE statement which provides the values of one row
+     * under the correlation name <code>S</code>. Per default, this is a VALUES
+     * clause.
+     *
+     * @param columns         The columns
+     * @param columnValues    The columns values indexed by the column names
+     * @param genPlaceholders Whether to generate value placeholders for a
+     *                        prepared statement
+     * @return The source sql
+     */
+    protected String getMergeSource(List<Column> columns, Map<String, Object> columnValues, boolean genPlaceholders)
+    {
+        StringBuffer buffer = new StringBuffer("(VALUES (");
+
+        for (int idx = 0; idx < columns.size(); idx++)
+        {
+            Column column = columns.get(idx);
+
+            if (idx > 0)
+            {
+                buffer.append(", ");
+            }
+            buffer.append(getMergeSourceValue(column, columnValues.get(column.getName()), genPlaceholders));
+        }
+        buffer.append(")) AS S (");
+        for (int idx = 0; idx < columns.size(); idx++)
+        {
+            if (idx > 0)
+            {
+                buffer.append(", ");
+            }
+            buffer.append(getDelimitedIdentifier(columns.get(idx).getName()));
+        }
+        buffer.append(")");
+        return buffer.toString();
+    }
+
+    /**
+     * Creates the expression for one value in the source of a MERGE statement.
+     *
+     * @param column          The column
+     * @param value           The value
+     * @param genPlaceholders Whether to generate a value placeholder for a
+     *                        prepared statement
+     * @return The value expression
+     */
+    protected String getMergeSourceValue(Column column, Object value, boolean genPlaceholders)
+    {
+        return genPlaceholders ? "?" : getValueAsString(column, value);
+    }
+
     /**
      * Generates the string representation of the given value.
      * 
@@ -21,6 +21,7 @@ package de.elnarion.ddlutils.platform.db2;
 
 import java.io.IOException;
 import java.sql.Types;
+import java.util.Map;
 
 import de.elnarion.ddlutils.Platform;
 import de.elnarion.ddlutils.alteration.ColumnDefinitionChange;
@@ -79,6 +80,23 @@ public class Db2Builder extends SqlBuilder
         return "VALUES IDENTITY_VAL_LOCAL()";
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public String getUpsertSql(Table table, Map<String, Object> columnValues, boolean genPlaceholders)
+    {
+        return getMergeSql(table, columnValues, genPlaceholders);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String getMergeSourceValue(Column column, Object value, boolean genPlaceholders)
+    {
+        // DB2 does not allow untyped parameter markers in a VALUES clause
+        return genPlaceholders ? "CAST(? AS " + getSqlType(column) + ")" : getValueAsString(column, value);
+    }
+
     /**
      * Generates the SQL to drop a column from a table.
      * 
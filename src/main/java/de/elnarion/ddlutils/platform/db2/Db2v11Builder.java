@@ -19,4 +19,11 @@ public class Db2v11Builder extends Db2v8Builder
         super(platform);
     }
 
- }
+    /**
+     * {@inheritDoc}
+     */
+    protected String createPaginatedQuery(String sql, boolean ordered, int start, int end)
+    {
+        return createOffsetFetchQuery(sql, start, end);
+    }
+}
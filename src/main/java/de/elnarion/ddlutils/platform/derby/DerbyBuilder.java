@@ -121,4 +121,12 @@ public class DerbyBuilder extends SqlBuilder
             printIdentifier(getColumnName(sourceColumn));
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String createPaginatedQuery(String sql, boolean ordered, int start, int end)
+    {
+        return createOffsetFetchQuery(sql, start, end);
+    }
 }
@@ -20,10 +20,12 @@ package de.elnarion.ddlutils.platform.h2;
  */
 
 import java.io.IOException;
+import java.util.Map;
 
 import de.elnarion.ddlutils.Platform;
 import de.elnarion.ddlutils.alteration.ColumnDefinitionChange;
 import de.elnarion.ddlutils.model.Column;
+import de.elnarion.ddlutils.model.Database;
 import de.elnarion.ddlutils.model.Index;
 import de.elnarion.ddlutils.model.Table;
 import de.elnarion.ddlutils.model.TypeMap;
@@ -67,6 +69,36 @@ public class H2Builder extends SqlBuilder
         return "CALL IDENTITY()";
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public String getUpsertSql(Table table, Map<String, Object> columnValues, boolean genPlaceholders)
+    {
+        if (!isUpsertPossible(table, columnValues))
+        {
+            return null;
+        }
+
+        Column[]     pkColumns = table.getPrimaryKeyColumns();
+        StringBuffer buffer    = new StringBuffer(getInsertSql(table, columnValues, genPlaceholders));
+        StringBuffer keyClause = new StringBuffer(" KEY (");
+
+        // H2 has its own short form of MERGE which inserts or updates depending on the key columns
+        buffer.replace(0, "INSERT".length(), "MERGE");
+
+        for (int idx = 0; idx < pkColumns.length; idx++)
+        {
+            if (idx > 0)
+            {
+                keyClause.append(", ");
+            }
+            keyClause.append(getDelimitedIdentifier(pkColumns[idx].getName()));
+        }
+        keyClause.append(")");
+        buffer.insert(buffer.indexOf(" VALUES ("), keyClause);
+        return buffer.toString();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -175,4 +207,85 @@ public class H2Builder extends SqlBuilder
             super.writeCastExpression(sourceColumn, targetColumn);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Creates the SQL for inserting the rows of a CSV file into the specified table
+     * via H2's <code>CSVREAD</code> function. The file is expected to be encoded in
+     * UTF-8, to have a header line, and to contain one field per given column, in
+     * the same order.
+     *
+     * @param table      The table
+     * @param columns    The columns to insert
+     * @param fileName   The name of the CSV file
+     * @param nullString The unquoted value that represents <code>NULL</code> in the file
+     * @return The insertion sql
+     */
+    public String getCsvReadInsertSql(Table table, Column[] columns, String fileName, String nullString)
+    {
+        StringBuffer buffer = new StringBuffer("INSERT INTO ");
+
+        buffer.append(getDelimitedIdentifier(getTableName(table)));
+        buffer.append(" (");
+        for (int idx = 0; idx < columns.length; idx++)
+        {
+            if (idx > 0)
+            {
+                buffer.append(", ");
+            }
+            buffer.append(getDelimitedIdentifier(columns[idx].getName()));
+        }
+        buffer.append(") SELECT * FROM CSVREAD('");
+        buffer.append(escapeStringValue(fileName));
+        buffer.append("', NULL, 'charset=UTF-8 null=");
+        buffer.append(escapeStringValue(nullString));
+        buffer.append("')");
+        return buffer.toString();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void disableReferentialIntegrity(Database database) throws IOException
+    {
+        writeReferentialIntegrityStmts(database, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void enableReferentialIntegrity(Database database) throws IOException
+    {
+        writeReferentialIntegrityStmts(database, true);
+    }
+
+    /**
+     * Writes the statements that switch the checking of the foreign keys of the tables with
+     * foreign keys. Enabling the checking does not check the existing rows.
+     * 
+     * @param database The database model
+     * @param enable   Whether to enable the checking
+     */
+    private void writeReferentialIntegrityStmts(Database database, boolean enable) throws IOException
+    {
+        for (int idx = 0; idx < database.getTableCount(); idx++)
+        {
+            Table table = database.getTable(idx);
+
+            if (table.getForeignKeyCount() > 0)
+            {
+                writeTableAlterStmt(table);
+                print("SET REFERENTIAL_INTEGRITY ");
+                print(enable ? "TRUE" : "FALSE");
+                printEndOfStatement();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String createPaginatedQuery(String sql, boolean ordered, int start, int end)
+    {
+        return createLimitOffsetQuery(sql, start, end);
+    }
+}
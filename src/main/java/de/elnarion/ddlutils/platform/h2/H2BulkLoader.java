@@ -0,0 +1,364 @@
+package de.elnarion.ddlutils.platform.h2;
+
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import de.elnarion.ddlutils.DatabaseOperationException;
+import de.elnarion.ddlutils.model.Column;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Table;
+import de.elnarion.ddlutils.model.TypeMap;
+import de.elnarion.ddlutils.platform.BatchInsertBulkLoader;
+
+/**
+ * Bulk loader for the H2 database. It writes the rows into a temporary CSV file
+ * and inserts them with one <code>INSERT ... SELECT * FROM CSVREAD(...)</code>
+ * statement per file. Since the database reads the file itself, this requires
+ * that the database runs on the same machine and that the user has the rights
+ * to call <code>CSVREAD</code>; if the statement fails, the loader falls back to
+ * batch inserts.<br/>
+ * Tables with binary or special columns, or with a self-referencing foreign key,
+ * are always loaded via batch inserts, as are rows that use a column's default
+ * value or that contain an empty string (which <code>CSVREAD</code> reads as
+ * <code>NULL</code>).
+ * 
+ * @version $Revision: $
+ */
+public class H2BulkLoader extends BatchInsertBulkLoader
+{
+    /** The unquoted field value that represents <code>NULL</code> in the CSV file. */
+    private static final String NULL_STRING = "NULL";
+
+    /** The log for this loader. */
+    private final Log _log = LogFactory.getLog(H2BulkLoader.class);
+    /** The maximum number of rows written to one CSV file. */
+    private int _maxRowsPerFile = 100000;
+
+    /**
+     * Creates a new bulk loader for the given platform.
+     * 
+     * @param platform The platform
+     */
+    public H2BulkLoader(H2Platform platform)
+    {
+        super(platform);
+    }
+
+    /**
+     * Returns the maximum number of rows that are written to one CSV file and
+     * thus are kept in memory at the same time.
+     * 
+     * @return The number of rows
+     */
+    public int getMaxRowsPerFile()
+    {
+        return _maxRowsPerFile;
+    }
+
+    /**
+     * Sets the maximum number of rows that are written to one CSV file.
+     * 
+     * @param maxRowsPerFile The number of rows
+     */
+    public void setMaxRowsPerFile(int maxRowsPerFile)
+    {
+        _maxRowsPerFile = maxRowsPerFile;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void load(Connection connection, Database model, Table table, Iterator<DynaBean> rows) throws DatabaseOperationException
+    {
+        Column[] columns = getColumnsToLoad(table);
+
+        if (columns == null)
+        {
+            super.load(connection, model, table, rows);
+            return;
+        }
+
+        ArrayList<DynaBean> beans      = new ArrayList<>();
+        boolean             useCsvRead = true;
+
+        while (rows.hasNext())
+        {
+            beans.add(rows.next());
+            if (beans.size() >= _maxRowsPerFile)
+            {
+                useCsvRead = loadRows(connection, model, table, columns, beans, useCsvRead);
+                beans.clear();
+            }
+        }
+        loadRows(connection, model, table, columns, beans, useCsvRead);
+    }
+
+    /**
+     * Determines the columns that are loaded via <code>CSVREAD</code>. These are the
+     * columns of the table except for the auto-increment ones (unless identity override
+     * is on and allowed).
+     * 
+     * @param table The table
+     * @return The columns, or <code>null</code> if the table cannot be loaded via <code>CSVREAD</code>
+     */
+    private Column[] getColumnsToLoad(Table table)
+    {
+        if (table.getSelfReferencingForeignKey() != null)
+        {
+            return null;
+        }
+
+        boolean           includeIdentity = getPlatform().isIdentityOverrideOn() &&
+                                            getPlatform().getPlatformInfo().isIdentityOverrideAllowed();
+        ArrayList<Column> result          = new ArrayList<>();
+
+        for (int idx = 0; idx < table.getColumnCount(); idx++)
+        {
+            Column column = table.getColumn(idx);
+
+            if (TypeMap.isBinaryType(column.getTypeCode()) || TypeMap.isSpecialType(column.getTypeCode()))
+            {
+                return null;
+            }
+            if (includeIdentity || !column.isAutoIncrement())
+            {
+                result.add(column);
+            }
+        }
+        return result.isEmpty() ? null : result.toArray(new Column[result.size()]);
+    }
+
+    /**
+     * Loads the given rows. The rows that can be represented in the CSV file are
+     * loaded via <code>CSVREAD</code>, the others via batch inserts.
+     * 
+     * @param connection The connection to the database
+     * @param model      The database model
+     * @param table      The table
+     * @param columns    The columns to load
+     * @param beans      The rows
+     * @param useCsvRead Whether to use <code>CSVREAD</code> at all
+     * @return Whether <code>CSVREAD</code> can be used for the next rows
+     */
+    private boolean loadRows(Connection connection, Database model, Table table, Column[] columns, List<DynaBean> beans, boolean useCsvRead) throws DatabaseOperationException
+    {
+        if (!useCsvRead)
+        {
+            insert(connection, model, beans);
+            return false;
+        }
+
+        ArrayList<DynaBean> csvBeans   = new ArrayList<>();
+        ArrayList<DynaBean> otherBeans = new ArrayList<>();
+
+        for (Iterator<DynaBean> it = beans.iterator(); it.hasNext();)
+        {
+            DynaBean bean = it.next();
+
+            if (isRepresentableInCsv(bean, columns))
+            {
+                csvBeans.add(bean);
+            }
+            else
+            {
+                otherBeans.add(bean);
+            }
+        }
+        insert(connection, model, otherBeans);
+        if (csvBeans.isEmpty())
+        {
+            return true;
+        }
+
+        File      csvFile   = null;
+        Statement statement = null;
+
+        try
+        {
+            csvFile = File.createTempFile("ddlutils", ".csv");
+            writeCsvFile(csvFile, columns, csvBeans);
+
+            String sql = ((H2Builder)getPlatform().getSqlBuilder()).getCsvReadInsertSql(table, columns, csvFile.getAbsolutePath(), NULL_STRING);
+
+            if (_log.isDebugEnabled())
+            {
+                _log.debug("About to execute SQL: " + sql);
+            }
+            statement = connection.createStatement();
+
+            int count = statement.executeUpdate(sql);
+
+            if (count != csvBeans.size())
+            {
+                _log.warn("Attempted to insert " + csvBeans.size() + " rows into table " + table.getName() + " but changed " + count + " rows");
+            }
+            return true;
+        }
+        catch (IOException ex)
+        {
+            throw new DatabaseOperationException("Error while writing the CSV file for table " + table.getName(), ex);
+        }
+        catch (SQLException ex)
+        {
+            _log.warn("Could not load the rows of table " + table.getName() + " via CSVREAD, using batch inserts instead", ex);
+            insert(connection, model, csvBeans);
+            return false;
+        }
+        finally
+        {
+            ((H2Platform)getPlatform()).closeStatement(statement);
+            if ((csvFile != null) && !csvFile.delete())
+            {
+                csvFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Determines whether the given row can be written to the CSV file. This is not the
+     * case if a column with a default value has no value (it would be set to <code>NULL</code>
+     * instead), or if a value is an empty string (<code>CSVREAD</code> reads it as <code>NULL</code>).
+     * 
+     * @param bean    The row
+     * @param columns The columns to load
+     * @return <code>true</code> if the row can be loaded via <code>CSVREAD</code>
+     */
+    private boolean isRepresentableInCsv(DynaBean bean, Column[] columns)
+    {
+        for (int idx = 0; idx < columns.length; idx++)
+        {
+            Object value = bean.get(columns[idx].getName());
+
+            if (value == null)
+            {
+                if (columns[idx].getDefaultValue() != null)
+                {
+                    return false;
+                }
+            }
+            else if (toCsvValue(value).length() == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the given rows into the specified CSV file.
+     * 
+     * @param csvFile The file
+     * @param columns The columns to write
+     * @param beans   The rows
+     */
+    private void writeCsvFile(File csvFile, Column[] columns, List<DynaBean> beans) throws IOException
+    {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(csvFile), StandardCharsets.UTF_8);
+
+        try
+        {
+            for (int idx = 0; idx < columns.length; idx++)
+            {
+                if (idx > 0)
+                {
+                    writer.write(',');
+                }
+                writeQuoted(writer, columns[idx].getName());
+            }
+            writer.write('\n');
+            for (Iterator<DynaBean> it = beans.iterator(); it.hasNext();)
+            {
+                DynaBean bean = it.next();
+
+                for (int idx = 0; idx < columns.length; idx++)
+                {
+                    Object value = bean.get(columns[idx].getName());
+
+                    if (idx > 0)
+                    {
+                        writer.write(',');
+                    }
+                    if (value == null)
+                    {
+                        writer.write(NULL_STRING);
+                    }
+                    else
+                    {
+                        writeQuoted(writer, toCsvValue(value));
+                    }
+                }
+                writer.write('\n');
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes the given text as a quoted CSV field.
+     * 
+     * @param writer The writer
+     * @param text   The text
+     */
+    private void writeQuoted(Writer writer, String text) throws IOException
+    {
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Converts the given value to the text that H2 can parse into the column value.
+     * 
+     * @param value The value
+     * @return The text
+     */
+    private String toCsvValue(Object value)
+    {
+        if (value instanceof BigDecimal)
+        {
+            return ((BigDecimal)value).toPlainString();
+        }
+        else
+        {
+            return value.toString();
+        }
+    }
+}
@@ -68,6 +68,10 @@ public class H2Platform extends PlatformImplBase
         info.setIdentityOverrideAllowed(false);
         info.setMixingIdentityAndNormalPrimaryKeyColumnsSupported(false);
         info.setAlterTableForDropUsed(false);
+        info.setMultiRowInsertSupported(true);
+        info.setGeneratedKeysReadable(true);
+        info.setGeneratedKeysReadableInBatchMode(true);
+        info.setReferentialIntegrityDisablingSupported(true);
 
         info.addEquivalentOnDeleteActions(CascadeActionEnum.NONE, CascadeActionEnum.RESTRICT);
         info.addEquivalentOnUpdateActions(CascadeActionEnum.NONE, CascadeActionEnum.RESTRICT);
@@ -98,6 +102,7 @@ public class H2Platform extends PlatformImplBase
 
         setSqlBuilder(new H2Builder(this));
         setModelReader(new H2ModelReader(this));
+        setBulkLoader(new H2BulkLoader(this));
     }
 
     /**
@@ -20,6 +20,7 @@ package de.elnarion.ddlutils.platform.hsqldb;
  */
 
 import java.io.IOException;
+import java.util.Map;
 
 import de.elnarion.ddlutils.Platform;
 import de.elnarion.ddlutils.alteration.ColumnDefinitionChange;
@@ -80,6 +81,21 @@ public class HsqlDbBuilder extends SqlBuilder {
 		return "CALL IDENTITY()";
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getUpsertSql(Table table, Map<String, Object> columnValues, boolean genPlaceholders) {
+		return getMergeSql(table, columnValues, genPlaceholders);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected String getMergeSourceValue(Column column, Object value, boolean genPlaceholders) {
+		// HsqlDb cannot determine the type of a parameter in a VALUES clause
+		return genPlaceholders ? "CAST(? AS " + getSqlType(column) + ")" : getValueAsString(column, value);
+	}
+
 	/**
 	 * Writes the SQL to add/insert a column.
 	 * 
@@ -193,4 +209,11 @@ public class HsqlDbBuilder extends SqlBuilder {
 			super.writeCastExpression(sourceColumn, targetColumn);
 		}
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	protected String createPaginatedQuery(String sql, boolean ordered, int start, int end) {
+		return createLimitOffsetQuery(sql, start, end);
+	}
 }
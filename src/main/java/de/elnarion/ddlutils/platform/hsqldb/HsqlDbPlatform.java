@@ -66,6 +66,8 @@ public class HsqlDbPlatform extends PlatformImplBase
         info.setSystemForeignKeyIndicesAlwaysNonUnique(true);
         info.setPrimaryKeyColumnAutomaticallyRequired(false);
         info.setMixingIdentityAndNormalPrimaryKeyColumnsSupported(false);
+        info.setMultiRowInsertSupported(true);
+        info.setGeneratedKeysReadable(true);
 
         info.addNativeTypeMapping(Types.ARRAY,       "LONGVARBINARY", Types.LONGVARBINARY);
         info.addNativeTypeMapping(Types.BIT,         "BOOLEAN",       Types.BOOLEAN);
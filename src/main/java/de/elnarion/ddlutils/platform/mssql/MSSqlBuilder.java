@@ -270,6 +270,17 @@ public class MSSqlBuilder extends SqlBuilder
         return "SELECT @@IDENTITY";
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public String getUpsertSql(Table table, Map<String, Object> columnValues, boolean genPlaceholders)
+    {
+        String sql = getMergeSql(table, columnValues, genPlaceholders);
+
+        // Sql Server requires MERGE statements to be terminated by a semicolon
+        return sql == null ? null : sql + ";";
+    }
+
     /**
      * Returns the SQL to enable identity override mode.
      * 
@@ -558,4 +569,53 @@ public class MSSqlBuilder extends SqlBuilder
             printIdentifier(getColumnName(sourceColumn));
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void disableReferentialIntegrity(Database database) throws IOException
+    {
+        writeConstraintCheckStmts(database, "NOCHECK");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void enableReferentialIntegrity(Database database) throws IOException
+    {
+        // we let the database check the existing rows so that it trusts the constraints again
+        writeConstraintCheckStmts(database, "WITH CHECK CHECK");
+    }
+
+    /**
+     * Writes the statements that switch the checking of the constraints of the tables with
+     * foreign keys.
+     * 
+     * @param database The database model
+     * @param check    The check clause
+     */
+    private void writeConstraintCheckStmts(Database database, String check) throws IOException
+    {
+        for (int idx = 0; idx < database.getTableCount(); idx++)
+        {
+            Table table = database.getTable(idx);
+
+            if (table.getForeignKeyCount() > 0)
+            {
+                writeTableAlterStmt(table);
+                print(check);
+                print(" CONSTRAINT ALL");
+                printEndOfStatement();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String createPaginatedQuery(String sql, boolean ordered, int start, int end)
+    {
+        // the OFFSET and FETCH clauses (supported since Sql Server 2012) require an ORDER BY clause
+        return createOffsetFetchQuery(ordered ? sql : sql + " ORDER BY (SELECT NULL)", start, end);
+    }
 }
@@ -22,6 +22,7 @@ package de.elnarion.ddlutils.platform.mssql;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.Collection;
 
@@ -78,6 +79,8 @@ public class MSSqlPlatform extends PlatformImplBase
         info.setPrimaryKeyColumnAutomaticallyRequired(true);
         info.setIdentityColumnAutomaticallyRequired(true);
         info.setMultipleIdentityColumnsSupported(false);
+        info.setGeneratedKeysReadable(true);
+        info.setReferentialIntegrityDisablingSupported(true);
         info.setSupportedOnUpdateActions(new CascadeActionEnum[] { CascadeActionEnum.CASCADE, CascadeActionEnum.NONE });
         info.addEquivalentOnUpdateActions(CascadeActionEnum.NONE, CascadeActionEnum.RESTRICT);
         info.setSupportedOnDeleteActions(new CascadeActionEnum[] { CascadeActionEnum.CASCADE, CascadeActionEnum.NONE });
@@ -144,7 +147,7 @@ public class MSSqlPlatform extends PlatformImplBase
         {
             MSSqlBuilder builder = (MSSqlBuilder)getSqlBuilder();
     
-            connection.createStatement().execute(builder.getEnableIdentityOverrideSql(table));
+            executeIdentityOverrideSql(connection, builder.getEnableIdentityOverrideSql(table));
         }
     }
 
@@ -157,7 +160,27 @@ public class MSSqlPlatform extends PlatformImplBase
         {
             MSSqlBuilder builder = (MSSqlBuilder)getSqlBuilder();
     
-            connection.createStatement().execute(builder.getDisableIdentityOverrideSql(table));
+            executeIdentityOverrideSql(connection, builder.getDisableIdentityOverrideSql(table));
+        }
+    }
+
+    /**
+     * Executes the given statement that switches the identity override for a table.
+     * 
+     * @param connection The connection
+     * @param sql        The sql
+     */
+    private void executeIdentityOverrideSql(Connection connection, String sql) throws SQLException
+    {
+        Statement statement = connection.createStatement();
+
+        try
+        {
+            statement.execute(sql);
+        }
+        finally
+        {
+            closeStatement(statement);
         }
     }
 
@@ -22,12 +22,14 @@ package de.elnarion.ddlutils.platform.mysql;
 import java.io.IOException;
 import java.sql.Types;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import de.elnarion.ddlutils.Platform;
 import de.elnarion.ddlutils.alteration.ColumnDefinitionChange;
 import de.elnarion.ddlutils.model.Column;
+import de.elnarion.ddlutils.model.Database;
 import de.elnarion.ddlutils.model.ForeignKey;
 import de.elnarion.ddlutils.model.Table;
 import de.elnarion.ddlutils.model.TypeMap;
@@ -107,6 +109,52 @@ public class MySqlBuilder extends SqlBuilder
         return "SELECT LAST_INSERT_ID() " + autoIncrementKeyName;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public String getUpsertSql(Table table, Map<String, Object> columnValues, boolean genPlaceholders)
+    {
+        if (!isUpsertPossible(table, columnValues))
+        {
+            return null;
+        }
+
+        List<Column> columns = getColumnsWithValues(table, columnValues);
+        StringBuffer buffer  = new StringBuffer(getInsertSql(table, columnValues, genPlaceholders));
+        boolean      addSep  = false;
+
+        buffer.append(" ON DUPLICATE KEY UPDATE ");
+        for (int idx = 0; idx < columns.size(); idx++)
+        {
+            Column column = columns.get(idx);
+
+            if (!column.isPrimaryKey() && !column.isAutoIncrement())
+            {
+                String columnName = getDelimitedIdentifier(column.getName());
+
+                if (addSep)
+                {
+                    buffer.append(", ");
+                }
+                buffer.append(columnName);
+                buffer.append(" = VALUES(");
+                buffer.append(columnName);
+                buffer.append(")");
+                addSep = true;
+            }
+        }
+        if (!addSep)
+        {
+            // we need an assignment that doesn't change anything
+            String columnName = getDelimitedIdentifier(table.getPrimaryKeyColumns()[0].getName());
+
+            buffer.append(columnName);
+            buffer.append(" = ");
+            buffer.append(columnName);
+        }
+        return buffer.toString();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -303,4 +351,37 @@ public class MySqlBuilder extends SqlBuilder
             printIdentifier(getColumnName(sourceColumn));
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void disableReferentialIntegrity(Database database) throws IOException
+    {
+        // this only affects the current session
+        print("SET FOREIGN_KEY_CHECKS = 0");
+        printEndOfStatement();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void enableReferentialIntegrity(Database database) throws IOException
+    {
+        // MySQL does not check the existing rows
+        print("SET FOREIGN_KEY_CHECKS = 1");
+        printEndOfStatement();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String createPaginatedQuery(String sql, boolean ordered, int start, int end)
+    {
+        if (end < 0)
+        {
+            // MySQL has no OFFSET without LIMIT, so we use the maximum value of the LIMIT instead
+            return sql + " LIMIT 18446744073709551615 OFFSET " + start;
+        }
+        return createLimitOffsetQuery(sql, start, end);
+    }
 }
@@ -73,6 +73,14 @@ public class MySqlPlatform extends PlatformImplBase
         // MySql returns synthetic default values for pk columns
         info.setSyntheticDefaultValueForRequiredReturned(true);
         info.setPrimaryKeyColumnAutomaticallyRequired(true);
+        info.setMultiRowInsertSupported(true);
+        info.setGeneratedKeysReadable(true);
+        info.setGeneratedKeysReadableInBatchMode(true);
+        info.setReferentialIntegrityDisablingSupported(true);
+        // the client/server protocol uses two bytes for the number of parameters
+        info.setMaxParametersPerStatement(65535);
+        // the JDBC driver only streams the rows for this special fetch size
+        info.setStreamingFetchSize(Integer.MIN_VALUE);
         info.setCommentPrefix("#");
         // Double quotes are only allowed for delimiting identifiers if the server SQL mode includes ANSI_QUOTES 
         info.setDelimiterToken("`");
@@ -20,6 +20,8 @@ package de.elnarion.ddlutils.platform.oracle;
  */
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 import de.elnarion.ddlutils.Platform;
 import de.elnarion.ddlutils.model.Column;
@@ -62,4 +64,36 @@ public class Oracle10Builder extends Oracle8Builder
         print(" CASCADE CONSTRAINTS PURGE");
         printEndOfStatement();
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getUpsertSql(Table table, Map<String, Object> columnValues, boolean genPlaceholders)
+    {
+        return getMergeSql(table, columnValues, genPlaceholders);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String getMergeSource(List<Column> columns, Map<String, Object> columnValues, boolean genPlaceholders)
+    {
+        // Oracle has no VALUES table constructor, so we select the row from DUAL
+        StringBuffer buffer = new StringBuffer("(SELECT ");
+
+        for (int idx = 0; idx < columns.size(); idx++)
+        {
+            Column column = columns.get(idx);
+
+            if (idx > 0)
+            {
+                buffer.append(", ");
+            }
+            buffer.append(getMergeSourceValue(column, columnValues.get(column.getName()), genPlaceholders));
+            buffer.append(" AS ");
+            buffer.append(getDelimitedIdentifier(column.getName()));
+        }
+        buffer.append(" FROM DUAL) S");
+        return buffer.toString();
+    }
 }
@@ -19,4 +19,11 @@ public class Oracle12Builder extends Oracle10Builder
         super(platform);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected String createPaginatedQuery(String sql, boolean ordered, int start, int end)
+    {
+        return createOffsetFetchQuery(sql, start, end);
+    }
 }
@@ -21,7 +21,11 @@ package de.elnarion.ddlutils.platform.oracle;
 
 import java.io.IOException;
 import java.sql.Types;
+import java.util.HashSet;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -43,6 +47,18 @@ import de.elnarion.ddlutils.util.StringUtilsExt;
  */
 public class Oracle8Builder extends SqlBuilder
 {
+	/** Matches the select list and the rest of the outermost query, see {@link #getOutermostQueryShape(String)}. */
+	private static final Pattern SELECT_LIST_PATTERN = Pattern.compile(
+	    "^(?:WITH\\s.*?\\s)?SELECT\\s+(?:(?:DISTINCT|UNIQUE|ALL)\\s+)?(.*?)\\s+FROM\\s+(.*)$",
+	    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	/** Matches the clauses that follow the <code>FROM</code> clause. */
+	private static final Pattern END_OF_FROM_PATTERN = Pattern.compile(
+	    "\\s(?:WHERE|GROUP|HAVING|ORDER|CONNECT|START|UNION|INTERSECT|MINUS)\\s.*$",
+	    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	/** Matches a possibly qualified column name, the last group being the name itself. */
+	private static final Pattern COLUMN_NAME_PATTERN = Pattern.compile(
+	    "^(?:(?:[A-Za-z][A-Za-z0-9_$#]*|\"[^\"]+\")\\.)*([A-Za-z][A-Za-z0-9_$#]*|\"[^\"]+\")$");
+
 	/** The regular expression pattern for ISO dates, i.e. 'YYYY-MM-DD'. */
 	private Pattern _isoDatePattern;
 	/** The regular expression pattern for ISO times, i.e. 'HH:MI:SS'. */
@@ -436,4 +452,227 @@ public class Oracle8Builder extends SqlBuilder
             print(")");
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void disableReferentialIntegrity(Database database) throws IOException
+    {
+        writeConstraintStateStmts(database, "DISABLE");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void enableReferentialIntegrity(Database database) throws IOException
+    {
+        // Oracle validates the existing rows when enabling the constraints
+        writeConstraintStateStmts(database, "ENABLE");
+    }
+
+    /**
+     * Writes the statements that change the state of the foreign key constraints.
+     * 
+     * @param database The database model
+     * @param state    The new state
+     */
+    private void writeConstraintStateStmts(Database database, String state) throws IOException
+    {
+        for (int tableIdx = 0; tableIdx < database.getTableCount(); tableIdx++)
+        {
+            Table table = database.getTable(tableIdx);
+
+            for (int fkIdx = 0; fkIdx < table.getForeignKeyCount(); fkIdx++)
+            {
+                writeTableAlterStmt(table);
+                print(state);
+                print(" CONSTRAINT ");
+                printIdentifier(getForeignKeyName(table, table.getForeignKey(fkIdx)));
+                printEndOfStatement();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String createPaginatedQuery(String sql, boolean ordered, int start, int end)
+    {
+        // the query is wrapped in a SELECT * which fails for duplicate column names (ORA-00918),
+        // so we leave it to the caller to skip the rows if we cannot verify the column names
+        if (!hasUniqueColumnNames(sql))
+        {
+            return null;
+        }
+
+        StringBuffer result = new StringBuffer();
+
+        // ROWNUM is assigned before the rows are filtered by the outer query, so the
+        // query needs to be wrapped twice if leading rows are to be skipped
+        if ((start == 0) && (end >= 0))
+        {
+            result.append("SELECT * FROM (");
+            result.append(sql);
+            result.append(") WHERE ROWNUM <= ");
+            result.append(end + 1);
+        }
+        else
+        {
+            result.append("SELECT * FROM (SELECT ddlutils_page.*, ROWNUM ");
+            result.append(PAGINATION_ROW_NUMBER_COLUMN);
+            result.append(" FROM (");
+            result.append(sql);
+            result.append(") ddlutils_page");
+            if (end >= 0)
+            {
+                result.append(" WHERE ROWNUM <= ");
+                result.append(end + 1);
+            }
+            result.append(") WHERE ");
+            result.append(PAGINATION_ROW_NUMBER_COLUMN);
+            result.append(" > ");
+            result.append(start);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Determines whether the columns of the given query have unique names so that the query
+     * can be used as an inline view. This is the case if every entry of the select list is a
+     * column or has an alias, and the names are distinct, or if the select list is a single
+     * <code>*</code> for a single table.
+     * 
+     * @param sql The query
+     * @return <code>true</code> if the column names are known to be unique
+     */
+    private boolean hasUniqueColumnNames(String sql)
+    {
+        String shape = getOutermostQueryShape(sql);
+
+        if (shape == null)
+        {
+            return false;
+        }
+
+        Matcher matcher = SELECT_LIST_PATTERN.matcher(shape.trim());
+
+        if (!matcher.matches())
+        {
+            return false;
+        }
+
+        String[]    items = matcher.group(1).split(",");
+        Set<String> names = new HashSet<String>();
+
+        for (int idx = 0; idx < items.length; idx++)
+        {
+            String   item   = items[idx].trim();
+            String[] tokens = item.split("\\s+");
+            String   name;
+
+            if ((items.length == 1) && (item.equals("*") || item.endsWith(".*")))
+            {
+                String fromClause = END_OF_FROM_PATTERN.matcher(matcher.group(2)).replaceFirst("");
+
+                return (fromClause.indexOf(',') < 0) && !fromClause.toUpperCase(Locale.ENGLISH).matches("(?s).*\\bJOIN\\b.*");
+            }
+            else if (tokens.length == 1)
+            {
+                name = tokens[0];
+            }
+            else if ((tokens.length == 2) || ((tokens.length == 3) && "AS".equalsIgnoreCase(tokens[1])))
+            {
+                name = tokens[tokens.length - 1];
+            }
+            else
+            {
+                return false;
+            }
+
+            Matcher nameMatcher = COLUMN_NAME_PATTERN.matcher(name);
+
+            if (!nameMatcher.matches())
+            {
+                return false;
+            }
+            name = nameMatcher.group(1);
+            if (name.startsWith("\""))
+            {
+                name = name.substring(1, name.length() - 1);
+            }
+            else
+            {
+                name = name.toUpperCase(Locale.ENGLISH);
+            }
+            if (!names.add(name))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the outermost query of the given SQL where parenthesized parts are replaced by
+     * <code>()</code> and string literals by <code>''</code>. Quoted identifiers are kept.
+     * 
+     * @param sql The SQL
+     * @return The shape of the outermost query, or <code>null</code> if a quoted identifier
+     *         contains characters that would make the shape ambiguous
+     */
+    private String getOutermostQueryShape(String sql)
+    {
+        StringBuffer result = new StringBuffer();
+        int          depth  = 0;
+
+        for (int idx = 0; idx < sql.length(); idx++)
+        {
+            char c = sql.charAt(idx);
+
+            if ((c == '\'') || (c == '"'))
+            {
+                int endIdx = sql.indexOf(c, idx + 1);
+
+                if (endIdx < 0)
+                {
+                    return null;
+                }
+                if (depth == 0)
+                {
+                    if (c == '\'')
+                    {
+                        result.append("''");
+                    }
+                    else
+                    {
+                        String identifier = sql.substring(idx, endIdx + 1);
+
+                        if (!identifier.matches("\"[^\\s,.()]+\""))
+                        {
+                            return null;
+                        }
+                        result.append(identifier);
+                    }
+                }
+                idx = endIdx;
+            }
+            else if (c == '(')
+            {
+                if (depth == 0)
+                {
+                    result.append("()");
+                }
+                depth++;
+            }
+            else if (c == ')')
+            {
+                depth--;
+            }
+            else if (depth == 0)
+            {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
 }
@@ -72,6 +72,7 @@ public class Oracle8Platform extends PlatformImplBase
         info.setMaxIdentifierLength(30);
         info.setIdentityStatusReadingSupported(false);
         info.setPrimaryKeyColumnAutomaticallyRequired(true);
+        info.setReferentialIntegrityDisablingSupported(true);
         info.setSupportedOnUpdateActions(new CascadeActionEnum[] { CascadeActionEnum.NONE });
         info.setSupportedOnDeleteActions(new CascadeActionEnum[] { CascadeActionEnum.CASCADE, CascadeActionEnum.SET_NULL, CascadeActionEnum.NONE });
         info.addEquivalentOnDeleteActions(CascadeActionEnum.NONE, CascadeActionEnum.RESTRICT);
@@ -20,6 +20,7 @@ package de.elnarion.ddlutils.platform.postgresql;
  */
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 import de.elnarion.ddlutils.Platform;
@@ -168,6 +169,53 @@ public class PostgreSqlBuilder extends SqlBuilder
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public String getUpsertSql(Table table, Map<String, Object> columnValues, boolean genPlaceholders)
+    {
+        if (!isUpsertPossible(table, columnValues))
+        {
+            return null;
+        }
+
+        Column[]     pkColumns = table.getPrimaryKeyColumns();
+        List<Column> columns   = getColumnsWithValues(table, columnValues);
+        StringBuffer buffer    = new StringBuffer(getInsertSql(table, columnValues, genPlaceholders));
+        boolean      addSep    = false;
+
+        buffer.append(" ON CONFLICT (");
+        for (int idx = 0; idx < pkColumns.length; idx++)
+        {
+            if (idx > 0)
+            {
+                buffer.append(", ");
+            }
+            buffer.append(getDelimitedIdentifier(pkColumns[idx].getName()));
+        }
+        buffer.append(")");
+        for (int idx = 0; idx < columns.size(); idx++)
+        {
+            Column column = columns.get(idx);
+
+            if (!column.isPrimaryKey() && !column.isAutoIncrement())
+            {
+                String columnName = getDelimitedIdentifier(column.getName());
+
+                buffer.append(addSep ? ", " : " DO UPDATE SET ");
+                buffer.append(columnName);
+                buffer.append(" = EXCLUDED.");
+                buffer.append(columnName);
+                addSep = true;
+            }
+        }
+        if (!addSep)
+        {
+            buffer.append(" DO NOTHING");
+        }
+        return buffer.toString();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -222,4 +270,52 @@ public class PostgreSqlBuilder extends SqlBuilder
             printIdentifier(getColumnName(sourceColumn));
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void disableReferentialIntegrity(Database database) throws IOException
+    {
+        writeTriggerStmts(database, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void enableReferentialIntegrity(Database database) throws IOException
+    {
+        writeTriggerStmts(database, true);
+    }
+
+    /**
+     * Writes the statements that switch the triggers of the tables with foreign keys, which
+     * includes the internal triggers that check the foreign keys. Note that this requires
+     * superuser privileges, and that the existing rows are not checked when enabling them.
+     * 
+     * @param database The database model
+     * @param enable   Whether to enable the triggers
+     */
+    private void writeTriggerStmts(Database database, boolean enable) throws IOException
+    {
+        for (int idx = 0; idx < database.getTableCount(); idx++)
+        {
+            Table table = database.getTable(idx);
+
+            if (table.getForeignKeyCount() > 0)
+            {
+                writeTableAlterStmt(table);
+                print(enable ? "ENABLE" : "DISABLE");
+                print(" TRIGGER ALL");
+                printEndOfStatement();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected String createPaginatedQuery(String sql, boolean ordered, int start, int end)
+    {
+        return createLimitOffsetQuery(sql, start, end);
+    }
 }
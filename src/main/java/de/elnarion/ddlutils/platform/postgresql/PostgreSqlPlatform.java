@@ -30,8 +30,6 @@ import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import org.apache.commons.beanutils.DynaBean;
-
 import de.elnarion.ddlutils.DatabaseOperationException;
 import de.elnarion.ddlutils.PlatformInfo;
 import de.elnarion.ddlutils.alteration.AddColumnChange;
@@ -39,12 +37,12 @@ import de.elnarion.ddlutils.alteration.ModelComparator;
 import de.elnarion.ddlutils.alteration.RemoveColumnChange;
 import de.elnarion.ddlutils.alteration.TableChange;
 import de.elnarion.ddlutils.alteration.TableDefinitionChangesPredicate;
-import de.elnarion.ddlutils.dynabean.SqlDynaProperty;
 import de.elnarion.ddlutils.model.Column;
 import de.elnarion.ddlutils.model.Database;
 import de.elnarion.ddlutils.model.Table;
 import de.elnarion.ddlutils.platform.CreationParameters;
 import de.elnarion.ddlutils.platform.DefaultTableDefinitionChangesPredicate;
+import de.elnarion.ddlutils.platform.ParameterBinder;
 import de.elnarion.ddlutils.platform.PlatformImplBase;
 
 /**
@@ -72,6 +70,14 @@ public class PostgreSqlPlatform extends PlatformImplBase
         // this is the default length though it might be changed when building PostgreSQL
         // in file src/include/postgres_ext.h
         info.setMaxIdentifierLength(31);
+        info.setMultiRowInsertSupported(true);
+        info.setGeneratedKeysReadable(true);
+        info.setGeneratedKeysReadableInBatchMode(true);
+        info.setReferentialIntegrityDisablingSupported(true);
+        // the JDBC driver cannot bind more than 32767 parameters in one statement
+        info.setMaxParametersPerStatement(32767);
+        // the JDBC driver only uses a cursor for queries when not in auto-commit mode
+        info.setAutoCommitDisabledForStreaming(true);
 
         info.addNativeTypeMapping(Types.ARRAY,         "BYTEA",            Types.LONGVARBINARY);
         info.addNativeTypeMapping(Types.BINARY,        "BYTEA",            Types.LONGVARBINARY);
@@ -228,30 +234,33 @@ public class PostgreSqlPlatform extends PlatformImplBase
     /**
      * {@inheritDoc}
      */
-    protected void setObject(PreparedStatement statement, int sqlIndex, DynaBean dynaBean, SqlDynaProperty property) throws SQLException
+    protected ParameterBinder createParameterBinder(Column column)
     {
-        int     typeCode = property.getColumn().getTypeCode();
-        Object  value    = dynaBean.get(property.getName());
+        final ParameterBinder binder = super.createParameterBinder(column);
 
-        // PostgreSQL doesn't like setNull for BYTEA columns
-        if (value == null)
+        switch (column.getTypeCode())
         {
-            switch (typeCode)
-            {
-                case Types.BINARY:
-                case Types.VARBINARY:
-                case Types.LONGVARBINARY:
-                case Types.BLOB:
-                    statement.setBytes(sqlIndex, null);
-                    break;
-                default:
-                    statement.setNull(sqlIndex, typeCode);
-                    break;
-            }
-        }
-        else
-        {
-            super.setObject(statement, sqlIndex, dynaBean, property);
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return new ParameterBinder()
+                {
+                    public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException
+                    {
+                        // PostgreSQL doesn't like setNull for BYTEA columns
+                        if (value == null)
+                        {
+                            statement.setBytes(sqlIndex, null);
+                        }
+                        else
+                        {
+                            binder.bind(statement, sqlIndex, value);
+                        }
+                    }
+                };
+            default:
+                return binder;
         }
     }
 
@@ -21,6 +21,8 @@ package de.elnarion.ddlutils;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
 
 import de.elnarion.ddlutils.Platform;
 import de.elnarion.ddlutils.PlatformFactory;
@@ -261,4 +263,61 @@ public abstract class TestPlatformBase extends TestBase
 
         return getDatabaseCreationSql(schema);
     }
+
+    /**
+     * Returns the SQL that disables and then enables the referential integrity checks
+     * for a test database with a foreign key.
+     * 
+     * @return The SQL
+     */
+    protected String getReferentialIntegrityTestSql() throws IOException
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n" +
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='integritytest'>\n" +
+            "  <table name='parent'>\n" +
+            "    <column name='COL_PK' type='INTEGER' primaryKey='true' required='true'/>\n" +
+            "  </table>\n" +
+            "  <table name='child'>\n" +
+            "    <column name='COL_PK' type='INTEGER' primaryKey='true' required='true'/>\n" +
+            "    <column name='COL_FK' type='INTEGER'/>\n" +
+            "    <foreign-key name='child_parent' foreignTable='parent'>\n" +
+            "      <reference local='COL_FK' foreign='COL_PK'/>\n" +
+            "    </foreign-key>\n" +
+            "  </table>\n" +
+            "</database>";
+
+        Database testDb = parseDatabaseFromString(schema);
+
+        getPlatform().setSqlCommentsOn(false);
+        getPlatform().getSqlBuilder().disableReferentialIntegrity(testDb);
+        getPlatform().getSqlBuilder().enableReferentialIntegrity(testDb);
+        return getBuilderOutput();
+    }
+
+    /**
+     * Returns the upsert SQL for a prepared statement for the test table of the upsert tests.
+     * 
+     * @return The SQL, or <code>null</code> if the platform does not support upserts
+     */
+    protected String getUpsertTestSql()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n" +
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='upserttest'>\n" +
+            "  <table name='upserttable'>\n" +
+            "    <column name='COL_PK' type='INTEGER' primaryKey='true' required='true'/>\n" +
+            "    <column name='COL_TEXT' type='VARCHAR' size='32'/>\n" +
+            "    <column name='COL_INT' type='INTEGER'/>\n" +
+            "  </table>\n" +
+            "</database>";
+
+        Database            testDb       = parseDatabaseFromString(schema);
+        Map<String, Object> columnValues = new HashMap<>();
+
+        columnValues.put("COL_PK", null);
+        columnValues.put("COL_TEXT", null);
+        columnValues.put("COL_INT", null);
+        return getSqlBuilder().getUpsertSql(testDb.getTable(0), columnValues, true);
+    }
 }
@@ -0,0 +1,207 @@
+package de.elnarion.ddlutils.dynabean;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.beanutils.DynaBean;
+
+import de.elnarion.ddlutils.TestBase;
+import de.elnarion.ddlutils.io.DatabaseIO;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Table;
+
+/**
+ * Tests the {@link SqlDynaBean} class.
+ *
+ * @version $Revision: $
+ */
+public class TestSqlDynaBean extends TestBase
+{
+    /** The test table. */
+    private Table _table;
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+
+        Database model = parseDatabaseFromString(
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='beantest'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='TheId' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='TheText' type='VARCHAR' size='15'/>\n"+
+            "    <column name='TheValue' type='DOUBLE'/>\n"+
+            "  </table>\n"+
+            "</database>");
+
+        _table = model.findTable("TestTable");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void tearDown() throws Exception
+    {
+        _table = null;
+        super.tearDown();
+    }
+
+    /**
+     * Tests that the values can be accessed both by name and by property index.
+     */
+    public void testAccessByNameAndIndex() throws Exception
+    {
+        SqlDynaClass dynaClass = SqlDynaClass.newInstance(_table);
+        DynaBean     bean      = dynaClass.newInstance();
+
+        assertTrue(bean instanceof SqlDynaBean);
+        assertEquals(0, dynaClass.getPropertyIndex("TheId"));
+        assertEquals(2, dynaClass.getPropertyIndex("TheValue"));
+        assertEquals(-1, dynaClass.getPropertyIndex("Other"));
+
+        SqlDynaBean sqlBean = (SqlDynaBean)bean;
+
+        assertNull(sqlBean.get("TheText"));
+        sqlBean.set("TheId", Integer.valueOf(1));
+        sqlBean.set(dynaClass.getPropertyIndex("TheText"), "Text 1");
+
+        assertEquals(Integer.valueOf(1), sqlBean.get(0));
+        assertEquals("Text 1", sqlBean.get("TheText"));
+        assertNull(sqlBean.get("TheValue"));
+        assertEquals("TestTable: TheId = 1, TheText = Text 1, TheValue = null", sqlBean.toString());
+        assertEquals(3, sqlBean.getMap().size());
+        assertEquals("Text 1", sqlBean.getMap().get("TheText"));
+
+        try
+        {
+            sqlBean.get("Other");
+            fail();
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // expected
+        }
+        try
+        {
+            sqlBean.set("Other", "value");
+            fail();
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that the beans can be serialized.
+     */
+    public void testSerialization() throws Exception
+    {
+        SqlDynaClass dynaClass = SqlDynaClass.newInstance(_table);
+        SqlDynaBean  bean      = new SqlDynaBean(dynaClass);
+
+        bean.set("TheId", Integer.valueOf(1));
+        bean.set("TheText", "Text 1");
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ObjectOutputStream    output = new ObjectOutputStream(buffer);
+
+        output.writeObject(bean);
+        output.close();
+
+        SqlDynaBean copy = (SqlDynaBean)new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray())).readObject();
+
+        assertEquals(Integer.valueOf(1), copy.get("TheId"));
+        assertEquals("Text 1", copy.get(1));
+        assertNull(copy.get("TheValue"));
+        assertEquals("Text 1", copy.getMap().get("TheText"));
+    }
+
+    /**
+     * Tests the equals and hashCode implementations.
+     */
+    public void testEquality() throws Exception
+    {
+        SqlDynaClass dynaClass = SqlDynaClass.newInstance(_table);
+        SqlDynaBean  bean1     = new SqlDynaBean(dynaClass);
+        SqlDynaBean  bean2     = new SqlDynaBean(dynaClass);
+
+        bean1.set("TheId", Integer.valueOf(1));
+        bean1.set("TheText", "Text 1");
+        bean2.set(0, Integer.valueOf(1));
+        bean2.set(1, "Text 1");
+
+        assertEquals(bean1, bean2);
+        assertEquals(bean1.hashCode(), bean2.hashCode());
+
+        bean2.set("TheId", Integer.valueOf(2));
+
+        assertFalse(bean1.equals(bean2));
+        assertFalse(bean1.equals(new SqlDynaBean(SqlDynaClass.newInstance(_table))));
+    }
+
+    /**
+     * Tests the access to indexed and mapped values.
+     */
+    public void testIndexedAndMappedValues() throws Exception
+    {
+        SqlDynaBean         bean   = new SqlDynaBean(SqlDynaClass.newInstance(_table));
+        List<String>        list   = new ArrayList<>();
+        Map<String, String> map    = new HashMap<>();
+        int[]               values = new int[] { 1, 2 };
+
+        list.add("a");
+        bean.set("TheText", list);
+        bean.set("TheText", 0, "b");
+        assertEquals("b", bean.get("TheText", 0));
+
+        bean.set("TheValue", values);
+        bean.set("TheValue", 1, Integer.valueOf(3));
+        assertEquals(Integer.valueOf(3), bean.get("TheValue", 1));
+
+        bean.set("TheId", map);
+        bean.set("TheId", "key", "value");
+        assertTrue(bean.contains("TheId", "key"));
+        assertEquals("value", bean.get("TheId", "key"));
+        bean.remove("TheId", "key");
+        assertFalse(bean.contains("TheId", "key"));
+
+        try
+        {
+            bean.get("TheId", 0);
+            fail();
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // expected
+        }
+    }
+}
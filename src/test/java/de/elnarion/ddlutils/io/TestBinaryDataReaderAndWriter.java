@@ -0,0 +1,327 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.beanutils.DynaBean;
+
+import de.elnarion.ddlutils.DdlUtilsException;
+import de.elnarion.ddlutils.dynabean.SqlDynaBean;
+import de.elnarion.ddlutils.model.Database;
+
+/**
+ * Tests the {@link BinaryDataWriter} and {@link BinaryDataReader} classes.
+ * 
+ * @version $Revision: $
+ */
+public class TestBinaryDataReaderAndWriter extends TestCase
+{
+    /** The test model. */
+    private static final String TEST_MODEL =
+        "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+        "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='test'>\n"+
+        "  <table name='Author'>\n"+
+        "    <column name='Id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "    <column name='Name' type='VARCHAR' size='50'/>\n"+
+        "    <column name='Salary' type='DECIMAL' size='10,2'/>\n"+
+        "  </table>\n"+
+        "  <table name='Book'>\n"+
+        "    <column name='Id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "    <column name='Published' type='TIMESTAMP'/>\n"+
+        "    <column name='Cover' type='VARBINARY' size='100'/>\n"+
+        "    <column name='Available' type='BOOLEAN'/>\n"+
+        "  </table>\n"+
+        "</database>";
+
+    /** The temporary data file. */
+    private File _file;
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _file = File.createTempFile("ddlutils", ".bin");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void tearDown() throws Exception
+    {
+        _file.delete();
+        _file = null;
+        super.tearDown();
+    }
+
+    /**
+     * Reads the given schema xml into a {@link Database} object.
+     * 
+     * @param schemaXml The schema xml
+     * @return The database model object
+     */
+    private Database readModel(String schemaXml)
+    {
+        return new DatabaseIO().read(new StringReader(schemaXml));
+    }
+
+    /**
+     * Writes the given beans to the data file.
+     * 
+     * @param beans     The beans
+     * @param blockSize The block size
+     */
+    private void writeBeans(List<DynaBean> beans, int blockSize) throws Exception
+    {
+        FileOutputStream output = new FileOutputStream(_file);
+
+        try
+        {
+            BinaryDataWriter writer = new BinaryDataWriter(output);
+
+            writer.setBlockSize(blockSize);
+            writer.start();
+            for (DynaBean bean : beans)
+            {
+                writer.addBean(bean);
+            }
+            writer.end();
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    /**
+     * Reads the beans from the data file.
+     * 
+     * @param model The model
+     * @return The beans
+     */
+    private List<DynaBean> readBeans(Database model)
+    {
+        final List<DynaBean> beans  = new ArrayList<DynaBean>();
+        BinaryDataReader     reader = new BinaryDataReader();
+
+        reader.setModel(model);
+        reader.setSink(new DataSink()
+        {
+            public void start()
+            {}
+
+            public void addBean(DynaBean bean)
+            {
+                beans.add(bean);
+            }
+
+            public void end()
+            {}
+        });
+        reader.read(_file);
+        return beans;
+    }
+
+    /**
+     * Creates the test beans.
+     * 
+     * @param model The model
+     * @return The beans
+     */
+    private List<DynaBean> createBeans(Database model)
+    {
+        List<DynaBean> beans = new ArrayList<DynaBean>();
+
+        for (int idx = 0; idx < 100; idx++)
+        {
+            DynaBean author = model.createDynaBeanFor("Author", false);
+            DynaBean book   = model.createDynaBeanFor("Book", false);
+
+            author.set("Id", Integer.valueOf(idx));
+            author.set("Name", idx % 10 == 0 ? null : "Author ä€ " + idx);
+            author.set("Salary", new BigDecimal("1234.5" + idx));
+
+            Timestamp published = new Timestamp(1000000000000L + idx * 1000L);
+
+            published.setNanos(123456789);
+            book.set("Id", Integer.valueOf(idx));
+            book.set("Published", published);
+            book.set("Cover", new byte[] { (byte)idx, -1, 0 });
+            book.set("Available", Boolean.valueOf(idx % 2 == 0));
+            beans.add(author);
+            beans.add(book);
+        }
+        return beans;
+    }
+
+    /**
+     * Tests writing and reading rows of different tables across multiple blocks.
+     */
+    public void testRoundtrip() throws Exception
+    {
+        Database       model = readModel(TEST_MODEL);
+        List<DynaBean> beans = createBeans(model);
+
+        writeBeans(beans, 100);
+
+        List<DynaBean> readBeans = readBeans(model);
+
+        assertEquals(beans.size(), readBeans.size());
+        for (int idx = 0; idx < beans.size(); idx++)
+        {
+            DynaBean expected = beans.get(idx);
+            DynaBean actual   = readBeans.get(idx);
+
+            if (idx % 2 == 0)
+            {
+                assertEquals(expected, actual);
+            }
+            else
+            {
+                // the byte array is compared by identity in equals
+                assertEquals(expected.get("Id"), actual.get("Id"));
+                assertEquals(expected.get("Published"), actual.get("Published"));
+                assertEquals(expected.get("Available"), actual.get("Available"));
+                assertTrue(Arrays.equals((byte[])expected.get("Cover"), (byte[])actual.get("Cover")));
+            }
+        }
+    }
+
+    /**
+     * Tests that the rows of tables and the values of columns that are not part of the model
+     * are ignored.
+     */
+    public void testUndefinedTableAndColumn() throws Exception
+    {
+        writeBeans(createBeans(readModel(TEST_MODEL)), 100);
+
+        Database model = readModel(
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='test'>\n"+
+            "  <table name='Author'>\n"+
+            "    <column name='Id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='Name' type='VARCHAR' size='50'/>\n"+
+            "  </table>\n"+
+            "</database>");
+
+        List<DynaBean> beans = readBeans(model);
+
+        assertEquals(100, beans.size());
+        assertEquals(Integer.valueOf(99), beans.get(99).get("Id"));
+        assertEquals("Author ä€ 99", beans.get(99).get("Name"));
+        assertEquals("Author", ((SqlDynaBean)beans.get(99)).getDynaClass().getName());
+    }
+
+    /**
+     * Tests that a corrupted block is detected.
+     */
+    public void testCorruptedBlock() throws Exception
+    {
+        writeBeans(createBeans(readModel(TEST_MODEL)), 100);
+
+        RandomAccessFile file = new RandomAccessFile(_file, "rw");
+
+        try
+        {
+            // a byte in the middle of the data is part of the payload of some block
+            long position = file.length() / 2;
+
+            file.seek(position);
+
+            int value = file.read();
+
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+        finally
+        {
+            file.close();
+        }
+        try
+        {
+            readBeans(readModel(TEST_MODEL));
+            fail();
+        }
+        catch (DdlUtilsException ex)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that invalid lengths in the table header, which is not checksummed,
+     * are reported instead of causing huge allocations.
+     */
+    public void testCorruptedTableHeader() throws Exception
+    {
+        Database model = readModel(TEST_MODEL);
+
+        // the name length follows the file header and the record tag,
+        // the column count follows the name
+        long   nameOffset = 7;
+        long[] offsets    = { nameOffset, nameOffset, -1, -1 };
+        int[]  values     = { -1, 0x7FFFFFF0, -1, 0x7FFFFFF0 };
+
+        for (int idx = 0; idx < offsets.length; idx++)
+        {
+            writeBeans(createBeans(model), 100);
+
+            RandomAccessFile file = new RandomAccessFile(_file, "rw");
+
+            try
+            {
+                long offset = offsets[idx];
+
+                if (offset < 0)
+                {
+                    file.seek(nameOffset);
+                    offset = nameOffset + 4 + file.readInt();
+                }
+                file.seek(offset);
+                file.writeInt(values[idx]);
+            }
+            finally
+            {
+                file.close();
+            }
+            try
+            {
+                readBeans(model);
+                fail();
+            }
+            catch (DdlUtilsException ex)
+            {
+                // expected
+            }
+        }
+    }
+}
@@ -25,11 +25,15 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
+import java.io.PipedReader;
+import java.io.PipedWriter;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 import junit.framework.TestCase;
 import org.apache.commons.beanutils.DynaBean;
 import org.apache.commons.codec.binary.Base64;
@@ -41,6 +45,7 @@ import de.elnarion.ddlutils.io.DataSink;
 import de.elnarion.ddlutils.io.DataSinkException;
 import de.elnarion.ddlutils.io.DataWriter;
 import de.elnarion.ddlutils.io.DatabaseIO;
+import de.elnarion.ddlutils.io.DdlUtilsXMLException;
 import de.elnarion.ddlutils.model.Column;
 import de.elnarion.ddlutils.model.Database;
 import de.elnarion.ddlutils.model.Table;
@@ -1865,4 +1870,223 @@ public class TestDataReaderAndWriter extends TestCase
                       "  </test>\n" +
                       "</data>\n");
     }
+
+    /**
+     * Tests reading data with a pipelined reader, with more rows than fit into the queues
+     * between the stages.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    public void testPipelinedRead() throws Exception
+    {
+        Database model = readModel(
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='test'>\n" +
+            "  <table name='first'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='text' type='VARCHAR' size='50'/>\n"+
+            "  </table>\n"+
+            "  <table name='second'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "  </table>\n"+
+            "</database>");
+        StringBuffer dataXml = new StringBuffer();
+
+        dataXml.append("<?xml version='1.0' encoding='ISO-8859-1'?>\n<data>\n");
+        for (int idx = 0; idx < 1000; idx++)
+        {
+            dataXml.append("  <first id='" + idx + "' text='Text " + idx + "'/>\n");
+            dataXml.append("  <second id='" + idx + "'/>\n");
+        }
+        dataXml.append("</data>");
+
+        ArrayList<DynaBean> beans      = new ArrayList<>();
+        DataReader          dataReader = new DataReader();
+
+        dataReader.setModel(model);
+        dataReader.setSink(new TestDataSink(beans));
+        dataReader.setPipelined(true);
+        dataReader.setPipelineQueueSize(16);
+        dataReader.read(new StringReader(dataXml.toString()));
+
+        assertEquals(2000, beans.size());
+        for (int idx = 0; idx < 1000; idx++)
+        {
+            DynaBean first  = (DynaBean)beans.get(2 * idx);
+            DynaBean second = (DynaBean)beans.get(2 * idx + 1);
+
+            assertEquals("first", first.getDynaClass().getName());
+            assertEquals(new Integer(idx), first.get("id"));
+            assertEquals("Text " + idx, first.get("text"));
+            assertEquals("second", second.getDynaClass().getName());
+            assertEquals(new Integer(idx), second.get("id"));
+        }
+    }
+
+    /**
+     * Tests that an error of the sink stops a pipelined reader and is thrown to the caller.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    public void testPipelinedReadWithSinkError() throws Exception
+    {
+        Database model = readModel(
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='test'>\n" +
+            "  <table name='test'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "  </table>\n"+
+            "</database>");
+        StringBuffer dataXml = new StringBuffer();
+
+        dataXml.append("<?xml version='1.0' encoding='ISO-8859-1'?>\n<data>\n");
+        for (int idx = 0; idx < 1000; idx++)
+        {
+            dataXml.append("  <test id='" + idx + "'/>\n");
+        }
+        dataXml.append("</data>");
+
+        final ArrayList<DynaBean> beans      = new ArrayList<>();
+        DataReader                dataReader = new DataReader();
+
+        dataReader.setModel(model);
+        dataReader.setSink(new TestDataSink(beans)
+        {
+            public void addBean(DynaBean bean) throws DataSinkException
+            {
+                if (beans.size() == 10)
+                {
+                    throw new DataSinkException("Sink failure");
+                }
+                super.addBean(bean);
+            }
+        });
+        dataReader.setPipelined(true);
+        dataReader.setPipelineQueueSize(4);
+        try
+        {
+            dataReader.read(new StringReader(dataXml.toString()));
+            fail();
+        }
+        catch (DataSinkException ex)
+        {
+            assertEquals("Sink failure", ex.getMessage());
+        }
+        assertEquals(10, beans.size());
+    }
+
+    /**
+     * Tests that a pipelined reader waits for the sink to finish the current bean before
+     * throwing a parse error to the caller.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    public void testPipelinedReadWaitsForStagesAfterError() throws Exception
+    {
+        Database model = readModel(
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='test'>\n" +
+            "  <table name='test'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "  </table>\n"+
+            "</database>");
+        final CountDownLatch      started    = new CountDownLatch(1);
+        final AtomicBoolean       finished   = new AtomicBoolean(false);
+        final ArrayList<DynaBean> beans      = new ArrayList<>();
+        DataReader                dataReader = new DataReader();
+
+        dataReader.setModel(model);
+        dataReader.setSink(new TestDataSink(beans)
+        {
+            public void addBean(DynaBean bean) throws DataSinkException
+            {
+                started.countDown();
+
+                long end = System.currentTimeMillis() + 500;
+
+                // simulates a sink that does not react to interrupts, e.g. while inserting
+                while (System.currentTimeMillis() < end)
+                {
+                    try
+                    {
+                        Thread.sleep(end - System.currentTimeMillis());
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        // ignored
+                    }
+                }
+                super.addBean(bean);
+                finished.set(true);
+            }
+        });
+        dataReader.setPipelined(true);
+
+        final PipedWriter xmlWriter = new PipedWriter();
+        PipedReader       xmlReader = new PipedReader(xmlWriter);
+        Thread            producer  = new Thread()
+        {
+            public void run()
+            {
+                try
+                {
+                    xmlWriter.write("<?xml version='1.0' encoding='ISO-8859-1'?>\n<data>\n  <test id='1'/>\n");
+                    xmlWriter.flush();
+                    started.await();
+                    xmlWriter.write("  <test id=</data>");
+                    xmlWriter.close();
+                }
+                catch (Exception ex)
+                {
+                    // the test will fail
+                }
+            }
+        };
+
+        producer.start();
+        try
+        {
+            dataReader.read(xmlReader);
+            fail();
+        }
+        catch (DdlUtilsXMLException ex)
+        {
+            // expected
+        }
+        producer.join();
+        assertTrue(finished.get());
+        assertEquals(1, beans.size());
+    }
+
+    /**
+     * Tests that invalid pipeline queue sizes are rejected by the setter.
+     */
+    public void testInvalidPipelineQueueSize()
+    {
+        DataReader dataReader = new DataReader();
+
+        try
+        {
+            dataReader.setPipelineQueueSize(0);
+            fail();
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // expected
+        }
+        try
+        {
+            dataReader.setPipelineQueueSize(-1);
+            fail();
+        }
+        catch (IllegalArgumentException ex)
+        {
+            // expected
+        }
+        dataReader.setPipelineQueueSize(1);
+        assertEquals(1, dataReader.getPipelineQueueSize());
+    }
 }
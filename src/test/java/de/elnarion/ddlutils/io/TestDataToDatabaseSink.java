@@ -0,0 +1,792 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.beanutils.DynaBean;
+
+import de.elnarion.ddlutils.DatabaseOperationException;
+import de.elnarion.ddlutils.TestBase;
+import de.elnarion.ddlutils.model.Column;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Table;
+import de.elnarion.ddlutils.platform.BatchInsertBulkLoader;
+import de.elnarion.ddlutils.platform.BulkLoader;
+import de.elnarion.ddlutils.platform.TestPlatform;
+
+/**
+ * Tests the {@link DataToDatabaseSink} without a database.
+ *
+ * @version $Revision: $
+ */
+public class TestDataToDatabaseSink extends TestBase
+{
+    /** The system property that defines the number of rows for the tree benchmark. */
+    public static final String TREE_ROW_COUNT_PROPERTY = "ddlutils.sink.treeRowCount";
+
+    /**
+     * Platform that records the order of the inserted rows instead of
+     * writing them to a database.
+     */
+    private static class RecordingPlatform extends TestPlatform implements InvocationHandler
+    {
+        /** For each pk the position at which the row was inserted. */
+        private final int[] _insertPositions;
+        /** The number of inserted rows. */
+        private int _insertCount;
+        /** Whether the connections are in auto-commit mode. */
+        private boolean _autoCommit = true;
+        /** The pks of the rows whose insertion fails. */
+        private final Set<Integer> _failingPks = new HashSet<>();
+        /** The number of executed batches. */
+        private int _batchCount;
+        /** The number of rows inserted when the connection was committed. */
+        private final List<Integer> _commits = new ArrayList<>();
+        /** The number of set savepoints. */
+        private int _savepointCount;
+        /** The number of rollbacks to a savepoint. */
+        private int _rollbackCount;
+        /** The connections that were rolled back. */
+        private final List<Object> _rolledBackConnections = new ArrayList<>();
+        /** The number of rows inserted when the referential integrity checks were disabled, or <code>-1</code>. */
+        private int _integrityDisabledAt = -1;
+        /** The number of rows inserted when the referential integrity checks were enabled, or <code>-1</code>. */
+        private int _integrityEnabledAt = -1;
+        /** The borrowed connections. */
+        private final List<Connection> _borrowedConnections = new ArrayList<>();
+        /** For each pk the connection via which the row was inserted. */
+        private final Map<Integer, Connection> _insertConnections = new HashMap<>();
+        /** The number of rows of each call of the bulk loader. */
+        private final List<Integer> _bulkLoads = new ArrayList<>();
+        /** Whether the platform generates the values of the auto-increment columns. */
+        private boolean _generatingKeys;
+        /** The last generated key. */
+        private int _lastGeneratedKey;
+        /** The inserted rows. */
+        private final List<DynaBean> _insertedBeans = new ArrayList<>();
+
+        /**
+         * Creates a new platform instance.
+         *
+         * @param rowCount The number of rows that will be inserted
+         */
+        public RecordingPlatform(int rowCount)
+        {
+            _insertPositions = new int[rowCount];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public synchronized Connection borrowConnection() throws DatabaseOperationException
+        {
+            Connection connection = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Connection.class }, this);
+
+            _borrowedConnections.add(connection);
+            return connection;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public synchronized Object invoke(Object proxy, Method method, Object[] args)
+        {
+            String name = method.getName();
+
+            if ("getAutoCommit".equals(name))
+            {
+                return Boolean.valueOf(_autoCommit);
+            }
+            else if ("getMetaData".equals(name))
+            {
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { DatabaseMetaData.class }, this);
+            }
+            else if ("supportsSavepoints".equals(name))
+            {
+                return Boolean.TRUE;
+            }
+            else if ("commit".equals(name))
+            {
+                _commits.add(Integer.valueOf(_insertCount));
+            }
+            else if ("setSavepoint".equals(name))
+            {
+                _savepointCount++;
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Savepoint.class }, this);
+            }
+            else if ("rollback".equals(name))
+            {
+                _rollbackCount++;
+                _rolledBackConnections.add(proxy);
+            }
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public synchronized void insert(Connection connection, Database model, DynaBean dynaBean) throws DatabaseOperationException
+        {
+            if (_generatingKeys)
+            {
+                Column[] autoIncrementColumns = model.getDynaClassFor(dynaBean).getTable().getAutoIncrementColumns();
+
+                for (int idx = 0; idx < autoIncrementColumns.length; idx++)
+                {
+                    dynaBean.set(autoIncrementColumns[idx].getName(), Integer.valueOf(++_lastGeneratedKey));
+                }
+            }
+
+            int pk = ((Integer)dynaBean.get("pk")).intValue();
+
+            if (_failingPks.contains(Integer.valueOf(pk)))
+            {
+                throw new DatabaseOperationException("Insert failed");
+            }
+            _insertedBeans.add(dynaBean);
+            _insertPositions[pk] = _insertCount++;
+            _insertConnections.put(Integer.valueOf(pk), connection);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public synchronized void insert(Connection connection, Database model, Collection<DynaBean> dynaBeans) throws DatabaseOperationException
+        {
+            _batchCount++;
+            for (Iterator<DynaBean> it = dynaBeans.iterator(); it.hasNext();)
+            {
+                if (_failingPks.contains(it.next().get("pk")))
+                {
+                    throw new DatabaseOperationException("Batch failed");
+                }
+            }
+            for (Iterator<DynaBean> it = dynaBeans.iterator(); it.hasNext();)
+            {
+                insert(connection, model, it.next());
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public BulkLoader getBulkLoader()
+        {
+            return new BatchInsertBulkLoader(this)
+            {
+                public void load(Connection connection, Database model, Table table, Iterator<DynaBean> rows) throws DatabaseOperationException
+                {
+                    int count = 0;
+
+                    while (rows.hasNext())
+                    {
+                        RecordingPlatform.this.insert(connection, model, rows.next());
+                        count++;
+                    }
+                    _bulkLoads.add(Integer.valueOf(count));
+                }
+            };
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void disableReferentialIntegrity(Connection connection, Database model) throws DatabaseOperationException
+        {
+            _integrityDisabledAt = _insertCount;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void enableReferentialIntegrity(Connection connection, Database model, boolean validate) throws DatabaseOperationException
+        {
+            assertTrue(validate);
+            _integrityEnabledAt = _insertCount;
+        }
+
+        /**
+         * Returns the number of inserted rows.
+         *
+         * @return The number of rows
+         */
+        public int getInsertCount()
+        {
+            return _insertCount;
+        }
+
+        /**
+         * Returns the position at which the row with the given pk was inserted.
+         *
+         * @param pk The pk of the row
+         * @return The position
+         */
+        public int getInsertPosition(int pk)
+        {
+            return _insertPositions[pk];
+        }
+    }
+
+    /**
+     * Creates the model with a single table.
+     *
+     * @return The model
+     */
+    private Database createSimpleModel()
+    {
+        return parseDatabaseFromString(
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='sinktest'>\n"+
+            "  <table name='simple'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='text' type='VARCHAR' size='100'/>\n"+
+            "  </table>\n"+
+            "</database>");
+    }
+
+    /**
+     * Inserts the given number of rows into the simple table via the sink.
+     *
+     * @param model    The model
+     * @param sink     The sink
+     * @param rowCount The number of rows
+     */
+    private void insertSimpleRows(Database model, DataToDatabaseSink sink, int rowCount)
+    {
+        sink.start();
+        for (int pk = 0; pk < rowCount; pk++)
+        {
+            DynaBean bean = model.createDynaBeanFor(model.getTable(0));
+
+            bean.set("pk", Integer.valueOf(pk));
+            bean.set("text", "0123456789");
+            sink.addBean(bean);
+        }
+        sink.end();
+    }
+
+    /**
+     * Tests that each row is committed on its own per default.
+     */
+    public void testCommitEachRow() throws Exception
+    {
+        Database           model    = createSimpleModel();
+        RecordingPlatform  platform = new RecordingPlatform(5);
+        DataToDatabaseSink sink     = new DataToDatabaseSink(platform, model);
+
+        platform._autoCommit = false;
+        insertSimpleRows(model, sink, 5);
+
+        assertEquals(Arrays.asList(new Integer[] { 1, 2, 3, 4, 5 }), platform._commits);
+        assertEquals(0, platform._savepointCount);
+    }
+
+    /**
+     * Tests the commit interval in rows and in bytes.
+     */
+    public void testCommitInterval() throws Exception
+    {
+        Database           model    = createSimpleModel();
+        RecordingPlatform  platform = new RecordingPlatform(10);
+        DataToDatabaseSink sink     = new DataToDatabaseSink(platform, model);
+
+        platform._autoCommit = false;
+        sink.setCommitInterval(4);
+        insertSimpleRows(model, sink, 10);
+
+        // the rest is committed at the end
+        assertEquals(Arrays.asList(new Integer[] { 4, 8, 10 }), platform._commits);
+
+        platform  = new RecordingPlatform(10);
+        sink      = new DataToDatabaseSink(platform, model);
+        platform._autoCommit = false;
+        sink.setCommitInterval(0);
+        // each row has about 18 bytes
+        sink.setCommitIntervalBytes(50);
+        insertSimpleRows(model, sink, 10);
+
+        assertEquals(Arrays.asList(new Integer[] { 3, 6, 9, 10 }), platform._commits);
+    }
+
+    /**
+     * Tests that a failed row is rolled back to its savepoint if errors do not halt the sink.
+     */
+    public void testSavepointForFailedRow() throws Exception
+    {
+        Database           model    = createSimpleModel();
+        RecordingPlatform  platform = new RecordingPlatform(10);
+        DataToDatabaseSink sink     = new DataToDatabaseSink(platform, model);
+
+        platform._autoCommit = false;
+        platform._failingPks.add(Integer.valueOf(3));
+        sink.setHaltOnErrors(false);
+        sink.setCommitInterval(100);
+        insertSimpleRows(model, sink, 10);
+
+        assertEquals(9, platform.getInsertCount());
+        assertEquals(10, platform._savepointCount);
+        assertEquals(1, platform._rollbackCount);
+        assertEquals(Arrays.asList(new Integer[] { 9 }), platform._commits);
+        assertEquals(1, sink.getRejectedRowCount());
+    }
+
+    /**
+     * Tests that the failing rows of a batch are isolated by splitting the batch, and that
+     * they are handed to the rejected row handler.
+     */
+    public void testBatchBisection() throws Exception
+    {
+        Database                 model       = createSimpleModel();
+        RecordingPlatform        platform    = new RecordingPlatform(100);
+        DataToDatabaseSink       sink        = new DataToDatabaseSink(platform, model);
+        final ArrayList<String>  rejectedIds = new ArrayList<>();
+
+        platform._autoCommit = false;
+        platform._failingPks.addAll(Arrays.asList(new Integer[] { 5, 37, 38 }));
+        sink.setHaltOnErrors(false);
+        sink.setUseBatchMode(true);
+        sink.setBatchSize(16);
+        sink.setRejectedRowHandler(new RejectedRowHandler()
+        {
+            public void rowRejected(Identity identity, DynaBean bean, Exception reason)
+            {
+                rejectedIds.add(identity.toString());
+            }
+        });
+        insertSimpleRows(model, sink, 100);
+
+        assertEquals(97, platform.getInsertCount());
+        assertEquals(Arrays.asList(new String[] { "simple:pk=5", "simple:pk=37", "simple:pk=38" }), rejectedIds);
+        assertEquals(3, sink.getRejectedRowCount());
+        // one rollback for each failed batch and sub batch
+        assertEquals(2 + 4 + 6, platform._rollbackCount);
+        // the good rows are still inserted in batches
+        assertTrue(platform._batchCount < 40);
+        for (int pk = 1; pk < 100; pk++)
+        {
+            if (!platform._failingPks.contains(Integer.valueOf(pk)) && !platform._failingPks.contains(Integer.valueOf(pk - 1)))
+            {
+                assertTrue(platform.getInsertPosition(pk - 1) < platform.getInsertPosition(pk));
+            }
+        }
+    }
+
+    /**
+     * Tests that the batches of tables without dependent rows are handed to the bulk loader,
+     * and that tables with a self-reference are inserted as usual.
+     */
+    public void testBulkLoad() throws Exception
+    {
+        Database           model    = createSimpleModel();
+        RecordingPlatform  platform = new RecordingPlatform(10);
+        DataToDatabaseSink sink     = new DataToDatabaseSink(platform, model);
+
+        sink.setUseBulkLoad(true);
+        sink.setBatchSize(4);
+        insertSimpleRows(model, sink, 10);
+
+        assertEquals(10, platform.getInsertCount());
+        assertEquals(Arrays.asList(new Integer[] { 4, 4, 2 }), platform._bulkLoads);
+        for (int pk = 0; pk < 10; pk++)
+        {
+            assertEquals(pk, platform.getInsertPosition(pk));
+        }
+
+        model = parseDatabaseFromString(
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='sinktest'>\n"+
+            "  <table name='tree'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='parent' type='INTEGER'/>\n"+
+            "    <foreign-key foreignTable='tree'>\n"+
+            "      <reference local='parent' foreign='pk'/>\n"+
+            "    </foreign-key>\n"+
+            "  </table>\n"+
+            "</database>");
+        platform = new RecordingPlatform(10);
+        sink     = new DataToDatabaseSink(platform, model);
+        sink.setUseBulkLoad(true);
+        sink.setBatchSize(4);
+        sink.start();
+        for (int pk = 0; pk < 10; pk++)
+        {
+            DynaBean bean = model.createDynaBeanFor(model.getTable(0));
+
+            bean.set("pk", Integer.valueOf(pk));
+            if (pk > 0)
+            {
+                bean.set("parent", Integer.valueOf((pk - 1) / 2));
+            }
+            sink.addBean(bean);
+        }
+        sink.end();
+
+        assertEquals(10, platform.getInsertCount());
+        assertTrue(platform._bulkLoads.isEmpty());
+    }
+
+    /**
+     * Tests writing the rejected rows as data XML that can be read again.
+     */
+    public void testRejectedRowWriter() throws Exception
+    {
+        Database              model    = createSimpleModel();
+        RecordingPlatform     platform = new RecordingPlatform(10);
+        DataToDatabaseSink    sink     = new DataToDatabaseSink(platform, model);
+        ByteArrayOutputStream output   = new ByteArrayOutputStream();
+        RejectedRowWriter     writer   = new RejectedRowWriter(output, "UTF-8");
+
+        platform._failingPks.addAll(Arrays.asList(new Integer[] { 2, 7 }));
+        sink.setHaltOnErrors(false);
+        sink.setRejectedRowHandler(writer);
+        insertSimpleRows(model, sink, 10);
+        writer.close();
+
+        assertEquals(2, writer.getRowCount());
+
+        final ArrayList<DynaBean> beans  = new ArrayList<>();
+        DataReader                reader = new DataReader();
+
+        reader.setModel(model);
+        reader.setSink(new DataSink()
+        {
+            public void start()
+            {}
+
+            public void addBean(DynaBean bean)
+            {
+                beans.add(bean);
+            }
+
+            public void end()
+            {}
+        });
+        reader.read(new ByteArrayInputStream(output.toByteArray()));
+
+        assertEquals(2, beans.size());
+        assertEquals(Integer.valueOf(2), ((DynaBean)beans.get(0)).get("pk"));
+        assertEquals(Integer.valueOf(7), ((DynaBean)beans.get(1)).get("pk"));
+        assertEquals("0123456789", ((DynaBean)beans.get(1)).get("text"));
+    }
+
+    /**
+     * Tests loading a tree table in reverse order, i.e. with every child row
+     * preceding its parent row. The number of rows can be set via the system
+     * property {@value #TREE_ROW_COUNT_PROPERTY}, e.g. to 1000000 for benchmarking.
+     */
+    public void testTreeInReverseOrder() throws Exception
+    {
+        loadTreeInReverseOrder(null);
+    }
+
+    /**
+     * Tests loading a tree table in reverse order with the identities of the inserted
+     * rows being spilled to disk.
+     */
+    public void testTreeInReverseOrderWithSpilledIdentities() throws Exception
+    {
+        loadTreeInReverseOrder(new File(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Loads a binary tree in reverse order and checks that every row was inserted
+     * after its parent row.
+     *
+     * @param identitySpillDirectory The directory for spilling the identities, if any
+     */
+    private void loadTreeInReverseOrder(File identitySpillDirectory) throws Exception
+    {
+        RecordingPlatform platform = loadTreeInReverseOrder(identitySpillDirectory, false);
+
+        for (int pk = 1; pk < platform.getInsertCount(); pk++)
+        {
+            assertTrue(platform.getInsertPosition((pk - 1) / 2) < platform.getInsertPosition(pk));
+        }
+    }
+
+    /**
+     * Tests loading a tree table in reverse order with the referential integrity checks
+     * disabled, in which case the rows are inserted in the order in which they arrive.
+     */
+    public void testTreeInReverseOrderWithoutReferentialIntegrity() throws Exception
+    {
+        RecordingPlatform platform = loadTreeInReverseOrder(null, true);
+        int               rowCount = platform.getInsertCount();
+
+        assertEquals(0, platform._integrityDisabledAt);
+        assertEquals(rowCount, platform._integrityEnabledAt);
+        for (int pk = 0; pk < rowCount; pk++)
+        {
+            assertEquals(rowCount - 1 - pk, platform.getInsertPosition(pk));
+        }
+    }
+
+    /**
+     * Tests that in parallel mode the rows of a table whose generated identity values are
+     * referenced by other rows, are inserted via the connection of the sink.
+     */
+    public void testParallelInsertWithGeneratedIdentities() throws Exception
+    {
+        Database model = parseDatabaseFromString(
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='sinktest'>\n"+
+            "  <table name='parent'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true' autoIncrement='true'/>\n"+
+            "  </table>\n"+
+            "  <table name='child'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='parentpk' type='INTEGER'/>\n"+
+            "    <foreign-key foreignTable='parent'>\n"+
+            "      <reference local='parentpk' foreign='pk'/>\n"+
+            "    </foreign-key>\n"+
+            "  </table>\n"+
+            "</database>");
+        RecordingPlatform  platform = new RecordingPlatform(10);
+        DataToDatabaseSink sink     = new DataToDatabaseSink(platform, model);
+
+        sink.setParallelConnectionCount(2);
+        sink.setBatchSize(2);
+        sink.start();
+        for (int idx = 0; idx < 5; idx++)
+        {
+            DynaBean child  = model.createDynaBeanFor("child", false);
+            DynaBean parent = model.createDynaBeanFor("parent", false);
+
+            child.set("pk", Integer.valueOf(idx + 5));
+            child.set("parentpk", Integer.valueOf(idx));
+            parent.set("pk", Integer.valueOf(idx));
+            sink.addBean(child);
+            sink.addBean(parent);
+        }
+        sink.end();
+
+        Connection sinkConnection = platform._borrowedConnections.get(0);
+
+        assertEquals(10, platform.getInsertCount());
+        assertEquals(3, platform._borrowedConnections.size());
+        for (int pk = 0; pk < 5; pk++)
+        {
+            assertSame(sinkConnection, platform._insertConnections.get(Integer.valueOf(pk)));
+            assertNotSame(sinkConnection, platform._insertConnections.get(Integer.valueOf(pk + 5)));
+            assertTrue(platform.getInsertPosition(pk) < platform.getInsertPosition(pk + 5));
+        }
+    }
+
+    /**
+     * Tests that a failed parallel batch is rolled back on its connection if errors do not
+     * halt the sink, and that its rows are bisected and rejected like those of a serial batch.
+     */
+    public void testParallelInsertWithFailedBatch() throws Exception
+    {
+        Database                model       = createSimpleModel();
+        RecordingPlatform       platform    = new RecordingPlatform(20);
+        DataToDatabaseSink      sink        = new DataToDatabaseSink(platform, model);
+        final ArrayList<String> rejectedIds = new ArrayList<>();
+
+        platform._autoCommit = false;
+        platform._failingPks.add(Integer.valueOf(5));
+        sink.setHaltOnErrors(false);
+        sink.setParallelConnectionCount(2);
+        sink.setBatchSize(4);
+        sink.setRejectedRowHandler(new RejectedRowHandler()
+        {
+            public void rowRejected(Identity identity, DynaBean bean, Exception reason)
+            {
+                rejectedIds.add(identity.toString());
+            }
+        });
+        insertSimpleRows(model, sink, 20);
+
+        Connection sinkConnection = platform._borrowedConnections.get(0);
+
+        assertEquals(19, platform.getInsertCount());
+        assertEquals(Arrays.asList(new String[] { "simple:pk=5" }), rejectedIds);
+        assertEquals(1, sink.getRejectedRowCount());
+        // the parallel connection is rolled back, then the rows of the batch are bisected
+        // via the connection of the sink
+        assertTrue(platform._rolledBackConnections.size() > 1);
+        assertNotSame(sinkConnection, platform._rolledBackConnections.get(0));
+        for (int idx = 1; idx < platform._rolledBackConnections.size(); idx++)
+        {
+            assertSame(sinkConnection, platform._rolledBackConnections.get(idx));
+        }
+        for (int pk = 4; pk < 8; pk++)
+        {
+            if (pk != 5)
+            {
+                assertSame(sinkConnection, platform._insertConnections.get(Integer.valueOf(pk)));
+            }
+        }
+    }
+
+    /**
+     * Tests that batch mode maps the foreign keys to the identity values that the platform
+     * generated for the referenced rows of a batch.
+     */
+    public void testBatchInsertWithGeneratedKeys() throws Exception
+    {
+        Database model = parseDatabaseFromString(
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='sinktest'>\n"+
+            "  <table name='parent'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true' autoIncrement='true'/>\n"+
+            "  </table>\n"+
+            "  <table name='child'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='parentpk' type='INTEGER'/>\n"+
+            "    <foreign-key foreignTable='parent'>\n"+
+            "      <reference local='parentpk' foreign='pk'/>\n"+
+            "    </foreign-key>\n"+
+            "  </table>\n"+
+            "</database>");
+        RecordingPlatform  platform = new RecordingPlatform(102);
+        DataToDatabaseSink sink     = new DataToDatabaseSink(platform, model);
+        int[][]            rows     = { { 100, 10 }, { 10 }, { 12 }, { 13 }, { 101, 13 } };
+
+        platform._generatingKeys = true;
+        sink.setUseBatchMode(true);
+        sink.setBatchSize(2);
+        sink.start();
+        for (int idx = 0; idx < rows.length; idx++)
+        {
+            DynaBean bean = model.createDynaBeanFor(rows[idx].length == 1 ? "parent" : "child", false);
+
+            bean.set("pk", Integer.valueOf(rows[idx][0]));
+            if (rows[idx].length > 1)
+            {
+                bean.set("parentpk", Integer.valueOf(rows[idx][1]));
+            }
+            sink.addBean(bean);
+        }
+        sink.end();
+
+        assertEquals(5, platform.getInsertCount());
+        assertTrue(platform._batchCount > 0);
+
+        Map<Integer, Integer> parentPks = new HashMap<>();
+
+        for (Iterator<DynaBean> it = platform._insertedBeans.iterator(); it.hasNext();)
+        {
+            DynaBean bean = it.next();
+
+            if (model.getDynaClassFor(bean).getTable().getName().equals("child"))
+            {
+                parentPks.put((Integer)bean.get("pk"), (Integer)bean.get("parentpk"));
+                // the referenced row has to be inserted first
+                assertTrue(platform.getInsertPosition(((Integer)bean.get("parentpk")).intValue()) < platform.getInsertPosition(((Integer)bean.get("pk")).intValue()));
+            }
+        }
+        // the parents got the keys 1, 2 and 3 in the order of their insertion
+        assertEquals(Integer.valueOf(1), parentPks.get(Integer.valueOf(100)));
+        assertEquals(Integer.valueOf(3), parentPks.get(Integer.valueOf(101)));
+    }
+
+    /**
+     * Tests that the referential integrity checks are enabled again when a failed row
+     * aborts the insertion.
+     */
+    public void testReferentialIntegrityEnabledAfterError() throws Exception
+    {
+        Database           model    = createSimpleModel();
+        RecordingPlatform  platform = new RecordingPlatform(10);
+        DataToDatabaseSink sink     = new DataToDatabaseSink(platform, model);
+
+        platform.getPlatformInfo().setReferentialIntegrityDisablingSupported(true);
+        platform._failingPks.add(Integer.valueOf(3));
+        sink.setDisableReferentialIntegrity(true);
+        try
+        {
+            insertSimpleRows(model, sink, 10);
+            fail();
+        }
+        catch (DataSinkException ex)
+        {
+            // expected
+        }
+        assertEquals(0, platform._integrityDisabledAt);
+        assertEquals(3, platform._integrityEnabledAt);
+    }
+
+    /**
+     * Loads a binary tree in reverse order.
+     *
+     * @param identitySpillDirectory      The directory for spilling the identities, if any
+     * @param disableReferentialIntegrity Whether to disable the referential integrity checks
+     * @return The platform that recorded the inserts
+     */
+    private RecordingPlatform loadTreeInReverseOrder(File identitySpillDirectory, boolean disableReferentialIntegrity) throws Exception
+    {
+        final String modelXml =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='sinktest'>\n"+
+            "  <table name='tree'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='parent' type='INTEGER'/>\n"+
+            "    <foreign-key foreignTable='tree'>\n"+
+            "      <reference local='parent' foreign='pk'/>\n"+
+            "    </foreign-key>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        int                rowCount = Integer.getInteger(TREE_ROW_COUNT_PROPERTY, 10000).intValue();
+        Database           model    = parseDatabaseFromString(modelXml);
+        RecordingPlatform  platform = new RecordingPlatform(rowCount);
+        DataToDatabaseSink sink     = new DataToDatabaseSink(platform, model);
+        long               start    = System.currentTimeMillis();
+
+        platform.getPlatformInfo().setReferentialIntegrityDisablingSupported(true);
+        sink.setIdentitySpillDirectory(identitySpillDirectory);
+        sink.setDisableReferentialIntegrity(disableReferentialIntegrity);
+        sink.start();
+        for (int pk = rowCount - 1; pk >= 0; pk--)
+        {
+            DynaBean bean = model.createDynaBeanFor(model.getTable(0));
+
+            bean.set("pk", Integer.valueOf(pk));
+            // a binary tree with the root node 0
+            bean.set("parent", pk > 0 ? Integer.valueOf((pk - 1) / 2) : null);
+            sink.addBean(bean);
+        }
+        sink.end();
+
+        getLog().info("Inserted " + rowCount + " tree rows in reverse order in " + (System.currentTimeMillis() - start) + " ms");
+
+        assertEquals(rowCount, platform.getInsertCount());
+        return platform;
+    }
+}
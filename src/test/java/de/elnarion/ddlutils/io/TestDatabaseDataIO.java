@@ -0,0 +1,215 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+
+import junit.framework.TestCase;
+
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.platform.FixedResultSet;
+import de.elnarion.ddlutils.platform.TestPlatform;
+
+/**
+ * Tests the {@link DatabaseDataIO} class.
+ * 
+ * @version $Revision: $
+ */
+public class TestDatabaseDataIO extends TestCase
+{
+    /** The test model. */
+    private static final String TEST_MODEL =
+        "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+        "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='test'>\n"+
+        "  <table name='Book'>\n"+
+        "    <column name='Id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "    <column name='AuthorId' type='INTEGER'/>\n"+
+        "    <column name='Price' type='DECIMAL' size='10,2'/>\n"+
+        "    <foreign-key foreignTable='Author'>\n"+
+        "      <reference local='AuthorId' foreign='Id'/>\n"+
+        "    </foreign-key>\n"+
+        "  </table>\n"+
+        "  <table name='Author'>\n"+
+        "    <column name='Id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "    <column name='Name' type='VARCHAR' size='50'/>\n"+
+        "  </table>\n"+
+        "  <table name='Misc'>\n"+
+        "    <column name='Id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "    <column name='Data' type='VARBINARY' size='10'/>\n"+
+        "    <column name='Stamp' type='TIMESTAMP'/>\n"+
+        "  </table>\n"+
+        "</database>";
+
+    /**
+     * Creates the result set for the given query.
+     * 
+     * @param sql The query
+     * @return The result set
+     */
+    private static FixedResultSet createResultSet(String sql)
+    {
+        if (sql.endsWith("Author"))
+        {
+            Object[][] rows = new Object[500][];
+
+            for (int idx = 0; idx < rows.length; idx++)
+            {
+                rows[idx] = new Object[] { Integer.valueOf(idx), idx % 7 == 0 ? null : "Author <" + idx + ">" };
+            }
+            return new FixedResultSet("AUTHOR", new String[] { "ID", "NAME" }, rows);
+        }
+        else if (sql.endsWith("Book"))
+        {
+            Object[][] rows = new Object[2000][];
+
+            for (int idx = 0; idx < rows.length; idx++)
+            {
+                rows[idx] = new Object[] { Integer.valueOf(idx), Integer.valueOf(idx % 500), new BigDecimal(idx + ".25") };
+            }
+            return new FixedResultSet("BOOK", new String[] { "ID", "AUTHORID", "PRICE" }, rows);
+        }
+        else
+        {
+            Timestamp stamp = new Timestamp(1000000000000L);
+
+            stamp.setNanos(5000);
+            return new FixedResultSet("MISC", new String[] { "ID", "DATA", "STAMP" },
+                                      new Object[][] { { Integer.valueOf(1), new byte[] { 1, 2, 3 }, stamp } });
+        }
+    }
+
+    /**
+     * Creates a platform whose connections serve fixed rows for the tables of the test model.
+     * 
+     * @return The platform
+     */
+    private TestPlatform createPlatform()
+    {
+        return new TestPlatform()
+        {
+            public Connection borrowConnection()
+            {
+                InvocationHandler jdbc = new InvocationHandler()
+                {
+                    /** The connection. */
+                    private Connection _connection;
+                    /** The query of the statement. */
+                    private String _sql;
+
+                    public Object invoke(Object proxy, Method method, Object[] args)
+                    {
+                        String name = method.getName();
+
+                        if ("prepareStatement".equals(name))
+                        {
+                            _connection = (Connection)proxy;
+                            _sql        = (String)args[0];
+                            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { PreparedStatement.class }, this);
+                        }
+                        else if ("executeQuery".equals(name))
+                        {
+                            FixedResultSet resultSet = createResultSet(_sql);
+
+                            resultSet.setStatement((Statement)proxy);
+                            return resultSet.getResultSet();
+                        }
+                        else if ("getConnection".equals(name))
+                        {
+                            return _connection;
+                        }
+                        else if ("getAutoCommit".equals(name))
+                        {
+                            return Boolean.TRUE;
+                        }
+                        else if ("isClosed".equals(name))
+                        {
+                            return Boolean.FALSE;
+                        }
+                        return null;
+                    }
+                };
+
+                return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Connection.class }, jdbc);
+            }
+        };
+    }
+
+    /**
+     * Writes the data of the test model to XML.
+     * 
+     * @param dataIO The data io
+     * @return The XML
+     */
+    private String writeDataToXML(DatabaseDataIO dataIO)
+    {
+        Database     model  = new DatabaseIO().read(new StringReader(TEST_MODEL));
+        StringWriter output = new StringWriter();
+
+        dataIO.writeDataToXML(createPlatform(), model, output, "UTF-8");
+        return output.toString();
+    }
+
+    /**
+     * Tests that reading the tables concurrently produces the same XML as reading them
+     * one after another.
+     */
+    public void testParallelExport() throws Exception
+    {
+        File segmentDir = File.createTempFile("ddlutils", "segments");
+
+        segmentDir.delete();
+        segmentDir.mkdir();
+        try
+        {
+            String         expected = writeDataToXML(new DatabaseDataIO());
+            DatabaseDataIO dataIO   = new DatabaseDataIO();
+
+            dataIO.setExportConnectionCount(3);
+            dataIO.setExportSegmentDirectory(segmentDir);
+
+            assertEquals(expected, writeDataToXML(dataIO));
+            // the authors are written before the books that reference them
+            assertTrue(expected.indexOf("<Author Id=\"499\"") > 0);
+            assertTrue(expected.indexOf("<Author Id=\"499\"") < expected.indexOf("<Book Id=\"0\""));
+            assertTrue(expected.indexOf("<Misc Id=\"1\" Data=\"AQID\"") > 0);
+            assertEquals(0, segmentDir.list().length);
+        }
+        finally
+        {
+            File[] files = segmentDir.listFiles();
+
+            for (int idx = 0; (files != null) && (idx < files.length); idx++)
+            {
+                files[idx].delete();
+            }
+            segmentDir.delete();
+        }
+    }
+}
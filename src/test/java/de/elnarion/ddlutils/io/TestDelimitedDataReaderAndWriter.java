@@ -0,0 +1,213 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.beanutils.DynaBean;
+
+import de.elnarion.ddlutils.DdlUtilsException;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Table;
+
+/**
+ * Tests the {@link DelimitedDataWriter} and {@link DelimitedDataReader} classes.
+ * 
+ * @version $Revision: $
+ */
+public class TestDelimitedDataReaderAndWriter extends TestCase
+{
+    /** The test model. */
+    private static final String TEST_MODEL =
+        "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+        "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='test'>\n"+
+        "  <table name='Author'>\n"+
+        "    <column name='Id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "    <column name='Name' type='VARCHAR' size='50'/>\n"+
+        "    <column name='Notes' type='LONGVARCHAR'/>\n"+
+        "  </table>\n"+
+        "</database>";
+
+    /** The test model. */
+    private Database _model;
+    /** The test table. */
+    private Table _table;
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _model = new DatabaseIO().read(new StringReader(TEST_MODEL));
+        _table = _model.findTable("Author");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void tearDown() throws Exception
+    {
+        _model = null;
+        _table = null;
+        super.tearDown();
+    }
+
+    /**
+     * Reads the beans from the given delimited text.
+     * 
+     * @param text      The text
+     * @param delimiter The delimiter
+     * @return The beans
+     */
+    private List<DynaBean> readBeans(String text, char delimiter)
+    {
+        final List<DynaBean> beans  = new ArrayList<DynaBean>();
+        DelimitedDataReader  reader = new DelimitedDataReader();
+
+        reader.setModel(_model);
+        reader.setDelimiter(delimiter);
+        reader.setSink(new DataSink()
+        {
+            public void start()
+            {}
+
+            public void addBean(DynaBean bean)
+            {
+                beans.add(bean);
+            }
+
+            public void end()
+            {}
+        });
+        reader.read(_table, new StringReader(text));
+        return beans;
+    }
+
+    /**
+     * Creates a bean of the test table.
+     * 
+     * @param id    The id
+     * @param name  The name
+     * @param notes The notes
+     * @return The bean
+     */
+    private DynaBean createBean(int id, String name, String notes)
+    {
+        DynaBean bean = _model.createDynaBeanFor(_table);
+
+        bean.set("Id", Integer.valueOf(id));
+        bean.set("Name", name);
+        bean.set("Notes", notes);
+        return bean;
+    }
+
+    /**
+     * Tests writing and reading values that need to be quoted.
+     */
+    public void testRoundtrip() throws Exception
+    {
+        List<DynaBean> beans = new ArrayList<DynaBean>();
+
+        beans.add(createBean(1, "Smith, John", "He said \"hi\"\r\nand left"));
+        beans.add(createBean(2, null, ""));
+        beans.add(createBean(3, "Doe\tJane", "ä€\n"));
+
+        StringWriter        output = new StringWriter();
+        DelimitedDataWriter writer = new DelimitedDataWriter(output, _table, DelimitedDataWriter.CSV_DELIMITER);
+
+        writer.writeHeader();
+        for (DynaBean bean : beans)
+        {
+            writer.write(bean);
+        }
+        writer.flush();
+        assertEquals("Id,Name,Notes\r\n" +
+                     "1,\"Smith, John\",\"He said \"\"hi\"\"\r\nand left\"\r\n" +
+                     "2,,\"\"\r\n" +
+                     "3,Doe\tJane,\"ä€\n\"\r\n",
+                     output.toString());
+        assertEquals(beans, readBeans(output.toString(), DelimitedDataWriter.CSV_DELIMITER));
+    }
+
+    /**
+     * Tests reading TSV with unknown and missing columns, and values spanning the buffer.
+     */
+    public void testReadTsv() throws Exception
+    {
+        StringBuilder longValue = new StringBuilder();
+
+        for (int idx = 0; longValue.length() < 100000; idx++)
+        {
+            longValue.append(idx);
+        }
+
+        List<DynaBean> beans = readBeans("\uFEFFnotes\tUnknown\tid\n" +
+                                         longValue + "\tskipped\t1\n" +
+                                         "\"" + longValue + "\"\t" + longValue + "\t2\textra\n" +
+                                         "\t\t3",
+                                         DelimitedDataWriter.TSV_DELIMITER);
+
+        assertEquals(3, beans.size());
+        assertEquals(createBean(1, null, longValue.toString()), beans.get(0));
+        assertEquals(createBean(2, null, longValue.toString()), beans.get(1));
+        assertEquals(createBean(3, null, null), beans.get(2));
+    }
+
+    /**
+     * Tests that blank records, including trailing empty lines, are skipped.
+     */
+    public void testBlankRecords() throws Exception
+    {
+        List<DynaBean> beans = readBeans("Id,Name\r\n" +
+                                         "\r\n" +
+                                         "1,Smith\r\n" +
+                                         "\n\n" +
+                                         "2,\"\"\r\n" +
+                                         "\r\n",
+                                         DelimitedDataWriter.CSV_DELIMITER);
+
+        assertEquals(2, beans.size());
+        assertEquals(createBean(1, "Smith", null), beans.get(0));
+        assertEquals(createBean(2, "", null), beans.get(1));
+        assertTrue(readBeans("Id,Name\n\n", DelimitedDataWriter.CSV_DELIMITER).isEmpty());
+    }
+
+    /**
+     * Tests that an unterminated quoted field is detected.
+     */
+    public void testUnterminatedQuote() throws Exception
+    {
+        try
+        {
+            readBeans("Id,Name\r\n1,\"Smith\r\n", DelimitedDataWriter.CSV_DELIMITER);
+            fail();
+        }
+        catch (DdlUtilsException ex)
+        {
+            // expected
+        }
+    }
+}
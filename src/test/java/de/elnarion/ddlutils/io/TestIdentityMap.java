@@ -0,0 +1,158 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+
+import de.elnarion.ddlutils.TestBase;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Table;
+
+/**
+ * Tests the {@link IdentityMap} class.
+ *
+ * @version $Revision: $
+ */
+public class TestIdentityMap extends TestBase
+{
+    /** The test model. */
+    private Database _model;
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _model = parseDatabaseFromString(
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='identitytest'>\n"+
+            "  <table name='single'>\n"+
+            "    <column name='pk' type='BIGINT' primaryKey='true' required='true'/>\n"+
+            "  </table>\n"+
+            "  <table name='multi'>\n"+
+            "    <column name='pk1' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='pk2' type='VARCHAR' size='32' primaryKey='true' required='true'/>\n"+
+            "  </table>\n"+
+            "</database>");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void tearDown() throws Exception
+    {
+        _model = null;
+        super.tearDown();
+    }
+
+    /**
+     * Creates an identity for the given table.
+     *
+     * @param table  The table
+     * @param fkName The foreign key name, if any
+     * @param values The column names and values
+     * @return The identity
+     */
+    private Identity createIdentity(Table table, String fkName, Object... values)
+    {
+        Identity identity = new Identity(table, fkName);
+
+        for (int idx = 0; idx < values.length; idx += 2)
+        {
+            identity.setColumnValue((String)values[idx], values[idx + 1]);
+        }
+        return identity;
+    }
+
+    /**
+     * Tests identities consisting of a single integral value.
+     */
+    public void testIntegralIdentities()
+    {
+        Table       table = _model.findTable("single");
+        IdentityMap map   = new IdentityMap();
+
+        map.put(createIdentity(table, null, "pk", Long.valueOf(0)), createIdentity(table, null, "pk", Long.valueOf(0)));
+        map.put(createIdentity(table, null, "pk", Long.valueOf(1)), createIdentity(table, null, "pk", Long.valueOf(1)));
+        map.put(createIdentity(table, null, "pk", Long.valueOf(2)), createIdentity(table, null, "pk", Long.valueOf(42)));
+
+        assertEquals(3, map.size());
+        assertNull(map.get(createIdentity(table, null, "pk", Long.valueOf(3))));
+
+        Identity fkIdentity = createIdentity(table, "fk", "pk", Integer.valueOf(1));
+
+        assertSame(fkIdentity, map.get(fkIdentity));
+        assertEquals(Integer.valueOf(0), map.get(createIdentity(table, "fk", "pk", Integer.valueOf(0))).getColumnValue("pk"));
+
+        // the mapped value has the type of the given value
+        Identity mapped = map.get(createIdentity(table, "fk", "pk", Integer.valueOf(2)));
+
+        assertEquals(Integer.valueOf(42), mapped.getColumnValue("pk"));
+        assertEquals("fk", mapped.getForeignKeyName());
+        assertEquals(Long.valueOf(42), map.get(createIdentity(table, null, "pk", Long.valueOf(2))).getColumnValue("pk"));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(createIdentity(table, null, "pk", Long.valueOf(1))));
+    }
+
+    /**
+     * Tests identities consisting of multiple values.
+     */
+    public void testCompositeIdentities()
+    {
+        Table       table = _model.findTable("multi");
+        IdentityMap map   = new IdentityMap();
+
+        map.put(createIdentity(table, null, "pk1", Integer.valueOf(1), "pk2", "a"),
+                createIdentity(table, null, "pk1", Integer.valueOf(1), "pk2", "a"));
+        map.put(createIdentity(table, null, "pk1", Integer.valueOf(2), "pk2", "a"),
+                createIdentity(table, null, "pk1", Integer.valueOf(5), "pk2", "a"));
+
+        assertEquals(2, map.size());
+        assertNull(map.get(createIdentity(table, null, "pk1", Integer.valueOf(1), "pk2", "b")));
+        // the columns of a foreign key may be in a different order
+        assertEquals(Integer.valueOf(1), map.get(createIdentity(table, "fk", "pk2", "a", "pk1", Integer.valueOf(1))).getColumnValue("pk1"));
+        assertEquals(Integer.valueOf(5), map.get(createIdentity(table, "fk", "pk2", "a", "pk1", Integer.valueOf(2))).getColumnValue("pk1"));
+    }
+
+    /**
+     * Tests spilling the identities to disk, with enough identities so that the
+     * hash tables need to grow.
+     */
+    public void testSpilledIdentities()
+    {
+        Table       table = _model.findTable("single");
+        IdentityMap map   = new IdentityMap(new File(System.getProperty("java.io.tmpdir")));
+
+        for (long value = -50000; value < 50000; value++)
+        {
+            map.put(createIdentity(table, null, "pk", Long.valueOf(value)), createIdentity(table, null, "pk", Long.valueOf(value * 2)));
+        }
+        assertEquals(100000, map.size());
+        for (long value = -50000; value < 50000; value++)
+        {
+            assertEquals(Long.valueOf(value * 2), map.get(createIdentity(table, null, "pk", Long.valueOf(value))).getColumnValue("pk"));
+        }
+        assertNull(map.get(createIdentity(table, null, "pk", Long.valueOf(50000))));
+        map.clear();
+    }
+}
@@ -0,0 +1,327 @@
+package de.elnarion.ddlutils.io;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import de.elnarion.ddlutils.DatabaseOperationException;
+import de.elnarion.ddlutils.DdlUtilsException;
+import de.elnarion.ddlutils.TestBase;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.platform.TestPlatform;
+
+/**
+ * Tests the {@link IndexRebuilder} class.
+ *
+ * @version $Revision: $
+ */
+public class TestIndexRebuilder extends TestBase
+{
+    /** The test model. */
+    private static final String TEST_MODEL =
+        "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+        "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='indextest'>\n"+
+        "  <table name='first'>\n"+
+        "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "    <column name='a' type='INTEGER'/>\n"+
+        "    <column name='b' type='VARCHAR' size='32'/>\n"+
+        "    <index name='first_a'>\n"+
+        "      <index-column name='a'/>\n"+
+        "    </index>\n"+
+        "    <index name='first_ab'>\n"+
+        "      <index-column name='a'/>\n"+
+        "      <index-column name='b'/>\n"+
+        "    </index>\n"+
+        "    <unique name='first_b'>\n"+
+        "      <unique-column name='b'/>\n"+
+        "    </unique>\n"+
+        "  </table>\n"+
+        "  <table name='second'>\n"+
+        "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "    <column name='c' type='INTEGER'/>\n"+
+        "    <index name='second_c'>\n"+
+        "      <index-column name='c'/>\n"+
+        "    </index>\n"+
+        "  </table>\n"+
+        "</database>";
+
+    /**
+     * Platform that records the executed SQL instead of sending it to a database.
+     */
+    private static class RecordingPlatform extends TestPlatform
+    {
+        /** The executed statements. */
+        private final List<String> _statements = Collections.synchronizedList(new ArrayList<String>());
+        /** The statements that fail, identified by the name of the index. */
+        private final Set<String> _failingIndexes = new HashSet<>();
+        /** The model returned when reading the live database. */
+        private Database _liveModel;
+        /** The url of the database. */
+        private String _url = "jdbc:test:first";
+
+        /**
+         * {@inheritDoc}
+         */
+        public Connection borrowConnection() throws DatabaseOperationException
+        {
+            final DatabaseMetaData metaData = (DatabaseMetaData)Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                                                       new Class[] { DatabaseMetaData.class },
+                                                                                       new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args)
+                {
+                    return "getURL".equals(method.getName()) ? _url : null;
+                }
+            });
+
+            return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                      new Class[] { Connection.class },
+                                                      new InvocationHandler() {
+                public Object invoke(Object proxy, Method method, Object[] args)
+                {
+                    return "getMetaData".equals(method.getName()) ? metaData : null;
+                }
+            });
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void returnConnection(Connection connection)
+        {}
+
+        /**
+         * {@inheritDoc}
+         */
+        public int evaluateBatch(String sql, boolean continueOnError) throws DatabaseOperationException
+        {
+            return evaluateBatch(null, sql, continueOnError);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int evaluateBatch(Connection connection, String sql, boolean continueOnError) throws DatabaseOperationException
+        {
+            String statement = sql.replaceAll("\\s+", " ").trim();
+
+            for (String indexName : _failingIndexes)
+            {
+                if (statement.contains(" " + indexName + " "))
+                {
+                    throw new DatabaseOperationException("Error while executing SQL " + statement);
+                }
+            }
+            _statements.add(statement);
+            return 0;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Database readModelFromDatabase(String name) throws DatabaseOperationException
+        {
+            return _liveModel;
+        }
+    }
+
+    /** The journal file. */
+    private File _journalFile;
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _journalFile = File.createTempFile("indexjournal", ".xml");
+        _journalFile.delete();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void tearDown() throws Exception
+    {
+        _journalFile.delete();
+        _journalFile = null;
+        super.tearDown();
+    }
+
+    /**
+     * Tests dropping and recreating the indexes.
+     */
+    public void testDropAndRecreate() throws Exception
+    {
+        RecordingPlatform platform  = new RecordingPlatform();
+        IndexRebuilder    rebuilder = new IndexRebuilder(platform, _journalFile);
+
+        assertEquals(3, rebuilder.dropIndexes(parseDatabaseFromString(TEST_MODEL)));
+        assertEquals(3, platform._statements.size());
+        assertTrue(platform._statements.contains("DROP INDEX first_a ON first;"));
+        assertTrue(platform._statements.contains("DROP INDEX first_ab ON first;"));
+        assertTrue(platform._statements.contains("DROP INDEX second_c ON second;"));
+        assertTrue(rebuilder.isRebuildPending());
+
+        Database journal = new DatabaseIO().read(_journalFile);
+
+        assertEquals(2, journal.getTableCount());
+        assertEquals(2, journal.findTable("first").getIndexCount());
+        assertEquals(1, journal.findTable("second").getIndexCount());
+
+        platform._statements.clear();
+        rebuilder.setConnectionCount(2);
+        rebuilder.recreateIndexes();
+
+        assertEquals(3, platform._statements.size());
+        assertTrue(platform._statements.contains("CREATE INDEX first_a ON first (a);"));
+        assertTrue(platform._statements.contains("CREATE INDEX first_ab ON first (a, b);"));
+        assertTrue(platform._statements.contains("CREATE INDEX second_c ON second (c);"));
+        assertFalse(rebuilder.isRebuildPending());
+    }
+
+    /**
+     * Tests that indexes that cannot be dropped are not recorded in the journal.
+     */
+    public void testIndexThatCannotBeDropped() throws Exception
+    {
+        RecordingPlatform platform  = new RecordingPlatform();
+        IndexRebuilder    rebuilder = new IndexRebuilder(platform, _journalFile);
+
+        platform._failingIndexes.add("first_a");
+        assertEquals(2, rebuilder.dropIndexes(parseDatabaseFromString(TEST_MODEL)));
+
+        Database journal = new DatabaseIO().read(_journalFile);
+
+        assertNull(journal.findTable("first").findIndex("first_a"));
+        assertNotNull(journal.findTable("first").findIndex("first_ab"));
+    }
+
+    /**
+     * Tests that a failed recreation leaves the remaining indexes in the journal, and
+     * that the rebuild can be completed afterwards.
+     */
+    public void testCompletePendingRebuild() throws Exception
+    {
+        RecordingPlatform platform  = new RecordingPlatform();
+        IndexRebuilder    rebuilder = new IndexRebuilder(platform, _journalFile);
+
+        rebuilder.dropIndexes(parseDatabaseFromString(TEST_MODEL));
+        platform._failingIndexes.add("second_c");
+        try
+        {
+            rebuilder.recreateIndexes();
+            fail();
+        }
+        catch (DdlUtilsException ex)
+        {
+            // expected
+        }
+        assertTrue(rebuilder.isRebuildPending());
+
+        Database journal = new DatabaseIO().read(_journalFile);
+
+        assertEquals(0, journal.findTable("first").getIndexCount());
+        assertEquals(1, journal.findTable("second").getIndexCount());
+
+        try
+        {
+            rebuilder.dropIndexes(parseDatabaseFromString(TEST_MODEL));
+            fail();
+        }
+        catch (DdlUtilsException ex)
+        {
+            // expected
+        }
+
+        // the aborted run created the index but could not update the journal anymore
+        Database liveModel = parseDatabaseFromString(TEST_MODEL);
+
+        liveModel.findTable("second").removeIndex(0);
+        platform._liveModel = liveModel;
+        platform._failingIndexes.clear();
+        platform._statements.clear();
+
+        IndexRebuilder newRebuilder = new IndexRebuilder(platform, _journalFile);
+
+        assertTrue(newRebuilder.isRebuildPending());
+        newRebuilder.completePendingRebuild();
+        assertEquals(1, platform._statements.size());
+        assertEquals("CREATE INDEX second_c ON second (c);", platform._statements.get(0));
+        assertFalse(newRebuilder.isRebuildPending());
+    }
+
+    /**
+     * Tests that a journal written for a different database is not replayed, and that
+     * the default journal files of different databases differ.
+     */
+    public void testJournalOfDifferentDatabase() throws Exception
+    {
+        RecordingPlatform platform  = new RecordingPlatform();
+        IndexRebuilder    rebuilder = new IndexRebuilder(platform, _journalFile);
+
+        platform._url = "jdbc:test:first?password=secret";
+        rebuilder.dropIndexes(parseDatabaseFromString(TEST_MODEL));
+
+        // only a hash of the identity is written to the journal
+        String journalXml = new String(Files.readAllBytes(_journalFile.toPath()), StandardCharsets.UTF_8);
+
+        assertFalse(journalXml.contains("secret"));
+
+        RecordingPlatform otherPlatform = new RecordingPlatform();
+
+        otherPlatform._url = "jdbc:test:second";
+
+        IndexRebuilder otherRebuilder = new IndexRebuilder(otherPlatform, _journalFile);
+
+        assertTrue(otherRebuilder.isRebuildPending());
+        try
+        {
+            otherRebuilder.completePendingRebuild();
+            fail();
+        }
+        catch (DdlUtilsException ex)
+        {
+            // expected
+        }
+        assertTrue(otherPlatform._statements.isEmpty());
+        assertTrue(rebuilder.isRebuildPending());
+        assertFalse(new IndexRebuilder(platform).getJournalFile().equals(new IndexRebuilder(otherPlatform).getJournalFile()));
+
+        RecordingPlatform samePlatform = new RecordingPlatform();
+
+        samePlatform._url = platform._url;
+        assertEquals(new IndexRebuilder(platform).getJournalFile(), new IndexRebuilder(samePlatform).getJournalFile());
+
+        rebuilder.recreateIndexes();
+        assertFalse(rebuilder.isRebuildPending());
+    }
+}
@@ -1048,4 +1048,209 @@ public class TestMisc extends TestAgainstLiveDatabaseBase
         assertEquals(new Integer(1), beans.get(0), "Pk");
         assertEquals((Object)"foo",  beans.get(0), "Avalue");
     }
+
+    /**
+     * Tests the insertion of data via the bulk loader of the platform.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    public void testBulkLoad() throws Exception
+    {
+        final String modelXml = 
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='roundtriptest'>\n"+
+            "  <table name='misc1'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='avalue' type='VARCHAR' size='32' required='false'/>\n"+
+            "    <column name='bvalue' type='INTEGER' required='false' default='42'/>\n"+
+            "  </table>\n"+
+            "  <table name='misc2'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='fk' type='INTEGER' required='false'/>\n"+
+            "    <foreign-key name='test' foreignTable='misc1'>\n"+
+            "      <reference local='fk' foreign='pk'/>\n"+
+            "    </foreign-key>\n"+
+            "  </table>\n"+
+            "</database>";
+        final String dataXml =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<data>\n"+
+            "  <misc2 pk='1' fk='2'/>\n"+
+            "  <misc1 pk='1' avalue='foo, &quot;bar&quot;' bvalue='1'/>\n"+
+            "  <misc1 pk='2' avalue='' bvalue='2'/>\n"+
+            "  <misc1 pk='3'/>\n"+
+            "  <misc2 pk='2' fk='3'/>\n"+
+            "</data>";
+
+        createDatabase(modelXml);
+
+        DataReader         dataReader = new DataReader();
+        DataToDatabaseSink sink       = new DataToDatabaseSink(getPlatform(), getModel());
+
+        sink.setUseBulkLoad(true);
+        dataReader.setModel(getModel());
+        dataReader.setSink(sink);
+        sink.start();
+        dataReader.read(new StringReader(dataXml));
+        sink.end();
+
+        List<DynaBean> beans1 = getRows("misc1", "pk");
+        List<DynaBean> beans2 = getRows("misc2", "pk");
+
+        assertEquals(3, beans1.size());
+        assertEquals(2, beans2.size());
+        assertEquals(new Integer(1),          beans1.get(0), "pk");
+        assertEquals((Object)"foo, \"bar\"", beans1.get(0), "avalue");
+        assertEquals(new Integer(1),          beans1.get(0), "bvalue");
+        assertEquals(new Integer(2),          beans1.get(1), "pk");
+        assertEquals(new Integer(2),          beans1.get(1), "bvalue");
+        assertEquals(new Integer(3),          beans1.get(2), "pk");
+        assertEquals((Object)null,            beans1.get(2), "avalue");
+        assertEquals(new Integer(42),         beans1.get(2), "bvalue");
+        assertEquals(new Integer(1),          beans2.get(0), "pk");
+        assertEquals(new Integer(2),          beans2.get(0), "fk");
+        assertEquals(new Integer(2),          beans2.get(1), "pk");
+        assertEquals(new Integer(3),          beans2.get(1), "fk");
+    }
+
+    /**
+     * Tests the insertion of data over multiple connections in parallel.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    public void testParallelInsert() throws Exception
+    {
+        final String modelXml = 
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='roundtriptest'>\n"+
+            "  <table name='misc1'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "  </table>\n"+
+            "  <table name='misc2'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "  </table>\n"+
+            "  <table name='misc3'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='fk1' type='INTEGER' required='true'/>\n"+
+            "    <column name='fk2' type='INTEGER' required='true'/>\n"+
+            "    <foreign-key name='test1' foreignTable='misc1'>\n"+
+            "      <reference local='fk1' foreign='pk'/>\n"+
+            "    </foreign-key>\n"+
+            "    <foreign-key name='test2' foreignTable='misc2'>\n"+
+            "      <reference local='fk2' foreign='pk'/>\n"+
+            "    </foreign-key>\n"+
+            "  </table>\n"+
+            "</database>";
+        final int numRows = 50;
+
+        StringBuffer dataXml = new StringBuffer();
+
+        dataXml.append("<?xml version='1.0' encoding='ISO-8859-1'?>\n<data>\n");
+        for (int idx = 0; idx < numRows; idx++)
+        {
+            // the rows referencing the other rows come first so that they have to wait
+            dataXml.append("  <misc3 pk='" + idx + "' fk1='" + idx + "' fk2='" + (numRows - idx - 1) + "'/>\n");
+            dataXml.append("  <misc1 pk='" + idx + "'/>\n");
+            dataXml.append("  <misc2 pk='" + idx + "'/>\n");
+        }
+        dataXml.append("</data>");
+
+        createDatabase(modelXml);
+
+        DataReader         dataReader = new DataReader();
+        DataToDatabaseSink sink       = new DataToDatabaseSink(getPlatform(), getModel());
+
+        sink.setParallelConnectionCount(3);
+        sink.setBatchSize(7);
+        dataReader.setModel(getModel());
+        dataReader.setSink(sink);
+        sink.start();
+        dataReader.read(new StringReader(dataXml.toString()));
+        sink.end();
+
+        List<DynaBean> beans1 = getRows("misc1", "pk");
+        List<DynaBean> beans2 = getRows("misc2", "pk");
+        List<DynaBean> beans3 = getRows("misc3", "pk");
+
+        assertEquals(numRows, beans1.size());
+        assertEquals(numRows, beans2.size());
+        assertEquals(numRows, beans3.size());
+        for (int idx = 0; idx < numRows; idx++)
+        {
+            assertEquals(new Integer(idx),               beans3.get(idx), "pk");
+            assertEquals(new Integer(idx),               beans3.get(idx), "fk1");
+            assertEquals(new Integer(numRows - idx - 1), beans3.get(idx), "fk2");
+        }
+    }
+    /**
+     * Tests that batch mode maps the foreign keys to the identity values that the database
+     * generated for the referenced rows.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    public void testBatchInsertWithGeneratedKeys() throws Exception
+    {
+        if (!getPlatformInfo().isGeneratedKeysReadableInBatchMode())
+        {
+            return;
+        }
+
+        final String modelXml = 
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='roundtriptest'>\n"+
+            "  <table name='misc1'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true' autoIncrement='true'/>\n"+
+            "    <column name='avalue' type='INTEGER' required='false'/>\n"+
+            "  </table>\n"+
+            "  <table name='misc2'>\n"+
+            "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='fk' type='INTEGER' required='false'/>\n"+
+            "    <foreign-key name='test' foreignTable='misc1'>\n"+
+            "      <reference local='fk' foreign='pk'/>\n"+
+            "    </foreign-key>\n"+
+            "  </table>\n"+
+            "</database>";
+        final String dataXml =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<data>\n"+
+            "  <misc2 pk='1' fk='10'/>\n"+
+            "  <misc1 pk='10' avalue='1'/>\n"+
+            "  <misc1 pk='12' avalue='2'/>\n"+
+            "  <misc1 pk='13' avalue='3'/>\n"+
+            "  <misc2 pk='2' fk='13'/>\n"+
+            "</data>";
+
+        createDatabase(modelXml);
+
+        getPlatform().setIdentityOverrideOn(false);
+
+        DataReader         dataReader = new DataReader();
+        DataToDatabaseSink sink       = new DataToDatabaseSink(getPlatform(), getModel());
+
+        sink.setUseBatchMode(true);
+        sink.setBatchSize(2);
+        dataReader.setModel(getModel());
+        dataReader.setSink(sink);
+        sink.start();
+        dataReader.read(new StringReader(dataXml));
+        sink.end();
+
+        List<DynaBean> beans = getRows("misc1");
+
+        assertEquals(3, beans.size());
+        assertEquals(new Integer(1), beans.get(0), "pk");
+        assertEquals(new Integer(2), beans.get(1), "pk");
+        assertEquals(new Integer(3), beans.get(2), "pk");
+
+        beans = getRows("misc2");
+
+        assertEquals(2, beans.size());
+        assertEquals(new Integer(1), beans.get(0), "pk");
+        assertEquals(new Integer(2), beans.get(1), "pk");
+        assertEquals(new Integer(1), beans.get(0), "fk");
+        assertEquals(new Integer(3), beans.get(1), "fk");
+    }
 }
@@ -0,0 +1,151 @@
+package de.elnarion.ddlutils.platform;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result set stand-in that serves fixed rows and records how the values are read.
+ *
+ * @version $Revision: $
+ */
+public class FixedResultSet implements InvocationHandler
+{
+    /** The table name reported for the columns. */
+    private final String _tableName;
+    /** The column names. */
+    private final String[] _columnNames;
+    /** The rows. */
+    private final Object[][] _rows;
+    /** The names of the invoked getter methods together with the type of their argument. */
+    private final List<String> _reads = new ArrayList<>();
+    /** The current row. */
+    private int _rowIdx = -1;
+    /** Whether the last read value was null. */
+    private boolean _wasNull;
+    /** The statement that produced the result set. */
+    private Statement _statement;
+
+    /**
+     * Creates a new result set.
+     *
+     * @param tableName   The table name reported for the columns
+     * @param columnNames The column names
+     * @param rows        The rows
+     */
+    public FixedResultSet(String tableName, String[] columnNames, Object[][] rows)
+    {
+        _tableName   = tableName;
+        _columnNames = columnNames;
+        _rows        = rows;
+    }
+
+    /**
+     * Returns the result set.
+     *
+     * @return The result set
+     */
+    public ResultSet getResultSet()
+    {
+        return (ResultSet)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { ResultSet.class }, this);
+    }
+
+    /**
+     * Sets the statement that is returned as the statement that produced the result set.
+     *
+     * @param statement The statement
+     */
+    public void setStatement(Statement statement)
+    {
+        _statement = statement;
+    }
+
+    /**
+     * Returns the names of the invoked getter methods together with the type of their argument.
+     *
+     * @return The reads
+     */
+    public List<String> getReads()
+    {
+        return _reads;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Object invoke(Object proxy, Method method, Object[] args)
+    {
+        String name = method.getName();
+
+        if ("getStatement".equals(name))
+        {
+            return _statement;
+        }
+        else if ("getMetaData".equals(name))
+        {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { ResultSetMetaData.class }, this);
+        }
+        else if ("getColumnCount".equals(name))
+        {
+            return Integer.valueOf(_columnNames.length);
+        }
+        else if ("getColumnName".equals(name))
+        {
+            return _columnNames[((Integer)args[0]).intValue() - 1];
+        }
+        else if ("getTableName".equals(name))
+        {
+            return _tableName;
+        }
+        else if ("next".equals(name))
+        {
+            return Boolean.valueOf(++_rowIdx < _rows.length);
+        }
+        else if ("wasNull".equals(name))
+        {
+            return Boolean.valueOf(_wasNull);
+        }
+        else if (name.startsWith("get") && (args != null) && (args.length == 1))
+        {
+            _reads.add(name + "(" + args[0].getClass().getSimpleName() + ")");
+
+            Object value = _rows[_rowIdx][((Integer)args[0]).intValue() - 1];
+
+            _wasNull = (value == null);
+            if ("getInt".equals(name))
+            {
+                return Integer.valueOf(value == null ? 0 : ((Number)value).intValue());
+            }
+            else if ("getLong".equals(name))
+            {
+                return Long.valueOf(value == null ? 0 : ((Number)value).longValue());
+            }
+            return value;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,214 @@
+package de.elnarion.ddlutils.platform;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.beanutils.DynaBean;
+
+import de.elnarion.ddlutils.TestBase;
+import de.elnarion.ddlutils.io.DatabaseIO;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.platform.h2.H2BulkLoader;
+import de.elnarion.ddlutils.platform.h2.H2Builder;
+import de.elnarion.ddlutils.platform.h2.H2Platform;
+
+/**
+ * Tests the {@link H2BulkLoader} class without a database.
+ *
+ * @version $Revision: $
+ */
+public class TestH2BulkLoader extends TestBase
+{
+    /** The test model. */
+    private static final String TEST_MODEL =
+        "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+        "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+        "  <table name='TestTable'>\n"+
+        "    <column name='pk' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "    <column name='avalue' type='VARCHAR' size='32'/>\n"+
+        "    <column name='bvalue' type='INTEGER' default='42'/>\n"+
+        "  </table>\n"+
+        "</database>";
+
+    /** Extracts the name of the CSV file from the insert statement. */
+    private static final Pattern CSV_FILE_PATTERN = Pattern.compile("CSVREAD\\('([^']*)'");
+
+    /**
+     * Platform that records the batch inserts, and the statements and CSV files that
+     * the bulk loader hands to the database.
+     */
+    private static class RecordingPlatform extends H2Platform implements InvocationHandler
+    {
+        /** The rows inserted via batch inserts. */
+        private final List<DynaBean> _insertedBeans = new ArrayList<>();
+        /** The executed statements. */
+        private final List<String> _statements = new ArrayList<>();
+        /** The contents of the CSV files at the time the statements were executed. */
+        private final List<String> _csvContents = new ArrayList<>();
+        /** The CSV files. */
+        private final List<File> _csvFiles = new ArrayList<>();
+        /** Whether the statements fail. */
+        private boolean _csvReadFailing;
+
+        /**
+         * Returns the connection.
+         *
+         * @return The connection
+         */
+        public Connection getConnection()
+        {
+            return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Connection.class }, this);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+
+            if ("createStatement".equals(name))
+            {
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Statement.class }, this);
+            }
+            else if ("executeUpdate".equals(name))
+            {
+                String  sql     = (String)args[0];
+                Matcher matcher = CSV_FILE_PATTERN.matcher(sql);
+                File    csvFile;
+
+                _statements.add(sql);
+                assertTrue(matcher.find());
+                csvFile = new File(matcher.group(1));
+                _csvFiles.add(csvFile);
+                _csvContents.add(new String(Files.readAllBytes(csvFile.toPath()), StandardCharsets.UTF_8));
+                if (_csvReadFailing)
+                {
+                    throw new SQLException("CSVREAD not allowed");
+                }
+
+                String[] lines = _csvContents.get(_csvContents.size() - 1).split("\n");
+
+                return Integer.valueOf(lines.length - 1);
+            }
+            return null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void insert(Connection connection, Database model, Collection<DynaBean> dynaBeans)
+        {
+            _insertedBeans.addAll(dynaBeans);
+        }
+    }
+
+    /**
+     * Creates a row of the test table.
+     *
+     * @param model  The model
+     * @param pk     The primary key
+     * @param avalue The value of the avalue column
+     * @param bvalue The value of the bvalue column
+     * @return The row
+     */
+    private DynaBean createBean(Database model, int pk, String avalue, Integer bvalue)
+    {
+        DynaBean bean = model.createDynaBeanFor(model.getTable(0));
+
+        bean.set("pk", Integer.valueOf(pk));
+        bean.set("avalue", avalue);
+        bean.set("bvalue", bvalue);
+        return bean;
+    }
+
+    /**
+     * Tests that the rows are written to a CSV file that is loaded via <code>CSVREAD</code>,
+     * except for the rows that the CSV file cannot represent, which are inserted via batch
+     * inserts.
+     */
+    public void testCsvRead() throws Exception
+    {
+        Database          model    = parseDatabaseFromString(TEST_MODEL);
+        RecordingPlatform platform = new RecordingPlatform();
+        List<DynaBean>    beans    = new ArrayList<>();
+
+        beans.add(createBean(model, 1, "foo, \"bar\"", Integer.valueOf(1)));
+        // CSVREAD would read the empty string as NULL
+        beans.add(createBean(model, 2, "", Integer.valueOf(2)));
+        // the column would be set to NULL instead of its default value
+        beans.add(createBean(model, 3, null, null));
+        beans.add(createBean(model, 4, null, Integer.valueOf(7)));
+
+        platform.getBulkLoader().load(platform.getConnection(), model, model.getTable(0), beans.iterator());
+
+        assertEquals(1, platform._statements.size());
+        assertEquals(((H2Builder)platform.getSqlBuilder()).getCsvReadInsertSql(model.getTable(0),
+                                                                                model.getTable(0).getColumns(),
+                                                                                platform._csvFiles.get(0).getAbsolutePath(),
+                                                                                "NULL"),
+                     platform._statements.get(0));
+        assertEquals("\"pk\",\"avalue\",\"bvalue\"\n" +
+                     "\"1\",\"foo, \"\"bar\"\"\",\"1\"\n" +
+                     "\"4\",NULL,\"7\"\n",
+                     platform._csvContents.get(0));
+        assertFalse(platform._csvFiles.get(0).exists());
+        assertEquals(2, platform._insertedBeans.size());
+        assertSame(beans.get(1), platform._insertedBeans.get(0));
+        assertSame(beans.get(2), platform._insertedBeans.get(1));
+    }
+
+    /**
+     * Tests that the loader falls back to batch inserts for all remaining rows once
+     * <code>CSVREAD</code> failed.
+     */
+    public void testFallbackToBatchInserts() throws Exception
+    {
+        Database          model    = parseDatabaseFromString(TEST_MODEL);
+        RecordingPlatform platform = new RecordingPlatform();
+        List<DynaBean>    beans    = new ArrayList<>();
+
+        for (int pk = 0; pk < 5; pk++)
+        {
+            beans.add(createBean(model, pk, "text", Integer.valueOf(pk)));
+        }
+        platform._csvReadFailing = true;
+        ((H2BulkLoader)platform.getBulkLoader()).setMaxRowsPerFile(2);
+        platform.getBulkLoader().load(platform.getConnection(), model, model.getTable(0), beans.iterator());
+
+        assertEquals(1, platform._statements.size());
+        assertFalse(platform._csvFiles.get(0).exists());
+        assertEquals(beans, platform._insertedBeans);
+    }
+}
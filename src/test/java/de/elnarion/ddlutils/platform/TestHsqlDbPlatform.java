@@ -162,4 +162,18 @@ public class TestHsqlDbPlatform extends TestPlatformBase
             ");\n",
             getCharEscapingTestDatabaseCreationSql());
     }
+
+    /**
+     * Tests the generation of the native upsert statement.
+     */
+    public void testUpsertSql()
+    {
+        assertEquals(
+            "MERGE INTO \"upserttable\" T"+
+            " USING (VALUES (CAST(? AS INTEGER), CAST(? AS VARCHAR(32)), CAST(? AS INTEGER))) AS S (\"COL_PK\", \"COL_TEXT\", \"COL_INT\")"+
+            " ON (T.\"COL_PK\" = S.\"COL_PK\")"+
+            " WHEN MATCHED THEN UPDATE SET \"COL_TEXT\" = S.\"COL_TEXT\", \"COL_INT\" = S.\"COL_INT\""+
+            " WHEN NOT MATCHED THEN INSERT (\"COL_PK\", \"COL_TEXT\", \"COL_INT\") VALUES (S.\"COL_PK\", S.\"COL_TEXT\", S.\"COL_INT\")",
+            getUpsertTestSql());
+    }
 }
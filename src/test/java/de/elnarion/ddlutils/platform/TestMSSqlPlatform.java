@@ -349,4 +349,44 @@ public class TestMSSqlPlatform extends TestPlatformBase
             ");\n",
             sql);
     }
+
+    /**
+     * Tests the generation of the native upsert statement.
+     */
+    public void testUpsertSql()
+    {
+        assertEquals(
+            "MERGE INTO \"upserttable\" T"+
+            " USING (VALUES (?, ?, ?)) AS S (\"COL_PK\", \"COL_TEXT\", \"COL_INT\")"+
+            " ON (T.\"COL_PK\" = S.\"COL_PK\")"+
+            " WHEN MATCHED THEN UPDATE SET \"COL_TEXT\" = S.\"COL_TEXT\", \"COL_INT\" = S.\"COL_INT\""+
+            " WHEN NOT MATCHED THEN INSERT (\"COL_PK\", \"COL_TEXT\", \"COL_INT\") VALUES (S.\"COL_PK\", S.\"COL_TEXT\", S.\"COL_INT\");",
+            getUpsertTestSql());
+    }
+
+    /**
+     * Tests the statements that disable and enable the referential integrity checks.
+     */
+    public void testReferentialIntegritySql() throws Exception
+    {
+        assertEqualsIgnoringWhitespaces(
+            "ALTER TABLE \"child\"\n"+
+            "    NOCHECK CONSTRAINT ALL;\n"+
+            "ALTER TABLE \"child\"\n"+
+            "    WITH CHECK CHECK CONSTRAINT ALL;\n",
+            getReferentialIntegrityTestSql());
+    }
+
+    /**
+     * Tests the rewriting of queries for fetching a range of rows.
+     */
+    public void testPaginatedQuery() throws Exception
+    {
+        assertEquals("SELECT a FROM t ORDER BY a OFFSET 20 ROWS FETCH NEXT 10 ROWS ONLY",
+                     getSqlBuilder().getPaginatedQuery("SELECT a FROM t ORDER BY a", 20, 29));
+        assertEquals("SELECT a FROM t ORDER BY (SELECT NULL) OFFSET 20 ROWS",
+                     getSqlBuilder().getPaginatedQuery("SELECT a FROM t", 20, -1));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT TOP 5 a FROM t", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT a FROM t ORDER BY a OPTION (MAXDOP 1)", 1, 2));
+    }
 }
@@ -0,0 +1,100 @@
+package de.elnarion.ddlutils.platform;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.beanutils.DynaBean;
+
+import de.elnarion.ddlutils.TestBase;
+import de.elnarion.ddlutils.dynabean.SqlDynaBean;
+import de.elnarion.ddlutils.io.DatabaseIO;
+import de.elnarion.ddlutils.model.Database;
+
+/**
+ * Tests the {@link ModelBasedResultSetIterator} class.
+ *
+ * @version $Revision: $
+ */
+public class TestModelBasedResultSetIterator extends TestBase
+{
+    /** The test model. */
+    private static final String TEST_MODEL =
+        "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+        "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+        "  <table name='TestTable'>\n"+
+        "    <column name='Id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "    <column name='Name' type='VARCHAR' size='15'/>\n"+
+        "    <column name='Amount' type='BIGINT'/>\n"+
+        "  </table>\n"+
+        "</database>";
+
+    /**
+     * Tests reading the rows of a known table.
+     */
+    public void testReadTableRows() throws Exception
+    {
+        Database       database  = parseDatabaseFromString(TEST_MODEL);
+        FixedResultSet resultSet = new FixedResultSet("TESTTABLE",
+                                                      new String[] { "ID", "NAME", "AMOUNT" },
+                                                      new Object[][] { { 1, "first", 10L }, { 2, null, null } });
+
+        ModelBasedResultSetIterator it = new ModelBasedResultSetIterator(new TestPlatform(), database, resultSet.getResultSet(), null, false);
+
+        assertTrue(it.hasNext());
+
+        DynaBean bean = it.next();
+
+        assertTrue(bean instanceof SqlDynaBean);
+        assertEquals(Integer.valueOf(1), bean.get("Id"));
+        assertEquals("first", bean.get("Name"));
+        assertEquals(Long.valueOf(10), bean.get("Amount"));
+
+        bean = it.next();
+        assertEquals(Integer.valueOf(2), bean.get("Id"));
+        assertNull(bean.get("Name"));
+        assertNull(bean.get("Amount"));
+        assertFalse(it.hasNext());
+
+        // the values are read by index with the getters for the types of the columns
+        assertEquals(6, resultSet.getReads().size());
+        assertEquals("getInt(Integer)", resultSet.getReads().get(0));
+        assertEquals("getString(Integer)", resultSet.getReads().get(1));
+        assertEquals("getLong(Integer)", resultSet.getReads().get(2));
+    }
+
+    /**
+     * Tests reading the rows of a query whose columns do not belong to a known table.
+     */
+    public void testReadQueryRows() throws Exception
+    {
+        Database       database  = parseDatabaseFromString(TEST_MODEL);
+        FixedResultSet resultSet = new FixedResultSet("",
+                                                      new String[] { "CNT", "NAME" },
+                                                      new Object[][] { { 3L, "first" } });
+
+        ModelBasedResultSetIterator it = new ModelBasedResultSetIterator(new TestPlatform(), database, resultSet.getResultSet(), null, false);
+        DynaBean                    bean = it.next();
+
+        assertFalse(bean instanceof SqlDynaBean);
+        assertEquals(Long.valueOf(3), bean.get("CNT"));
+        assertEquals("first", bean.get("NAME"));
+        assertEquals("getObject(Integer)", resultSet.getReads().get(0));
+        assertFalse(it.hasNext());
+    }
+}
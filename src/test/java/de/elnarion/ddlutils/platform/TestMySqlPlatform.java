@@ -228,4 +228,38 @@ public class TestMySqlPlatform extends TestPlatformBase
             ");\n",
             getDatabaseCreationSql(schema));
     }
+
+    /**
+     * Tests the generation of the native upsert statement.
+     */
+    public void testUpsertSql()
+    {
+        assertEquals(
+            "INSERT INTO `upserttable` (`COL_PK`, `COL_TEXT`, `COL_INT`) VALUES (?, ?, ?)"+
+            " ON DUPLICATE KEY UPDATE `COL_TEXT` = VALUES(`COL_TEXT`), `COL_INT` = VALUES(`COL_INT`)",
+            getUpsertTestSql());
+    }
+
+    /**
+     * Tests the statements that disable and enable the referential integrity checks.
+     */
+    public void testReferentialIntegritySql() throws Exception
+    {
+        assertEqualsIgnoringWhitespaces(
+            "SET FOREIGN_KEY_CHECKS = 0;\n"+
+            "SET FOREIGN_KEY_CHECKS = 1;\n",
+            getReferentialIntegrityTestSql());
+    }
+
+    /**
+     * Tests the rewriting of queries for fetching a range of rows.
+     */
+    public void testPaginatedQuery() throws Exception
+    {
+        assertEquals("SELECT a FROM t LIMIT 10 OFFSET 20",
+                     getSqlBuilder().getPaginatedQuery("SELECT a FROM t", 20, 29));
+        assertEquals("SELECT a FROM t LIMIT 18446744073709551615 OFFSET 20",
+                     getSqlBuilder().getPaginatedQuery("SELECT a FROM t", 20, -1));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT a FROM t LOCK IN SHARE MODE", 20, 29));
+    }
 }
@@ -158,4 +158,50 @@ public class TestOracle8Platform extends TestPlatformBase
             ");\n",
             getCharEscapingTestDatabaseCreationSql());
     }
+
+    /**
+     * Tests the statements that disable and enable the referential integrity checks.
+     */
+    public void testReferentialIntegritySql() throws Exception
+    {
+        assertEqualsIgnoringWhitespaces(
+            "ALTER TABLE \"child\"\n"+
+            "    DISABLE CONSTRAINT \"child_parent\";\n"+
+            "ALTER TABLE \"child\"\n"+
+            "    ENABLE CONSTRAINT \"child_parent\";\n",
+            getReferentialIntegrityTestSql());
+    }
+
+    /**
+     * Tests the rewriting of queries for fetching a range of rows.
+     */
+    public void testPaginatedQuery() throws Exception
+    {
+        assertEquals("SELECT * FROM (SELECT a FROM t ORDER BY a) WHERE ROWNUM <= 10",
+                     getSqlBuilder().getPaginatedQuery("SELECT a FROM t ORDER BY a", 0, 9));
+        assertEquals("SELECT * FROM (SELECT ddlutils_page.*, ROWNUM DDLUTILS_ROW_NUMBER FROM (SELECT a FROM t ORDER BY a) ddlutils_page" +
+                     " WHERE ROWNUM <= 30) WHERE DDLUTILS_ROW_NUMBER > 20",
+                     getSqlBuilder().getPaginatedQuery("SELECT a FROM t ORDER BY a", 20, 29));
+        assertEquals("SELECT * FROM (SELECT ddlutils_page.*, ROWNUM DDLUTILS_ROW_NUMBER FROM (SELECT a FROM t) ddlutils_page)" +
+                     " WHERE DDLUTILS_ROW_NUMBER > 20",
+                     getSqlBuilder().getPaginatedQuery("SELECT a FROM t", 20, -1));
+        assertEquals("SELECT * FROM (SELECT t.a, u.a AS b, \"c\" FROM t JOIN u ON t.id = u.id) WHERE ROWNUM <= 3",
+                     getSqlBuilder().getPaginatedQuery("SELECT t.a, u.a AS b, \"c\" FROM t JOIN u ON t.id = u.id", 0, 2));
+        assertEquals("SELECT * FROM (SELECT COUNT(*) cnt FROM t) WHERE ROWNUM <= 1",
+                     getSqlBuilder().getPaginatedQuery("SELECT COUNT(*) cnt FROM t", 0, 0));
+        assertEquals("SELECT * FROM (SELECT * FROM t WHERE a IN (1, 2)) WHERE ROWNUM <= 1",
+                     getSqlBuilder().getPaginatedQuery("SELECT * FROM t WHERE a IN (1, 2)", 0, 0));
+        // a negative end means that there is no upper bound
+        assertEquals("SELECT a FROM t",
+                     getSqlBuilder().getPaginatedQuery("SELECT a FROM t", 0, -1));
+        assertEquals("SELECT a FROM t",
+                     getSqlBuilder().getPaginatedQuery("SELECT a FROM t", 0, -5));
+        // queries whose columns may have duplicate names cannot be used as an inline view
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT t.a, u.a FROM t JOIN u ON t.id = u.id", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT * FROM t JOIN u ON t.id = u.id", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT * FROM t, u WHERE t.id = u.id", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT t.*, u.a FROM t, u", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT a + 1 FROM t", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT COUNT(*) FROM t", 0, 2));
+    }
 }
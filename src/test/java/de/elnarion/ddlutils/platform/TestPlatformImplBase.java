@@ -19,6 +19,21 @@ package de.elnarion.ddlutils.platform;
  * under the License.
  */
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.beanutils.DynaBean;
@@ -26,7 +41,9 @@ import org.apache.commons.beanutils.DynaBean;
 import de.elnarion.ddlutils.TestBase;
 import de.elnarion.ddlutils.dynabean.SqlDynaBean;
 import de.elnarion.ddlutils.dynabean.SqlDynaClass;
+import de.elnarion.ddlutils.dynabean.SqlDynaProperty;
 import de.elnarion.ddlutils.io.DatabaseIO;
+import de.elnarion.ddlutils.model.Column;
 import de.elnarion.ddlutils.model.Database;
 import de.elnarion.ddlutils.model.Table;
 import de.elnarion.ddlutils.platform.PlatformImplBase;
@@ -66,4 +83,738 @@ public class TestPlatformImplBase extends TestBase
                      map.get("name"));
         assertTrue(map.containsKey("id"));
     }
+
+    /**
+     * Tests that the batch insert executes the batch every {@link PlatformImplBase#getMaxBatchSize()}
+     * rows and reuses the prepared statement for that.
+     */
+    public void testInsertWithMaxBatchSize()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='name' type='VARCHAR' size='15'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database           database = parseDatabaseFromString(schema);
+        PlatformImplBase   platform = new TestPlatform();
+        List<DynaBean>     beans    = new ArrayList<>();
+        RecordingJdbc      jdbc     = new RecordingJdbc();
+
+        for (int idx = 0; idx < 5; idx++)
+        {
+            DynaBean bean = database.createDynaBeanFor(database.getTable(0));
+
+            bean.set("id", Integer.valueOf(idx));
+            bean.set("name", "name" + idx);
+            beans.add(bean);
+        }
+        platform.setMaxBatchSize(2);
+        platform.setCommitAfterBatchOn(true);
+        platform.insert(jdbc.getConnection(), database, beans);
+
+        assertEquals(1, jdbc.getCount("prepareStatement"));
+        assertEquals(5, jdbc.getCount("addBatch"));
+        assertEquals(3, jdbc.getCount("executeBatch"));
+        assertEquals(3, jdbc.getCount("commit"));
+        assertEquals(1, jdbc.getCount("close"));
+    }
+
+    /**
+     * Tests that the batch insert puts several rows into one statement in multi-row insert mode.
+     */
+    public void testInsertWithMultiRowInsertMode()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='name' type='VARCHAR' size='15'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database           database = parseDatabaseFromString(schema);
+        PlatformImplBase   platform = new TestPlatform();
+        List<DynaBean>     beans    = new ArrayList<>();
+        RecordingJdbc      jdbc     = new RecordingJdbc();
+
+        for (int idx = 0; idx < 5; idx++)
+        {
+            DynaBean bean = database.createDynaBeanFor(database.getTable(0));
+
+            bean.set("id", Integer.valueOf(idx));
+            bean.set("name", "name" + idx);
+            beans.add(bean);
+        }
+        platform.getPlatformInfo().setMultiRowInsertSupported(true);
+        platform.setMultiRowInsertModeOn(true);
+        platform.setMaxBatchSize(2);
+        platform.insert(jdbc.getConnection(), database, beans);
+
+        assertEquals(2, jdbc.getCount("prepareStatement"));
+        assertEquals("INSERT INTO TestTable (id, name) VALUES (?, ?), (?, ?)", jdbc.getSql(0));
+        assertEquals("INSERT INTO TestTable (id, name) VALUES (?, ?)", jdbc.getSql(1));
+        assertEquals(2, jdbc.getCount("addBatch"));
+        assertEquals(2, jdbc.getCount("executeBatch"));
+        assertEquals(1, jdbc.getCount("executeUpdate"));
+        assertEquals(0, jdbc.getCount("commit"));
+        assertEquals(2, jdbc.getCount("close"));
+    }
+
+    /**
+     * Tests that the multi-row insert only prepares statements for the number of rows
+     * that are actually inserted.
+     */
+    public void testInsertWithMultiRowInsertModeAndFewRows()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='name' type='VARCHAR' size='15'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database           database = parseDatabaseFromString(schema);
+        PlatformImplBase   platform = new TestPlatform();
+        List<DynaBean>     beans    = new ArrayList<>();
+        RecordingJdbc      jdbc     = new RecordingJdbc();
+
+        for (int idx = 0; idx < 3; idx++)
+        {
+            DynaBean bean = database.createDynaBeanFor(database.getTable(0));
+
+            bean.set("id", Integer.valueOf(idx));
+            bean.set("name", "name" + idx);
+            beans.add(bean);
+        }
+        platform.getPlatformInfo().setMultiRowInsertSupported(true);
+        platform.setMultiRowInsertModeOn(true);
+        platform.setMaxBatchSize(100);
+        platform.insert(jdbc.getConnection(), database, beans);
+
+        assertEquals(1, jdbc.getCount("prepareStatement"));
+        assertEquals("INSERT INTO TestTable (id, name) VALUES (?, ?), (?, ?), (?, ?)", jdbc.getSql(0));
+        assertEquals(0, jdbc.getCount("executeBatch"));
+        assertEquals(1, jdbc.getCount("executeUpdate"));
+        assertEquals(1, jdbc.getCount("close"));
+    }
+
+    /**
+     * Tests that the batch insert reads the generated identity values back into the beans
+     * if the platform supports that.
+     */
+    public void testInsertWithGeneratedKeys()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='id' autoIncrement='true' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='name' type='VARCHAR' size='15'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database           database = parseDatabaseFromString(schema);
+        PlatformImplBase   platform = new TestPlatform();
+        List<DynaBean>     beans    = new ArrayList<>();
+        RecordingJdbc      jdbc     = new RecordingJdbc();
+
+        for (int idx = 0; idx < 5; idx++)
+        {
+            DynaBean bean = database.createDynaBeanFor(database.getTable(0));
+
+            bean.set("name", "name" + idx);
+            beans.add(bean);
+        }
+        platform.getPlatformInfo().setGeneratedKeysReadableInBatchMode(true);
+        platform.setMaxBatchSize(2);
+        platform.insert(jdbc.getConnection(), database, beans);
+
+        assertEquals(1, jdbc.getCount("prepareStatement"));
+        assertEquals("INSERT INTO TestTable (name) VALUES (?)", jdbc.getSql(0));
+        assertEquals(3, jdbc.getCount("executeBatch"));
+        assertEquals(3, jdbc.getCount("getGeneratedKeys"));
+        assertEquals(0, jdbc.getCount("executeQuery"));
+        for (int idx = 0; idx < 5; idx++)
+        {
+            assertEquals(Integer.valueOf(idx + 1), beans.get(idx).get("id"));
+        }
+    }
+
+    /**
+     * Tests that the batch update and delete group the beans per table and execute the batch
+     * every {@link PlatformImplBase#getMaxBatchSize()} rows.
+     */
+    public void testUpdateAndDeleteWithMaxBatchSize()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable1'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='name' type='VARCHAR' size='15'/>\n"+
+            "  </table>\n"+
+            "  <table name='TestTable2'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database           database = parseDatabaseFromString(schema);
+        PlatformImplBase   platform = new TestPlatform();
+        List<DynaBean>     beans    = new ArrayList<>();
+        RecordingJdbc      jdbc     = new RecordingJdbc();
+
+        for (int idx = 0; idx < 5; idx++)
+        {
+            DynaBean bean = database.createDynaBeanFor(database.getTable(0));
+
+            bean.set("id", Integer.valueOf(idx));
+            bean.set("name", "name" + idx);
+            beans.add(bean);
+        }
+        for (int idx = 0; idx < 2; idx++)
+        {
+            DynaBean bean = database.createDynaBeanFor(database.getTable(1));
+
+            bean.set("id", Integer.valueOf(idx));
+            beans.add(bean);
+        }
+        platform.setMaxBatchSize(2);
+        platform.update(jdbc.getConnection(), database, beans.subList(0, 5));
+
+        assertEquals(1, jdbc.getCount("prepareStatement"));
+        assertEquals("UPDATE TestTable1 SET name = ? WHERE id = ?", jdbc.getSql(0));
+        assertEquals(5, jdbc.getCount("addBatch"));
+        assertEquals(3, jdbc.getCount("executeBatch"));
+        assertEquals(0, jdbc.getCount("executeUpdate"));
+        assertEquals(1, jdbc.getCount("close"));
+
+        platform.delete(jdbc.getConnection(), database, beans);
+
+        assertEquals(3, jdbc.getCount("prepareStatement"));
+        assertEquals("DELETE FROM TestTable1 WHERE id = ?", jdbc.getSql(1));
+        assertEquals("DELETE FROM TestTable2 WHERE id = ?", jdbc.getSql(2));
+        assertEquals(12, jdbc.getCount("addBatch"));
+        assertEquals(7, jdbc.getCount("executeBatch"));
+        assertEquals(0, jdbc.getCount("executeUpdate"));
+        assertEquals(3, jdbc.getCount("close"));
+    }
+
+    /**
+     * Tests that the batch store uses the native upsert statement of the platform.
+     */
+    public void testStoreWithUpsert()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='name' type='VARCHAR' size='15'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database           database = parseDatabaseFromString(schema);
+        List<DynaBean>     beans    = new ArrayList<>();
+        RecordingJdbc      jdbc     = new RecordingJdbc();
+        PlatformImplBase   platform = new TestPlatform()
+        {
+            {
+                setSqlBuilder(new SqlBuilder(this)
+                {
+                    public String getUpsertSql(Table table, Map<String, Object> columnValues, boolean genPlaceholders)
+                    {
+                        return getMergeSql(table, columnValues, genPlaceholders);
+                    }
+                });
+            }
+        };
+
+        for (int idx = 0; idx < 5; idx++)
+        {
+            DynaBean bean = database.createDynaBeanFor(database.getTable(0));
+
+            bean.set("id", Integer.valueOf(idx));
+            bean.set("name", "name" + idx);
+            beans.add(bean);
+        }
+        platform.setMaxBatchSize(2);
+        platform.store(jdbc.getConnection(), database, beans);
+
+        assertEquals(1, jdbc.getCount("prepareStatement"));
+        assertEquals("MERGE INTO TestTable T USING (VALUES (?, ?)) AS S (id, name) ON (T.id = S.id)"+
+                     " WHEN MATCHED THEN UPDATE SET name = S.name"+
+                     " WHEN NOT MATCHED THEN INSERT (id, name) VALUES (S.id, S.name)",
+                     jdbc.getSql(0));
+        assertEquals(5, jdbc.getCount("addBatch"));
+        assertEquals(3, jdbc.getCount("executeBatch"));
+        assertEquals(0, jdbc.getCount("executeQuery"));
+        assertEquals(1, jdbc.getCount("close"));
+    }
+
+    /**
+     * Tests that the single-row operations reuse the cached prepared statements of a connection.
+     */
+    public void testStatementCache()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='name' type='VARCHAR' size='15'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database           database   = parseDatabaseFromString(schema);
+        PlatformImplBase   platform   = new TestPlatform();
+        RecordingJdbc      jdbc       = new RecordingJdbc();
+        Connection         connection = jdbc.getConnection();
+        DynaBean           bean       = database.createDynaBeanFor(database.getTable(0));
+
+        bean.set("id", Integer.valueOf(1));
+        bean.set("name", "name");
+
+        platform.setStatementCacheSize(2);
+
+        PreparedStatementCache cache = platform.openStatementCache(connection);
+
+        assertSame(cache, platform.getStatementCache(connection));
+        platform.insert(connection, database, bean);
+        platform.update(connection, database, bean);
+        platform.update(connection, database, bean);
+        platform.insert(connection, database, bean);
+
+        assertEquals(2, jdbc.getCount("prepareStatement"));
+        assertEquals(0, jdbc.getCount("close"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.getSize());
+
+        // the least recently used statement (the update) is evicted
+        platform.delete(connection, database, bean);
+
+        assertEquals(3, jdbc.getCount("prepareStatement"));
+        assertEquals(1, jdbc.getCount("close"));
+        assertEquals(2, cache.getSize());
+
+        platform.insert(connection, database, bean);
+        platform.releaseStatementCache(connection);
+
+        assertEquals(3, jdbc.getCount("prepareStatement"));
+        assertEquals(3, jdbc.getCount("close"));
+        assertEquals(3, cache.getHitCount());
+        assertEquals(0, cache.getSize());
+        assertNull(platform.getStatementCache(connection));
+    }
+
+    /**
+     * Tests that statements are only cached while the cache of a connection is open.
+     */
+    public void testStatementCacheLifetime() throws Exception
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database           database   = parseDatabaseFromString(schema);
+        PlatformImplBase   platform   = new TestPlatform();
+        RecordingJdbc      jdbc       = new RecordingJdbc();
+        Connection         connection = jdbc.getConnection();
+        DynaBean           bean       = database.createDynaBeanFor(database.getTable(0));
+
+        bean.set("id", Integer.valueOf(1));
+        platform.setStatementCacheSize(2);
+
+        // without an open cache, the statements are closed after use
+        platform.insert(connection, database, bean);
+        platform.insert(connection, database, bean);
+
+        assertNull(platform.getStatementCache(connection));
+        assertEquals(2, jdbc.getCount("prepareStatement"));
+        assertEquals(2, jdbc.getCount("close"));
+
+        try (PreparedStatementCache cache = platform.openStatementCache(connection))
+        {
+            platform.insert(connection, database, bean);
+            platform.insert(connection, database, bean);
+
+            assertEquals(1, cache.getHitCount());
+        }
+        assertNull(platform.getStatementCache(connection));
+        assertEquals(3, jdbc.getCount("prepareStatement"));
+        assertEquals(3, jdbc.getCount("close"));
+    }
+
+    /**
+     * Tests that the values are bound via the binders created for the columns, and that
+     * values of unexpected types are still bound.
+     */
+    public void testParameterBinders()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='name' type='VARCHAR' size='15'/>\n"+
+            "    <column name='amount' type='DECIMAL' size='15,2'/>\n"+
+            "    <column name='data' type='VARBINARY' size='16'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database           database = parseDatabaseFromString(schema);
+        final List<String> binds    = new ArrayList<>();
+        PlatformImplBase   platform = new TestPlatform()
+        {
+            protected ParameterBinder createParameterBinder(Column column)
+            {
+                final ParameterBinder binder = super.createParameterBinder(column);
+
+                if (column.getTypeCode() != Types.VARBINARY)
+                {
+                    return binder;
+                }
+                return new ParameterBinder()
+                {
+                    public void bind(PreparedStatement statement, int sqlIndex, Object value) throws SQLException
+                    {
+                        binds.add("data");
+                        binder.bind(statement, sqlIndex, value);
+                    }
+                };
+            }
+        };
+        List<DynaBean>     beans    = new ArrayList<>();
+        RecordingJdbc      jdbc     = new RecordingJdbc();
+
+        for (int idx = 0; idx < 3; idx++)
+        {
+            DynaBean bean = database.createDynaBeanFor(database.getTable(0));
+
+            // a value of an unexpected type is bound by the generic setter
+            bean.set("id", idx == 2 ? (Object)Long.valueOf(idx) : (Object)Integer.valueOf(idx));
+            bean.set("name", idx == 1 ? null : "name" + idx);
+            bean.set("amount", new BigDecimal("1.25"));
+            beans.add(bean);
+        }
+        platform.insert(jdbc.getConnection(), database, beans);
+
+        assertEquals(2, jdbc.getCount("setInt"));
+        assertEquals(1, jdbc.getCount("setLong"));
+        assertEquals(2, jdbc.getCount("setString"));
+        assertEquals(3, jdbc.getCount("setBigDecimal"));
+        assertEquals(4, jdbc.getCount("setNull"));
+        assertEquals(3, binds.size());
+    }
+
+    /**
+     * Tests that an overridden {@link PlatformImplBase#setObject(PreparedStatement, int, DynaBean, SqlDynaProperty)}
+     * is used for binding the values.
+     */
+    public void testOverriddenSetObject()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='name' type='VARCHAR' size='15'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database           database   = parseDatabaseFromString(schema);
+        final List<String> properties = new ArrayList<>();
+        PlatformImplBase   platform   = new TestPlatform()
+        {
+            protected void setObject(PreparedStatement statement, int sqlIndex, DynaBean dynaBean, SqlDynaProperty property) throws SQLException
+            {
+                properties.add(property.getName());
+                super.setObject(statement, sqlIndex, dynaBean, property);
+            }
+        };
+        RecordingJdbc      jdbc       = new RecordingJdbc();
+        DynaBean           bean       = database.createDynaBeanFor(database.getTable(0));
+
+        bean.set("id", Integer.valueOf(1));
+        bean.set("name", "name");
+        platform.insert(jdbc.getConnection(), database, bean);
+        platform.update(jdbc.getConnection(), database, bean);
+
+        assertEquals(Arrays.asList("id", "name", "name", "id"), properties);
+        assertEquals(2, jdbc.getCount("setInt"));
+        assertEquals(2, jdbc.getCount("setString"));
+    }
+
+    /**
+     * Tests that an overridden {@link PlatformImplBase#setStatementParameterValue(PreparedStatement, int, int, Object)}
+     * is used for all values instead of the typed setters of the binders.
+     */
+    public void testOverriddenSetStatementParameterValue()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "    <column name='name' type='VARCHAR' size='15'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database           database = parseDatabaseFromString(schema);
+        final List<Object> values   = new ArrayList<>();
+        PlatformImplBase   platform = new TestPlatform()
+        {
+            protected void setStatementParameterValue(PreparedStatement statement, int sqlIndex, int typeCode, Object value) throws SQLException
+            {
+                values.add(value);
+                statement.setObject(sqlIndex, value, typeCode);
+            }
+        };
+        RecordingJdbc      jdbc     = new RecordingJdbc();
+        DynaBean           bean     = database.createDynaBeanFor(database.getTable(0));
+
+        bean.set("id", Integer.valueOf(1));
+        bean.set("name", "name");
+        platform.insert(jdbc.getConnection(), database, bean);
+        platform.update(jdbc.getConnection(), database, bean);
+
+        assertEquals(Arrays.asList((Object)Integer.valueOf(1), "name", "name", Integer.valueOf(1)), values);
+        assertEquals(0, jdbc.getCount("setInt"));
+        assertEquals(0, jdbc.getCount("setString"));
+    }
+
+    /**
+     * Tests that streaming queries use a forward-only cursor with the fetch size of the platform,
+     * and that the auto-commit mode is switched off during the query if the platform requires it.
+     */
+    public void testQueryStreaming()
+    {
+        final String schema =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='ID' type='INTEGER' primaryKey='true' required='true'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        Database            database = parseDatabaseFromString(schema);
+        final RecordingJdbc jdbc     = new RecordingJdbc();
+        PlatformImplBase    platform = new TestPlatform()
+        {
+            public Connection borrowConnection()
+            {
+                return jdbc.getConnection();
+            }
+        };
+
+        jdbc.setAutoCommit(true);
+        platform.getPlatformInfo().setStreamingFetchSize(500);
+        platform.getPlatformInfo().setAutoCommitDisabledForStreaming(true);
+
+        Iterator<DynaBean> it = platform.queryStreaming(database, "SELECT ID FROM TestTable", new Table[] { database.getTable(0) });
+
+        assertEquals(1, jdbc.getCount("setFetchSize"));
+        assertEquals(1, jdbc.getCount("setAutoCommit"));
+        assertFalse(jdbc.isAutoCommit());
+        assertFalse(it.hasNext());
+
+        // reaching the end of the rows releases the connection
+        assertEquals(2, jdbc.getCount("setAutoCommit"));
+        assertEquals(1, jdbc.getCount("rollback"));
+        assertTrue(jdbc.isAutoCommit());
+
+        platform.getPlatformInfo().setStreamingFetchSize(0);
+        platform.getPlatformInfo().setAutoCommitDisabledForStreaming(false);
+        platform.queryStreaming(database, "SELECT ID FROM TestTable", null).hasNext();
+
+        assertEquals(1, jdbc.getCount("setFetchSize"));
+        assertEquals(2, jdbc.getCount("setAutoCommit"));
+    }
+
+    /**
+     * Simple JDBC stand-in that records the calls made to the connection and its statements.
+     */
+    private static class RecordingJdbc implements InvocationHandler
+    {
+        /** The names of the invoked methods. */
+        private final List<String> _calls = new ArrayList<>();
+        /** The sql of the prepared statements. */
+        private final List<String> _sql = new ArrayList<>();
+        /** The number of rows added to the current batch. */
+        private int _batchRows;
+        /** The number of rows in the last executed batch. */
+        private int _executedRows;
+        /** The last generated key. */
+        private int _lastKey;
+        /** The auto-commit mode of the connection. */
+        private boolean _autoCommit;
+
+        /**
+         * Returns the connection.
+         * 
+         * @return The connection
+         */
+        public Connection getConnection()
+        {
+            return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Connection.class }, this);
+        }
+
+        /**
+         * Determines whether the connection is in auto-commit mode.
+         * 
+         * @return <code>true</code> if auto-commit is on
+         */
+        public boolean isAutoCommit()
+        {
+            return _autoCommit;
+        }
+
+        /**
+         * Sets the auto-commit mode of the connection.
+         * 
+         * @param autoCommit <code>true</code> if auto-commit is on
+         */
+        public void setAutoCommit(boolean autoCommit)
+        {
+            _autoCommit = autoCommit;
+        }
+
+        /**
+         * Returns how often the method of the given name was called.
+         * 
+         * @param methodName The method name
+         * @return The number of calls
+         */
+        public int getCount(String methodName)
+        {
+            int count = 0;
+
+            for (String call : _calls)
+            {
+                if (call.equals(methodName))
+                {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Returns the sql of the specified prepared statement.
+         * 
+         * @param idx The index of the statement
+         * @return The sql
+         */
+        public String getSql(int idx)
+        {
+            return _sql.get(idx);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+        {
+            String name = method.getName();
+
+            _calls.add(name);
+            if ("prepareStatement".equals(name))
+            {
+                _sql.add((String)args[0]);
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { PreparedStatement.class }, this);
+            }
+            else if ("getMetaData".equals(name))
+            {
+                Class<?> metaDataClass = Connection.class.equals(method.getDeclaringClass()) ? DatabaseMetaData.class : ResultSetMetaData.class;
+
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { metaDataClass }, this);
+            }
+            else if ("getGeneratedKeys".equals(name) || "executeQuery".equals(name))
+            {
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { ResultSet.class }, this);
+            }
+            else if ("supportsGetGeneratedKeys".equals(name))
+            {
+                return Boolean.TRUE;
+            }
+            else if ("getColumnCount".equals(name))
+            {
+                return Integer.valueOf(1);
+            }
+            else if ("getColumnLabel".equals(name) || "getColumnName".equals(name))
+            {
+                return "ID";
+            }
+            else if ("next".equals(name))
+            {
+                if (_executedRows == 0)
+                {
+                    return Boolean.FALSE;
+                }
+                _executedRows--;
+                _lastKey++;
+                return Boolean.TRUE;
+            }
+            else if ("getInt".equals(name) || "getObject".equals(name))
+            {
+                return Integer.valueOf(_lastKey);
+            }
+            else if ("wasNull".equals(name))
+            {
+                return Boolean.FALSE;
+            }
+            else if ("getStatement".equals(name))
+            {
+                _calls.remove(_calls.size() - 1);
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { PreparedStatement.class }, this);
+            }
+            else if ("getConnection".equals(name))
+            {
+                _calls.remove(_calls.size() - 1);
+                return getConnection();
+            }
+            else if ("addBatch".equals(name))
+            {
+                _batchRows++;
+            }
+            else if ("executeBatch".equals(name))
+            {
+                int[] result = new int[_batchRows];
+
+                Arrays.fill(result, 1);
+                _executedRows = _batchRows;
+                _batchRows = 0;
+                return result;
+            }
+            else if ("executeUpdate".equals(name))
+            {
+                _executedRows = 1;
+                return Integer.valueOf(1);
+            }
+            else if ("getAutoCommit".equals(name))
+            {
+                return Boolean.valueOf(_autoCommit);
+            }
+            else if ("setAutoCommit".equals(name))
+            {
+                _autoCommit = ((Boolean)args[0]).booleanValue();
+            }
+            else if ("isClosed".equals(name))
+            {
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+    }
 }
@@ -166,4 +166,52 @@ public class TestPostgresqlPlatform extends TestPlatformBase
             ");\n",
             getDatabaseCreationSql(schema));
     }
+
+    /**
+     * Tests the generation of the native upsert statement.
+     */
+    public void testUpsertSql()
+    {
+        assertEquals(
+            "INSERT INTO \"upserttable\" (\"COL_PK\", \"COL_TEXT\", \"COL_INT\") VALUES (?, ?, ?)"+
+            " ON CONFLICT (\"COL_PK\") DO UPDATE SET \"COL_TEXT\" = EXCLUDED.\"COL_TEXT\", \"COL_INT\" = EXCLUDED.\"COL_INT\"",
+            getUpsertTestSql());
+    }
+
+    /**
+     * Tests the statements that disable and enable the referential integrity checks.
+     */
+    public void testReferentialIntegritySql() throws Exception
+    {
+        assertEqualsIgnoringWhitespaces(
+            "ALTER TABLE \"child\"\n"+
+            "    DISABLE TRIGGER ALL;\n"+
+            "ALTER TABLE \"child\"\n"+
+            "    ENABLE TRIGGER ALL;\n",
+            getReferentialIntegrityTestSql());
+    }
+
+    /**
+     * Tests the rewriting of queries for fetching a range of rows.
+     */
+    public void testPaginatedQuery() throws Exception
+    {
+        assertEquals("SELECT * FROM t ORDER BY a LIMIT 10 OFFSET 20",
+                     getSqlBuilder().getPaginatedQuery("SELECT * FROM t ORDER BY a;", 20, 29));
+        assertEquals("SELECT a FROM t LIMIT 5",
+                     getSqlBuilder().getPaginatedQuery("SELECT a FROM t", 0, 4));
+        assertEquals("SELECT a FROM t OFFSET 3 ROWS",
+                     getSqlBuilder().getPaginatedQuery("SELECT a FROM t", 3, -1));
+        // keywords in subqueries, string literals and quoted identifiers do not matter
+        assertEquals("SELECT \"limit\" FROM t WHERE b = 'for' AND c IN (SELECT c FROM u LIMIT 2) LIMIT 1 OFFSET 1",
+                     getSqlBuilder().getPaginatedQuery("SELECT \"limit\" FROM t WHERE b = 'for' AND c IN (SELECT c FROM u LIMIT 2)", 1, 1));
+        // queries that cannot be safely rewritten
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT a FROM t LIMIT 10", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT a FROM t FOR UPDATE", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT a FROM t -- comment", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT a FROM t; DELETE FROM t", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT a FROM t WHERE b = 'x", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("UPDATE t SET a = 1", 1, 2));
+        assertNull(getSqlBuilder().getPaginatedQuery("SELECT a FROM t", 2, 1));
+    }
 }
@@ -0,0 +1,227 @@
+package de.elnarion.ddlutils.platform;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+
+import org.apache.commons.beanutils.DynaBean;
+
+import de.elnarion.ddlutils.TestBase;
+import de.elnarion.ddlutils.io.DatabaseIO;
+import de.elnarion.ddlutils.model.Database;
+
+/**
+ * Tests the {@link ResultSetSpliterator} class and the stream based queries.
+ *
+ * @version $Revision: $
+ */
+public class TestResultSetSpliterator extends TestBase
+{
+    /** The test model. */
+    private static final String TEST_MODEL =
+        "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+        "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+        "  <table name='TestTable'>\n"+
+        "    <column name='Id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "  </table>\n"+
+        "</database>";
+
+    /** The names of the methods invoked on the connection and statement. */
+    private List<String> _calls;
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _calls = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void tearDown() throws Exception
+    {
+        _calls = null;
+        super.tearDown();
+    }
+
+    /**
+     * Creates a result set with the given number of rows.
+     *
+     * @param rowCount The number of rows
+     * @return The result set
+     */
+    private FixedResultSet createResultSet(int rowCount)
+    {
+        Object[][] rows = new Object[rowCount][];
+
+        for (int idx = 0; idx < rowCount; idx++)
+        {
+            rows[idx] = new Object[] { Integer.valueOf(idx) };
+        }
+        return new FixedResultSet("TESTTABLE", new String[] { "ID" }, rows);
+    }
+
+    /**
+     * Creates a platform whose connection executes queries by returning the given result set.
+     *
+     * @param resultSet The result set
+     * @return The platform
+     */
+    private PlatformImplBase createPlatform(final FixedResultSet resultSet)
+    {
+        InvocationHandler jdbc = new InvocationHandler()
+        {
+            /** The connection. */
+            private Connection _connection;
+
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                String name = method.getName();
+
+                _calls.add(name);
+                if ("prepareStatement".equals(name))
+                {
+                    _connection = (Connection)proxy;
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { PreparedStatement.class }, this);
+                }
+                else if ("executeQuery".equals(name))
+                {
+                    resultSet.setStatement((Statement)proxy);
+                    return resultSet.getResultSet();
+                }
+                else if ("getConnection".equals(name))
+                {
+                    return _connection;
+                }
+                else if ("getAutoCommit".equals(name))
+                {
+                    return Boolean.TRUE;
+                }
+                else if ("isClosed".equals(name))
+                {
+                    return Boolean.FALSE;
+                }
+                return null;
+            }
+        };
+        final Connection connection = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Connection.class }, jdbc);
+
+        return new TestPlatform()
+        {
+            public Connection borrowConnection()
+            {
+                return connection;
+            }
+        };
+    }
+
+    /**
+     * Returns how often the connection and statement were closed.
+     *
+     * @return The number of close calls
+     */
+    private int getCloseCount()
+    {
+        int count = 0;
+
+        for (String call : _calls)
+        {
+            if ("close".equals(call))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tests that the spliterator hands out the rows in chunks of the batch size.
+     */
+    public void testChunks() throws Exception
+    {
+        Database                    database    = parseDatabaseFromString(TEST_MODEL);
+        ModelBasedResultSetIterator it          = new ModelBasedResultSetIterator(new TestPlatform(), database, createResultSet(5).getResultSet(), null, false);
+        ResultSetSpliterator        spliterator = new ResultSetSpliterator(it, 2);
+        final List<Object>          ids         = new ArrayList<Object>();
+
+        Spliterator<DynaBean> chunk = spliterator.trySplit();
+
+        assertEquals(2, chunk.estimateSize());
+        assertTrue(chunk.hasCharacteristics(Spliterator.ORDERED));
+        chunk.forEachRemaining(bean -> ids.add(bean.get("Id")));
+        assertEquals(2, spliterator.trySplit().estimateSize());
+        assertTrue(spliterator.tryAdvance(bean -> ids.add(bean.get("Id"))));
+        assertNull(spliterator.trySplit());
+        assertFalse(spliterator.tryAdvance(bean -> ids.add(bean.get("Id"))));
+        assertEquals(3, ids.size());
+        assertEquals(Integer.valueOf(4), ids.get(2));
+    }
+
+    /**
+     * Tests processing all rows of a stream in parallel.
+     */
+    public void testParallelStream() throws Exception
+    {
+        Database         database = parseDatabaseFromString(TEST_MODEL);
+        PlatformImplBase platform = createPlatform(createResultSet(5000));
+
+        try (Stream<DynaBean> stream = platform.stream(database, "SELECT Id FROM TestTable", null))
+        {
+            long sum = stream.parallel().mapToLong(bean -> ((Integer)bean.get("Id")).longValue()).sum();
+
+            assertEquals(4999L * 5000L / 2, sum);
+        }
+        // reading all rows already released the statement and connection
+        assertEquals(2, getCloseCount());
+    }
+
+    /**
+     * Tests that closing a stream that was not read to the end releases the statement
+     * and the connection.
+     */
+    public void testCloseStream() throws Exception
+    {
+        Database         database = parseDatabaseFromString(TEST_MODEL);
+        PlatformImplBase platform = createPlatform(createResultSet(10));
+
+        try (Stream<DynaBean> stream = platform.stream(database, "SELECT Id FROM TestTable", null))
+        {
+            Iterator<DynaBean> it = stream.iterator();
+
+            assertEquals(Integer.valueOf(0), it.next().get("Id"));
+            assertEquals(0, getCloseCount());
+        }
+        assertEquals(2, getCloseCount());
+    }
+}
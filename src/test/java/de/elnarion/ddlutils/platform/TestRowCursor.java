@@ -0,0 +1,177 @@
+package de.elnarion.ddlutils.platform;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.elnarion.ddlutils.TestBase;
+import de.elnarion.ddlutils.io.DatabaseIO;
+import de.elnarion.ddlutils.model.Database;
+import de.elnarion.ddlutils.model.Table;
+
+/**
+ * Tests the {@link RowCursor} class and the row handler based queries.
+ *
+ * @version $Revision: $
+ */
+public class TestRowCursor extends TestBase
+{
+    /** The test model. */
+    private static final String TEST_MODEL =
+        "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+        "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+        "  <table name='TestTable'>\n"+
+        "    <column name='Id' type='INTEGER' primaryKey='true' required='true'/>\n"+
+        "    <column name='Name' type='VARCHAR' size='15'/>\n"+
+        "    <column name='Amount' type='BIGINT'/>\n"+
+        "  </table>\n"+
+        "</database>";
+
+    /**
+     * Tests reading the values of the columns of a known table.
+     */
+    public void testReadValues() throws Exception
+    {
+        Database       database  = parseDatabaseFromString(TEST_MODEL);
+        FixedResultSet resultSet = new FixedResultSet("TESTTABLE",
+                                                      new String[] { "ID", "NAME", "AMOUNT" },
+                                                      new Object[][] { { 1, "first", 10L }, { 2, null, null } });
+        RowCursor      cursor    = new RowCursor(new TestPlatform(), database, resultSet.getResultSet(), null);
+
+        assertEquals(3, cursor.getColumnCount());
+        assertEquals("Amount", cursor.getColumn(2).getName());
+        assertEquals(1, cursor.findColumnIndex("Name"));
+        assertEquals(-1, cursor.findColumnIndex("Other"));
+
+        assertTrue(resultSet.getResultSet().next());
+        assertEquals(1, cursor.getInt(0));
+        assertEquals("first", cursor.getString(1));
+        assertEquals(10L, cursor.getLong(2));
+        assertFalse(cursor.wasNull());
+        // the generic accessor reads the value according to the type of the column
+        assertEquals(Long.valueOf(10), cursor.getObject(2));
+        assertEquals("getLong(Integer)", resultSet.getReads().get(resultSet.getReads().size() - 1));
+
+        assertTrue(resultSet.getResultSet().next());
+        assertEquals(0, cursor.getLong(2));
+        assertTrue(cursor.wasNull());
+        assertNull(cursor.getObject(1));
+    }
+
+    /**
+     * Tests that the columns are resolved via the query hints if the JDBC driver does not
+     * return the table names.
+     */
+    public void testQueryHints() throws Exception
+    {
+        Database       database  = parseDatabaseFromString(TEST_MODEL);
+        FixedResultSet resultSet = new FixedResultSet("",
+                                                      new String[] { "AMOUNT", "CNT" },
+                                                      new Object[][] { { 5L, 3L } });
+        RowCursor      cursor    = new RowCursor(new TestPlatform(), database, resultSet.getResultSet(), new Table[] { database.getTable(0) });
+
+        assertEquals("Amount", cursor.getColumn(0).getName());
+        assertNull(cursor.getColumn(1));
+
+        assertTrue(resultSet.getResultSet().next());
+        assertEquals(Long.valueOf(5), cursor.getObject(0));
+        assertEquals(Long.valueOf(3), cursor.getObject(1));
+        assertEquals("getLong(Integer)", resultSet.getReads().get(0));
+        assertEquals("getObject(Integer)", resultSet.getReads().get(1));
+    }
+
+    /**
+     * Tests that the platform passes the rows to the row handler, and releases the
+     * connection afterwards.
+     */
+    public void testForEachRow() throws Exception
+    {
+        Database             database  = parseDatabaseFromString(TEST_MODEL);
+        final FixedResultSet resultSet = new FixedResultSet("TESTTABLE",
+                                                            new String[] { "ID", "NAME" },
+                                                            new Object[][] { { 1, "a" }, { 2, "b" }, { 3, "c" } });
+        final List<String>   calls     = new ArrayList<>();
+        InvocationHandler    jdbc      = new InvocationHandler()
+        {
+            public Object invoke(Object proxy, Method method, Object[] args)
+            {
+                calls.add(method.getName());
+                if ("prepareStatement".equals(method.getName()))
+                {
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { PreparedStatement.class }, this);
+                }
+                else if ("executeQuery".equals(method.getName()))
+                {
+                    return resultSet.getResultSet();
+                }
+                else if ("getAutoCommit".equals(method.getName()))
+                {
+                    return Boolean.TRUE;
+                }
+                else if ("isClosed".equals(method.getName()))
+                {
+                    return Boolean.FALSE;
+                }
+                return null;
+            }
+        };
+        final Connection     connection = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class[] { Connection.class }, jdbc);
+        PlatformImplBase     platform   = new TestPlatform()
+        {
+            public Connection borrowConnection()
+            {
+                return connection;
+            }
+        };
+        final StringBuffer   names      = new StringBuffer();
+
+        long rowCount = platform.forEachRow(database, "SELECT ID, NAME FROM TestTable", null, new RowHandler()
+        {
+            public boolean handleRow(RowCursor row)
+            {
+                names.append(row.getString(1));
+                return row.getInt(0) < 2;
+            }
+        });
+
+        // the handler stopped after the second row
+        assertEquals(2, rowCount);
+        assertEquals("ab", names.toString());
+        assertTrue(calls.contains("setFetchSize"));
+
+        int closeCount = 0;
+
+        for (String call : calls)
+        {
+            if ("close".equals(call))
+            {
+                closeCount++;
+            }
+        }
+        // both the statement and the connection were closed
+        assertEquals(2, closeCount);
+    }
+}
@@ -19,7 +19,9 @@ package de.elnarion.ddlutils.platform;
  * under the License.
  */
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import de.elnarion.ddlutils.TestBase;
@@ -97,4 +99,40 @@ public class TestSqlBuilder extends TestBase
         assertEquals("UPDATE \"TestTable\" SET \"id\" = '1', \"name\" = 'ddlutils' WHERE \"id\" = '0'",
                      sql);
     }
+
+    /**
+     * Tests the {@link SqlBuilder#getMultiRowInsertSql(Table, List, boolean)} method.
+     */
+    public void testMultiRowInsertSql()
+    {
+        final String modelXml =
+            "<?xml version='1.0' encoding='ISO-8859-1'?>\n"+
+            "<database xmlns='" + DatabaseIO.DDLUTILS_NAMESPACE + "' name='ddlutils'>\n"+
+            "  <table name='TestTable'>\n"+
+            "    <column name='id' autoIncrement='true' type='INTEGER' primaryKey='true'/>\n"+
+            "    <column name='name' type='VARCHAR' size='15'/>\n"+
+            "  </table>\n"+
+            "</database>";
+
+        TestPlatform              platform   = new TestPlatform();
+        SqlBuilder                sqlBuilder = platform.getSqlBuilder();
+        Database                  database   = parseDatabaseFromString(modelXml);
+        List<Map<String, Object>> rows       = new ArrayList<>();
+
+        for (int idx = 0; idx < 2; idx++)
+        {
+            Map<String, Object> map = new HashMap<>();
+
+            map.put("name", "ddlutils" + idx);
+            map.put("id", new Integer(idx));
+            rows.add(map);
+        }
+
+        platform.setDelimitedIdentifierModeOn(true);
+
+        assertEquals("INSERT INTO \"TestTable\" (\"id\", \"name\") VALUES ('0', 'ddlutils0'), ('1', 'ddlutils1')",
+                     sqlBuilder.getMultiRowInsertSql(database.getTable(0), rows, false));
+        assertEquals("INSERT INTO \"TestTable\" (\"id\", \"name\") VALUES (?, ?), (?, ?)",
+                     sqlBuilder.getMultiRowInsertSql(database.getTable(0), rows, true));
+    }
 }